@@ -4,14 +4,17 @@ import static com.battlelancer.seriesguide.api.constants.IncomingConstants.ACTIO
 import static com.battlelancer.seriesguide.api.constants.IncomingConstants.ACTION_UPDATE;
 import static com.battlelancer.seriesguide.api.constants.IncomingConstants.EXTRA_ENTITY_IDENTIFIER;
 import static com.battlelancer.seriesguide.api.constants.IncomingConstants.EXTRA_EPISODE;
+import static com.battlelancer.seriesguide.api.constants.IncomingConstants.EXTRA_EPISODES;
 import static com.battlelancer.seriesguide.api.constants.IncomingConstants.EXTRA_MOVIE;
 import static com.battlelancer.seriesguide.api.constants.IncomingConstants.EXTRA_SUBSCRIBER_COMPONENT;
 import static com.battlelancer.seriesguide.api.constants.IncomingConstants.EXTRA_TOKEN;
 import static com.battlelancer.seriesguide.api.constants.IncomingConstants.EXTRA_VERSION;
+import static com.battlelancer.seriesguide.api.constants.IncomingConstants.VERSION_BATCH;
 import static com.battlelancer.seriesguide.api.constants.OutgoingConstants.ACTION_PUBLISH_ACTION;
 import static com.battlelancer.seriesguide.api.constants.OutgoingConstants.ACTION_TYPE_EPISODE;
 import static com.battlelancer.seriesguide.api.constants.OutgoingConstants.ACTION_TYPE_MOVIE;
 import static com.battlelancer.seriesguide.api.constants.OutgoingConstants.EXTRA_ACTION;
+import static com.battlelancer.seriesguide.api.constants.OutgoingConstants.EXTRA_ACTIONS;
 import static com.battlelancer.seriesguide.api.constants.OutgoingConstants.EXTRA_ACTION_TYPE;
 
 import android.annotation.SuppressLint;
@@ -24,12 +27,15 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.core.app.JobIntentService;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.json.JSONException;
@@ -65,6 +71,10 @@ import org.json.JSONTokener;
  * receive an update with the new action information. Under the hood, this is done with
  * {@linkplain Context#sendBroadcast(Intent) broadcast intents}.
  *
+ * <p> Subscribers may request actions for multiple episodes at once, e.g. for all episodes of a
+ * season. {@link #onRequest(int, Episode)} is then called for each episode and all published
+ * actions are sent back in a single broadcast once the last episode was handled.
+ *
  * <p> As the subclass is a {@link JobIntentService}, it needs be declared as a
  * <code>&lt;service&gt;</code> component in the application's <code>AndroidManifest.xml</code>. In
  * addition it must be exported and given the {@link JobService#PERMISSION_BIND} permission to
@@ -191,6 +201,8 @@ public abstract class SeriesGuideExtension extends JobIntentService {
     private Action currentAction;
     private int currentActionType;
     private int currentVersion;
+    /** Collects published actions while handling a batched request, otherwise null. */
+    private List<Action> batchedActions;
 
     private Handler handler = new Handler();
 
@@ -312,11 +324,41 @@ public abstract class SeriesGuideExtension extends JobIntentService {
      * Publishes the provided {@link Action}. It will be sent to all current subscribers.
      */
     protected final void publishAction(Action action) {
+        if (batchedActions != null) {
+            // sent once all episodes of the request are handled
+            batchedActions.add(action);
+            return;
+        }
         currentAction = action;
         publishCurrentAction();
         saveLastAction();
     }
 
+    /**
+     * Publishes the provided {@link Action actions}, for example if they were looked up together.
+     * They will be sent to all current subscribers, in a single broadcast if the subscriber
+     * supports it.
+     */
+    protected final void publishActions(List<Action> actions) {
+        if (actions == null || actions.isEmpty()) {
+            return;
+        }
+        if (batchedActions != null) {
+            batchedActions.addAll(actions);
+            return;
+        }
+        if (currentVersion >= VERSION_BATCH) {
+            publishBatchedActions(actions);
+        } else {
+            for (Action action : actions) {
+                currentAction = action;
+                publishCurrentAction();
+            }
+        }
+        currentAction = actions.get(actions.size() - 1);
+        saveLastAction();
+    }
+
     /**
      * Returns the most recently published {@link Action}, or null if none was published, yet.
      */
@@ -335,8 +377,10 @@ public abstract class SeriesGuideExtension extends JobIntentService {
                     intent.getStringExtra(EXTRA_TOKEN));
         } else if (ACTION_UPDATE.equals(action)) {
             // subscriber requests an updated action
-            if (intent.hasExtra(EXTRA_ENTITY_IDENTIFIER)) {
-                int version = intent.getIntExtra(EXTRA_VERSION, 1);
+            int version = intent.getIntExtra(EXTRA_VERSION, 1);
+            if (version >= VERSION_BATCH && intent.hasExtra(EXTRA_EPISODES)) {
+                handleEpisodesRequest(intent.getParcelableArrayExtra(EXTRA_EPISODES), version);
+            } else if (intent.hasExtra(EXTRA_ENTITY_IDENTIFIER)) {
                 if (intent.hasExtra(EXTRA_EPISODE)) {
                     handleEpisodeRequest(intent.getIntExtra(EXTRA_ENTITY_IDENTIFIER, 0),
                             intent.getBundleExtra(EXTRA_EPISODE), version);
@@ -457,6 +501,32 @@ public abstract class SeriesGuideExtension extends JobIntentService {
         onRequest(episodeIdentifier, episode);
     }
 
+    private void handleEpisodesRequest(Parcelable[] episodeBundles, int version) {
+        if (episodeBundles == null || episodeBundles.length == 0) {
+            return;
+        }
+        currentActionType = ACTION_TYPE_EPISODE;
+        currentVersion = version;
+        List<Action> actions = new ArrayList<>(episodeBundles.length);
+        batchedActions = actions;
+        try {
+            for (Parcelable episodeBundle : episodeBundles) {
+                if (!(episodeBundle instanceof Bundle)) {
+                    continue;
+                }
+                Episode episode = Episode.fromBundle((Bundle) episodeBundle);
+                Integer episodeIdentifier = episode.getTvdbId();
+                if (episodeIdentifier == null || episodeIdentifier <= 0) {
+                    continue;
+                }
+                onRequest(episodeIdentifier, episode);
+            }
+        } finally {
+            batchedActions = null;
+        }
+        publishActions(actions);
+    }
+
     private void handleMovieRequest(int movieIdentifier, Bundle movieBundle, int version) {
         if (movieIdentifier <= 0 || movieBundle == null) {
             return;
@@ -487,22 +557,13 @@ public abstract class SeriesGuideExtension extends JobIntentService {
                 .putExtra(EXTRA_TOKEN, token)
                 .putExtra(EXTRA_ACTION,
                         (currentAction != null) ? currentAction.toBundle() : null)
-                .putExtra(EXTRA_ACTION_TYPE, currentActionType);
-
-        if (currentVersion == 2) {
-            // API 2 uses broadcast intents
-
-            // check if the subscriber still exists
-            try {
-                getPackageManager().getReceiverInfo(subscriber, 0);
-            } catch (PackageManager.NameNotFoundException e) {
-                // Unsubscribe the now-defunct subscriber
-                unsubscribeAsync(subscriber);
-                return;
-            }
+                .putExtra(EXTRA_ACTION_TYPE, currentActionType)
+                // tells the subscriber batched requests are supported
+                .putExtra(EXTRA_VERSION, VERSION_BATCH);
 
-            // Publish update
-            sendBroadcast(intent);
+        if (currentVersion >= 2) {
+            // API 2 and later use broadcast intents
+            sendBroadcastToSubscriber(subscriber, intent);
         } else if (currentVersion == 1 && Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
             // API 1 uses service intents, not compatible with O background restrictions
 
@@ -519,6 +580,47 @@ public abstract class SeriesGuideExtension extends JobIntentService {
         }
     }
 
+    /**
+     * Sends all actions to each subscriber with a single broadcast. Only use if the subscriber
+     * sent a batched request.
+     */
+    @SuppressLint("LogNotTimber")
+    private synchronized void publishBatchedActions(List<Action> actions) {
+        Bundle[] actionBundles = new Bundle[actions.size()];
+        for (int i = 0; i < actionBundles.length; i++) {
+            actionBundles[i] = actions.get(i).toBundle();
+        }
+        for (ComponentName subscriber : subscribers.keySet()) {
+            String token = subscribers.get(subscriber);
+            if (TextUtils.isEmpty(token)) {
+                Log.w(TAG, "Not active, canceling update, id=" + name);
+                continue;
+            }
+
+            Intent intent = new Intent(ACTION_PUBLISH_ACTION)
+                    .setComponent(subscriber)
+                    .putExtra(EXTRA_TOKEN, token)
+                    .putExtra(EXTRA_ACTIONS, actionBundles)
+                    .putExtra(EXTRA_ACTION_TYPE, currentActionType)
+                    .putExtra(EXTRA_VERSION, VERSION_BATCH);
+            sendBroadcastToSubscriber(subscriber, intent);
+        }
+    }
+
+    private void sendBroadcastToSubscriber(ComponentName subscriber, Intent intent) {
+        // check if the subscriber still exists
+        try {
+            getPackageManager().getReceiverInfo(subscriber, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            // Unsubscribe the now-defunct subscriber
+            unsubscribeAsync(subscriber);
+            return;
+        }
+
+        // Publish update
+        sendBroadcast(intent);
+    }
+
     @SuppressLint("LogNotTimber")
     private void unsubscribeAsync(final ComponentName subscriber) {
         Log.e(TAG,
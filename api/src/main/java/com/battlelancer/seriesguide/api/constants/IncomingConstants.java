@@ -14,5 +14,10 @@ public interface IncomingConstants {
     String EXTRA_MOVIE = "com.battlelancer.seriesguide.api.extra.MOVIE";
     String EXTRA_ENTITY_IDENTIFIER = "com.battlelancer.seriesguide.api.extra.ENTITY_IDENTIFIER";
     String EXTRA_VERSION = "com.battlelancer.seriesguide.api.extra.VERSION";
+    /** Array of episode bundles, sent with {@link #VERSION_BATCH} instead of a single episode. */
+    String EXTRA_EPISODES = "com.battlelancer.seriesguide.api.extra.EPISODES";
+
+    /** Requests and replies may contain multiple episodes or actions. */
+    int VERSION_BATCH = 3;
 
 }
@@ -7,6 +7,8 @@ public interface OutgoingConstants {
 
     String ACTION_PUBLISH_ACTION = "com.battlelancer.seriesguide.api.action.PUBLISH_ACTION";
     String EXTRA_ACTION = "com.battlelancer.seriesguide.api.extra.ACTION";
+    /** Array of action bundles, sent in reply to a batched request. */
+    String EXTRA_ACTIONS = "com.battlelancer.seriesguide.api.extra.ACTIONS";
     String EXTRA_ACTION_TYPE = "com.battlelancer.seriesguide.api.extra.ACTION_TYPE";
     int ACTION_TYPE_EPISODE = 0;
     int ACTION_TYPE_MOVIE = 1;
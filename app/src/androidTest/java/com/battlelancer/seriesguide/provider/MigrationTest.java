@@ -6,8 +6,12 @@ import static com.battlelancer.seriesguide.provider.SgRoomDatabase.MIGRATION_44_
 import static com.battlelancer.seriesguide.provider.SgRoomDatabase.MIGRATION_45_46;
 import static com.battlelancer.seriesguide.provider.SgRoomDatabase.MIGRATION_46_47;
 import static com.battlelancer.seriesguide.provider.SgRoomDatabase.MIGRATION_47_48;
+import static com.battlelancer.seriesguide.provider.SgRoomDatabase.MIGRATION_48_49;
+import static com.battlelancer.seriesguide.provider.SgRoomDatabase.MIGRATION_49_50;
+import static com.battlelancer.seriesguide.provider.SgRoomDatabase.MIGRATION_50_51;
 import static com.google.common.truth.Truth.assertThat;
 
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import androidx.annotation.Nullable;
 import androidx.room.Room;
@@ -241,6 +245,70 @@ public class MigrationTest {
         assertThat(movieNotWatched.plays).isEqualTo(0);
     }
 
+    @Test
+    public void migrationFrom48To49_containsCorrectData() throws IOException {
+        int v48 = SgRoomDatabase.VERSION_48_EPISODE_PLAYS;
+        SupportSQLiteDatabase db = migrationTestHelper.createDatabase(TEST_DB_NAME, v48);
+        RoomDatabaseTestHelper.insertShow(SHOW, db, v48);
+        RoomDatabaseTestHelper.insertSeason(SEASON, db);
+        RoomDatabaseTestHelper
+                .insertEpisode(db, v48, EPISODE, SHOW.tvdb_id, SEASON.tvdbId, SEASON.number,
+                        false);
+        db.close();
+
+        SgRoomDatabase database = getMigratedRoomDatabase();
+        assertTestData(database);
+
+        // Search table should be rebuilt with existing episodes.
+        Cursor query = database.query("SELECT docid FROM searchtable WHERE searchtable MATCH ?",
+                new String[]{"Title"});
+        assertThat(query.getCount()).isEqualTo(1);
+        query.close();
+
+        // Triggers keeping the search table up to date should exist.
+        query = database.query("SELECT name FROM sqlite_master WHERE type='trigger'"
+                + " AND tbl_name='episodes'", null);
+        assertThat(query.getCount())
+                .isEqualTo(SeriesGuideDatabase.CREATE_SEARCH_TABLE_TRIGGERS.length);
+        query.close();
+    }
+
+    @Test
+    public void migrationFrom49To50_containsCorrectData() throws IOException {
+        int v49 = SgRoomDatabase.VERSION_49_SEARCH_TRIGGERS;
+        SupportSQLiteDatabase db = migrationTestHelper.createDatabase(TEST_DB_NAME, v49);
+        RoomDatabaseTestHelper.insertShow(SHOW, db, v49);
+        RoomDatabaseTestHelper.insertSeason(SEASON, db);
+        RoomDatabaseTestHelper
+                .insertEpisode(db, v49, EPISODE, SHOW.tvdb_id, SEASON.tvdbId, SEASON.number,
+                        false);
+        db.close();
+
+        // Validates new episode indexes exist and the old one was dropped.
+        migrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME,
+                SgRoomDatabase.VERSION_50_EPISODE_INDEXES, false, MIGRATION_49_50);
+
+        assertTestData(getMigratedRoomDatabase());
+    }
+
+    @Test
+    public void migrationFrom50To51_containsCorrectData() throws IOException {
+        int v50 = SgRoomDatabase.VERSION_50_EPISODE_INDEXES;
+        SupportSQLiteDatabase db = migrationTestHelper.createDatabase(TEST_DB_NAME, v50);
+        RoomDatabaseTestHelper.insertShow(SHOW, db, v50);
+        RoomDatabaseTestHelper.insertSeason(SEASON, db);
+        RoomDatabaseTestHelper
+                .insertEpisode(db, v50, EPISODE, SHOW.tvdb_id, SEASON.tvdbId, SEASON.number,
+                        false);
+        db.close();
+
+        // Validates TMDB show ids table exists.
+        migrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME,
+                SgRoomDatabase.VERSION_51_TMDB_SHOW_IDS, false, MIGRATION_50_51);
+
+        assertTestData(getMigratedRoomDatabase());
+    }
+
     private void assertTestData(SgRoomDatabase database) {
         // MigrationTestHelper automatically verifies the schema changes, but not the data validity.
         // Validate that the data was migrated properly.
@@ -273,7 +341,10 @@ public class MigrationTest {
                         MIGRATION_44_45,
                         MIGRATION_45_46,
                         MIGRATION_46_47,
-                        MIGRATION_47_48
+                        MIGRATION_47_48,
+                        MIGRATION_48_49,
+                        MIGRATION_49_50,
+                        MIGRATION_50_51
                 )
                 .build();
         // close the database and release any stream resources when the test finishes
@@ -2,11 +2,19 @@ package com.battlelancer.seriesguide.provider;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.Nullable;
 import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.EpisodeSearch;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.uwetrottmann.thetvdb.entities.Episode;
 import java.io.IOException;
 import org.junit.After;
 import org.junit.Before;
@@ -42,4 +50,60 @@ public class SearchTableTest {
         assertThat(result.getCount()).isEqualTo(1);
     }
 
+    @Test
+    public void searchTableKeptUpToDate() {
+        SupportSQLiteDatabase writableDb = db.getOpenHelper().getWritableDatabase();
+
+        // insert
+        insertEpisode(writableDb, 21, "Pilot");
+        insertEpisode(writableDb, 22, "Reunion");
+        assertThat(search("Pilot")).isEqualTo(21);
+        assertThat(search("Reunion")).isEqualTo(22);
+
+        // insert replacing existing row
+        insertEpisode(writableDb, 21, "Departure");
+        assertThat(search("Pilot")).isNull();
+        assertThat(search("Departure")).isEqualTo(21);
+
+        // update of title
+        ContentValues values = new ContentValues();
+        values.put(Episodes.TITLE, "Arrival");
+        writableDb.update(Tables.EPISODES, SQLiteDatabase.CONFLICT_NONE, values,
+                Episodes._ID + "=22", null);
+        assertThat(search("Reunion")).isNull();
+        assertThat(search("Arrival")).isEqualTo(22);
+
+        // update of other column does not change index
+        values.clear();
+        values.put(Episodes.WATCHED, 1);
+        writableDb.update(Tables.EPISODES, SQLiteDatabase.CONFLICT_NONE, values,
+                Episodes._ID + "=22", null);
+        assertThat(search("Arrival")).isEqualTo(22);
+
+        // delete
+        writableDb.delete(Tables.EPISODES, Episodes._ID + "=21", null);
+        assertThat(search("Departure")).isNull();
+        assertThat(search("Arrival")).isEqualTo(22);
+    }
+
+    private static void insertEpisode(SupportSQLiteDatabase db, int tvdbId, String title) {
+        Episode episode = new Episode();
+        episode.id = tvdbId;
+        episode.episodeName = title;
+        episode.airedEpisodeNumber = 1;
+        RoomDatabaseTestHelper.insertEpisode(db, SgRoomDatabase.VERSION, episode, 21, 21, 1,
+                false);
+    }
+
+    @Nullable
+    private Integer search(String term) {
+        Cursor result = db.query("SELECT " + EpisodeSearch._DOCID + " FROM "
+                + Tables.EPISODES_SEARCH + " WHERE " + Tables.EPISODES_SEARCH + " MATCH ?",
+                new String[]{term});
+        assertThat(result).isNotNull();
+        Integer docId = result.moveToFirst() ? result.getInt(0) : null;
+        result.close();
+        return docId;
+    }
+
 }
@@ -0,0 +1,48 @@
+package com.battlelancer.seriesguide.provider;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.battlelancer.seriesguide.model.SgTmdbShowId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class TmdbShowIdHelperTest {
+
+    private Context context;
+
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        SgRoomDatabase.switchToInMemory(context);
+    }
+
+    @After
+    public void closeDb() {
+        SgRoomDatabase.getInstance(context).close();
+    }
+
+    @Test
+    public void insertAndGetShowIds() {
+        TmdbShowIdHelper helper = SgRoomDatabase.getInstance(context).tmdbShowIdHelper();
+        helper.insertShowIds(Arrays.asList(new SgTmdbShowId(1, 10), new SgTmdbShowId(2, 20)));
+        // replaces existing mapping
+        helper.insertShowIds(Collections.singletonList(new SgTmdbShowId(2, 21)));
+
+        List<SgTmdbShowId> showIds = helper.getShowIds(Arrays.asList(1, 2, 3));
+        assertThat(showIds).hasSize(2);
+        for (SgTmdbShowId showId : showIds) {
+            assertThat(showId.tvdbId).isEqualTo(showId.tmdbId == 1 ? 10 : 21);
+        }
+        assertThat(helper.getTmdbId(21)).isEqualTo(2);
+        assertThat(helper.getTmdbId(20)).isNull();
+    }
+}
@@ -0,0 +1,108 @@
+package com.battlelancer.seriesguide.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.battlelancer.seriesguide.SgApp;
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SgRoomDatabase;
+import com.battlelancer.seriesguide.ui.episodes.EpisodeFlags;
+import com.battlelancer.seriesguide.util.DBUtils;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class EpisodeFlagWriterTest {
+
+    private static final int SHOW_TVDB_ID = 12;
+    private static final int SEASON_TVDB_ID = 1234;
+    private static final int SEASON_NUMBER = 1;
+    private static final int EPISODE_COUNT = 1000;
+
+    private Context context;
+    private ContentResolver resolver;
+
+    @Before
+    public void setup() throws Exception {
+        // ProviderTestRule does not work with Room
+        // so instead blatantly replace the instance with one that uses an in-memory database
+        // and use the real ContentResolver
+        context = ApplicationProvider.getApplicationContext();
+        SgRoomDatabase.switchToInMemory(context);
+        resolver = context.getContentResolver();
+
+        Show show = new Show();
+        show.tvdb_id = SHOW_TVDB_ID;
+
+        ArrayList<ContentProviderOperation> batch = new ArrayList<>();
+        batch.add(ContentProviderOperation.newInsert(Shows.CONTENT_URI)
+                .withValues(show.toContentValues(context, true)).build());
+        batch.add(DBUtils.buildSeasonOp(SHOW_TVDB_ID, SEASON_TVDB_ID, SEASON_NUMBER, true));
+        for (int number = 1; number <= EPISODE_COUNT; number++) {
+            Episode episode = new Episode();
+            episode.tvdbId = episodeTvdbId(number);
+            episode.episode = number;
+            episode.collected = true;
+            batch.add(ContentProviderOperation.newInsert(Episodes.CONTENT_URI)
+                    .withValues(episode.toContentValues(SHOW_TVDB_ID, SEASON_TVDB_ID,
+                            SEASON_NUMBER))
+                    .build());
+        }
+        resolver.applyBatch(SgApp.CONTENT_AUTHORITY, batch);
+    }
+
+    @After
+    public void closeDb() {
+        SgRoomDatabase.getInstance(context).close();
+    }
+
+    private static int episodeTvdbId(int number) {
+        return 100000 + number;
+    }
+
+    @Test
+    public void write_byNumberAndById() {
+        EpisodeFlagWriter writer = new EpisodeFlagWriter(context);
+        for (int number = 1; number <= EPISODE_COUNT; number++) {
+            writer.addByNumber(SHOW_TVDB_ID, SEASON_NUMBER, number, EpisodeFlags.WATCHED, 2,
+                    EpisodeFlagWriter.KEEP);
+        }
+        // only changes given values
+        writer.addById(episodeTvdbId(1), EpisodeFlagWriter.KEEP, EpisodeFlagWriter.KEEP, 0);
+        writer.addById(episodeTvdbId(2), EpisodeFlags.SKIPPED, 0, EpisodeFlagWriter.KEEP);
+        // ignores episodes that do not exist
+        writer.addByNumber(SHOW_TVDB_ID, SEASON_NUMBER, EPISODE_COUNT + 1,
+                EpisodeFlags.WATCHED, 1, 1);
+        assertThat(writer.size()).isEqualTo(EPISODE_COUNT + 3);
+
+        assertThat(writer.write()).isTrue();
+        assertThat(writer.size()).isEqualTo(0);
+
+        assertEpisode(1, EpisodeFlags.WATCHED, 2, false);
+        assertEpisode(2, EpisodeFlags.SKIPPED, 0, true);
+        assertEpisode(EPISODE_COUNT, EpisodeFlags.WATCHED, 2, true);
+    }
+
+    private void assertEpisode(int number, int watched, int plays, boolean collected) {
+        Cursor query = resolver.query(Episodes.buildEpisodeUri(episodeTvdbId(number)),
+                new String[]{Episodes.WATCHED, Episodes.PLAYS, Episodes.COLLECTED},
+                null, null, null);
+        assertThat(query).isNotNull();
+        assertThat(query.moveToFirst()).isTrue();
+        assertThat(query.getInt(0)).isEqualTo(watched);
+        assertThat(query.getInt(1)).isEqualTo(plays);
+        assertThat(query.getInt(2) == 1).isEqualTo(collected);
+        query.close();
+    }
+}
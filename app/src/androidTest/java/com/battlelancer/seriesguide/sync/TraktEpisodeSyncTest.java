@@ -0,0 +1,184 @@
+package com.battlelancer.seriesguide.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.text.TextUtils;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.battlelancer.seriesguide.SgApp;
+import com.battlelancer.seriesguide.dataliberation.model.Episode;
+import com.battlelancer.seriesguide.dataliberation.model.Show;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SgRoomDatabase;
+import com.battlelancer.seriesguide.traktapi.TraktEpisodeFlags;
+import com.battlelancer.seriesguide.ui.episodes.EpisodeFlags;
+import com.battlelancer.seriesguide.util.DBUtils;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class TraktEpisodeSyncTest {
+
+    private static final int SHOW_TVDB_ID = 12;
+    private static final int OTHER_SHOW_TVDB_ID = 13;
+
+    private Context context;
+    private ContentResolver resolver;
+    private final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        // ProviderTestRule does not work with Room
+        // so instead blatantly replace the instance with one that uses an in-memory database
+        // and use the real ContentResolver
+        context = ApplicationProvider.getApplicationContext();
+        SgRoomDatabase.switchToInMemory(context);
+        resolver = context.getContentResolver();
+    }
+
+    @After
+    public void closeDb() {
+        SgRoomDatabase.getInstance(context).close();
+    }
+
+    private void addShow(int showTvdbId) {
+        Show show = new Show();
+        show.tvdb_id = showTvdbId;
+        batch.add(ContentProviderOperation.newInsert(Shows.CONTENT_URI)
+                .withValues(show.toContentValues(context, true)).build());
+    }
+
+    private void addSeason(int showTvdbId, int season) {
+        batch.add(DBUtils.buildSeasonOp(showTvdbId, seasonTvdbId(showTvdbId, season), season,
+                true));
+    }
+
+    private void addEpisode(int showTvdbId, int season, int number, int watched, int plays,
+            boolean collected) {
+        Episode episode = new Episode();
+        episode.tvdbId = episodeTvdbId(showTvdbId, season, number);
+        episode.episode = number;
+        episode.watched = watched == EpisodeFlags.WATCHED;
+        episode.skipped = watched == EpisodeFlags.SKIPPED;
+        episode.plays = plays;
+        episode.collected = collected;
+        batch.add(ContentProviderOperation.newInsert(Episodes.CONTENT_URI)
+                .withValues(episode.toContentValues(showTvdbId,
+                        seasonTvdbId(showTvdbId, season), season))
+                .build());
+    }
+
+    private static int seasonTvdbId(int showTvdbId, int season) {
+        return showTvdbId * 100 + season;
+    }
+
+    private static int episodeTvdbId(int showTvdbId, int season, int number) {
+        return showTvdbId * 10000 + season * 100 + number;
+    }
+
+    private static String traktSeason(int number, String... episodes) {
+        return "{\"number\":" + number + ",\"episodes\":[" + TextUtils.join(",", episodes)
+                + "]}";
+    }
+
+    private static String traktEpisode(int number, int plays) {
+        return "{\"number\":" + number + ",\"plays\":" + plays + "}";
+    }
+
+    private static TraktEpisodeFlags traktShows(int showTvdbId, String... seasons)
+            throws IOException {
+        String json = "[{\"show\":{\"ids\":{\"tvdb\":" + showTvdbId + "}},\"seasons\":["
+                + TextUtils.join(",", seasons) + "]}]";
+        return TraktEpisodeFlags.parse(new StringReader(json));
+    }
+
+    @Test
+    public void storeWatched() throws Exception {
+        addShow(SHOW_TVDB_ID);
+        addSeason(SHOW_TVDB_ID, 1);
+        addEpisode(SHOW_TVDB_ID, 1, 1, EpisodeFlags.WATCHED, 1, false);
+        addEpisode(SHOW_TVDB_ID, 1, 2, EpisodeFlags.SKIPPED, 0, false);
+        addEpisode(SHOW_TVDB_ID, 1, 3, EpisodeFlags.UNWATCHED, 0, false);
+        addEpisode(SHOW_TVDB_ID, 1, 4, EpisodeFlags.WATCHED, 2, false);
+        addSeason(SHOW_TVDB_ID, 2);
+        addEpisode(SHOW_TVDB_ID, 2, 1, EpisodeFlags.WATCHED, 1, false);
+        addEpisode(SHOW_TVDB_ID, 2, 2, EpisodeFlags.SKIPPED, 0, false);
+        // episodes of other shows must not be changed
+        addShow(OTHER_SHOW_TVDB_ID);
+        addSeason(OTHER_SHOW_TVDB_ID, 1);
+        addEpisode(OTHER_SHOW_TVDB_ID, 1, 1, EpisodeFlags.WATCHED, 1, false);
+        resolver.applyBatch(SgApp.CONTENT_AUTHORITY, batch);
+
+        TraktEpisodeFlags traktShows = traktShows(SHOW_TVDB_ID,
+                traktSeason(1, traktEpisode(1, 3), traktEpisode(2, 1), traktEpisode(3, 2)));
+
+        TraktEpisodeSync sync = new TraktEpisodeSync(context, null, null);
+        assertThat(sync.storeEpisodeFlags(traktShows, SHOW_TVDB_ID,
+                TraktEpisodeSync.Flag.WATCHED)).isTrue();
+
+        // plays updated
+        assertEpisode(SHOW_TVDB_ID, 1, 1, EpisodeFlags.WATCHED, 3, false);
+        // skipped, but watched on trakt
+        assertEpisode(SHOW_TVDB_ID, 1, 2, EpisodeFlags.WATCHED, 1, false);
+        assertEpisode(SHOW_TVDB_ID, 1, 3, EpisodeFlags.WATCHED, 2, false);
+        // not watched on trakt
+        assertEpisode(SHOW_TVDB_ID, 1, 4, EpisodeFlags.UNWATCHED, 0, false);
+        // season not watched on trakt, skipped is kept
+        assertEpisode(SHOW_TVDB_ID, 2, 1, EpisodeFlags.UNWATCHED, 0, false);
+        assertEpisode(SHOW_TVDB_ID, 2, 2, EpisodeFlags.SKIPPED, 0, false);
+
+        assertEpisode(OTHER_SHOW_TVDB_ID, 1, 1, EpisodeFlags.WATCHED, 1, false);
+    }
+
+    @Test
+    public void storeCollected() throws Exception {
+        addShow(SHOW_TVDB_ID);
+        addSeason(SHOW_TVDB_ID, 1);
+        addEpisode(SHOW_TVDB_ID, 1, 1, EpisodeFlags.UNWATCHED, 0, true);
+        addEpisode(SHOW_TVDB_ID, 1, 2, EpisodeFlags.UNWATCHED, 0, false);
+        addEpisode(SHOW_TVDB_ID, 1, 3, EpisodeFlags.WATCHED, 1, true);
+        addSeason(SHOW_TVDB_ID, 2);
+        addEpisode(SHOW_TVDB_ID, 2, 1, EpisodeFlags.UNWATCHED, 0, true);
+        resolver.applyBatch(SgApp.CONTENT_AUTHORITY, batch);
+
+        TraktEpisodeFlags traktShows = traktShows(SHOW_TVDB_ID,
+                traktSeason(1, traktEpisode(1, 0), traktEpisode(2, 0)));
+
+        TraktEpisodeSync sync = new TraktEpisodeSync(context, null, null);
+        assertThat(sync.storeEpisodeFlags(traktShows, SHOW_TVDB_ID,
+                TraktEpisodeSync.Flag.COLLECTED)).isTrue();
+
+        assertEpisode(SHOW_TVDB_ID, 1, 1, EpisodeFlags.UNWATCHED, 0, true);
+        assertEpisode(SHOW_TVDB_ID, 1, 2, EpisodeFlags.UNWATCHED, 0, true);
+        // watched flag is not changed
+        assertEpisode(SHOW_TVDB_ID, 1, 3, EpisodeFlags.WATCHED, 1, false);
+        assertEpisode(SHOW_TVDB_ID, 2, 1, EpisodeFlags.UNWATCHED, 0, false);
+    }
+
+    private void assertEpisode(int showTvdbId, int season, int number, int watched, int plays,
+            boolean collected) {
+        Cursor query = resolver.query(
+                Episodes.buildEpisodeUri(episodeTvdbId(showTvdbId, season, number)),
+                new String[]{Episodes.WATCHED, Episodes.PLAYS, Episodes.COLLECTED},
+                null, null, null);
+        assertThat(query).isNotNull();
+        assertThat(query.moveToFirst()).isTrue();
+        String episode = "S" + season + "E" + number;
+        assertWithMessage(episode + " watched").that(query.getInt(0)).isEqualTo(watched);
+        assertWithMessage(episode + " plays").that(query.getInt(1)).isEqualTo(plays);
+        assertWithMessage(episode + " collected").that(query.getInt(2) == 1)
+                .isEqualTo(collected);
+        query.close();
+    }
+}
@@ -106,6 +106,90 @@ public class TimeToolsTest {
         assertThat(episodeReleaseTime).isEqualTo(1370072100000L);
     }
 
+    @Test
+    public void test_episodeReleaseTimeCalculator_matchesParseEpisodeReleaseDate() {
+        String[] showTimeZones = {AMERICA_NEW_YORK, AMERICA_LOS_ANGELES, EUROPE_BERLIN};
+        // includes past midnight, inside DST gap and inside DST overlap
+        LocalTime[] releaseTimes = {LocalTime.of(20, 0), LocalTime.of(0, 35),
+                LocalTime.of(2, 30), LocalTime.of(1, 30)};
+        String[] countries = {UNITED_STATES, GERMANY};
+        String[] networks = {null, "Netflix"};
+        String[] deviceTimeZones = {TimeTools.TIMEZONE_ID_US_EASTERN,
+                TimeTools.TIMEZONE_ID_US_MOUNTAIN, TimeTools.TIMEZONE_ID_US_ARIZONA,
+                TimeTools.TIMEZONE_ID_US_PACIFIC, EUROPE_BERLIN};
+        String[] invalidDates = {null, "", "2017-02-30", "2017-1-31", "Jan 31"};
+
+        for (String showTimeZone : showTimeZones) {
+            ZoneId showZoneId = ZoneId.of(showTimeZone);
+            for (LocalTime releaseTime : releaseTimes) {
+                for (String country : countries) {
+                    for (String network : networks) {
+                        for (String deviceTimeZone : deviceTimeZones) {
+                            EpisodeReleaseTimeCalculator calculator =
+                                    new EpisodeReleaseTimeCalculator(showZoneId, releaseTime,
+                                            country, network, deviceTimeZone);
+                            // every day of a year, so includes DST changes
+                            LocalDate date = LocalDate.of(2017, 1, 1);
+                            while (date.getYear() == 2017) {
+                                String releaseDate = date.toString();
+                                assertWithMessage("%s %s %s %s %s %s", showTimeZone, releaseTime,
+                                        country, network, deviceTimeZone, releaseDate)
+                                        .that(calculator.calculate(releaseDate))
+                                        .isEqualTo(TimeTools.parseEpisodeReleaseDate(null,
+                                                showZoneId, releaseDate, releaseTime, country,
+                                                network, deviceTimeZone));
+                                date = date.plusDays(1);
+                            }
+                            for (String releaseDate : invalidDates) {
+                                assertThat(calculator.calculate(releaseDate)).isEqualTo(-1);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_episodeReleaseTimeCalculator_benchmark() {
+        // a show with 10k episodes, one each day
+        String[] releaseDates = new String[10000];
+        LocalDate date = LocalDate.of(1990, 1, 1);
+        for (int i = 0; i < releaseDates.length; i++) {
+            releaseDates[i] = date.toString();
+            date = date.plusDays(1);
+        }
+        ZoneId showTimeZone = ZoneId.of(AMERICA_NEW_YORK);
+        LocalTime releaseTime = LocalTime.of(20, 0);
+        String deviceTimeZone = TimeTools.TIMEZONE_ID_US_ARIZONA;
+
+        long[] expected = new long[releaseDates.length];
+        long[] actual = new long[releaseDates.length];
+        // run each twice, only measure second run
+        long staticNs = 0;
+        long calculatorNs = 0;
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < releaseDates.length; i++) {
+                expected[i] = TimeTools.parseEpisodeReleaseDate(null, showTimeZone,
+                        releaseDates[i], releaseTime, UNITED_STATES, null, deviceTimeZone);
+            }
+            staticNs = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            EpisodeReleaseTimeCalculator calculator = new EpisodeReleaseTimeCalculator(
+                    showTimeZone, releaseTime, UNITED_STATES, null, deviceTimeZone);
+            for (int i = 0; i < releaseDates.length; i++) {
+                actual[i] = calculator.calculate(releaseDates[i]);
+            }
+            calculatorNs = System.nanoTime() - start;
+        }
+        System.out.println("parseEpisodeReleaseDate: " + staticNs / 1000 + " us, "
+                + "EpisodeReleaseTimeCalculator: " + calculatorNs / 1000 + " us");
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
     @Test
     public void test_getShowReleaseDateTime_dstGap() {
         // using begin of daylight saving time in Europe/Berlin on 2017-03-26
@@ -0,0 +1,137 @@
+package com.battlelancer.seriesguide.dataliberation;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.SQLException;
+import android.net.Uri;
+import android.os.SystemClock;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.battlelancer.seriesguide.provider.SgRoomDatabase;
+import java.util.LinkedHashSet;
+import timber.log.Timber;
+
+/**
+ * Inserts rows into the database in transactions of up to {@link #commitSize} rows instead of one
+ * transaction per row. Content URIs of inserted rows are only notified once on {@link #close()}.
+ *
+ * <p>Call {@link #finish()} to commit the remaining rows. Rows inserted before the last commit stay
+ * in the database if importing fails, like with individual inserts. Always call {@link #close()}
+ * afterwards.
+ */
+class BulkImportWriter {
+
+    /**
+     * Commit size that keeps transactions short enough to not block other database access for
+     * long, while most of the per-transaction overhead is avoided.
+     */
+    static final int DEFAULT_COMMIT_SIZE = 1000;
+
+    private final Context context;
+    private final SgRoomDatabase room;
+    private final int commitSize;
+    private final LinkedHashSet<Uri> notifyUris = new LinkedHashSet<>();
+
+    private boolean inTransaction;
+    private int rowsInTransaction;
+    private int rowCount;
+    private long startTime;
+
+    BulkImportWriter(Context context, int commitSize) {
+        if (commitSize < 1) {
+            throw new IllegalArgumentException("commitSize must be at least 1");
+        }
+        this.context = context.getApplicationContext();
+        this.room = SgRoomDatabase.getInstance(context);
+        this.commitSize = commitSize;
+    }
+
+    /**
+     * Inserts the values into the table, committing the current transaction if it contains
+     * {@link #commitSize} rows. Like the content provider only logs if the insert fails.
+     *
+     * @param notifyUri Notified on {@link #close()} if at least one row was inserted.
+     * @return The row ID of the inserted row, or -1 on failure.
+     */
+    long insert(String table, int conflictAlgorithm, ContentValues values, Uri notifyUri) {
+        if (!inTransaction) {
+            if (startTime == 0) {
+                startTime = SystemClock.elapsedRealtime();
+            }
+            room.beginTransaction();
+            inTransaction = true;
+        }
+
+        long id;
+        try {
+            SupportSQLiteDatabase db = room.getOpenHelper().getWritableDatabase();
+            id = db.insert(table, conflictAlgorithm, values);
+        } catch (SQLException e) {
+            Timber.e(e, "Error inserting %s", values);
+            id = -1;
+        }
+        if (id >= 0) {
+            rowCount++;
+            notifyUris.add(notifyUri);
+        }
+
+        rowsInTransaction++;
+        if (rowsInTransaction >= commitSize) {
+            commit();
+        }
+        return id;
+    }
+
+    private void commit() {
+        if (!inTransaction) {
+            return;
+        }
+        try {
+            room.setTransactionSuccessful();
+        } finally {
+            room.endTransaction();
+            inTransaction = false;
+            rowsInTransaction = 0;
+        }
+    }
+
+    /**
+     * Commits any remaining rows.
+     */
+    void finish() {
+        commit();
+    }
+
+    /**
+     * Number of rows inserted successfully.
+     */
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Rows inserted per second since the first insert.
+     */
+    int getRowsPerSecond() {
+        if (startTime == 0) {
+            return 0;
+        }
+        long elapsedMs = Math.max(1, SystemClock.elapsedRealtime() - startTime);
+        return (int) (rowCount * 1000L / elapsedMs);
+    }
+
+    /**
+     * Ends a transaction that is still open without committing it, so rows inserted since the last
+     * commit are discarded. Then notifies the content URIs of all inserted rows.
+     */
+    void close() {
+        if (inTransaction) {
+            room.endTransaction();
+            inTransaction = false;
+            rowsInTransaction = 0;
+        }
+        for (Uri uri : notifyUris) {
+            context.getContentResolver().notifyChange(uri, null);
+        }
+        notifyUris.clear();
+    }
+}
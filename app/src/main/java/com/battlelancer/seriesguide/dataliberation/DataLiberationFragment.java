@@ -258,7 +258,7 @@ public class DataLiberationFragment extends Fragment implements
         } else if (requestCode == REQUEST_CODE_IMPORT) {
             setProgressLock(true);
 
-            dataLibTask = new JsonImportTask(requireContext(),
+            dataLibTask = new JsonImportTask(requireContext(), DataLiberationFragment.this,
                     checkBoxShows.isChecked(), checkBoxLists.isChecked(),
                     checkBoxMovies.isChecked());
             Utils.executeInOrder(dataLibTask);
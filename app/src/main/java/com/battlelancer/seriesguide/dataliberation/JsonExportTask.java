@@ -5,9 +5,11 @@ import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Movies;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.ParcelFileDescriptor;
+import android.text.TextUtils;
 import androidx.annotation.IntDef;
 import androidx.annotation.Nullable;
 import com.battlelancer.seriesguide.R;
@@ -15,19 +17,21 @@ import com.battlelancer.seriesguide.dataliberation.model.Episode;
 import com.battlelancer.seriesguide.dataliberation.model.List;
 import com.battlelancer.seriesguide.dataliberation.model.ListItem;
 import com.battlelancer.seriesguide.dataliberation.model.Movie;
-import com.battlelancer.seriesguide.dataliberation.model.Season;
 import com.battlelancer.seriesguide.dataliberation.model.Show;
-import com.battlelancer.seriesguide.model.SgEpisode;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.ListItemTypes;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.ListItems;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
 import com.battlelancer.seriesguide.provider.SgRoomDatabase;
 import com.battlelancer.seriesguide.ui.episodes.EpisodeTools;
 import com.battlelancer.seriesguide.ui.shows.ShowTools;
 import com.battlelancer.seriesguide.util.TaskManager;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonWriter;
 import java.io.FileNotFoundException;
@@ -39,6 +43,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Map;
 import org.greenrobot.eventbus.EventBus;
 import timber.log.Timber;
 
@@ -272,9 +277,12 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
     @Nullable
     Cursor getDataCursor(@BackupType int type) {
         if (type == BACKUP_SHOWS) {
-            return context.getContentResolver().query(
-                    Shows.CONTENT_URI, ShowsQuery.PROJECTION_FULL,
-                    null, null, Shows.SORT_TITLE);
+            try {
+                return SgRoomDatabase.getInstance(context).query(ShowsWithEpisodesQuery.QUERY, null);
+            } catch (SQLiteException e) {
+                Timber.e(e, "Failed to query shows with episodes");
+                return null;
+            }
         }
         if (type == BACKUP_LISTS) {
             return context.getContentResolver()
@@ -299,123 +307,171 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
         BackupSettings.storeExportFileUri(context, type, null, isAutoBackupMode);
     }
 
-    void writeJsonStreamShows(OutputStream out, Cursor shows) throws IOException {
-        int numTotal = shows.getCount();
-        int numExported = 0;
+    /**
+     * Writes shows with their seasons and episodes while moving through the given {@link
+     * ShowsWithEpisodesQuery} cursor, without loading all seasons and episodes of a show first.
+     */
+    void writeJsonStreamShows(OutputStream out, Cursor showsWithEpisodes) throws IOException {
+        int numTotal = showsWithEpisodes.getCount();
 
         Gson gson = new Gson();
         JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
         writer.beginArray();
 
-        while (shows.moveToNext()) {
+        boolean hasNext = showsWithEpisodes.moveToFirst();
+        while (hasNext) {
             if (isCancelled()) {
                 break;
             }
 
-            Show show = new Show();
-            show.tvdb_id = shows.getInt(ShowsQuery.ID);
-            show.tvdb_slug = shows.getString(ShowsQuery.SLUG);
-            show.title = shows.getString(ShowsQuery.TITLE);
-            show.favorite = shows.getInt(ShowsQuery.FAVORITE) == 1;
-            show.notify = shows.getInt(ShowsQuery.NOTIFY) == 1;
-            show.hidden = shows.getInt(ShowsQuery.HIDDEN) == 1;
-            show.language = shows.getString(ShowsQuery.LANGUAGE);
-            show.release_time = shows.getInt(ShowsQuery.RELEASE_TIME);
-            show.release_weekday = shows.getInt(ShowsQuery.RELEASE_WEEKDAY);
-            show.release_timezone = shows.getString(ShowsQuery.RELEASE_TIMEZONE);
-            show.country = shows.getString(ShowsQuery.RELEASE_COUNTRY);
-            show.last_watched_episode = shows.getInt(ShowsQuery.LASTWATCHEDID);
-            show.last_watched_ms = shows.getLong(ShowsQuery.LASTWATCHED_MS);
-            show.poster = shows.getString(ShowsQuery.POSTER);
-            show.poster_small = shows.getString(ShowsQuery.POSTER_THUMBNAIL);
-            show.content_rating = shows.getString(ShowsQuery.CONTENTRATING);
-            show.status = DataLiberationTools.decodeShowStatus(shows.getInt(ShowsQuery.STATUS));
-            show.runtime = shows.getInt(ShowsQuery.RUNTIME);
-            show.network = shows.getString(ShowsQuery.NETWORK);
-            show.imdb_id = shows.getString(ShowsQuery.IMDBID);
-            show.trakt_id = shows.getInt(ShowsQuery.TRAKT_ID);
-            show.first_aired = shows.getString(ShowsQuery.FIRSTAIRED);
-            show.rating_user = shows.getInt(ShowsQuery.RATING_USER);
-            if (isFullDump) {
-                show.overview = shows.getString(ShowsQuery.OVERVIEW);
-                show.rating = shows.getDouble(ShowsQuery.RATING_GLOBAL);
-                show.rating_votes = shows.getInt(ShowsQuery.RATING_VOTES);
-                show.genres = shows.getString(ShowsQuery.GENRES);
-                show.last_updated = shows.getLong(ShowsQuery.LAST_UPDATED);
-                show.last_edited = shows.getLong(ShowsQuery.LAST_EDITED);
+            int showTvdbId = showsWithEpisodes.getInt(ShowsQuery.ID);
+            writer.beginObject();
+            writeShowProperties(gson, writer, showsWithEpisodes);
+
+            // rows of a show are ordered by season and episode number
+            writer.name("seasons");
+            writer.beginArray();
+            int seasonTvdbId = 0;
+            do {
+                if (showsWithEpisodes.isNull(ShowsWithEpisodesQuery.EPISODE_ID)) {
+                    continue; // show without episodes
+                }
+                int episodeSeasonTvdbId = showsWithEpisodes.getInt(
+                        ShowsWithEpisodesQuery.SEASON_ID);
+                if (episodeSeasonTvdbId != seasonTvdbId) {
+                    if (seasonTvdbId != 0) {
+                        // close previous season
+                        writer.endArray();
+                        writer.endObject();
+                    }
+                    seasonTvdbId = episodeSeasonTvdbId;
+                    writer.beginObject();
+                    writer.name("tvdb_id").value(seasonTvdbId);
+                    writer.name("season").value(
+                            showsWithEpisodes.getInt(ShowsWithEpisodesQuery.SEASON_NUMBER));
+                    writer.name("episodes");
+                    writer.beginArray();
+                }
+                writeEpisode(writer, showsWithEpisodes);
+            } while ((hasNext = showsWithEpisodes.moveToNext())
+                    && showsWithEpisodes.getInt(ShowsQuery.ID) == showTvdbId);
+            if (seasonTvdbId != 0) {
+                // close last season
+                writer.endArray();
+                writer.endObject();
             }
+            writer.endArray();
 
-            addSeasons(show);
-
-            gson.toJson(show, Show.class, writer);
+            writer.endObject();
 
-            publishProgress(numTotal, ++numExported);
+            publishProgress(numTotal,
+                    hasNext ? showsWithEpisodes.getPosition() : numTotal);
         }
 
         writer.endArray();
         writer.close();
     }
 
-    private void addSeasons(Show show) {
-        show.seasons = new ArrayList<>();
-        final Cursor seasonsCursor = context.getContentResolver().query(
-                Seasons.buildSeasonsOfShowUri(String.valueOf(show.tvdb_id)),
-                new String[]{
-                        Seasons._ID,
-                        Seasons.COMBINED
-                }, null, null, null
-        );
-
-        if (seasonsCursor == null) {
-            return;
+    /**
+     * Writes the properties of the show at the current cursor position, except for its seasons.
+     * Uses {@link Gson} to write the same properties as for a {@link Show} object.
+     */
+    private void writeShowProperties(Gson gson, JsonWriter writer, Cursor shows)
+            throws IOException {
+        Show show = new Show();
+        show.tvdb_id = shows.getInt(ShowsQuery.ID);
+        show.tvdb_slug = shows.getString(ShowsQuery.SLUG);
+        show.title = shows.getString(ShowsQuery.TITLE);
+        show.favorite = shows.getInt(ShowsQuery.FAVORITE) == 1;
+        show.notify = shows.getInt(ShowsQuery.NOTIFY) == 1;
+        show.hidden = shows.getInt(ShowsQuery.HIDDEN) == 1;
+        show.language = shows.getString(ShowsQuery.LANGUAGE);
+        show.release_time = shows.getInt(ShowsQuery.RELEASE_TIME);
+        show.release_weekday = shows.getInt(ShowsQuery.RELEASE_WEEKDAY);
+        show.release_timezone = shows.getString(ShowsQuery.RELEASE_TIMEZONE);
+        show.country = shows.getString(ShowsQuery.RELEASE_COUNTRY);
+        show.last_watched_episode = shows.getInt(ShowsQuery.LASTWATCHEDID);
+        show.last_watched_ms = shows.getLong(ShowsQuery.LASTWATCHED_MS);
+        show.poster = shows.getString(ShowsQuery.POSTER);
+        show.poster_small = shows.getString(ShowsQuery.POSTER_THUMBNAIL);
+        show.content_rating = shows.getString(ShowsQuery.CONTENTRATING);
+        show.status = DataLiberationTools.decodeShowStatus(shows.getInt(ShowsQuery.STATUS));
+        show.runtime = shows.getInt(ShowsQuery.RUNTIME);
+        show.network = shows.getString(ShowsQuery.NETWORK);
+        show.imdb_id = shows.getString(ShowsQuery.IMDBID);
+        show.trakt_id = shows.getInt(ShowsQuery.TRAKT_ID);
+        show.first_aired = shows.getString(ShowsQuery.FIRSTAIRED);
+        show.rating_user = shows.getInt(ShowsQuery.RATING_USER);
+        if (isFullDump) {
+            show.overview = shows.getString(ShowsQuery.OVERVIEW);
+            show.rating = shows.getDouble(ShowsQuery.RATING_GLOBAL);
+            show.rating_votes = shows.getInt(ShowsQuery.RATING_VOTES);
+            show.genres = shows.getString(ShowsQuery.GENRES);
+            show.last_updated = shows.getLong(ShowsQuery.LAST_UPDATED);
+            show.last_edited = shows.getLong(ShowsQuery.LAST_EDITED);
         }
 
-        while (seasonsCursor.moveToNext()) {
-            Season season = new Season();
-            season.tvdbId = seasonsCursor.getInt(0);
-            season.season = seasonsCursor.getInt(1);
-
-            addEpisodes(season);
-
-            show.seasons.add(season);
+        // seasons are null, so not included
+        JsonObject showJson = gson.toJsonTree(show, Show.class).getAsJsonObject();
+        for (Map.Entry<String, JsonElement> property : showJson.entrySet()) {
+            writer.name(property.getKey());
+            gson.toJson(property.getValue(), writer);
         }
-
-        seasonsCursor.close();
     }
 
-    private void addEpisodes(Season season) {
-        season.episodes = new ArrayList<>();
-        java.util.List<SgEpisode> episodes = SgRoomDatabase.getInstance(context)
-                .episodeHelper()
-                .getSeason(season.tvdbId);
-
-        for (SgEpisode episodeDb : episodes) {
-            Episode episodeExport = new Episode();
-            episodeExport.tvdbId = episodeDb.tvdbId;
-            episodeExport.episode = episodeDb.number;
-            episodeExport.episodeAbsolute = episodeDb.absoluteNumber;
-            episodeExport.episodeDvd = episodeDb.dvdNumber;
-            int episodeFlag = episodeDb.watched;
-            episodeExport.watched = EpisodeTools.isWatched(episodeFlag);
-            episodeExport.skipped = EpisodeTools.isSkipped(episodeFlag);
-            episodeExport.plays = episodeDb.plays;
-            episodeExport.collected = episodeDb.collected;
-            episodeExport.title = episodeDb.title;
-            episodeExport.firstAired = episodeDb.firstReleasedMs;
-            episodeExport.imdbId = episodeDb.imdbId;
-            episodeExport.rating_user = episodeDb.ratingUser;
-            if (isFullDump) {
-                episodeExport.overview = episodeDb.overview;
-                episodeExport.image = episodeDb.image;
-                episodeExport.writers = episodeDb.writers;
-                episodeExport.gueststars = episodeDb.guestStars;
-                episodeExport.directors = episodeDb.directors;
-                episodeExport.rating = episodeDb.ratingGlobal;
-                episodeExport.rating_votes = episodeDb.ratingVotes;
-                episodeExport.lastEdited = episodeDb.lastEditedSec;
+    /**
+     * Writes the episode at the current cursor position using the property names of {@link
+     * Episode}, skipping null values like {@link Gson} does.
+     */
+    private void writeEpisode(JsonWriter writer, Cursor episodes) throws IOException {
+        writer.beginObject();
+        writer.name("tvdb_id").value(episodes.getInt(ShowsWithEpisodesQuery.EPISODE_ID));
+        writer.name("episode").value(episodes.getInt(ShowsWithEpisodesQuery.NUMBER));
+        writeIntegerIfNotNull(writer, "episode_absolute", episodes,
+                ShowsWithEpisodesQuery.ABSOLUTE_NUMBER);
+        writeStringIfNotNull(writer, "title", episodes, ShowsWithEpisodesQuery.TITLE);
+        writer.name("first_aired").value(episodes.getLong(ShowsWithEpisodesQuery.FIRST_RELEASE_MS));
+        int episodeFlag = episodes.getInt(ShowsWithEpisodesQuery.WATCHED);
+        writer.name("watched").value(EpisodeTools.isWatched(episodeFlag));
+        writer.name("plays").value(episodes.getInt(ShowsWithEpisodesQuery.PLAYS));
+        writer.name("skipped").value(EpisodeTools.isSkipped(episodeFlag));
+        writer.name("collected").value(episodes.getInt(ShowsWithEpisodesQuery.COLLECTED) == 1);
+        writeStringIfNotNull(writer, "imdb_id", episodes, ShowsWithEpisodesQuery.IMDB_ID);
+        if (!episodes.isNull(ShowsWithEpisodesQuery.DVD_NUMBER)) {
+            writer.name("episode_dvd")
+                    .value(episodes.getDouble(ShowsWithEpisodesQuery.DVD_NUMBER));
+        }
+        if (isFullDump) {
+            writeStringIfNotNull(writer, "overview", episodes, ShowsWithEpisodesQuery.OVERVIEW);
+            writeStringIfNotNull(writer, "image", episodes, ShowsWithEpisodesQuery.IMAGE);
+            writeStringIfNotNull(writer, "writers", episodes, ShowsWithEpisodesQuery.WRITERS);
+            writeStringIfNotNull(writer, "gueststars", episodes,
+                    ShowsWithEpisodesQuery.GUEST_STARS);
+            writeStringIfNotNull(writer, "directors", episodes, ShowsWithEpisodesQuery.DIRECTORS);
+            if (!episodes.isNull(ShowsWithEpisodesQuery.RATING_GLOBAL)) {
+                writer.name("rating")
+                        .value(episodes.getDouble(ShowsWithEpisodesQuery.RATING_GLOBAL));
             }
+            writeIntegerIfNotNull(writer, "rating_votes", episodes,
+                    ShowsWithEpisodesQuery.RATING_VOTES);
+        }
+        writeIntegerIfNotNull(writer, "rating_user", episodes, ShowsWithEpisodesQuery.RATING_USER);
+        writer.name("last_edited").value(
+                isFullDump ? episodes.getLong(ShowsWithEpisodesQuery.LAST_EDITED) : 0);
+        writer.endObject();
+    }
 
-            season.episodes.add(episodeExport);
+    private static void writeStringIfNotNull(JsonWriter writer, String name, Cursor cursor,
+            int columnIndex) throws IOException {
+        if (!cursor.isNull(columnIndex)) {
+            writer.name(name).value(cursor.getString(columnIndex));
+        }
+    }
+
+    private static void writeIntegerIfNotNull(JsonWriter writer, String name, Cursor cursor,
+            int columnIndex) throws IOException {
+        if (!cursor.isNull(columnIndex)) {
+            writer.name(name).value(cursor.getInt(columnIndex));
         }
     }
 
@@ -586,6 +642,70 @@ public class JsonExportTask extends AsyncTask<Void, Integer, Integer> {
         int SLUG = 28;
     }
 
+    /**
+     * All shows ordered by title, each joined with its episodes ordered by season and episode
+     * number. Shows without episodes have a single row with null episode columns.
+     * Columns up to {@link ShowsQuery#SLUG} are the same as for {@link ShowsQuery}.
+     */
+    public interface ShowsWithEpisodesQuery {
+        String QUERY = "SELECT "
+                + Tables.SHOWS + "." + TextUtils.join("," + Tables.SHOWS + ".",
+                ShowsQuery.PROJECTION_FULL) + ","
+                + Tables.EPISODES + "." + Episodes._ID + ","
+                + Tables.EPISODES + "." + Seasons.REF_SEASON_ID + ","
+                + Tables.EPISODES + "." + Episodes.SEASON + ","
+                + Tables.EPISODES + "." + Episodes.NUMBER + ","
+                + Tables.EPISODES + "." + Episodes.ABSOLUTE_NUMBER + ","
+                + Tables.EPISODES + "." + Episodes.TITLE + ","
+                + Tables.EPISODES + "." + Episodes.FIRSTAIREDMS + ","
+                + Tables.EPISODES + "." + Episodes.WATCHED + ","
+                + Tables.EPISODES + "." + Episodes.PLAYS + ","
+                + Tables.EPISODES + "." + Episodes.COLLECTED + ","
+                + Tables.EPISODES + "." + Episodes.IMDBID + ","
+                + Tables.EPISODES + "." + Episodes.DVDNUMBER + ","
+                + Tables.EPISODES + "." + Episodes.RATING_USER + ","
+                + Tables.EPISODES + "." + Episodes.OVERVIEW + ","
+                + Tables.EPISODES + "." + Episodes.IMAGE + ","
+                + Tables.EPISODES + "." + Episodes.WRITERS + ","
+                + Tables.EPISODES + "." + Episodes.GUESTSTARS + ","
+                + Tables.EPISODES + "." + Episodes.DIRECTORS + ","
+                + Tables.EPISODES + "." + Episodes.RATING_GLOBAL + ","
+                + Tables.EPISODES + "." + Episodes.RATING_VOTES + ","
+                + Tables.EPISODES + "." + Episodes.LAST_EDITED
+                + " FROM " + Tables.SHOWS
+                + " LEFT OUTER JOIN " + Tables.EPISODES
+                + " ON " + Tables.EPISODES + "." + Shows.REF_SHOW_ID
+                + "=" + Tables.SHOWS + "." + Shows._ID
+                + " ORDER BY " + Tables.SHOWS + "." + Shows.SORT_TITLE + ","
+                + Tables.SHOWS + "." + Shows._ID + " ASC,"
+                + Tables.EPISODES + "." + Episodes.SEASON + " ASC,"
+                + Tables.EPISODES + "." + Seasons.REF_SEASON_ID + " ASC,"
+                + Tables.EPISODES + "." + Episodes.NUMBER + " ASC";
+
+        int EPISODE_ID = 29;
+        int SEASON_ID = 30;
+        int SEASON_NUMBER = 31;
+        int NUMBER = 32;
+        int ABSOLUTE_NUMBER = 33;
+        int TITLE = 34;
+        int FIRST_RELEASE_MS = 35;
+        int WATCHED = 36;
+        int PLAYS = 37;
+        int COLLECTED = 38;
+        int IMDB_ID = 39;
+        int DVD_NUMBER = 40;
+        int RATING_USER = 41;
+        // only in FULL dump
+        int OVERVIEW = 42;
+        int IMAGE = 43;
+        int WRITERS = 44;
+        int GUEST_STARS = 45;
+        int DIRECTORS = 46;
+        int RATING_GLOBAL = 47;
+        int RATING_VOTES = 48;
+        int LAST_EDITED = 49;
+    }
+
     public interface ListsQuery {
         String[] PROJECTION = new String[]{
                 SeriesGuideContract.Lists.LIST_ID,
@@ -1,5 +1,7 @@
 package com.battlelancer.seriesguide.dataliberation;
 
+import static android.database.sqlite.SQLiteDatabase.CONFLICT_NONE;
+import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Movies;
 
 import android.annotation.SuppressLint;
@@ -10,6 +12,7 @@ import android.content.OperationApplicationException;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import androidx.annotation.Nullable;
 import com.battlelancer.seriesguide.R;
@@ -27,6 +30,7 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract.ListItems;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Lists;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
 import com.battlelancer.seriesguide.sync.SgSyncAdapter;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbImageTools;
 import com.battlelancer.seriesguide.util.DBUtils;
@@ -37,8 +41,10 @@ import com.google.gson.stream.JsonReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import org.greenrobot.eventbus.EventBus;
 import timber.log.Timber;
@@ -46,6 +52,9 @@ import timber.log.Timber;
 /**
  * Import a show database from a human-readable JSON file on external storage. By default meta-data
  * like descriptions, ratings, actors, etc. will not be included.
+ *
+ * <p>Items are streamed from the file and inserted in batched transactions using a {@link
+ * BulkImportWriter}. Progress is published as size of the file in KB and KB parsed.
  */
 public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
 
@@ -55,7 +64,11 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
     private static final int ERROR_LARGE_DB_OP = -2;
     private static final int ERROR_FILE_ACCESS = -3;
 
+    private static final long PROGRESS_UPDATE_INTERVAL_MS = 250;
+
     @SuppressLint("StaticFieldLeak") private Context context;
+    @Nullable private final JsonExportTask.OnTaskProgressListener progressListener;
+    private final int commitSize;
     private String[] languageCodes;
     private boolean isImportingAutoBackup;
     private boolean isImportShows;
@@ -63,9 +76,22 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
     private boolean isImportMovies;
     @Nullable private String errorCause;
 
-    public JsonImportTask(Context context, boolean importShows, boolean importLists,
-            boolean importMovies) {
+    public JsonImportTask(Context context,
+            @Nullable JsonExportTask.OnTaskProgressListener progressListener,
+            boolean importShows, boolean importLists, boolean importMovies) {
+        this(context, progressListener, importShows, importLists, importMovies,
+                BulkImportWriter.DEFAULT_COMMIT_SIZE);
+    }
+
+    /**
+     * @param commitSize Maximum number of rows to insert per transaction.
+     */
+    public JsonImportTask(Context context,
+            @Nullable JsonExportTask.OnTaskProgressListener progressListener,
+            boolean importShows, boolean importLists, boolean importMovies, int commitSize) {
         this.context = context.getApplicationContext();
+        this.progressListener = progressListener;
+        this.commitSize = commitSize;
         languageCodes = this.context.getResources().getStringArray(R.array.languageCodesShows);
         isImportingAutoBackup = false;
         isImportShows = importShows;
@@ -74,7 +100,7 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
     }
 
     public JsonImportTask(Context context) {
-        this(context, true, true, true);
+        this(context, null, true, true, true);
         isImportingAutoBackup = true;
     }
 
@@ -97,6 +123,8 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
             if (result != SUCCESS) {
                 return result;
             }
+            // imported seasons have no episode counts, update all at once
+            DBUtils.updateUnwatchedCountsOfAllShows(context);
             if (isCancelled()) {
                 return ERROR;
             }
@@ -122,12 +150,16 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
             }
         }
 
-        // Renew search table
-        DBUtils.rebuildFtsTable(context);
-
         return SUCCESS;
     }
 
+    @Override
+    protected void onProgressUpdate(Integer... values) {
+        if (progressListener != null) {
+            progressListener.onProgressUpdate(values);
+        }
+    }
+
     @Override
     protected void onPostExecute(Integer result) {
         int messageId;
@@ -282,31 +314,49 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
         }
 
         Gson gson = new Gson();
-        JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
-        reader.beginArray();
+        int sizeKb = (int) (in.getChannel().size() / 1024);
+        // count what the JSON reader consumes, the file position runs ahead by the decoder buffer
+        CountingReader countingReader = new CountingReader(new InputStreamReader(in, "UTF-8"));
+        JsonReader reader = new JsonReader(countingReader);
+        long nextProgressTime = 0;
 
-        if (type == JsonExportTask.BACKUP_SHOWS) {
-            while (reader.hasNext()) {
-                Show show = gson.fromJson(reader, Show.class);
-                addShowToDatabase(show);
-            }
-        } else if (type == JsonExportTask.BACKUP_LISTS) {
-            while (reader.hasNext()) {
-                List list = gson.fromJson(reader, List.class);
-                addListToDatabase(list);
-            }
-        } else if (type == JsonExportTask.BACKUP_MOVIES) {
+        BulkImportWriter writer = new BulkImportWriter(context, commitSize);
+        try {
+            reader.beginArray();
             while (reader.hasNext()) {
-                Movie movie = gson.fromJson(reader, Movie.class);
-                context.getContentResolver().insert(Movies.CONTENT_URI, movie.toContentValues());
+                if (type == JsonExportTask.BACKUP_SHOWS) {
+                    Show show = gson.fromJson(reader, Show.class);
+                    addShowToDatabase(writer, show);
+                } else if (type == JsonExportTask.BACKUP_LISTS) {
+                    List list = gson.fromJson(reader, List.class);
+                    addListToDatabase(writer, list);
+                } else if (type == JsonExportTask.BACKUP_MOVIES) {
+                    Movie movie = gson.fromJson(reader, Movie.class);
+                    writer.insert(Tables.MOVIES, CONFLICT_REPLACE, movie.toContentValues(),
+                            Movies.CONTENT_URI);
+                } else {
+                    reader.skipValue();
+                }
+
+                long currentTime = SystemClock.elapsedRealtime();
+                if (currentTime > nextProgressTime) {
+                    nextProgressTime = currentTime + PROGRESS_UPDATE_INTERVAL_MS;
+                    publishProgress(sizeKb, (int) (countingReader.getCount() / 1024));
+                }
             }
+            reader.endArray();
+
+            writer.finish();
+            publishProgress(sizeKb, sizeKb);
+            Timber.i("Imported %d rows at %d rows/s", writer.getRowCount(),
+                    writer.getRowsPerSecond());
+        } finally {
+            writer.close();
+            reader.close();
         }
-
-        reader.endArray();
-        reader.close();
     }
 
-    private void addShowToDatabase(Show show) {
+    private void addShowToDatabase(BulkImportWriter writer, Show show) {
         if (show.tvdb_id <= 0) {
             // valid id required
             return;
@@ -335,7 +385,7 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
         }
 
         ContentValues showValues = show.toContentValues(context, true);
-        context.getContentResolver().insert(Shows.CONTENT_URI, showValues);
+        writer.insert(Tables.SHOWS, CONFLICT_NONE, showValues, Shows.CONTENT_URI);
 
         if (show.seasons == null || show.seasons.isEmpty()) {
             // no seasons (or episodes)
@@ -344,10 +394,15 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
 
         ContentValues[][] seasonsAndEpisodes = buildSeasonAndEpisodeBatches(show);
         if (seasonsAndEpisodes[0] != null && seasonsAndEpisodes[1] != null) {
-            // Insert all seasons
-            context.getContentResolver().bulkInsert(Seasons.CONTENT_URI, seasonsAndEpisodes[0]);
-            // Insert all episodes
-            context.getContentResolver().bulkInsert(Episodes.CONTENT_URI, seasonsAndEpisodes[1]);
+            // Insert all seasons, last one wins if there are duplicates
+            for (ContentValues seasonValues : seasonsAndEpisodes[0]) {
+                writer.insert(Tables.SEASONS, CONFLICT_REPLACE, seasonValues, Seasons.CONTENT_URI);
+            }
+            // Insert all episodes, last one wins if there are duplicates
+            for (ContentValues episodeValues : seasonsAndEpisodes[1]) {
+                writer.insert(Tables.EPISODES, CONFLICT_REPLACE, episodeValues,
+                        Episodes.CONTENT_URI);
+            }
         }
     }
 
@@ -394,7 +449,7 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
         };
     }
 
-    private void addListToDatabase(List list) {
+    private void addListToDatabase(BulkImportWriter writer, List list) {
         if (TextUtils.isEmpty(list.name)) {
             return; // required
         }
@@ -404,14 +459,13 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
         }
 
         // Insert the list
-        context.getContentResolver().insert(Lists.CONTENT_URI, list.toContentValues());
+        writer.insert(Tables.LISTS, CONFLICT_REPLACE, list.toContentValues(), Lists.CONTENT_URI);
 
         if (list.items == null || list.items.isEmpty()) {
             return;
         }
 
         // Insert the lists items
-        ArrayList<ContentValues> items = new ArrayList<>();
         for (ListItem item : list.items) {
             int type;
             if (ListItemTypesExport.SHOW.equals(item.type)) {
@@ -439,10 +493,50 @@ public class JsonImportTask extends AsyncTask<Void, Integer, Integer> {
             itemValues.put(ListItems.ITEM_REF_ID, item.tvdbId);
             itemValues.put(ListItems.TYPE, type);
 
-            items.add(itemValues);
+            writer.insert(Tables.LIST_ITEMS, CONFLICT_REPLACE, itemValues,
+                    ListItems.CONTENT_URI);
+        }
+    }
+
+    /**
+     * Counts characters read. For the mostly ASCII backup files this is about the number of bytes,
+     * it never exceeds it.
+     */
+    private static class CountingReader extends FilterReader {
+
+        private long count;
+
+        CountingReader(Reader in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c != -1) {
+                count++;
+            }
+            return c;
         }
 
-        ContentValues[] itemsArray = new ContentValues[items.size()];
-        context.getContentResolver().bulkInsert(ListItems.CONTENT_URI, items.toArray(itemsArray));
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int read = super.read(cbuf, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
     }
 }
@@ -1,6 +1,7 @@
 package com.battlelancer.seriesguide.extensions;
 
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import static com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 
 import android.content.Context;
@@ -43,35 +44,63 @@ public class EpisodeActionsLoader extends GenericSimpleLoader<List<Action>> {
             }
 
             Episode episode = null;
+            String seasonTvdbId = null;
             if (query.moveToFirst()) {
-                int number = query.getInt(Query.NUMBER);
-                episode = new Episode.Builder()
-                        .tvdbId(episodeTvdbId)
-                        .title(TextTools.getEpisodeTitle(getContext(), query.getString(Query.TITLE),
-                                number))
-                        .number(number)
-                        .numberAbsolute(query.getInt(Query.NUMBER_ABSOLUTE))
-                        .season(query.getInt(Query.SEASON))
-                        .imdbId(query.getString(Query.IMDB_ID))
-                        .showTvdbId(query.getInt(Query.SHOW_TVDB_ID))
-                        .showTitle(query.getString(Query.SHOW_TITLE))
-                        .showImdbId(query.getString(Query.SHOW_IMDB_ID))
-                        .showFirstReleaseDate(query.getString(Query.SHOW_FIRST_RELEASE))
-                        .build();
+                episode = episodeFrom(query, episodeTvdbId);
+                seasonTvdbId = query.getString(Query.SEASON_TVDB_ID);
             }
             // clean up query first
             query.close();
             query = null;
 
             if (episode != null) {
-                ExtensionManager.get(getContext())
-                        .requestEpisodeActions(getContext(), episode);
+                ExtensionManager manager = ExtensionManager.get(getContext());
+                List<Episode> seasonEpisodes = null;
+                if (seasonTvdbId != null && manager.hasBatchingExtensions()) {
+                    // also request actions for other episodes of the season, they are likely
+                    // displayed next
+                    seasonEpisodes = querySeasonEpisodes(seasonTvdbId);
+                }
+                manager.requestEpisodeActions(getContext(), episode, seasonEpisodes);
             }
         }
 
         return actions;
     }
 
+    private List<Episode> querySeasonEpisodes(String seasonTvdbId) {
+        List<Episode> episodes = new ArrayList<>();
+        query = getContext().getContentResolver().query(
+                Episodes.buildEpisodesOfSeasonWithShowUri(seasonTvdbId),
+                Query.PROJECTION_WITH_ID, null, null, null);
+        if (query == null) {
+            return episodes;
+        }
+        while (query.moveToNext()) {
+            episodes.add(episodeFrom(query, query.getInt(Query.EPISODE_TVDB_ID)));
+        }
+        query.close();
+        query = null;
+        return episodes;
+    }
+
+    private Episode episodeFrom(Cursor query, int episodeTvdbId) {
+        int number = query.getInt(Query.NUMBER);
+        return new Episode.Builder()
+                .tvdbId(episodeTvdbId)
+                .title(TextTools.getEpisodeTitle(getContext(), query.getString(Query.TITLE),
+                        number))
+                .number(number)
+                .numberAbsolute(query.getInt(Query.NUMBER_ABSOLUTE))
+                .season(query.getInt(Query.SEASON))
+                .imdbId(query.getString(Query.IMDB_ID))
+                .showTvdbId(query.getInt(Query.SHOW_TVDB_ID))
+                .showTitle(query.getString(Query.SHOW_TITLE))
+                .showImdbId(query.getString(Query.SHOW_IMDB_ID))
+                .showFirstReleaseDate(query.getString(Query.SHOW_FIRST_RELEASE))
+                .build();
+    }
+
     @Override
     protected void onReleaseResources(List<Action> items) {
         if (query != null && !query.isClosed()) {
@@ -89,7 +118,22 @@ public class EpisodeActionsLoader extends GenericSimpleLoader<List<Action>> {
                 Shows.REF_SHOW_ID,
                 Shows.TITLE,
                 Shows.IMDBID,
-                Shows.FIRST_RELEASE
+                Shows.FIRST_RELEASE,
+                Seasons.REF_SEASON_ID
+        };
+
+        String[] PROJECTION_WITH_ID = {
+                Episodes.TITLE,
+                Episodes.NUMBER,
+                Episodes.ABSOLUTE_NUMBER,
+                Episodes.SEASON,
+                Episodes.IMDBID,
+                Shows.REF_SHOW_ID,
+                Shows.TITLE,
+                Shows.IMDBID,
+                Shows.FIRST_RELEASE,
+                Seasons.REF_SEASON_ID,
+                Episodes._ID
         };
 
         int TITLE = 0;
@@ -101,5 +145,7 @@ public class EpisodeActionsLoader extends GenericSimpleLoader<List<Action>> {
         int SHOW_TITLE = 6;
         int SHOW_IMDB_ID = 7;
         int SHOW_FIRST_RELEASE = 8;
+        int SEASON_TVDB_ID = 9;
+        int EPISODE_TVDB_ID = 10;
     }
 }
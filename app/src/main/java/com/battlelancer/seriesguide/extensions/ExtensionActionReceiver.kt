@@ -3,6 +3,8 @@ package com.battlelancer.seriesguide.extensions
 import android.content.BroadcastReceiver
 import android.content.Context
 import android.content.Intent
+import android.os.Bundle
+import androidx.annotation.VisibleForTesting
 import com.battlelancer.seriesguide.SgApp
 import com.battlelancer.seriesguide.api.Action
 import com.battlelancer.seriesguide.api.constants.IncomingConstants
@@ -24,15 +26,7 @@ class ExtensionActionReceiver : BroadcastReceiver() {
                 withContext(Dispatchers.Default) {
                     // An extension published a new action.
                     val token = intent.getStringExtra(IncomingConstants.EXTRA_TOKEN)
-
-                    // Extract the action.
-                    var action: Action? = null
-                    if (intent.hasExtra(OutgoingConstants.EXTRA_ACTION)) {
-                        val bundle = intent.getBundleExtra(OutgoingConstants.EXTRA_ACTION)
-                        if (bundle != null) {
-                            action = Action.fromBundle(bundle)
-                        }
-                    }
+                    val actions = parseActions(intent)
 
                     // Extensions may send either movie or episode actions as of API 1.3.0.
                     var type = OutgoingConstants.ACTION_TYPE_EPISODE
@@ -43,10 +37,37 @@ class ExtensionActionReceiver : BroadcastReceiver() {
                         )
                     }
 
+                    // Extensions send their version as of API 3, which supports batched requests.
+                    val version = intent.getIntExtra(IncomingConstants.EXTRA_VERSION, 2)
+
                     ExtensionManager.get(context)
-                        .handlePublishedAction(appContext, token, action, type)
+                        .handlePublishedActions(appContext, token, actions, type, version)
+                }
+            }
+        }
+    }
+
+    companion object {
+
+        /**
+         * Extracts the action, or actions if replying to a batched request.
+         */
+        @VisibleForTesting
+        fun parseActions(intent: Intent): List<Action> {
+            val actions = ArrayList<Action>()
+            if (intent.hasExtra(OutgoingConstants.EXTRA_ACTION)) {
+                val bundle = intent.getBundleExtra(OutgoingConstants.EXTRA_ACTION)
+                val action = bundle?.let { Action.fromBundle(it) }
+                if (action != null) {
+                    actions.add(action)
                 }
             }
+            if (intent.hasExtra(OutgoingConstants.EXTRA_ACTIONS)) {
+                intent.getParcelableArrayExtra(OutgoingConstants.EXTRA_ACTIONS)
+                    ?.filterIsInstance<Bundle>()
+                    ?.mapNotNullTo(actions) { Action.fromBundle(it) }
+            }
+            return actions
         }
     }
 
@@ -17,6 +17,7 @@ import android.text.TextUtils;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.collection.LruCache;
 import com.battlelancer.seriesguide.api.Action;
 import com.battlelancer.seriesguide.api.Episode;
@@ -40,15 +41,30 @@ public class ExtensionManager {
     private static final String PREF_FILE_SUBSCRIPTIONS = "seriesguide_extensions";
     private static final String PREF_SUBSCRIPTIONS = "subscriptions";
 
-    private static final int HARD_CACHE_CAPACITY = 5;
+    /**
+     * Number of episodes to keep actions for, large enough to hold those of a few seasons requested
+     * with a batched request.
+     */
+    private static final int EPISODE_CACHE_CAPACITY = 200;
+    private static final int MOVIE_CACHE_CAPACITY = 5;
+    /**
+     * Max number of episodes in a batched request intent, keeps the intent and the reply well
+     * below the binder transaction size limit.
+     */
+    private static final int MAX_BATCH_SIZE = 50;
+    /**
+     * Max number of episodes to request actions for at once, so actions for the first ones are not
+     * evicted from the cache before they are displayed.
+     */
+    private static final int MAX_BATCHED_EPISODES = EPISODE_CACHE_CAPACITY / 2;
 
     // Cashes received actions for the last few displayed episodes.
     private final static LruCache<Integer, Map<ComponentName, Action>>
-            sEpisodeActionsCache = new LruCache<>(HARD_CACHE_CAPACITY);
+            sEpisodeActionsCache = new LruCache<>(EPISODE_CACHE_CAPACITY);
 
     // Cashes received actions for the last few displayed movies.
     private final static LruCache<Integer, Map<ComponentName, Action>>
-            sMovieActionsCache = new LruCache<>(HARD_CACHE_CAPACITY);
+            sMovieActionsCache = new LruCache<>(MOVIE_CACHE_CAPACITY);
 
     /**
      * {@link com.battlelancer.seriesguide.extensions.ExtensionManager} has received new {@link
@@ -82,6 +98,14 @@ public class ExtensionManager {
     private Map<String, ComponentName> tokens; // mirrored map for faster token searching
     @Nullable
     private List<ComponentName> enabledExtensions; // order-preserving list of enabled extensions
+    /**
+     * Extensions that published actions with an API version supporting batched requests. Only kept
+     * in memory and cleared when an extension is disabled, which also happens when the app starts
+     * (see {@link #checkEnabledExtensions(Context)}). So each extension first gets a request for
+     * a single episode, its reply tells if later requests can be batched. This way an extension
+     * that was updated to an older library version is never sent a batched request.
+     */
+    private final Set<ComponentName> batchingExtensions = new HashSet<>();
 
     private static ExtensionManager _instance;
 
@@ -299,6 +323,7 @@ public class ExtensionManager {
             Log.i("ExtensionManager", "Failed to unsubscribe from extension " + extension + ".", e);
         }
         tokens(context).remove(subscriptions.remove(extension));
+        batchingExtensions.remove(extension);
     }
 
     /**
@@ -333,13 +358,85 @@ public class ExtensionManager {
         return sortedActions;
     }
 
+    /**
+     * Returns if at least one enabled extension supports batched requests, so requesting actions
+     * for more than the displayed episode is worth it. Is false until an extension has replied to
+     * a request, see {@link #batchingExtensions}.
+     */
+    synchronized boolean hasBatchingExtensions() {
+        return !batchingExtensions.isEmpty();
+    }
+
     /**
      * Asks all enabled extensions to publish an action for the given episode.
+     *
+     * @param moreEpisodes Optional, e.g. other episodes of the season. Only requested from
+     * extensions supporting batched requests and only if no actions were requested for them, yet.
      */
-    synchronized void requestEpisodeActions(Context context, Episode episode) {
+    synchronized void requestEpisodeActions(Context context, Episode episode,
+            @Nullable List<Episode> moreEpisodes) {
+        List<Episode> batch = new ArrayList<>();
+        batch.add(episode);
+        if (moreEpisodes != null) {
+            for (Episode other : moreEpisodes) {
+                if (batch.size() == MAX_BATCHED_EPISODES) {
+                    break;
+                }
+                if (!other.getTvdbId().equals(episode.getTvdbId())
+                        && sEpisodeActionsCache.get(other.getTvdbId()) == null) {
+                    batch.add(other);
+                }
+            }
+        }
+
         for (ComponentName extension : subscriptions(context).keySet()) {
-            requestEpisodeAction(context, extension, episode);
+            if (batchingExtensions.contains(extension)) {
+                requestEpisodeActionsBatched(context, extension, batch);
+            } else {
+                requestEpisodeAction(context, extension, episode);
+            }
+        }
+    }
+
+    /**
+     * Ask a single extension to publish actions for the given episodes, using as few intents as
+     * possible.
+     */
+    private synchronized void requestEpisodeActionsBatched(Context context,
+            ComponentName extension, List<Episode> episodes) {
+        Timber.d("requestAction: requesting from %s for %s episodes", extension, episodes.size());
+        // prepare to receive actions for the given episodes
+        for (Episode episode : episodes) {
+            if (sEpisodeActionsCache.get(episode.getTvdbId()) == null) {
+                sEpisodeActionsCache.put(episode.getTvdbId(), new HashMap<>());
+            }
+        }
+        // actually request actions
+        for (Intent request : buildBatchedRequests(extension, episodes)) {
+            context.sendBroadcast(request);
+        }
+    }
+
+    /**
+     * Builds batched request intents for the given episodes, each with up to {@link
+     * #MAX_BATCH_SIZE} episodes.
+     */
+    @VisibleForTesting
+    static List<Intent> buildBatchedRequests(ComponentName extension, List<Episode> episodes) {
+        List<Intent> requests = new ArrayList<>();
+        for (int start = 0; start < episodes.size(); start += MAX_BATCH_SIZE) {
+            List<Episode> chunk = episodes
+                    .subList(start, Math.min(start + MAX_BATCH_SIZE, episodes.size()));
+            Bundle[] episodeBundles = new Bundle[chunk.size()];
+            for (int i = 0; i < episodeBundles.length; i++) {
+                episodeBundles[i] = chunk.get(i).toBundle();
+            }
+            requests.add(new Intent(IncomingConstants.ACTION_UPDATE)
+                    .setComponent(extension)
+                    .putExtra(IncomingConstants.EXTRA_EPISODES, episodeBundles)
+                    .putExtra(IncomingConstants.EXTRA_VERSION, IncomingConstants.VERSION_BATCH));
         }
+        return requests;
     }
 
     /**
@@ -389,54 +486,68 @@ public class ExtensionManager {
 
     /**
      * This is thread-safe.
+     *
+     * @param version The API version of the extension, determines if batched requests are
+     * supported.
      */
-    public void handlePublishedAction(Context context, String token, Action action, int type) {
-        if (TextUtils.isEmpty(token) || action == null) {
+    public void handlePublishedActions(Context context, String token, List<Action> actions,
+            int type, int version) {
+        if (TextUtils.isEmpty(token) || actions.isEmpty()) {
             // whoops, no token or action received
-            Timber.d("handlePublishedAction: token or action empty");
+            Timber.d("handlePublishedActions: token or action empty");
             return;
         }
         if (type != ACTION_TYPE_EPISODE && type != ACTION_TYPE_MOVIE) {
-            Timber.d("handlePublishedAction: unknown type of entity");
+            Timber.d("handlePublishedActions: unknown type of entity");
             return;
         }
 
+        List<Action> storedActions = new ArrayList<>(actions.size());
         synchronized (this) {
             Map<String, ComponentName> tokens = tokens(context);
             if (!tokens.containsKey(token)) {
                 // we are not subscribed, ignore
-                Timber.d("handlePublishedAction: token invalid, ignoring incoming action");
+                Timber.d("handlePublishedActions: token invalid, ignoring incoming action");
                 return;
             }
-
-            // check if action entity identifier is for an entity we requested actions for
-            Map<ComponentName, Action> actionMap;
-            if (type == ACTION_TYPE_EPISODE) {
-                // episode
-                actionMap = sEpisodeActionsCache.get(action.getEntityIdentifier());
-            } else {
-                // movie
-                actionMap = sMovieActionsCache.get(action.getEntityIdentifier());
+            ComponentName extension = tokens.get(token);
+            if (version >= IncomingConstants.VERSION_BATCH) {
+                batchingExtensions.add(extension);
             }
-            if (actionMap == null) {
-                // did not request actions for this episode, or is already out of cache (too late!)
-                Timber.d(
-                        "handlePublishedAction: ignoring actions for %s, not requested",
-                        action.getEntityIdentifier());
-                return;
+
+            for (Action action : actions) {
+                // check if action entity identifier is for an entity we requested actions for
+                Map<ComponentName, Action> actionMap;
+                if (type == ACTION_TYPE_EPISODE) {
+                    // episode
+                    actionMap = sEpisodeActionsCache.get(action.getEntityIdentifier());
+                } else {
+                    // movie
+                    actionMap = sMovieActionsCache.get(action.getEntityIdentifier());
+                }
+                if (actionMap == null) {
+                    // did not request actions for this episode, or is already out of cache (too late!)
+                    Timber.d(
+                            "handlePublishedActions: ignoring actions for %s, not requested",
+                            action.getEntityIdentifier());
+                    continue;
+                }
+                // store action for this entity
+                //noinspection ConstantConditions Should never be null if token exists.
+                actionMap.put(extension, action);
+                storedActions.add(action);
             }
-            // store action for this entity
-            ComponentName extension = tokens.get(token);
-            //noinspection ConstantConditions Should never be null if token exists.
-            actionMap.put(extension, action);
         }
 
         // notify that actions were updated
-        if (type == ACTION_TYPE_EPISODE) {
-            EventBus.getDefault()
-                    .post(new EpisodeActionReceivedEvent(action.getEntityIdentifier()));
-        } else {
-            EventBus.getDefault().post(new MovieActionReceivedEvent(action.getEntityIdentifier()));
+        for (Action action : storedActions) {
+            if (type == ACTION_TYPE_EPISODE) {
+                EventBus.getDefault()
+                        .post(new EpisodeActionReceivedEvent(action.getEntityIdentifier()));
+            } else {
+                EventBus.getDefault()
+                        .post(new MovieActionReceivedEvent(action.getEntityIdentifier()));
+            }
         }
     }
 
@@ -20,9 +20,16 @@ public abstract class BaseNetworkEpisodeJob extends BaseNetworkJob {
         super(action, jobInfo);
     }
 
+    /**
+     * The show displayed in notifications about this job.
+     */
+    protected int getShowTvdbId() {
+        return jobInfo.showTvdbId();
+    }
+
     @Nullable
     protected String getItemTitle(Context context) {
-        int showTvdbId = jobInfo.showTvdbId();
+        int showTvdbId = getShowTvdbId();
         Cursor query = context.getContentResolver()
                 .query(SeriesGuideContract.Shows.buildShowUri(showTvdbId),
                         SeriesGuideContract.Shows.PROJECTION_TITLE, null,
@@ -64,7 +71,7 @@ public abstract class BaseNetworkEpisodeJob extends BaseNetworkJob {
         // tapping the notification should open the affected show
         return TaskStackBuilder.create(context)
                 .addNextIntent(new Intent(context, ShowsActivity.class))
-                .addNextIntent(OverviewActivity.intentShow(context, jobInfo.showTvdbId()))
+                .addNextIntent(OverviewActivity.intentShow(context, getShowTvdbId()))
                 .getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT);
     }
 
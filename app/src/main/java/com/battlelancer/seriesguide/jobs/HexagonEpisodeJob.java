@@ -17,16 +17,28 @@ import com.uwetrottmann.seriesguide.backend.episodes.model.Episode;
 import com.uwetrottmann.seriesguide.backend.episodes.model.EpisodeList;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class HexagonEpisodeJob extends BaseNetworkEpisodeJob {
 
     @NonNull private final HexagonTools hexagonTools;
+    private final List<SgJobInfo> jobInfos;
 
     public HexagonEpisodeJob(@NonNull HexagonTools hexagonTools, JobAction action,
             SgJobInfo jobInfo) {
-        super(action, jobInfo);
+        this(hexagonTools, action, Collections.singletonList(jobInfo));
+    }
+
+    /**
+     * Uploads the episodes of multiple jobs together. All jobs must have the same action, flag
+     * value and show.
+     */
+    public HexagonEpisodeJob(@NonNull HexagonTools hexagonTools, JobAction action,
+            List<SgJobInfo> jobInfos) {
+        super(action, jobInfos.get(0));
         this.hexagonTools = hexagonTools;
+        this.jobInfos = jobInfos;
     }
 
     @NonNull
@@ -98,22 +110,24 @@ public class HexagonEpisodeJob extends BaseNetworkEpisodeJob {
         }
 
         List<Episode> episodes = new ArrayList<>();
-        for (int i = 0; i < jobInfo.episodesLength(); i++) {
-            EpisodeInfo episodeInfo = jobInfo.episodes(i);
-
-            Episode episode = new Episode();
-            episode.setSeasonNumber(episodeInfo.season());
-            episode.setEpisodeNumber(episodeInfo.number());
-            if (isWatchedNotCollected) {
-                episode.setWatchedFlag(jobInfo.flagValue());
-                // Always upload (regardless if watched, skipped or not watched).
-                // Also ensures legacy data slowly adds the new plays field.
-                episode.setPlays(episodeInfo.plays());
-            } else {
-                episode.setIsInCollection(EpisodeTools.isCollected(jobInfo.flagValue()));
-            }
+        for (SgJobInfo jobInfo : jobInfos) {
+            for (int i = 0; i < jobInfo.episodesLength(); i++) {
+                EpisodeInfo episodeInfo = jobInfo.episodes(i);
 
-            episodes.add(episode);
+                Episode episode = new Episode();
+                episode.setSeasonNumber(episodeInfo.season());
+                episode.setEpisodeNumber(episodeInfo.number());
+                if (isWatchedNotCollected) {
+                    episode.setWatchedFlag(jobInfo.flagValue());
+                    // Always upload (regardless if watched, skipped or not watched).
+                    // Also ensures legacy data slowly adds the new plays field.
+                    episode.setPlays(episodeInfo.plays());
+                } else {
+                    episode.setIsInCollection(EpisodeTools.isCollected(jobInfo.flagValue()));
+                }
+
+                episodes.add(episode);
+            }
         }
         return episodes;
     }
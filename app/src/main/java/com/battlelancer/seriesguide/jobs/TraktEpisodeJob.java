@@ -1,12 +1,14 @@
 package com.battlelancer.seriesguide.jobs;
 
 import android.content.Context;
+import android.util.SparseArray;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.battlelancer.seriesguide.SgApp;
 import com.battlelancer.seriesguide.jobs.episodes.JobAction;
 import com.battlelancer.seriesguide.modules.ServicesComponent;
 import com.battlelancer.seriesguide.sync.NetworkJobProcessor;
+import com.battlelancer.seriesguide.sync.NetworkJobProcessor.JobResult;
 import com.battlelancer.seriesguide.traktapi.SgTrakt;
 import com.battlelancer.seriesguide.traktapi.TraktCredentials;
 import com.battlelancer.seriesguide.ui.episodes.EpisodeFlags;
@@ -23,8 +25,11 @@ import com.uwetrottmann.trakt5.entities.SyncSeason;
 import com.uwetrottmann.trakt5.entities.SyncShow;
 import com.uwetrottmann.trakt5.services.Sync;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import org.threeten.bp.Instant;
 import org.threeten.bp.OffsetDateTime;
 import org.threeten.bp.ZoneOffset;
@@ -33,28 +38,54 @@ import retrofit2.Response;
 
 public class TraktEpisodeJob extends BaseNetworkEpisodeJob {
 
-    private final long actionAtMs;
+    private final List<SgJobInfo> jobInfos;
+    private final List<Long> actionAtMs;
+    private final Set<Integer> notFoundShowTvdbIds = new HashSet<>();
+    private int notifyShowTvdbId;
 
     public TraktEpisodeJob(JobAction action, SgJobInfo jobInfo, long actionAtMs) {
-        super(action, jobInfo);
+        this(action, Collections.singletonList(jobInfo), Collections.singletonList(actionAtMs));
+    }
+
+    /**
+     * Uploads the episodes of multiple jobs with a single request. All jobs must have the same
+     * action and flag value, but may be for different shows.
+     *
+     * @param actionAtMs The time of action of each job.
+     */
+    public TraktEpisodeJob(JobAction action, List<SgJobInfo> jobInfos, List<Long> actionAtMs) {
+        super(action, jobInfos.get(0));
+        this.jobInfos = jobInfos;
         this.actionAtMs = actionAtMs;
     }
 
+    @Override
+    protected int getShowTvdbId() {
+        return notifyShowTvdbId != 0 ? notifyShowTvdbId : super.getShowTvdbId();
+    }
+
     @NonNull
     @Override
     public NetworkJobProcessor.JobResult execute(Context context) {
-        // Do not send if show has no trakt id (was not on trakt last time we checked).
-        Integer showTraktId = ShowTools.getShowTraktId(context, jobInfo.showTvdbId());
-        boolean canSendToTrakt = showTraktId != null;
-        if (!canSendToTrakt) {
-            return buildResult(context, NetworkJob.ERROR_TRAKT_NOT_FOUND);
-        }
+        return buildResult(context, upload(context));
+    }
 
-        int result = upload(context, showTraktId);
-        return buildResult(context, result);
+    /**
+     * After {@link #execute(Context)}, returns a not found result for each show that was skipped
+     * because it is not on trakt, mapped by TheTVDB id of the show.
+     */
+    @NonNull
+    public SparseArray<JobResult> getShowNotFoundResults(Context context) {
+        SparseArray<JobResult> results = new SparseArray<>(notFoundShowTvdbIds.size());
+        for (int showTvdbId : notFoundShowTvdbIds) {
+            notifyShowTvdbId = showTvdbId;
+            results.put(showTvdbId, buildResult(context, NetworkJob.ERROR_TRAKT_NOT_FOUND));
+        }
+        notifyShowTvdbId = 0;
+        return results;
     }
 
-    private int upload(Context context, @NonNull Integer showTraktId) {
+    private int upload(Context context) {
         final int flagValue = jobInfo.flagValue();
 
         // skipped flag not supported by trakt
@@ -64,8 +95,42 @@ public class TraktEpisodeJob extends BaseNetworkEpisodeJob {
 
         boolean isAddNotDelete = flagValue
                 != EpisodeFlags.UNWATCHED; // 0 for not watched or not collected
-        List<SyncSeason> seasons = getEpisodesForTrakt(isAddNotDelete);
-        if (seasons.isEmpty()) {
+
+        // outer wrapper and show are always required
+        List<SyncShow> shows = new ArrayList<>();
+        SparseArray<SyncShow> showsByTvdbId = new SparseArray<>();
+        for (int i = 0; i < jobInfos.size(); i++) {
+            SgJobInfo jobInfo = jobInfos.get(i);
+            int showTvdbId = jobInfo.showTvdbId();
+            if (notFoundShowTvdbIds.contains(showTvdbId)) {
+                continue;
+            }
+            SyncShow show = showsByTvdbId.get(showTvdbId);
+            if (show == null) {
+                // Do not send if show has no trakt id (was not on trakt last time we checked).
+                Integer showTraktId = ShowTools.getShowTraktId(context, showTvdbId);
+                if (showTraktId == null) {
+                    notFoundShowTvdbIds.add(showTvdbId);
+                    continue;
+                }
+                show = new SyncShow().id(ShowIds.trakt(showTraktId));
+                show.seasons = new ArrayList<>();
+                showsByTvdbId.put(showTvdbId, show);
+                shows.add(show);
+            }
+            addEpisodesForTrakt(show.seasons, jobInfo, actionAtMs.get(i), isAddNotDelete);
+        }
+        if (shows.isEmpty()) {
+            // no show on trakt, see getShowNotFoundResults
+            return NetworkJob.SUCCESS;
+        }
+        // remove shows with nothing to upload
+        for (int i = shows.size() - 1; i >= 0; i--) {
+            if (shows.get(i).seasons.isEmpty()) {
+                shows.remove(i);
+            }
+        }
+        if (shows.isEmpty()) {
             return NetworkJob.SUCCESS; // nothing to upload, done.
         }
 
@@ -73,10 +138,7 @@ public class TraktEpisodeJob extends BaseNetworkEpisodeJob {
             return NetworkJob.ERROR_TRAKT_AUTH;
         }
 
-        // outer wrapper and show are always required
-        SyncShow show = new SyncShow().id(ShowIds.trakt(showTraktId));
-        SyncItems items = new SyncItems().shows(show);
-        show.seasons(seasons);
+        SyncItems items = new SyncItems().shows(shows);
 
         // determine network call
         String errorLabel;
@@ -138,11 +200,11 @@ public class TraktEpisodeJob extends BaseNetworkEpisodeJob {
     }
 
     /**
-     * Builds a list of {@link com.uwetrottmann.trakt5.entities.SyncSeason} objects to submit to
-     * trakt.
+     * Adds the episodes of the job to the list of {@link com.uwetrottmann.trakt5.entities.SyncSeason}
+     * objects to submit to trakt, re-using a season if it was already added.
      */
-    @NonNull
-    private List<SyncSeason> getEpisodesForTrakt(boolean isAddNotDelete) {
+    private void addEpisodesForTrakt(List<SyncSeason> seasons, SgJobInfo jobInfo,
+            long actionAtMs, boolean isAddNotDelete) {
         // send time of action to avoid adding duplicate plays/collection events at trakt
         // if this job re-runs due to failure, but trakt already applied changes (it happens)
         // also if execution is delayed to due being offline this will ensure
@@ -150,8 +212,6 @@ public class TraktEpisodeJob extends BaseNetworkEpisodeJob {
         Instant instant = Instant.ofEpochMilli(actionAtMs);
         OffsetDateTime actionAtDateTime = instant.atOffset(ZoneOffset.UTC);
 
-        List<SyncSeason> seasons = new ArrayList<>();
-
         SyncSeason currentSeason = null;
         for (int i = 0; i < jobInfo.episodesLength(); i++) {
             EpisodeInfo episodeInfo = jobInfo.episodes(i);
@@ -159,10 +219,19 @@ public class TraktEpisodeJob extends BaseNetworkEpisodeJob {
             int seasonNumber = episodeInfo.season();
 
             // start new season?
-            if (currentSeason == null || seasonNumber > currentSeason.number) {
-                currentSeason = new SyncSeason().number(seasonNumber);
-                currentSeason.episodes = new LinkedList<>();
-                seasons.add(currentSeason);
+            if (currentSeason == null || seasonNumber != currentSeason.number) {
+                currentSeason = null;
+                for (SyncSeason season : seasons) {
+                    if (season.number == seasonNumber) {
+                        currentSeason = season;
+                        break;
+                    }
+                }
+                if (currentSeason == null) {
+                    currentSeason = new SyncSeason().number(seasonNumber);
+                    currentSeason.episodes = new LinkedList<>();
+                    seasons.add(currentSeason);
+                }
             }
 
             // add episode
@@ -177,8 +246,6 @@ public class TraktEpisodeJob extends BaseNetworkEpisodeJob {
             }
             currentSeason.episodes.add(episode);
         }
-
-        return seasons;
     }
 
     /**
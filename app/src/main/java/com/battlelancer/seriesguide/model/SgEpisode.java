@@ -23,7 +23,9 @@ import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
         },
         indices = {
                 @Index(SeasonsColumns.REF_SEASON_ID),
-                @Index(ShowsColumns.REF_SHOW_ID)
+                @Index({ShowsColumns.REF_SHOW_ID, Episodes.SEASON, Episodes.NUMBER}),
+                @Index({ShowsColumns.REF_SHOW_ID, Episodes.FIRSTAIREDMS}),
+                @Index(Episodes.FIRSTAIREDMS)
         }
 )
 public class SgEpisode {
@@ -0,0 +1,10 @@
+package com.battlelancer.seriesguide.model
+
+/**
+ * Episode counters for the stats screen, see [com.battlelancer.seriesguide.provider.EpisodeHelper].
+ */
+data class SgEpisodeStats(
+    val count: Int,
+    val watched: Int,
+    val watchedRuntimeMin: Long
+)
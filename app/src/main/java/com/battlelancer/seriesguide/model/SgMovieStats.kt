@@ -0,0 +1,14 @@
+package com.battlelancer.seriesguide.model
+
+/**
+ * Movie counters for the stats screen, see [com.battlelancer.seriesguide.provider.MovieHelper].
+ */
+data class SgMovieStats(
+    val count: Int,
+    val inWatchlist: Int,
+    val inWatchlistRuntimeMin: Long,
+    val watched: Int,
+    val watchedRuntimeMin: Long,
+    val inCollection: Int,
+    val inCollectionRuntimeMin: Long
+)
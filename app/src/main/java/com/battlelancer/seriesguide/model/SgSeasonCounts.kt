@@ -0,0 +1,26 @@
+package com.battlelancer.seriesguide.model
+
+import androidx.room.ColumnInfo
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons
+
+/**
+ * Episode counters of a season, see [com.battlelancer.seriesguide.provider.SeasonHelper].
+ */
+data class SgSeasonCounts(
+    @ColumnInfo(name = Seasons._ID)
+    val tvdbId: Int,
+    @ColumnInfo(name = Seasons.TOTALCOUNT)
+    val totalCount: Int,
+    @ColumnInfo(name = Seasons.WATCHCOUNT)
+    val watchCount: Int,
+    @ColumnInfo(name = Seasons.UNAIREDCOUNT)
+    val notReleasedCount: Int,
+    @ColumnInfo(name = Seasons.NOAIRDATECOUNT)
+    val noReleaseDateCount: Int,
+    @ColumnInfo(name = SKIPPED_COUNT)
+    val skippedCount: Int
+) {
+    companion object {
+        const val SKIPPED_COUNT = "skipped_count"
+    }
+}
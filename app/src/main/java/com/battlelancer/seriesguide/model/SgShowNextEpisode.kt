@@ -0,0 +1,26 @@
+package com.battlelancer.seriesguide.model
+
+import androidx.room.ColumnInfo
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows
+
+/**
+ * Next episode and unwatched count of a show, the next episode properties are `null` if there is
+ * no next episode.
+ */
+data class SgShowNextEpisode(
+    @ColumnInfo(name = Shows.REF_SHOW_ID)
+    val showTvdbId: Int,
+    @ColumnInfo(name = Shows.NEXTEPISODE)
+    val nextEpisodeTvdbId: Int?,
+    @ColumnInfo(name = Episodes.SEASON)
+    val season: Int?,
+    @ColumnInfo(name = Episodes.NUMBER)
+    val number: Int?,
+    @ColumnInfo(name = Episodes.FIRSTAIREDMS)
+    val releaseTimeMs: Long?,
+    @ColumnInfo(name = Episodes.TITLE)
+    val title: String?,
+    @ColumnInfo(name = Shows.UNWATCHED_COUNT)
+    val unwatchedCount: Int
+)
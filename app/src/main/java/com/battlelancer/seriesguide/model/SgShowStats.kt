@@ -0,0 +1,10 @@
+package com.battlelancer.seriesguide.model
+
+/**
+ * Show counters for the stats screen, see [com.battlelancer.seriesguide.provider.ShowHelper].
+ */
+data class SgShowStats(
+    val count: Int,
+    val continuing: Int,
+    val withNextEpisode: Int
+)
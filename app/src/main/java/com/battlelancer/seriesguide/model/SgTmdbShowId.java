@@ -0,0 +1,28 @@
+package com.battlelancer.seriesguide.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.TmdbShowIds;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+
+/**
+ * The TheTVDB id of a show on TMDB. Does not change, so it is kept once looked up.
+ */
+@Entity(tableName = Tables.TMDB_SHOW_IDS,
+        indices = {@Index(TmdbShowIds.TVDB_ID)})
+public class SgTmdbShowId {
+
+    @PrimaryKey
+    @ColumnInfo(name = TmdbShowIds.TMDB_ID)
+    public int tmdbId;
+
+    @ColumnInfo(name = TmdbShowIds.TVDB_ID)
+    public int tvdbId;
+
+    public SgTmdbShowId(int tmdbId, int tvdbId) {
+        this.tmdbId = tmdbId;
+        this.tvdbId = tvdbId;
+    }
+}
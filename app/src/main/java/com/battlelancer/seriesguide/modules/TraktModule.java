@@ -2,6 +2,7 @@ package com.battlelancer.seriesguide.modules;
 
 import android.content.Context;
 import com.battlelancer.seriesguide.traktapi.SgTrakt;
+import com.battlelancer.seriesguide.traktapi.SgTraktSync;
 import com.uwetrottmann.trakt5.TraktV2;
 import com.uwetrottmann.trakt5.services.Episodes;
 import com.uwetrottmann.trakt5.services.Movies;
@@ -47,6 +48,12 @@ public class TraktModule {
         return trakt.sync();
     }
 
+    @Singleton
+    @Provides
+    SgTraktSync provideSgTraktSync(TraktV2 trakt) {
+        return ((SgTrakt) trakt).sgSync();
+    }
+
     @Singleton
     @Provides
     Users provideUsers(TraktV2 trakt) {
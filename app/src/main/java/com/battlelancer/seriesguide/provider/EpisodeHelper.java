@@ -10,8 +10,8 @@ import androidx.room.RawQuery;
 import androidx.sqlite.db.SupportSQLiteQuery;
 import com.battlelancer.seriesguide.model.EpisodeWithShow;
 import com.battlelancer.seriesguide.model.SgEpisode;
-import com.battlelancer.seriesguide.model.SgEpisodeForTraktSync;
 import com.battlelancer.seriesguide.model.SgEpisodeSeasonAndShow;
+import com.battlelancer.seriesguide.model.SgEpisodeStats;
 import com.battlelancer.seriesguide.model.SgShow;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
 import java.util.List;
@@ -40,13 +40,21 @@ public interface EpisodeHelper {
     @Query("SELECT * FROM episodes WHERE season_id=:seasonTvdbId ORDER BY episodenumber ASC")
     List<SgEpisode> getSeason(int seasonTvdbId);
 
-    @Query("SELECT _id, episodenumber, watched, plays, episode_collected FROM episodes WHERE season_id=:seasonTvdbId")
-    List<SgEpisodeForTraktSync> getSeasonForTraktSync(int seasonTvdbId);
-
     @Nullable
     @Query("SELECT season_id, season, series_id  FROM episodes WHERE _id=:episodeTvdbId")
     SgEpisodeSeasonAndShow getEpisodeMinimal(int episodeTvdbId);
 
+    /**
+     * Counts all and watched episodes, optionally excluding specials, and sums up the runtime of
+     * watched episodes using the runtime of their show.
+     */
+    @Query("SELECT COUNT(episodes._id) AS count,"
+            + " IFNULL(SUM(watched=1), 0) AS watched,"
+            + " IFNULL(SUM(CASE WHEN watched=1 THEN CAST(series.runtime AS INTEGER) ELSE 0 END), 0) AS watchedRuntimeMin"
+            + " FROM episodes LEFT OUTER JOIN series ON episodes.series_id=series._id"
+            + " WHERE :includeSpecials OR season!=0")
+    SgEpisodeStats getStats(boolean includeSpecials);
+
     @RawQuery(observedEntities = {SgEpisode.class, SgShow.class})
     DataSource.Factory<Integer, EpisodeWithShow> getEpisodesWithShow(SupportSQLiteQuery query);
 
@@ -8,6 +8,7 @@ import androidx.room.RawQuery;
 import androidx.sqlite.db.SupportSQLiteQuery;
 import com.battlelancer.seriesguide.model.SgMovie;
 import com.battlelancer.seriesguide.model.SgMovieFlags;
+import com.battlelancer.seriesguide.model.SgMovieStats;
 import com.battlelancer.seriesguide.model.SgMovieTmdbId;
 import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
 import java.util.List;
@@ -52,6 +53,19 @@ public interface MovieHelper {
             + "FROM movies WHERE movies_tmdbid=:tmdbId")
     SgMovieFlags getMovieFlags(int tmdbId);
 
+    /**
+     * Counts all movies and those in watchlist, watched or in collection and sums up their runtime.
+     */
+    @Query("SELECT COUNT(_id) AS count,"
+            + " IFNULL(SUM(movies_inwatchlist=1), 0) AS inWatchlist,"
+            + " IFNULL(SUM(CASE WHEN movies_inwatchlist=1 THEN movies_runtime ELSE 0 END), 0) AS inWatchlistRuntimeMin,"
+            + " IFNULL(SUM(movies_watched=1), 0) AS watched,"
+            + " IFNULL(SUM(CASE WHEN movies_watched=1 THEN movies_runtime ELSE 0 END), 0) AS watchedRuntimeMin,"
+            + " IFNULL(SUM(movies_incollection=1), 0) AS inCollection,"
+            + " IFNULL(SUM(CASE WHEN movies_incollection=1 THEN movies_runtime ELSE 0 END), 0) AS inCollectionRuntimeMin"
+            + " FROM movies")
+    SgMovieStats getStats();
+
     @Nullable
     @Query("SELECT movies_title FROM movies WHERE movies_tmdbid=:tmdbId")
     String getMovieTitle(int tmdbId);
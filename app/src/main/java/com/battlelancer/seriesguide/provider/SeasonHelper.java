@@ -4,8 +4,10 @@ import androidx.annotation.Nullable;
 import androidx.room.Dao;
 import androidx.room.Query;
 import com.battlelancer.seriesguide.model.SgSeason;
+import com.battlelancer.seriesguide.model.SgSeasonCounts;
 import com.battlelancer.seriesguide.model.SgSeasonMinimal;
 import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import java.util.List;
 
 /**
  * Data Access Object for the seasons table.
@@ -23,4 +25,35 @@ public interface SeasonHelper {
     @Query("SELECT combinednr, series_id FROM seasons WHERE _id=:seasonTvdbId")
     SgSeasonMinimal getSeasonMinimal(int seasonTvdbId);
 
+    /**
+     * Counts episodes of seasons in a single scan. Seasons without episodes are included with all
+     * counts being 0. Must match the selections of DBUtils.UnwatchedQuery.
+     */
+    String SELECT_COUNTS = "SELECT seasons._id AS _id,"
+            + " COUNT(episodes._id) AS season_totalcount,"
+            // unwatched, aired episodes
+            + " SUM(CASE WHEN episodes.watched=0 AND episodes.episode_firstairedms!=-1"
+            + " AND episodes.episode_firstairedms<=:currentTime THEN 1 ELSE 0 END) AS watchcount,"
+            // unwatched, aired in the future episodes
+            + " SUM(CASE WHEN episodes.watched=0"
+            + " AND episodes.episode_firstairedms>:currentTime THEN 1 ELSE 0 END) AS willaircount,"
+            // unwatched, no airdate
+            + " SUM(CASE WHEN episodes.watched=0"
+            + " AND episodes.episode_firstairedms=-1 THEN 1 ELSE 0 END) AS noairdatecount,"
+            // any skipped episodes
+            + " SUM(CASE WHEN episodes.watched=2 THEN 1 ELSE 0 END) AS "
+            + SgSeasonCounts.SKIPPED_COUNT
+            + " FROM seasons LEFT OUTER JOIN episodes ON episodes.season_id=seasons._id";
+
+    String GROUP_BY_SEASON = " GROUP BY seasons._id";
+
+    @Query(SELECT_COUNTS + " WHERE seasons._id=:seasonTvdbId" + GROUP_BY_SEASON)
+    List<SgSeasonCounts> getCountsOfSeason(int seasonTvdbId, long currentTime);
+
+    @Query(SELECT_COUNTS + " WHERE seasons.series_id=:showTvdbId" + GROUP_BY_SEASON)
+    List<SgSeasonCounts> getCountsOfShow(String showTvdbId, long currentTime);
+
+    @Query(SELECT_COUNTS + GROUP_BY_SEASON)
+    List<SgSeasonCounts> getCountsOfAllSeasons(long currentTime);
+
 }
@@ -575,6 +575,18 @@ public class SeriesGuideContract {
         String EXTRAS = "job_extras";
     }
 
+    interface TmdbShowIdsColumns {
+        /**
+         * TMDB id of a show.
+         */
+        String TMDB_ID = "tmdb_show_tmdbid";
+
+        /**
+         * TheTVDB id of the show with the TMDB id.
+         */
+        String TVDB_ID = "tmdb_show_tvdbid";
+    }
+
     private static final Uri BASE_CONTENT_URI = Uri.parse("content://"
             + SgApp.CONTENT_AUTHORITY);
 
@@ -1160,6 +1172,15 @@ public class SeriesGuideContract {
         }
     }
 
+    /**
+     * Maps TMDB show ids to TheTVDB show ids. Not exposed through the content provider, use {@link
+     * TmdbShowIdHelper}.
+     */
+    public static class TmdbShowIds implements TmdbShowIdsColumns {
+        private TmdbShowIds() {
+        }
+    }
+
     private SeriesGuideContract() {
     }
 }
@@ -205,6 +205,8 @@ public class SeriesGuideDatabase {
         String ACTIVITY = "activity";
 
         String JOBS = "jobs";
+
+        String TMDB_SHOW_IDS = "tmdb_show_ids";
     }
 
     private interface Selections {
@@ -441,6 +443,53 @@ public class SeriesGuideDatabase {
 
             + ");";
 
+    private static final String SEARCH_TABLE_INSERT_NEW_EPISODE = "INSERT INTO "
+            + Tables.EPISODES_SEARCH + "(" + EpisodeSearchColumns._DOCID + ","
+            + EpisodeSearchColumns.TITLE + "," + EpisodeSearchColumns.OVERVIEW + ") VALUES(new."
+            + Episodes._ID + ",new." + Episodes.TITLE + ",new." + Episodes.OVERVIEW + ");";
+
+    /**
+     * Triggers to keep the external content {@link #CREATE_SEARCH_TABLE search table} in sync with
+     * the {@link Tables#EPISODES} table, so only changed episodes have to be re-indexed instead of
+     * rebuilding the whole table.
+     *
+     * <p>Old index entries must be deleted before the episode row changes as the FTS table reads
+     * the old values from the content table. Inserts also delete first as bulk inserts replace
+     * (delete) existing rows without firing delete triggers.
+     */
+    static final String[] CREATE_SEARCH_TABLE_TRIGGERS = new String[]{
+            "CREATE TRIGGER IF NOT EXISTS episodes_search_bi BEFORE INSERT ON "
+                    + Tables.EPISODES + " BEGIN DELETE FROM " + Tables.EPISODES_SEARCH
+                    + " WHERE " + EpisodeSearchColumns._DOCID + "=new." + Episodes._ID + "; END;",
+            "CREATE TRIGGER IF NOT EXISTS episodes_search_ai AFTER INSERT ON "
+                    + Tables.EPISODES + " BEGIN " + SEARCH_TABLE_INSERT_NEW_EPISODE + " END;",
+            "CREATE TRIGGER IF NOT EXISTS episodes_search_bu BEFORE UPDATE OF "
+                    + Episodes.TITLE + "," + Episodes.OVERVIEW + " ON " + Tables.EPISODES
+                    + " BEGIN DELETE FROM " + Tables.EPISODES_SEARCH
+                    + " WHERE " + EpisodeSearchColumns._DOCID + "=old." + Episodes._ID + "; END;",
+            "CREATE TRIGGER IF NOT EXISTS episodes_search_au AFTER UPDATE OF "
+                    + Episodes.TITLE + "," + Episodes.OVERVIEW + " ON " + Tables.EPISODES
+                    + " BEGIN " + SEARCH_TABLE_INSERT_NEW_EPISODE + " END;",
+            "CREATE TRIGGER IF NOT EXISTS episodes_search_bd BEFORE DELETE ON "
+                    + Tables.EPISODES + " BEGIN DELETE FROM " + Tables.EPISODES_SEARCH
+                    + " WHERE " + EpisodeSearchColumns._DOCID + "=old." + Episodes._ID + "; END;"
+    };
+
+    /**
+     * Creates the {@link #CREATE_SEARCH_TABLE search table} and the triggers that keep it up to
+     * date.
+     */
+    static void createSearchTable(SupportSQLiteDatabase db) {
+        db.execSQL(CREATE_SEARCH_TABLE);
+        createSearchTableTriggers(db);
+    }
+
+    static void createSearchTableTriggers(SupportSQLiteDatabase db) {
+        for (String trigger : CREATE_SEARCH_TABLE_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
     @VisibleForTesting
     public static final String CREATE_LISTS_TABLE = "CREATE TABLE " + Tables.LISTS + " ("
 
@@ -1042,6 +1091,9 @@ public class SeriesGuideDatabase {
     /**
      * Drops the current {@link Tables#EPISODES_SEARCH} table and re-creates it with current data
      * from {@link Tables#EPISODES}.
+     *
+     * <p>The table is kept up to date by {@link #CREATE_SEARCH_TABLE_TRIGGERS}, so this is only
+     * required to repair an inconsistent index.
      */
     public static void rebuildFtsTable(SupportSQLiteDatabase db) {
         if (!recreateFtsTable(db)) {
@@ -1058,8 +1110,7 @@ public class SeriesGuideDatabase {
         try {
             db.beginTransaction();
             try {
-                db.execSQL("INSERT OR IGNORE INTO " + Tables.EPISODES_SEARCH
-                        + "(" + Tables.EPISODES_SEARCH + ") VALUES('rebuild')");
+                populateSearchTable(db);
                 db.setTransactionSuccessful();
             } finally {
                 db.endTransaction();
@@ -1070,12 +1121,33 @@ public class SeriesGuideDatabase {
         }
     }
 
+    /**
+     * Drops the {@link Tables#EPISODES_SEARCH} table, then creates it and its triggers and fills
+     * it with current data from {@link Tables#EPISODES}. Unlike {@link
+     * #rebuildFtsTable(SupportSQLiteDatabase)} does not catch errors, so a migration fails instead
+     * of leaving the table without triggers.
+     */
+    static void recreateSearchTable(SupportSQLiteDatabase db) {
+        dropSearchTable(db);
+        createSearchTable(db);
+        populateSearchTable(db);
+    }
+
+    private static void dropSearchTable(SupportSQLiteDatabase db) {
+        db.execSQL("drop table if exists " + Tables.EPISODES_SEARCH);
+    }
+
+    private static void populateSearchTable(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT OR IGNORE INTO " + Tables.EPISODES_SEARCH
+                + "(" + Tables.EPISODES_SEARCH + ") VALUES('rebuild')");
+    }
+
     private static boolean recreateFtsTable(SupportSQLiteDatabase db) {
         try {
             db.beginTransaction();
             try {
-                db.execSQL("drop table if exists " + Tables.EPISODES_SEARCH);
-                db.execSQL(CREATE_SEARCH_TABLE);
+                dropSearchTable(db);
+                createSearchTable(db);
                 db.setTransactionSuccessful();
             } finally {
                 db.endTransaction();
@@ -26,6 +26,8 @@ import android.database.sqlite.SQLiteException;
 import android.net.Uri;
 import android.provider.BaseColumns;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 import androidx.sqlite.db.SupportSQLiteOpenHelper;
 import com.battlelancer.seriesguide.SgApp;
@@ -33,6 +35,9 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract.Jobs;
 import com.battlelancer.seriesguide.util.SelectionBuilder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import timber.log.Timber;
 
 public class SeriesGuideProvider extends ContentProvider {
@@ -188,7 +193,26 @@ public class SeriesGuideProvider extends ContentProvider {
         return matcher;
     }
 
-    private final ThreadLocal<Boolean> applyingBatch = new ThreadLocal<>();
+    /**
+     * Change notifications recorded while applying a batch.
+     */
+    private static class BatchNotifications {
+        /** Content roots to notify once the batch is committed. */
+        final LinkedHashSet<Uri> roots = new LinkedHashSet<>();
+        /** Number of notifications recorded, including those of roots already recorded. */
+        int recorded;
+    }
+
+    /**
+     * If set for a thread, batches applied on it add the number of notifications they suppressed.
+     */
+    private static final ThreadLocal<AtomicInteger> suppressedNotificationsCounter =
+            new ThreadLocal<>();
+
+    /**
+     * While applying a batch on this thread, the notifications to send once it is committed.
+     */
+    private final ThreadLocal<BatchNotifications> batchNotifications = new ThreadLocal<>();
     protected SupportSQLiteDatabase database;
 
     @Override
@@ -335,8 +359,7 @@ public class SeriesGuideProvider extends ContentProvider {
         }
 
         if (newItemUri != null) {
-            //noinspection ConstantConditions
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
 
         return newItemUri;
@@ -511,7 +534,7 @@ public class SeriesGuideProvider extends ContentProvider {
         }
 
         if (count > 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
 
         return count;
@@ -546,7 +569,7 @@ public class SeriesGuideProvider extends ContentProvider {
         }
 
         if (count > 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
 
         return count;
@@ -568,10 +591,11 @@ public class SeriesGuideProvider extends ContentProvider {
 
         SgRoomDatabase room = SgRoomDatabase.getInstance(getContext());
         database = room.getOpenHelper().getWritableDatabase();
+        final BatchNotifications notifications = new BatchNotifications();
+        final ContentProviderResult[] results = new ContentProviderResult[numOperations];
         room.beginTransaction();
         try {
-            applyingBatch.set(true);
-            final ContentProviderResult[] results = new ContentProviderResult[numOperations];
+            batchNotifications.set(notifications);
             for (int i = 0; i < numOperations; i++) {
                 final ContentProviderOperation operation = operations.get(i);
                 // do not yield as a pre-caution to not break Room invalidation tracker
@@ -581,15 +605,79 @@ public class SeriesGuideProvider extends ContentProvider {
                 results[i] = operation.apply(this, results, i);
             }
             room.setTransactionSuccessful();
-            return results;
         } finally {
-            applyingBatch.set(false);
+            batchNotifications.remove();
             room.endTransaction();
         }
+
+        // notify once per content root, only after changes are committed
+        for (Uri uri : notifications.roots) {
+            //noinspection ConstantConditions
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+        AtomicInteger counter = suppressedNotificationsCounter.get();
+        if (counter != null) {
+            counter.addAndGet(notifications.recorded - notifications.roots.size());
+        }
+        return results;
+    }
+
+    /**
+     * Batches applied on the calling thread add the number of change notifications they
+     * suppressed, by notifying only once per content root, to the given counter. Pass null to
+     * stop counting.
+     */
+    public static void setSuppressedNotificationsCounter(@Nullable AtomicInteger counter) {
+        if (counter != null) {
+            suppressedNotificationsCounter.set(counter);
+        } else {
+            suppressedNotificationsCounter.remove();
+        }
     }
 
     private boolean applyingBatch() {
-        return applyingBatch.get() != null && applyingBatch.get();
+        return batchNotifications.get() != null;
+    }
+
+    /**
+     * Notifies observers of the given URI. While applying a batch only remembers its content
+     * root, e.g. shows for the URI of a single show, to notify once the batch is committed.
+     */
+    private void notifyChange(Uri uri) {
+        BatchNotifications notifications = batchNotifications.get();
+        if (notifications != null) {
+            notifications.roots.add(getContentRoot(uri));
+            notifications.recorded++;
+        } else {
+            //noinspection ConstantConditions
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * Returns the URI made of only the first path segment of the given URI. Notifying it also
+     * notifies observers of all URIs below it.
+     */
+    @VisibleForTesting
+    static Uri getContentRoot(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() <= 1) {
+            return uri;
+        }
+        return new Uri.Builder()
+                .scheme(uri.getScheme())
+                .authority(uri.getAuthority())
+                .appendPath(segments.get(0))
+                .build();
+    }
+
+    /**
+     * Like {@link #query} builds the selection for the given {@link Uri}, for example to inspect
+     * the query plan of the generated query.
+     */
+    @VisibleForTesting
+    static SelectionBuilder buildSelection(Uri uri) {
+        return buildSelection(uri, buildUriMatcher().match(uri));
     }
 
     /**
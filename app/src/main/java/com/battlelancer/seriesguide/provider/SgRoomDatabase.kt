@@ -15,6 +15,7 @@ import com.battlelancer.seriesguide.model.SgListItem
 import com.battlelancer.seriesguide.model.SgMovie
 import com.battlelancer.seriesguide.model.SgSeason
 import com.battlelancer.seriesguide.model.SgShow
+import com.battlelancer.seriesguide.model.SgTmdbShowId
 import timber.log.Timber
 
 @Database(
@@ -26,7 +27,8 @@ import timber.log.Timber
         SgListItem::class,
         SgMovie::class,
         SgActivity::class,
-        SgJob::class
+        SgJob::class,
+        SgTmdbShowId::class
     ],
     version = SgRoomDatabase.VERSION
 )
@@ -40,6 +42,8 @@ abstract class SgRoomDatabase : RoomDatabase() {
 
     abstract fun movieHelper(): MovieHelper
 
+    abstract fun tmdbShowIdHelper(): TmdbShowIdHelper
+
     companion object {
 
         private const val VERSION_43_ROOM = 43
@@ -48,7 +52,10 @@ abstract class SgRoomDatabase : RoomDatabase() {
         const val VERSION_46_SERIES_SLUG = 46
         const val VERSION_47_SERIES_POSTER_THUMB = 47
         const val VERSION_48_EPISODE_PLAYS = 48
-        const val VERSION = VERSION_48_EPISODE_PLAYS
+        const val VERSION_49_SEARCH_TRIGGERS = 49
+        const val VERSION_50_EPISODE_INDEXES = 50
+        const val VERSION_51_TMDB_SHOW_IDS = 51
+        const val VERSION = VERSION_51_TMDB_SHOW_IDS
 
         @Volatile
         private var instance: SgRoomDatabase? = null
@@ -71,6 +78,9 @@ abstract class SgRoomDatabase : RoomDatabase() {
                         SgRoomDatabase::class.java,
                         SeriesGuideDatabase.DATABASE_NAME
                     ).addMigrations(
+                        MIGRATION_50_51,
+                        MIGRATION_49_50,
+                        MIGRATION_48_49,
                         MIGRATION_47_48,
                         MIGRATION_46_47,
                         MIGRATION_45_46,
@@ -113,7 +123,64 @@ abstract class SgRoomDatabase : RoomDatabase() {
         val CALLBACK: Callback = object : Callback() {
             override fun onCreate(db: SupportSQLiteDatabase) {
                 // manually create FTS table, not supported by Room
-                db.execSQL(SeriesGuideDatabase.CREATE_SEARCH_TABLE)
+                SeriesGuideDatabase.createSearchTable(db)
+            }
+        }
+
+        /**
+         * Adds a table to keep the TheTVDB ids of TMDB shows.
+         */
+        @JvmField
+        val MIGRATION_50_51: Migration = object :
+            Migration(VERSION_50_EPISODE_INDEXES, VERSION_51_TMDB_SHOW_IDS) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                Timber.d("Migrating database from 50 to 51")
+
+                database.execSQL("CREATE TABLE IF NOT EXISTS `tmdb_show_ids` "
+                        + "(`tmdb_show_tmdbid` INTEGER NOT NULL, "
+                        + "`tmdb_show_tvdbid` INTEGER NOT NULL, "
+                        + "PRIMARY KEY(`tmdb_show_tmdbid`))")
+                database.execSQL("CREATE INDEX IF NOT EXISTS "
+                        + "`index_tmdb_show_ids_tmdb_show_tvdbid` "
+                        + "ON `tmdb_show_ids` (`tmdb_show_tvdbid`)")
+            }
+        }
+
+        /**
+         * Replaces the show index of episodes with indexes matching how episodes are looked up:
+         * by show, season and number (e.g. when syncing flags), by show and release time (e.g.
+         * next episode) and by release time only (e.g. calendar, notifications).
+         */
+        @JvmField
+        val MIGRATION_49_50: Migration = object :
+            Migration(VERSION_49_SEARCH_TRIGGERS, VERSION_50_EPISODE_INDEXES) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                Timber.d("Migrating database from 49 to 50")
+
+                // Create new indexes first, show lookups can use them right away
+                database.execSQL("CREATE INDEX `index_episodes_series_id_season_episodenumber` "
+                        + "ON `episodes` (`series_id`, `season`, `episodenumber`)")
+                database.execSQL("CREATE INDEX `index_episodes_series_id_episode_firstairedms` "
+                        + "ON `episodes` (`series_id`, `episode_firstairedms`)")
+                database.execSQL("CREATE INDEX `index_episodes_episode_firstairedms` "
+                        + "ON `episodes` (`episode_firstairedms`)")
+                // Show index is a prefix of the show, season and number index
+                database.execSQL("DROP INDEX IF EXISTS `index_episodes_series_id`")
+            }
+        }
+
+        /**
+         * Adds triggers to keep the search table up to date, rebuilds it once so it is in sync.
+         */
+        @JvmField
+        val MIGRATION_48_49: Migration = object :
+            Migration(VERSION_48_EPISODE_PLAYS, VERSION_49_SEARCH_TRIGGERS) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                Timber.d("Migrating database from 48 to 49")
+
+                // re-creates the search table including triggers,
+                // fails the migration on errors instead of leaving the table without triggers
+                SeriesGuideDatabase.recreateSearchTable(database)
             }
         }
 
@@ -8,6 +8,8 @@ import androidx.room.RawQuery;
 import androidx.sqlite.db.SupportSQLiteQuery;
 import com.battlelancer.seriesguide.model.SgShow;
 import com.battlelancer.seriesguide.model.SgShowMinimal;
+import com.battlelancer.seriesguide.model.SgShowNextEpisode;
+import com.battlelancer.seriesguide.model.SgShowStats;
 import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
 import java.util.List;
 
@@ -38,6 +40,22 @@ public interface ShowHelper {
     @RawQuery(observedEntities = SgShow.class)
     LiveData<List<SgShow>> queryShows(SupportSQLiteQuery query);
 
+    /**
+     * See {@link com.battlelancer.seriesguide.util.DBUtils#updateLatestEpisode}.
+     */
+    @RawQuery
+    List<SgShowNextEpisode> getNextEpisodes(SupportSQLiteQuery query);
+
+    /**
+     * Counts all shows, those continuing and those with a next episode. Status and next episode
+     * are stored as text, so compare them like a cursor would with getInt.
+     */
+    @Query("SELECT COUNT(_id) AS count,"
+            + " IFNULL(SUM(CAST(status AS INTEGER)=1), 0) AS continuing,"
+            + " IFNULL(SUM(CAST(next AS INTEGER)!=0), 0) AS withNextEpisode"
+            + " FROM series")
+    SgShowStats getStats();
+
     @Query("SELECT count(_id) FROM series WHERE series_hidden=1")
     int countHiddenShows();
 
@@ -0,0 +1,30 @@
+package com.battlelancer.seriesguide.provider;
+
+import androidx.annotation.Nullable;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.battlelancer.seriesguide.model.SgTmdbShowId;
+import java.util.List;
+
+/**
+ * Data Access Object for the TMDB show ids table.
+ */
+@Dao
+public interface TmdbShowIdHelper {
+
+    /**
+     * Returns the known ids of the given TMDB shows. Pass no more than 999 ids (SQLite variable
+     * limit), e.g. one page of TMDB results.
+     */
+    @Query("SELECT * FROM tmdb_show_ids WHERE tmdb_show_tmdbid IN (:tmdbIds)")
+    List<SgTmdbShowId> getShowIds(List<Integer> tmdbIds);
+
+    @Nullable
+    @Query("SELECT tmdb_show_tmdbid FROM tmdb_show_ids WHERE tmdb_show_tvdbid=:tvdbId LIMIT 1")
+    Integer getTmdbId(int tvdbId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertShowIds(List<SgTmdbShowId> showIds);
+}
@@ -15,6 +15,7 @@ import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.text.style.StyleSpan;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 import androidx.core.app.TaskStackBuilder;
@@ -107,12 +108,14 @@ public class NotificationService {
     };
 
     // by airdate, then by show, then lowest number first
-    private static final String SORTING = Episodes.FIRSTAIREDMS + " ASC,"
+    @VisibleForTesting
+    public static final String SORTING = Episodes.FIRSTAIREDMS + " ASC,"
             + Shows.SORT_TITLE + ","
             + Episodes.NUMBER + " ASC";
 
     // only if notifications are on: unwatched episodes released on or after arg
-    private static final String SELECTION = Shows.SELECTION_NOTIFY + " AND "
+    @VisibleForTesting
+    public static final String SELECTION = Shows.SELECTION_NOTIFY + " AND "
             + Episodes.SELECTION_UNWATCHED + " AND "
             + Episodes.FIRSTAIREDMS + ">=?";
 
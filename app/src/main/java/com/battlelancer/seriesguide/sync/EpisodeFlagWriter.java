@@ -0,0 +1,182 @@
+package com.battlelancer.seriesguide.sync;
+
+import android.content.Context;
+import android.database.SQLException;
+import android.os.SystemClock;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.provider.SgRoomDatabase;
+import java.util.ArrayList;
+import timber.log.Timber;
+
+/**
+ * Collects watched, plays and collected values of many episodes and writes them with compiled
+ * {@code UPDATE} statements in a single transaction. Much faster than one content provider op per
+ * episode, which has to match the URI, build the selection and box values for each row.
+ *
+ * <p>Does not access the database until {@link #write()}, so values can be collected on any
+ * thread.
+ */
+public class EpisodeFlagWriter {
+
+    /** Pass instead of a value to keep the current value of the episode. */
+    public static final int KEEP = -1;
+
+    private static final String SET_FLAGS = "UPDATE " + Tables.EPISODES + " SET "
+            + Episodes.WATCHED + "=COALESCE(?," + Episodes.WATCHED + "),"
+            + Episodes.PLAYS + "=COALESCE(?," + Episodes.PLAYS + "),"
+            + Episodes.COLLECTED + "=COALESCE(?," + Episodes.COLLECTED + ")";
+    private static final String UPDATE_BY_NUMBER = SET_FLAGS + " WHERE "
+            + Shows.REF_SHOW_ID + "=? AND "
+            + Episodes.SEASON + "=? AND "
+            + Episodes.NUMBER + "=?";
+    private static final String UPDATE_BY_ID = SET_FLAGS + " WHERE "
+            + Episodes._ID + "=?";
+
+    private final Context context;
+    private final ArrayList<Row> rows = new ArrayList<>();
+
+    public EpisodeFlagWriter(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Sets the given values of the episode with the given number of a show.
+     *
+     * @param watched An {@link com.battlelancer.seriesguide.ui.episodes.EpisodeFlags} value or
+     * {@link #KEEP}.
+     * @param plays Number of plays or {@link #KEEP}.
+     * @param collected 1 if collected, 0 if not or {@link #KEEP}.
+     */
+    public void addByNumber(int showTvdbId, int season, int number, int watched, int plays,
+            int collected) {
+        rows.add(new Row(false, showTvdbId, season, number, watched, plays, collected));
+    }
+
+    /**
+     * Like {@link #addByNumber(int, int, int, int, int, int)}, but identifies the episode by its
+     * TheTVDB id.
+     */
+    public void addById(int episodeTvdbId, int watched, int plays, int collected) {
+        rows.add(new Row(true, 0, 0, episodeTvdbId, watched, plays, collected));
+    }
+
+    /**
+     * Adds all values collected by the other writer.
+     */
+    public void addAll(EpisodeFlagWriter other) {
+        rows.addAll(other.rows);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Writes all added values in a single transaction, then notifies the episodes URI once. Clears
+     * the added values if successful.
+     *
+     * @return false if writing failed and no values were changed.
+     */
+    public boolean write() {
+        if (rows.isEmpty()) {
+            return true;
+        }
+
+        long startTime = SystemClock.elapsedRealtime();
+        int updatedCount = 0;
+        SgRoomDatabase room = SgRoomDatabase.getInstance(context);
+        room.beginTransaction();
+        try {
+            SupportSQLiteDatabase db = room.getOpenHelper().getWritableDatabase();
+            SupportSQLiteStatement updateByNumber = null;
+            SupportSQLiteStatement updateById = null;
+            try {
+                for (Row row : rows) {
+                    SupportSQLiteStatement statement;
+                    if (row.byId) {
+                        if (updateById == null) {
+                            updateById = db.compileStatement(UPDATE_BY_ID);
+                        }
+                        statement = updateById;
+                        statement.bindLong(4, row.number);
+                    } else {
+                        if (updateByNumber == null) {
+                            updateByNumber = db.compileStatement(UPDATE_BY_NUMBER);
+                        }
+                        statement = updateByNumber;
+                        statement.bindLong(4, row.showTvdbId);
+                        statement.bindLong(5, row.season);
+                        statement.bindLong(6, row.number);
+                    }
+                    bindValueOrKeep(statement, 1, row.watched);
+                    bindValueOrKeep(statement, 2, row.plays);
+                    bindValueOrKeep(statement, 3, row.collected);
+                    updatedCount += statement.executeUpdateDelete();
+                }
+            } finally {
+                closeQuietly(updateByNumber);
+                closeQuietly(updateById);
+            }
+            room.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Timber.e(e, "write: failed to update %s episodes", rows.size());
+            return false;
+        } finally {
+            room.endTransaction();
+        }
+
+        long elapsedMs = Math.max(1, SystemClock.elapsedRealtime() - startTime);
+        Timber.d("write: updated %s of %s episodes in %s ms (%s rows/s)",
+                updatedCount, rows.size(), elapsedMs, rows.size() * 1000L / elapsedMs);
+        rows.clear();
+
+        if (updatedCount > 0) {
+            context.getContentResolver().notifyChange(Episodes.CONTENT_URI, null);
+        }
+        return true;
+    }
+
+    private static void bindValueOrKeep(SupportSQLiteStatement statement, int index, int value) {
+        if (value == KEEP) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value);
+        }
+    }
+
+    private static void closeQuietly(SupportSQLiteStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static class Row {
+        final boolean byId;
+        final int showTvdbId;
+        final int season;
+        /** The episode number, or its TheTVDB id if {@link #byId}. */
+        final int number;
+        final int watched;
+        final int plays;
+        final int collected;
+
+        Row(boolean byId, int showTvdbId, int season, int number, int watched, int plays,
+                int collected) {
+            this.byId = byId;
+            this.showTvdbId = showTvdbId;
+            this.season = season;
+            this.number = number;
+            this.watched = watched;
+            this.plays = plays;
+            this.collected = collected;
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package com.battlelancer.seriesguide.sync;
 
 import android.content.ContentProviderOperation;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.OperationApplicationException;
 import android.database.Cursor;
-import android.net.Uri;
 import android.text.TextUtils;
 import androidx.annotation.Nullable;
 import androidx.collection.SparseArrayCompat;
@@ -18,6 +16,8 @@ import com.battlelancer.seriesguide.ui.episodes.EpisodeTools;
 import com.battlelancer.seriesguide.ui.shows.ShowTools;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.Errors;
+import com.battlelancer.seriesguide.util.PagePrefetcher;
+import com.battlelancer.seriesguide.util.PagePrefetcher.Page;
 import com.google.api.client.util.DateTime;
 import com.uwetrottmann.androidutils.AndroidUtils;
 import com.uwetrottmann.seriesguide.backend.episodes.Episodes;
@@ -55,110 +55,103 @@ public class HexagonEpisodeSync {
         DateTime lastSyncTime = new DateTime(HexagonSettings.getLastEpisodesSyncTime(context));
         Timber.d("downloadChangedFlags: since %s", lastSyncTime);
 
-        List<Episode> episodes;
-        String cursor = null;
-        boolean hasMoreEpisodes = true;
         SparseArrayCompat<Long> showsLastWatchedMs = new SparseArrayCompat<>();
-        while (hasMoreEpisodes) {
-            try {
-                // get service each time to check if auth was removed
-                Episodes episodesService = hexagonTools.getEpisodesService();
-                if (episodesService == null) {
+        // write a page while the next one is downloaded
+        try (PagePrefetcher<Episode> pages = new PagePrefetcher<>(cursor -> {
+            // get service each time to check if auth was removed
+            Episodes episodesService = hexagonTools.getEpisodesService();
+            if (episodesService == null) {
+                return null;
+            }
+
+            Episodes.Get request = episodesService.get()
+                    .setUpdatedSince(lastSyncTime); // use default server limit
+            if (!TextUtils.isEmpty(cursor)) {
+                request.setCursor(cursor);
+            }
+
+            EpisodeList response = request.execute();
+            if (response == null) {
+                // we're done here
+                Timber.d("downloadChangedFlags: response was null, done here");
+                return Page.end();
+            }
+            return new Page<>(response.getEpisodes(), response.getCursor());
+        })) {
+            while (pages.hasNext()) {
+                Page<Episode> page;
+                try {
+                    page = pages.next();
+                } catch (IOException | IllegalArgumentException e) {
+                    // Note: JSON parser may throw IllegalArgumentException.
+                    Errors.logAndReportHexagon("get updated episodes", e);
                     return false;
                 }
-
-                Episodes.Get request = episodesService.get()
-                        .setUpdatedSince(lastSyncTime); // use default server limit
-                if (!TextUtils.isEmpty(cursor)) {
-                    request.setCursor(cursor);
+                if (page == null) {
+                    return false;
                 }
 
-                EpisodeList response = request.execute();
-                if (response == null) {
-                    // we're done here
-                    Timber.d("downloadChangedFlags: response was null, done here");
+                List<Episode> episodes = page.items;
+                if (episodes == null || episodes.size() == 0) {
+                    // nothing to do here
                     break;
                 }
 
-                episodes = response.getEpisodes();
-
-                // check for more items
-                if (response.getCursor() != null) {
-                    cursor = response.getCursor();
-                } else {
-                    hasMoreEpisodes = false;
-                }
-            } catch (IOException | IllegalArgumentException e) {
-                // Note: JSON parser may throw IllegalArgumentException.
-                Errors.logAndReportHexagon("get updated episodes", e);
-                return false;
-            }
-
-            if (episodes == null || episodes.size() == 0) {
-                // nothing to do here
-                break;
-            }
-
-            // build batch of episode flag updates
-            ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-            for (Episode episode : episodes) {
-                Integer showTvdbId = episode.getShowTvdbId();
-                if (!showTvdbIds.contains(showTvdbId)) {
-                    continue; // ignore, show not added on this device
-                }
+                // collect episode flag updates
+                EpisodeFlagWriter flagWriter = new EpisodeFlagWriter(context);
+                for (Episode episode : episodes) {
+                    Integer showTvdbId = episode.getShowTvdbId();
+                    if (!showTvdbIds.contains(showTvdbId)) {
+                        continue; // ignore, show not added on this device
+                    }
 
-                ContentValues values = new ContentValues();
-                Integer watchedFlag = episode.getWatchedFlag();
-                if (watchedFlag != null) {
-                    values.put(SeriesGuideContract.Episodes.WATCHED, watchedFlag);
-                    if (watchedFlag == EpisodeFlags.WATCHED) {
-                        // Watched.
-                        // Note: plays may be null for legacy data. Protect against invalid data.
-                        if (episode.getPlays() != null && episode.getPlays() >= 1) {
-                            values.put(SeriesGuideContract.Episodes.PLAYS, episode.getPlays());
+                    int watched = EpisodeFlagWriter.KEEP;
+                    int plays = EpisodeFlagWriter.KEEP;
+                    Integer watchedFlag = episode.getWatchedFlag();
+                    if (watchedFlag != null) {
+                        watched = watchedFlag;
+                        if (watchedFlag == EpisodeFlags.WATCHED) {
+                            // Watched.
+                            // Note: plays may be null for legacy data.
+                            // Protect against invalid data.
+                            if (episode.getPlays() != null && episode.getPlays() >= 1) {
+                                plays = episode.getPlays();
+                            } else {
+                                plays = 1;
+                            }
                         } else {
-                            values.put(SeriesGuideContract.Episodes.PLAYS, 1);
+                            // Skipped or not watched.
+                            plays = 0;
                         }
-                    } else {
-                        // Skipped or not watched.
-                        values.put(SeriesGuideContract.Episodes.PLAYS, 0);
-                    }
 
-                    // record the latest last watched time for a show
-                    if (!EpisodeTools.isUnwatched(watchedFlag)) {
-                        Long lastWatchedMs = showsLastWatchedMs.get(showTvdbId);
-                        // episodes returned in reverse chrono order, so just get the first time
-                        if (lastWatchedMs == null && episode.getUpdatedAt() != null) {
-                            long updatedAtMs = episode.getUpdatedAt().getValue();
-                            showsLastWatchedMs.put(showTvdbId, updatedAtMs);
+                        // record the latest last watched time for a show
+                        if (!EpisodeTools.isUnwatched(watchedFlag)) {
+                            Long lastWatchedMs = showsLastWatchedMs.get(showTvdbId);
+                            // episodes returned in reverse chrono order,
+                            // so just get the first time
+                            if (lastWatchedMs == null && episode.getUpdatedAt() != null) {
+                                long updatedAtMs = episode.getUpdatedAt().getValue();
+                                showsLastWatchedMs.put(showTvdbId, updatedAtMs);
+                            }
                         }
                     }
-                }
-                if (episode.getIsInCollection() != null) {
-                    values.put(SeriesGuideContract.Episodes.COLLECTED,
-                            episode.getIsInCollection() ? 1 : 0);
-                }
+                    int collected = EpisodeFlagWriter.KEEP;
+                    if (episode.getIsInCollection() != null) {
+                        collected = episode.getIsInCollection() ? 1 : 0;
+                    }
+                    if (watched == EpisodeFlagWriter.KEEP && collected == EpisodeFlagWriter.KEEP) {
+                        continue; // nothing to change
+                    }
 
-                ContentProviderOperation op = ContentProviderOperation
-                        .newUpdate(SeriesGuideContract.Episodes.CONTENT_URI)
-                        .withSelection(SeriesGuideContract.Shows.REF_SHOW_ID + "="
-                                + showTvdbId + " AND "
-                                + SeriesGuideContract.Episodes.SEASON + "="
-                                + episode.getSeasonNumber() + " AND "
-                                + SeriesGuideContract.Episodes.NUMBER + "="
-                                + episode.getEpisodeNumber(), null)
-                        .withValues(values)
-                        .build();
-
-                batch.add(op);
-            }
+                    flagWriter.addByNumber(showTvdbId, episode.getSeasonNumber(),
+                            episode.getEpisodeNumber(), watched, plays, collected);
+                }
 
-            // execute database update
-            try {
-                DBUtils.applyInSmallBatches(context, batch);
-            } catch (OperationApplicationException e) {
-                Timber.e(e, "downloadChangedFlags: failed to apply updates");
-                return false;
+                // execute database update
+                if (!flagWriter.write()) {
+                    Timber.e("downloadChangedFlags: failed to apply updates");
+                    return false;
+                }
             }
         }
 
@@ -181,25 +174,52 @@ public class HexagonEpisodeSync {
      * @return Whether the download was successful and all changes were applied to the database.
      */
     public boolean downloadFlags(int showTvdbId) {
+        ShowFlags flags = fetchFlags(showTvdbId);
+        return flags != null && applyFlags(showTvdbId, flags);
+    }
+
+    /**
+     * Episode flags and last watched time for episodes of a show as downloaded by {@link
+     * #fetchFlags(int)}.
+     */
+    public static class ShowFlags {
+        final EpisodeFlagWriter flagWriter;
+        @Nullable final Long lastWatchedMs;
+
+        ShowFlags(EpisodeFlagWriter flagWriter, @Nullable Long lastWatchedMs) {
+            this.flagWriter = flagWriter;
+            this.lastWatchedMs = lastWatchedMs;
+        }
+    }
+
+    /**
+     * Downloads watched, skipped or collected episodes of this show from Hexagon and collects the
+     * flags to apply, but does not access the database. So is safe to call from multiple
+     * threads at once. Pass the result to {@link #applyFlags(int, ShowFlags)}.
+     *
+     * @return {@code null} if the download failed.
+     */
+    @Nullable
+    public ShowFlags fetchFlags(int showTvdbId) {
         Timber.d("downloadFlags: for show %s", showTvdbId);
         List<Episode> episodes;
         boolean hasMoreEpisodes = true;
         String cursor = null;
 
-        Uri episodesOfShowUri = SeriesGuideContract.Episodes.buildEpisodesOfShowUri(showTvdbId);
+        EpisodeFlagWriter flagWriter = new EpisodeFlagWriter(context);
         Long lastWatchedMs = null;
         while (hasMoreEpisodes) {
             // abort if connection is lost
             if (!AndroidUtils.isNetworkConnected(context)) {
                 Timber.e("downloadFlags: no network connection");
-                return false;
+                return null;
             }
 
             try {
                 // get service each time to check if auth was removed
                 Episodes episodesService = hexagonTools.getEpisodesService();
                 if (episodesService == null) {
-                    return false;
+                    return null;
                 }
 
                 // build request
@@ -226,7 +246,7 @@ public class HexagonEpisodeSync {
             } catch (IOException | IllegalArgumentException e) {
                 // Note: JSON parser may throw IllegalArgumentException.
                 Errors.logAndReportHexagon("get episodes of show", e);
-                return false;
+                return null;
             }
 
             if (episodes == null || episodes.size() == 0) {
@@ -234,21 +254,20 @@ public class HexagonEpisodeSync {
                 break;
             }
 
-            // build batch of episode flag updates
-            ArrayList<ContentProviderOperation> batch = new ArrayList<>();
+            // collect episode flag updates
             for (Episode episode : episodes) {
-                ContentValues values = new ContentValues();
-
+                int watched = EpisodeFlagWriter.KEEP;
+                int plays = EpisodeFlagWriter.KEEP;
                 Integer watchedFlag = episode.getWatchedFlag();
                 if (watchedFlag != null && watchedFlag != EpisodeFlags.UNWATCHED) {
                     // Watched or skipped.
-                    values.put(SeriesGuideContract.Episodes.WATCHED, watchedFlag);
+                    watched = watchedFlag;
                     if (watchedFlag == EpisodeFlags.WATCHED) {
                         // Note: plays may be null for legacy data. Protect against invalid data.
                         if (episode.getPlays() != null && episode.getPlays() >= 1) {
-                            values.put(SeriesGuideContract.Episodes.PLAYS, episode.getPlays());
+                            plays = episode.getPlays();
                         } else {
-                            values.put(SeriesGuideContract.Episodes.PLAYS, 1);
+                            plays = 1;
                         }
                     }
                     // record last watched time by taking latest updatedAt of watched/skipped
@@ -261,39 +280,39 @@ public class HexagonEpisodeSync {
                     }
                 }
 
+                int collected = EpisodeFlagWriter.KEEP;
                 if (episode.getIsInCollection() != null
                         && episode.getIsInCollection()) {
-                    values.put(SeriesGuideContract.Episodes.COLLECTED, 1);
+                    collected = 1;
                 }
 
-                if (values.size() == 0) {
+                if (watched == EpisodeFlagWriter.KEEP && collected == EpisodeFlagWriter.KEEP) {
                     // skip if episode has neither a watched flag or is in collection
                     continue;
                 }
 
-                ContentProviderOperation op = ContentProviderOperation
-                        .newUpdate(episodesOfShowUri)
-                        .withSelection(SeriesGuideContract.Episodes.SEASON + "="
-                                + episode.getSeasonNumber() + " AND "
-                                + SeriesGuideContract.Episodes.NUMBER + "="
-                                + episode.getEpisodeNumber(), null)
-                        .withValues(values)
-                        .build();
-
-                batch.add(op);
+                flagWriter.addByNumber(showTvdbId, episode.getSeasonNumber(),
+                        episode.getEpisodeNumber(), watched, plays, collected);
             }
+        }
 
-            // execute database update
-            try {
-                DBUtils.applyInSmallBatches(context, batch);
-            } catch (OperationApplicationException e) {
-                Timber.e(e, "downloadFlags: failed to apply updates for show %s", showTvdbId);
-                return false;
-            }
+        return new ShowFlags(flagWriter, lastWatchedMs);
+    }
+
+    /**
+     * Applies flags downloaded by {@link #fetchFlags(int)} to episodes in the database.
+     *
+     * @return Whether all changes were applied to the database.
+     */
+    public boolean applyFlags(int showTvdbId, ShowFlags flags) {
+        // execute database update
+        if (!flags.flagWriter.write()) {
+            Timber.e("downloadFlags: failed to apply updates for show %s", showTvdbId);
+            return false;
         }
 
         //noinspection RedundantIfStatement
-        if (!updateLastWatchedTimeOfShow(showTvdbId, lastWatchedMs)) {
+        if (!updateLastWatchedTimeOfShow(showTvdbId, flags.lastWatchedMs)) {
             return false; // failed to update last watched time
         }
 
@@ -12,6 +12,8 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract;
 import com.battlelancer.seriesguide.ui.lists.ListsTools;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.Errors;
+import com.battlelancer.seriesguide.util.PagePrefetcher;
+import com.battlelancer.seriesguide.util.PagePrefetcher.Page;
 import com.google.api.client.util.DateTime;
 import com.uwetrottmann.seriesguide.backend.lists.Lists;
 import com.uwetrottmann.seriesguide.backend.lists.model.SgList;
@@ -47,46 +49,52 @@ public class HexagonListsSync {
         }
 
         HashSet<String> localListIds = ListsTools.getListIds(context);
-        List<SgList> lists;
-        String cursor = null;
-        do {
-            try {
-                // get service each time to check if auth was removed
-                Lists listsService = hexagonTools.getListsService();
-                if (listsService == null) {
-                    return false; // no longer signed in
-                }
+        // write a page while the next one is downloaded
+        try (PagePrefetcher<SgList> pages = new PagePrefetcher<>(cursor -> {
+            // get service each time to check if auth was removed
+            Lists listsService = hexagonTools.getListsService();
+            if (listsService == null) {
+                return null; // no longer signed in
+            }
 
-                Lists.Get request = listsService.get(); // use default server limit
-                if (hasMergedLists) {
-                    request.setUpdatedSince(lastSyncTime);
+            Lists.Get request = listsService.get(); // use default server limit
+            if (hasMergedLists) {
+                request.setUpdatedSince(lastSyncTime);
+            }
+            if (!TextUtils.isEmpty(cursor)) {
+                request.setCursor(cursor);
+            }
+
+            SgListList response = request.execute();
+            if (response == null) {
+                Timber.d("download: failed, response is null.");
+                return Page.end();
+            }
+            return new Page<>(response.getLists(), response.getCursor());
+        })) {
+            while (pages.hasNext()) { // fetch next batch
+                Page<SgList> page;
+                try {
+                    page = pages.next();
+                } catch (IOException | IllegalArgumentException e) {
+                    // Note: JSON parser may throw IllegalArgumentException.
+                    Errors.logAndReportHexagon("get lists", e);
+                    return false;
                 }
-                if (!TextUtils.isEmpty(cursor)) {
-                    request.setCursor(cursor);
+                if (page == null) {
+                    return false;
                 }
 
-                SgListList response = request.execute();
-                if (response == null) {
-                    Timber.d("download: failed, response is null.");
-                    break;
+                List<SgList> lists = page.items;
+                if (lists == null || lists.size() == 0) {
+                    break; // empty response, assume we are done
                 }
 
-                cursor = response.getCursor();
-                lists = response.getLists();
-            } catch (IOException | IllegalArgumentException e) {
-                // Note: JSON parser may throw IllegalArgumentException.
-                Errors.logAndReportHexagon("get lists", e);
-                return false;
-            }
-
-            if (lists == null || lists.size() == 0) {
-                break; // empty response, assume we are done
-            }
-
-            if (!doListsDatabaseUpdate(lists, localListIds, hasMergedLists)) {
-                return false; // database update failed, abort
+                if (!doListsDatabaseUpdate(lists, localListIds, hasMergedLists)) {
+                    return false; // database update failed, abort
+                }
             }
-        } while (!TextUtils.isEmpty(cursor)); // fetch next batch
+        }
 
         // set new last sync time
         if (hasMergedLists) {
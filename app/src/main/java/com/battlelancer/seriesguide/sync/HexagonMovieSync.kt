@@ -13,6 +13,7 @@ import com.battlelancer.seriesguide.provider.SgRoomDatabase
 import com.battlelancer.seriesguide.ui.movies.MovieTools
 import com.battlelancer.seriesguide.util.DBUtils
 import com.battlelancer.seriesguide.util.Errors
+import com.battlelancer.seriesguide.util.PagePrefetcher
 import com.google.api.client.util.DateTime
 import com.uwetrottmann.androidutils.AndroidUtils
 import com.uwetrottmann.seriesguide.backend.movies.model.Movie
@@ -38,9 +39,6 @@ internal class HexagonMovieSync(
         newWatchedMoviesToPlays: MutableMap<Int, Int>,
         hasMergedMovies: Boolean
     ): Boolean {
-        var movies: List<Movie>?
-        var hasMoreMovies = true
-        var cursor: String? = null
         val currentTime = System.currentTimeMillis()
         val lastSyncTime = DateTime(HexagonSettings.getLastMoviesSyncTime(context))
         val localMovies = MovieTools.getMovieTmdbIdsAsSet(context)
@@ -58,133 +56,133 @@ internal class HexagonMovieSync(
         var updatedCount = 0
         var removedCount = 0
 
-        while (hasMoreMovies) {
+        // apply a page while the next one is downloaded
+        PagePrefetcher(PagePrefetcher.PageLoader<Movie> { cursor ->
             // abort if connection is lost
             if (!AndroidUtils.isNetworkConnected(context)) {
                 Timber.e("download: no network connection")
-                return false
+                return@PageLoader null
             }
 
-            try {
-                // get service each time to check if auth was removed
-                val moviesService = hexagonTools.moviesService ?: return false
-
-                val request = moviesService.get()  // use default server limit
-                if (hasMergedMovies) {
-                    request.updatedSince = lastSyncTime
-                }
-                if (!TextUtils.isEmpty(cursor)) {
-                    request.cursor = cursor
-                }
-
-                val response = request.execute()
-                if (response == null) {
-                    // nothing more to do
-                    Timber.d("download: response was null, done here")
-                    break
-                }
-
-                movies = response.movies
+            // get service each time to check if auth was removed
+            val moviesService = hexagonTools.moviesService ?: return@PageLoader null
 
-                if (response.cursor != null) {
-                    cursor = response.cursor
-                } else {
-                    hasMoreMovies = false
-                }
-            } catch (e: IOException) {
-                Errors.logAndReportHexagon("get movies", e)
-                return false
-            } catch (e: IllegalArgumentException) {
-                // Note: JSON parser may throw IllegalArgumentException.
-                Errors.logAndReportHexagon("get movies", e)
-                return false
+            val request = moviesService.get()  // use default server limit
+            if (hasMergedMovies) {
+                request.updatedSince = lastSyncTime
+            }
+            if (!TextUtils.isEmpty(cursor)) {
+                request.cursor = cursor
             }
 
-            if (movies == null || movies.isEmpty()) {
+            val response = request.execute()
+            if (response == null) {
                 // nothing more to do
-                break
+                Timber.d("download: response was null, done here")
+                return@PageLoader PagePrefetcher.Page.end()
             }
+            PagePrefetcher.Page(response.movies, response.cursor)
+        }).use { pages ->
+            while (pages.hasNext()) {
+                val page = try {
+                    pages.next()
+                } catch (e: IOException) {
+                    Errors.logAndReportHexagon("get movies", e)
+                    return false
+                } catch (e: IllegalArgumentException) {
+                    // Note: JSON parser may throw IllegalArgumentException.
+                    Errors.logAndReportHexagon("get movies", e)
+                    return false
+                } ?: return false
 
-            val batch = ArrayList<ContentProviderOperation>()
-            for (movie in movies) {
-                if (localMovies.contains(movie.tmdbId)) {
-                    // movie is in database
-                    if (movie.isInCollection == false
-                        && movie.isInWatchlist == false
-                        && movie.isWatched == false) {
-                        // if no longer in watchlist, collection or watched: remove movie
-                        // note: this is backwards compatible with watched movies downloaded
-                        // by trakt as those will have a null watched flag on Cloud
-                        batch.add(
-                            ContentProviderOperation.newDelete(
-                                SeriesGuideContract.Movies.buildMovieUri(movie.tmdbId)
-                            ).build()
-                        )
-                        removedCount++
-                    } else {
-                        // update collection, watchlist and watched flags and plays
-                        val values = ContentValues().apply {
-                            putIfNotNull(
-                                movie.isInCollection,
-                                SeriesGuideContract.Movies.IN_COLLECTION
-                            )
-                            putIfNotNull(
-                                movie.isInWatchlist,
-                                SeriesGuideContract.Movies.IN_WATCHLIST
-                            )
-                            putIfNotNull(
-                                movie.isWatched,
-                                SeriesGuideContract.Movies.WATCHED
+                val movies = page.items
+                if (movies == null || movies.isEmpty()) {
+                    // nothing more to do
+                    break
+                }
+
+                val batch = ArrayList<ContentProviderOperation>()
+                for (movie in movies) {
+                    if (localMovies.contains(movie.tmdbId)) {
+                        // movie is in database
+                        if (movie.isInCollection == false
+                            && movie.isInWatchlist == false
+                            && movie.isWatched == false) {
+                            // if no longer in watchlist, collection or watched: remove movie
+                            // note: this is backwards compatible with watched movies downloaded
+                            // by trakt as those will have a null watched flag on Cloud
+                            batch.add(
+                                ContentProviderOperation.newDelete(
+                                    SeriesGuideContract.Movies.buildMovieUri(movie.tmdbId)
+                                ).build()
                             )
-                            movie.isWatched?.let {
-                                if (it) {
-                                    // Watched.
-                                    // Note: plays may be null for legacy data. Protect against invalid data.
-                                    if (movie.plays != null && movie.plays >= 1) {
-                                        put(SeriesGuideContract.Movies.PLAYS, movie.plays)
+                            removedCount++
+                        } else {
+                            // update collection, watchlist and watched flags and plays
+                            val values = ContentValues().apply {
+                                putIfNotNull(
+                                    movie.isInCollection,
+                                    SeriesGuideContract.Movies.IN_COLLECTION
+                                )
+                                putIfNotNull(
+                                    movie.isInWatchlist,
+                                    SeriesGuideContract.Movies.IN_WATCHLIST
+                                )
+                                putIfNotNull(
+                                    movie.isWatched,
+                                    SeriesGuideContract.Movies.WATCHED
+                                )
+                                movie.isWatched?.let {
+                                    if (it) {
+                                        // Watched.
+                                        // Note: plays may be null for legacy data.
+                                        // Protect against invalid data.
+                                        if (movie.plays != null && movie.plays >= 1) {
+                                            put(SeriesGuideContract.Movies.PLAYS, movie.plays)
+                                        } else {
+                                            put(SeriesGuideContract.Movies.PLAYS, 1)
+                                        }
                                     } else {
-                                        put(SeriesGuideContract.Movies.PLAYS, 1)
+                                        // Not watched.
+                                        put(SeriesGuideContract.Movies.PLAYS, 0)
                                     }
-                                } else {
-                                    // Not watched.
-                                    put(SeriesGuideContract.Movies.PLAYS, 0)
                                 }
                             }
+                            batch.add(
+                                ContentProviderOperation.newUpdate(
+                                    SeriesGuideContract.Movies.buildMovieUri(movie.tmdbId)
+                                ).withValues(values).build()
+                            )
+                            updatedCount++
                         }
-                        batch.add(
-                            ContentProviderOperation.newUpdate(
-                                SeriesGuideContract.Movies.buildMovieUri(movie.tmdbId)
-                            ).withValues(values).build()
-                        )
-                        updatedCount++
-                    }
-                } else {
-                    // schedule movie to be added
-                    if (movie.isInCollection == true) {
-                        newCollectionMovies.add(movie.tmdbId)
-                    }
-                    if (movie.isInWatchlist == true) {
-                        newWatchlistMovies.add(movie.tmdbId)
-                    }
-                    if (movie.isWatched == true) {
-                        // Note: plays may be null for legacy data. Protect against invalid data.
-                        val plays = if (movie.plays != null && movie.plays >= 1) {
-                            movie.plays
-                        } else {
-                            1
+                    } else {
+                        // schedule movie to be added
+                        if (movie.isInCollection == true) {
+                            newCollectionMovies.add(movie.tmdbId)
+                        }
+                        if (movie.isInWatchlist == true) {
+                            newWatchlistMovies.add(movie.tmdbId)
+                        }
+                        if (movie.isWatched == true) {
+                            // Note: plays may be null for legacy data.
+                            // Protect against invalid data.
+                            val plays = if (movie.plays != null && movie.plays >= 1) {
+                                movie.plays
+                            } else {
+                                1
+                            }
+                            newWatchedMoviesToPlays[movie.tmdbId] = plays
                         }
-                        newWatchedMoviesToPlays[movie.tmdbId] = plays
                     }
                 }
-            }
 
-            try {
-                DBUtils.applyInSmallBatches(context, batch)
-            } catch (e: OperationApplicationException) {
-                Timber.e(e, "download: applying movie updates failed")
-                return false
+                try {
+                    DBUtils.applyInSmallBatches(context, batch)
+                } catch (e: OperationApplicationException) {
+                    Timber.e(e, "download: applying movie updates failed")
+                    return false
+                }
             }
-
         }
 
         Timber.d("download: updated %d and removed %d movies", updatedCount, removedCount)
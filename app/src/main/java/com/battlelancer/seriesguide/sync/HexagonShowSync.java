@@ -13,6 +13,8 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract;
 import com.battlelancer.seriesguide.ui.search.SearchResult;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.Errors;
+import com.battlelancer.seriesguide.util.PagePrefetcher;
+import com.battlelancer.seriesguide.util.PagePrefetcher.Page;
 import com.google.api.client.util.DateTime;
 import com.uwetrottmann.androidutils.AndroidUtils;
 import com.uwetrottmann.seriesguide.backend.shows.Shows;
@@ -43,9 +45,6 @@ public class HexagonShowSync {
      */
     public boolean download(HashSet<Integer> existingShows, HashMap<Integer, SearchResult> newShows,
             boolean hasMergedShows) {
-        List<Show> shows;
-        boolean hasMoreShows = true;
-        String cursor = null;
         long currentTime = System.currentTimeMillis();
         DateTime lastSyncTime = new DateTime(HexagonSettings.getLastShowsSyncTime(context));
 
@@ -55,64 +54,66 @@ public class HexagonShowSync {
             Timber.d("download: all shows");
         }
 
-        while (hasMoreShows) {
+        // apply a page while the next one is downloaded
+        try (PagePrefetcher<Show> pages = new PagePrefetcher<>(cursor -> {
             // abort if connection is lost
             if (!AndroidUtils.isNetworkConnected(context)) {
                 Timber.e("download: no network connection");
-                return false;
+                return null;
             }
 
-            try {
-                // get service each time to check if auth was removed
-                Shows showsService = hexagonTools.getShowsService();
-                if (showsService == null) {
-                    return false;
-                }
+            // get service each time to check if auth was removed
+            Shows showsService = hexagonTools.getShowsService();
+            if (showsService == null) {
+                return null;
+            }
 
-                Shows.Get request = showsService.get(); // use default server limit
-                if (hasMergedShows) {
-                    // only get changed shows (otherwise returns all)
-                    request.setUpdatedSince(lastSyncTime);
+            Shows.Get request = showsService.get(); // use default server limit
+            if (hasMergedShows) {
+                // only get changed shows (otherwise returns all)
+                request.setUpdatedSince(lastSyncTime);
+            }
+            if (!TextUtils.isEmpty(cursor)) {
+                request.setCursor(cursor);
+            }
+
+            ShowList response = request.execute();
+            if (response == null) {
+                // we're done
+                Timber.d("download: response was null, done here");
+                return Page.end();
+            }
+            return new Page<>(response.getShows(), response.getCursor());
+        })) {
+            while (pages.hasNext()) {
+                Page<Show> page;
+                try {
+                    page = pages.next();
+                } catch (IOException | IllegalArgumentException e) {
+                    // Note: JSON parser may throw IllegalArgumentException.
+                    Errors.logAndReportHexagon("get shows", e);
+                    return false;
                 }
-                if (!TextUtils.isEmpty(cursor)) {
-                    request.setCursor(cursor);
+                if (page == null) {
+                    return false;
                 }
 
-                ShowList response = request.execute();
-                if (response == null) {
-                    // we're done
-                    Timber.d("download: response was null, done here");
+                List<Show> shows = page.items;
+                if (shows == null || shows.size() == 0) {
+                    // nothing to do here
                     break;
                 }
 
-                shows = response.getShows();
+                // update all received shows, ContentProvider will ignore those not added locally
+                ArrayList<ContentProviderOperation> batch = buildShowUpdateOps(shows,
+                        existingShows, newShows, !hasMergedShows);
 
-                // check for more items
-                if (response.getCursor() != null) {
-                    cursor = response.getCursor();
-                } else {
-                    hasMoreShows = false;
+                try {
+                    DBUtils.applyInSmallBatches(context, batch);
+                } catch (OperationApplicationException e) {
+                    Timber.e(e, "download: applying show updates failed");
+                    return false;
                 }
-            } catch (IOException | IllegalArgumentException e) {
-                // Note: JSON parser may throw IllegalArgumentException.
-                Errors.logAndReportHexagon("get shows", e);
-                return false;
-            }
-
-            if (shows == null || shows.size() == 0) {
-                // nothing to do here
-                break;
-            }
-
-            // update all received shows, ContentProvider will ignore those not added locally
-            ArrayList<ContentProviderOperation> batch = buildShowUpdateOps(shows, existingShows,
-                    newShows, !hasMergedShows);
-
-            try {
-                DBUtils.applyInSmallBatches(context, batch);
-            } catch (OperationApplicationException e) {
-                Timber.e(e, "download: applying show updates failed");
-                return false;
             }
         }
 
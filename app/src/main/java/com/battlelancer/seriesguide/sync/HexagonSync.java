@@ -7,6 +7,8 @@ import androidx.preference.PreferenceManager;
 import com.battlelancer.seriesguide.backend.HexagonTools;
 import com.battlelancer.seriesguide.backend.settings.HexagonSettings;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.sync.SyncStageScheduler.Stage;
 import com.battlelancer.seriesguide.ui.ListsActivity;
 import com.battlelancer.seriesguide.ui.movies.MovieTools;
 import com.battlelancer.seriesguide.ui.search.SearchResult;
@@ -18,6 +20,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.greenrobot.eventbus.EventBus;
 
 public class HexagonSync {
@@ -36,47 +39,70 @@ public class HexagonSync {
     }
 
     /**
-     * Syncs episodes, shows and movies with Hexagon.
+     * Syncs episodes, shows, movies and lists with Hexagon. Those not writing the same tables are
+     * synced at the same time.
      *
      * <p> Merges shows, episodes and movies after a sign-in. Consecutive syncs will only download
      * changes to shows, episodes and movies.
      */
     public SgSyncAdapter.UpdateResult sync(HashSet<Integer> existingShows,
             HashMap<Integer, SearchResult> newShows) {
+        SyncStageScheduler scheduler = new SyncStageScheduler(progress);
+        AtomicBoolean success = new AtomicBoolean(true);
+
         //// EPISODES
-        progress.publish(SyncProgress.Step.HEXAGON_EPISODES);
-        boolean syncEpisodesSuccessful = syncEpisodes();
-        if (!syncEpisodesSuccessful) {
-            progress.recordError();
-        }
+        Stage episodesStage = scheduler.add("Hexagon episodes", () -> {
+            progress.publish(SyncProgress.Step.HEXAGON_EPISODES);
+            if (!syncEpisodes()) {
+                progress.recordError();
+                success.set(false);
+            }
+            return true;
+        }).reads(Tables.SHOWS, Tables.EPISODES)
+                .writes(Tables.SHOWS, Tables.EPISODES);
 
         //// SHOWS
-        progress.publish(SyncProgress.Step.HEXAGON_SHOWS);
-        boolean syncShowsSuccessful = syncShows(existingShows, newShows);
-        if (!syncShowsSuccessful) {
-            progress.recordError();
-        }
+        // merge episodes of existing shows before downloading new or changed shows
+        scheduler.add("Hexagon shows", () -> {
+            progress.publish(SyncProgress.Step.HEXAGON_SHOWS);
+            if (!syncShows(existingShows, newShows)) {
+                progress.recordError();
+                success.set(false);
+            }
+            return true;
+        }).dependsOn(episodesStage)
+                .reads(Tables.SHOWS)
+                .writes(Tables.SHOWS);
 
         //// MOVIES
-        progress.publish(SyncProgress.Step.HEXAGON_MOVIES);
-        boolean syncMoviesSuccessful = syncMovies();
-        if (!syncMoviesSuccessful) {
-            progress.recordError();
-        }
+        scheduler.add("Hexagon movies", () -> {
+            progress.publish(SyncProgress.Step.HEXAGON_MOVIES);
+            if (!syncMovies()) {
+                progress.recordError();
+                success.set(false);
+            }
+            return true;
+        }).reads(Tables.MOVIES)
+                .writes(Tables.MOVIES);
 
         //// LISTS
-        progress.publish(SyncProgress.Step.HEXAGON_LISTS);
-        boolean syncListsSuccessful = syncLists();
-        if (!syncListsSuccessful) {
-            progress.recordError();
-        }
+        scheduler.add("Hexagon lists", () -> {
+            progress.publish(SyncProgress.Step.HEXAGON_LISTS);
+            if (!syncLists()) {
+                progress.recordError();
+                success.set(false);
+            }
+            return true;
+        }).reads(Tables.LISTS, Tables.LIST_ITEMS)
+                .writes(Tables.LISTS, Tables.LIST_ITEMS);
 
-        boolean success = syncEpisodesSuccessful
-                && syncShowsSuccessful
-                && syncMoviesSuccessful
-                && syncListsSuccessful;
+        if (!scheduler.run()) {
+            success.set(false); // interrupted
+        }
 
-        return success ? SgSyncAdapter.UpdateResult.SUCCESS : SgSyncAdapter.UpdateResult.INCOMPLETE;
+        return success.get()
+                ? SgSyncAdapter.UpdateResult.SUCCESS
+                : SgSyncAdapter.UpdateResult.INCOMPLETE;
     }
 
     private boolean syncEpisodes() {
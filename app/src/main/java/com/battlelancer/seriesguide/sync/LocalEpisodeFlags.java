@@ -0,0 +1,199 @@
+package com.battlelancer.seriesguide.sync;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.SparseIntArray;
+import androidx.annotation.Nullable;
+import androidx.collection.SparseArrayCompat;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import timber.log.Timber;
+
+/**
+ * Watched, plays and collected values of the episodes of all or a single show, loaded with one
+ * query each for shows and episodes. Episodes are stored in arrays ordered by show, season and
+ * number, so the episodes of a show or season are a range of indexes. Used to diff the local
+ * library against trakt without querying each show and season.
+ */
+class LocalEpisodeFlags {
+
+    /** Marks a show without episodes, or a missing show. */
+    private static final int NO_INDEX = -1;
+
+    private final SparseIntArray showStartIndexes = new SparseIntArray();
+    private final SparseIntArray showEndIndexes = new SparseIntArray();
+    private final SparseIntArray showTraktIds = new SparseIntArray();
+    private final SparseArrayCompat<Long> showLastWatchedMs = new SparseArrayCompat<>();
+
+    final int size;
+    final int[] episodeTvdbIds;
+    final int[] seasons;
+    final int[] numbers;
+    final int[] watched;
+    final int[] plays;
+    final boolean[] collected;
+
+    private LocalEpisodeFlags(int size) {
+        this.size = size;
+        episodeTvdbIds = new int[size];
+        seasons = new int[size];
+        numbers = new int[size];
+        watched = new int[size];
+        plays = new int[size];
+        collected = new boolean[size];
+    }
+
+    /**
+     * Loads episodes of all shows, or only the given one.
+     *
+     * @return null if a query failed.
+     */
+    @Nullable
+    static LocalEpisodeFlags load(Context context, @Nullable Integer showTvdbId) {
+        String showSelection = showTvdbId != null ? Shows._ID + "=" + showTvdbId : null;
+        Cursor shows = context.getContentResolver().query(Shows.CONTENT_URI,
+                ShowsQuery.PROJECTION, showSelection, null, null);
+        if (shows == null) {
+            Timber.e("load: shows query failed");
+            return null;
+        }
+
+        String episodeSelection = showTvdbId != null
+                ? Shows.REF_SHOW_ID + "=" + showTvdbId : null;
+        Cursor episodes = context.getContentResolver().query(Episodes.CONTENT_URI,
+                EpisodesQuery.PROJECTION, episodeSelection, null, EpisodesQuery.SORT_ORDER);
+        if (episodes == null) {
+            Timber.e("load: episodes query failed");
+            shows.close();
+            return null;
+        }
+
+        LocalEpisodeFlags flags = new LocalEpisodeFlags(episodes.getCount());
+        while (shows.moveToNext()) {
+            flags.putShow(shows.getInt(ShowsQuery.ID), shows.getInt(ShowsQuery.TRAKT_ID),
+                    shows.getLong(ShowsQuery.LAST_WATCHED_MS));
+        }
+        shows.close();
+
+        int index = 0;
+        while (episodes.moveToNext() && index < flags.size) {
+            flags.setEpisode(index,
+                    episodes.getInt(EpisodesQuery.SHOW_ID),
+                    episodes.getInt(EpisodesQuery.SEASON),
+                    episodes.getInt(EpisodesQuery.NUMBER),
+                    episodes.getInt(EpisodesQuery.ID),
+                    episodes.getInt(EpisodesQuery.WATCHED),
+                    episodes.getInt(EpisodesQuery.PLAYS),
+                    episodes.getInt(EpisodesQuery.COLLECTED) == 1);
+            index++;
+        }
+        episodes.close();
+
+        return flags;
+    }
+
+    private void putShow(int showTvdbId, int traktId, long lastWatchedMs) {
+        showTraktIds.put(showTvdbId, traktId);
+        showLastWatchedMs.put(showTvdbId, lastWatchedMs);
+    }
+
+    /**
+     * Episodes must be set in order of show, season and number.
+     */
+    private void setEpisode(int index, int showTvdbId, int season, int number,
+            int episodeTvdbId, int watched, int plays, boolean collected) {
+        if (showStartIndexes.get(showTvdbId, NO_INDEX) == NO_INDEX) {
+            showStartIndexes.put(showTvdbId, index);
+        }
+        showEndIndexes.put(showTvdbId, index + 1);
+        this.episodeTvdbIds[index] = episodeTvdbId;
+        this.seasons[index] = season;
+        this.numbers[index] = number;
+        this.watched[index] = watched;
+        this.plays[index] = plays;
+        this.collected[index] = collected;
+    }
+
+    /**
+     * Index of the first episode of the show, or {@link #getShowEnd(int)} if it has none.
+     */
+    int getShowStart(int showTvdbId) {
+        int start = showStartIndexes.get(showTvdbId, NO_INDEX);
+        return start == NO_INDEX ? 0 : start;
+    }
+
+    /**
+     * Index after the last episode of the show.
+     */
+    int getShowEnd(int showTvdbId) {
+        int end = showEndIndexes.get(showTvdbId, NO_INDEX);
+        return end == NO_INDEX ? 0 : end;
+    }
+
+    /**
+     * Index after the last episode of the season the episode at the given index belongs to.
+     */
+    int getSeasonEnd(int index, int showEnd) {
+        int season = seasons[index];
+        int end = index + 1;
+        while (end < showEnd && seasons[end] == season) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the trakt id of a show, or {@code null} if it has none, it is invalid or the show
+     * was not loaded.
+     */
+    @Nullable
+    Integer getShowTraktId(int showTvdbId) {
+        int traktId = showTraktIds.get(showTvdbId, 0);
+        return traktId > 0 ? traktId : null;
+    }
+
+    /**
+     * Returns the last watched time of a show, or {@code null} if the show was not loaded.
+     */
+    @Nullable
+    Long getShowLastWatchedMs(int showTvdbId) {
+        return showLastWatchedMs.get(showTvdbId);
+    }
+
+    private interface ShowsQuery {
+
+        String[] PROJECTION = new String[]{
+                Shows._ID, Shows.TRAKT_ID, Shows.LASTWATCHED_MS
+        };
+
+        int ID = 0;
+        int TRAKT_ID = 1;
+        int LAST_WATCHED_MS = 2;
+    }
+
+    private interface EpisodesQuery {
+
+        String[] PROJECTION = new String[]{
+                Shows.REF_SHOW_ID,
+                Episodes.SEASON,
+                Episodes.NUMBER,
+                Episodes._ID,
+                Episodes.WATCHED,
+                Episodes.PLAYS,
+                Episodes.COLLECTED
+        };
+
+        /** Matches the show, season and number index, so does not require sorting. */
+        String SORT_ORDER = Shows.REF_SHOW_ID + " ASC,"
+                + Episodes.SEASON + " ASC,"
+                + Episodes.NUMBER + " ASC";
+
+        int SHOW_ID = 0;
+        int SEASON = 1;
+        int NUMBER = 2;
+        int ID = 3;
+        int WATCHED = 4;
+        int PLAYS = 5;
+        int COLLECTED = 6;
+    }
+}
@@ -7,8 +7,10 @@ import android.content.Context;
 import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.text.format.DateUtils;
+import android.util.SparseArray;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.app.NotificationCompat;
 import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.SgApp;
@@ -33,6 +35,12 @@ import timber.log.Timber;
 
 public class NetworkJobProcessor {
 
+    /**
+     * Maximum number of jobs to upload with one request, limits how many jobs have to be retried
+     * if the request fails.
+     */
+    private static final int MAX_COALESCED_JOBS = 50;
+
     private final Context context;
     private final boolean shouldSendToHexagon;
     private final boolean shouldSendToTrakt;
@@ -50,32 +58,45 @@ public class NetworkJobProcessor {
         if (query == null) {
             return; // query failed
         }
-
-        // process jobs, starting with oldest
-        List<Long> jobsToRemove = new ArrayList<>();
+        List<QueuedJob> jobs = new ArrayList<>(query.getCount());
         while (query.moveToNext()) {
             long jobId = query.getLong(0);
             int typeId = query.getInt(1);
-            JobAction action = JobAction.fromId(typeId);
+            long createdAt = query.getLong(2);
+            byte[] jobInfoArr = query.getBlob(3);
+            jobs.add(new QueuedJob(jobId, JobAction.fromId(typeId), createdAt, jobInfoArr));
+        }
+        query.close();
 
-            if (action != JobAction.UNKNOWN) {
-                Timber.d("Running job %d %s", jobId, action);
+        // process jobs, starting with oldest
+        UploadStats stats = new UploadStats();
+        List<Long> jobsToRemove = new ArrayList<>();
+        int index = 0;
+        while (index < jobs.size()) {
+            List<QueuedJob> group = getNextCoalescedJobs(jobs, index);
+            index += group.size();
 
-                long createdAt = query.getLong(2);
-                byte[] jobInfoArr = query.getBlob(3);
-                ByteBuffer jobInfoBuffered = ByteBuffer.wrap(jobInfoArr);
-                SgJobInfo jobInfo = SgJobInfo.getRootAsSgJobInfo(jobInfoBuffered);
+            QueuedJob firstJob = group.get(0);
+            if (firstJob.action != JobAction.UNKNOWN) {
+                Timber.d("Running %d job(s) from %d %s", group.size(), firstJob.id,
+                        firstJob.action);
 
-                if (!doNetworkJob(jobId, action, createdAt, jobInfo)) {
-                    Timber.e("Job %d failed, will retry.", jobId);
+                if (!doNetworkJobs(group, stats)) {
+                    Timber.e("Job(s) from %d failed, will retry.", firstJob.id);
                     break; // abort to avoid ordering issues
                 }
-                Timber.d("Job %d completed, will remove.", jobId);
+                Timber.d("Job(s) from %d completed, will remove.", firstJob.id);
             }
 
-            jobsToRemove.add(jobId);
+            for (QueuedJob job : group) {
+                jobsToRemove.add(job.id);
+            }
+        }
+
+        if (stats.jobs > 0) {
+            Timber.i("Ran %d jobs with %d Hexagon and %d trakt uploads instead of %d each",
+                    stats.jobs, stats.hexagonUploads, stats.traktUploads, stats.jobs);
         }
-        query.close();
 
         // remove completed jobs
         if (!jobsToRemove.isEmpty()) {
@@ -84,9 +105,37 @@ public class NetworkJobProcessor {
     }
 
     /**
-     * @return true if the job can be removed, false if it should be retried later.
+     * Returns the job at the given index and any directly following jobs that can be uploaded
+     * together: episode jobs with the same action and flag value. Jobs with a different flag value
+     * are never merged, so changes are still sent in the order they were made.
      */
-    private boolean doNetworkJob(long jobId, JobAction action, long createdAt, SgJobInfo jobInfo) {
+    @VisibleForTesting
+    static List<QueuedJob> getNextCoalescedJobs(List<QueuedJob> jobs, int index) {
+        List<QueuedJob> group = new ArrayList<>();
+        QueuedJob first = jobs.get(index);
+        group.add(first);
+        if (first.action != JobAction.EPISODE_WATCHED_FLAG
+                && first.action != JobAction.EPISODE_COLLECTION) {
+            return group;
+        }
+        int flagValue = first.getJobInfo().flagValue();
+        for (int i = index + 1; i < jobs.size() && group.size() < MAX_COALESCED_JOBS; i++) {
+            QueuedJob job = jobs.get(i);
+            if (job.action != first.action || job.getJobInfo().flagValue() != flagValue) {
+                break;
+            }
+            group.add(job);
+        }
+        return group;
+    }
+
+    /**
+     * @return true if the jobs can be removed, false if they should be retried later.
+     */
+    private boolean doNetworkJobs(List<QueuedJob> jobs, UploadStats stats) {
+        stats.jobs += jobs.size();
+        List<QueuedJob> traktJobs = jobs;
+
         // upload to hexagon
         if (shouldSendToHexagon) {
             if (!AndroidUtils.isNetworkConnected(context)) {
@@ -94,12 +143,28 @@ public class NetworkJobProcessor {
             }
             HexagonTools hexagonTools = SgApp.getServicesComponent(context).hexagonTools();
 
-            NetworkJob hexagonJob = getHexagonJobForAction(hexagonTools, action, jobInfo);
-            if (hexagonJob != null) {
-                JobResult result = hexagonJob.execute(context);
-                if (!result.successful) {
-                    showNotification(jobId, createdAt, result);
-                    return result.jobRemovable;
+            // Hexagon only supports uploading episodes of one show at a time
+            int index = 0;
+            while (index < jobs.size()) {
+                List<QueuedJob> showJobs = getJobsOfSameShow(jobs, index);
+                index += showJobs.size();
+
+                NetworkJob hexagonJob = getHexagonJobForAction(hexagonTools, showJobs);
+                if (hexagonJob != null) {
+                    stats.hexagonUploads++;
+                    JobResult result = hexagonJob.execute(context);
+                    if (!result.successful) {
+                        QueuedJob showJob = showJobs.get(0);
+                        showNotification(showJob.id, showJob.createdAt, result);
+                        if (!result.jobRemovable) {
+                            return false;
+                        }
+                        // like for separate jobs, drop failed jobs, but continue with others
+                        if (traktJobs == jobs) {
+                            traktJobs = new ArrayList<>(jobs);
+                        }
+                        traktJobs.removeAll(showJobs);
+                    }
                 }
             }
         }
@@ -110,11 +175,19 @@ public class NetworkJobProcessor {
                 return false;
             }
 
-            NetworkJob traktJob = getTraktJobForAction(action, jobInfo, createdAt);
+            if (traktJobs.isEmpty()) {
+                return true;
+            }
+            NetworkJob traktJob = getTraktJobForAction(traktJobs);
             if (traktJob != null) {
+                stats.traktUploads++;
                 JobResult result = traktJob.execute(context);
                 // may need to show notification if successful (for not found error)
-                showNotification(jobId, createdAt, result);
+                QueuedJob firstJob = traktJobs.get(0);
+                showNotification(firstJob.id, firstJob.createdAt, result);
+                if (result.jobRemovable && traktJob instanceof TraktEpisodeJob) {
+                    showNotFoundNotifications(traktJobs, (TraktEpisodeJob) traktJob);
+                }
                 if (!result.successful) {
                     return result.jobRemovable;
                 }
@@ -124,6 +197,69 @@ public class NetworkJobProcessor {
         return true;
     }
 
+    /**
+     * Notifies about each show of the jobs that is not on trakt. Uses the first job of each show
+     * so notifications do not replace each other.
+     */
+    private void showNotFoundNotifications(List<QueuedJob> jobs, TraktEpisodeJob traktJob) {
+        SparseArray<JobResult> results = traktJob.getShowNotFoundResults(context);
+        for (int i = 0; i < results.size(); i++) {
+            int showTvdbId = results.keyAt(i);
+            for (QueuedJob job : jobs) {
+                if (job.getJobInfo().showTvdbId() == showTvdbId) {
+                    showNotification(job.id, job.createdAt, results.valueAt(i));
+                    break;
+                }
+            }
+        }
+    }
+
+    private static List<QueuedJob> getJobsOfSameShow(List<QueuedJob> jobs, int index) {
+        int showTvdbId = jobs.get(index).getJobInfo().showTvdbId();
+        int end = index + 1;
+        while (end < jobs.size() && jobs.get(end).getJobInfo().showTvdbId() == showTvdbId) {
+            end++;
+        }
+        return jobs.subList(index, end);
+    }
+
+    @Nullable
+    private NetworkJob getHexagonJobForAction(HexagonTools hexagonTools, List<QueuedJob> jobs) {
+        JobAction action = jobs.get(0).action;
+        switch (action) {
+            case EPISODE_COLLECTION:
+            case EPISODE_WATCHED_FLAG:
+                return new HexagonEpisodeJob(hexagonTools, action, getJobInfos(jobs));
+            default:
+                return getHexagonJobForAction(hexagonTools, action, jobs.get(0).getJobInfo());
+        }
+    }
+
+    @Nullable
+    private NetworkJob getTraktJobForAction(List<QueuedJob> jobs) {
+        QueuedJob firstJob = jobs.get(0);
+        switch (firstJob.action) {
+            case EPISODE_COLLECTION:
+            case EPISODE_WATCHED_FLAG:
+                List<Long> actionAtMs = new ArrayList<>(jobs.size());
+                for (QueuedJob job : jobs) {
+                    actionAtMs.add(job.createdAt);
+                }
+                return new TraktEpisodeJob(firstJob.action, getJobInfos(jobs), actionAtMs);
+            default:
+                return getTraktJobForAction(firstJob.action, firstJob.getJobInfo(),
+                        firstJob.createdAt);
+        }
+    }
+
+    private static List<SgJobInfo> getJobInfos(List<QueuedJob> jobs) {
+        List<SgJobInfo> jobInfos = new ArrayList<>(jobs.size());
+        for (QueuedJob job : jobs) {
+            jobInfos.add(job.getJobInfo());
+        }
+        return jobInfos;
+    }
+
     @Nullable
     private NetworkJob getHexagonJobForAction(HexagonTools hexagonTools, JobAction action,
             SgJobInfo jobInfo) {
@@ -231,6 +367,39 @@ public class NetworkJobProcessor {
         context.getContentResolver().delete(Jobs.CONTENT_URI, null, null);
     }
 
+    @VisibleForTesting
+    static class QueuedJob {
+        final long id;
+        final JobAction action;
+        final long createdAt;
+        private final byte[] jobInfoArr;
+        @Nullable private SgJobInfo jobInfo;
+
+        QueuedJob(long id, JobAction action, long createdAt, byte[] jobInfoArr) {
+            this.id = id;
+            this.action = action;
+            this.createdAt = createdAt;
+            this.jobInfoArr = jobInfoArr;
+        }
+
+        SgJobInfo getJobInfo() {
+            if (jobInfo == null) {
+                ByteBuffer jobInfoBuffered = ByteBuffer.wrap(jobInfoArr);
+                jobInfo = SgJobInfo.getRootAsSgJobInfo(jobInfoBuffered);
+            }
+            return jobInfo;
+        }
+    }
+
+    /**
+     * Counts jobs and uploads to compare how many requests coalescing jobs saved.
+     */
+    private static class UploadStats {
+        int jobs;
+        int hexagonUploads;
+        int traktUploads;
+    }
+
     public static class JobResult {
         public boolean successful;
         public boolean jobRemovable;
@@ -17,15 +17,17 @@ import com.battlelancer.seriesguide.SgApp;
 import com.battlelancer.seriesguide.backend.HexagonTools;
 import com.battlelancer.seriesguide.backend.settings.HexagonSettings;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
 import com.battlelancer.seriesguide.service.NotificationService;
 import com.battlelancer.seriesguide.settings.UpdateSettings;
 import com.battlelancer.seriesguide.sync.SyncOptions.SyncType;
+import com.battlelancer.seriesguide.sync.SyncStageScheduler.Stage;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbTools;
+import com.battlelancer.seriesguide.traktapi.SgTraktSync;
 import com.battlelancer.seriesguide.traktapi.TraktCredentials;
 import com.battlelancer.seriesguide.ui.movies.MovieTools;
 import com.battlelancer.seriesguide.ui.search.SearchResult;
 import com.battlelancer.seriesguide.ui.shows.ShowTools;
-import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.TaskManager;
 import com.uwetrottmann.androidutils.AndroidUtils;
 import com.uwetrottmann.tmdb2.services.ConfigurationService;
@@ -33,6 +35,7 @@ import com.uwetrottmann.trakt5.services.Sync;
 import dagger.Lazy;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.inject.Inject;
 import timber.log.Timber;
 
@@ -66,6 +69,7 @@ public class SgSyncAdapter extends AbstractThreadedSyncAdapter {
     @Inject Lazy<TvdbTools> tvdbTools;
     @Inject Lazy<HexagonTools> hexagonTools;
     @Inject Lazy<Sync> traktSync;
+    @Inject Lazy<SgTraktSync> sgTraktSync;
     @Inject Lazy<MovieTools> movieTools;
     @Inject Lazy<ConfigurationService> tmdbConfigService;
 
@@ -112,95 +116,136 @@ public class SgSyncAdapter extends AbstractThreadedSyncAdapter {
 
         // from here on we need more sophisticated abort handling, so keep track of errors
         SyncProgress progress = new SyncProgress();
-        progress.publish(SyncProgress.Step.TVDB);
-        UpdateResult resultCode = tvdbSync.sync(getContext(), getContext().getContentResolver(),
-                tvdbTools, currentTime, progress);
-        if (resultCode == null || resultCode == UpdateResult.INCOMPLETE) {
-            progress.recordError();
-        }
-        Timber.d("Syncing: TVDB...DONE");
-        if (resultCode == null) {
-            progress.publishFinished();
-            return; // invalid show(s), abort
-        }
+        SyncStageScheduler scheduler = new SyncStageScheduler(progress);
+        AtomicReference<UpdateResult> resultCode = new AtomicReference<>();
+
+        Stage tvdbStage = scheduler.add("TVDB", () -> {
+            progress.publish(SyncProgress.Step.TVDB);
+            UpdateResult resultTvdbSync = tvdbSync.sync(getContext(),
+                    getContext().getContentResolver(), tvdbTools, currentTime, progress);
+            if (resultTvdbSync == null || resultTvdbSync == UpdateResult.INCOMPLETE) {
+                progress.recordError();
+            }
+            Timber.d("Syncing: TVDB...DONE");
+            if (resultTvdbSync == null) {
+                return false; // invalid show(s), abort
+            }
+            recordResult(resultCode, resultTvdbSync);
+            return true;
+        }).reads(Tables.SHOWS, Tables.SEASONS, Tables.EPISODES)
+                .writes(Tables.SHOWS, Tables.SEASONS, Tables.EPISODES);
 
         // do some more things if this is not a quick update
+        final SharedPreferences prefs = PreferenceManager
+                .getDefaultSharedPreferences(getContext());
         if (tvdbSync.isSyncMultiple()) {
-            final SharedPreferences prefs = PreferenceManager
-                    .getDefaultSharedPreferences(getContext());
-
-            progress.publish(SyncProgress.Step.TMDB);
+            // TMDB only touches movies, so runs while shows are updated
             TmdbSync tmdbSync = new TmdbSync(getContext(), tmdbConfigService.get(),
                     movieTools.get());
             // get latest TMDb configuration, hexagon+trakt might add movies and need it
-            if (!tmdbSync.updateConfiguration(prefs)) {
-                progress.recordError();
-            }
+            Stage tmdbConfigStage = scheduler.add("TMDB config", () -> {
+                progress.publish(SyncProgress.Step.TMDB);
+                if (!tmdbSync.updateConfiguration(prefs)) {
+                    progress.recordError();
+                }
+                return true;
+            });
             // update data of to be released movies
-            if (!tmdbSync.updateMovies(progress)) {
-                progress.recordError();
-            }
-            Timber.d("Syncing: TMDB...DONE");
-
-            // sync with hexagon and trakt
-            @SuppressLint("UseSparseArrays") final HashMap<Integer, SearchResult> newShows
-                    = new HashMap<>();
-            final HashSet<Integer> existingShows = ShowTools.getShowTvdbIdsAsSet(getContext());
-
-            if (existingShows == null) {
-                resultCode = UpdateResult.INCOMPLETE;
-            } else {
-                // sync with hexagon
-                boolean isHexagonEnabled = HexagonSettings.isEnabled(getContext());
+            Stage tmdbMoviesStage = scheduler.add("TMDB movies", () -> {
+                progress.publish(SyncProgress.Step.TMDB);
+                if (!tmdbSync.updateMovies(progress)) {
+                    progress.recordError();
+                }
+                Timber.d("Syncing: TMDB...DONE");
+                return true;
+            }).dependsOn(tmdbConfigStage)
+                    .reads(Tables.MOVIES)
+                    .writes(Tables.MOVIES);
+
+            // sync with hexagon and trakt, both need the updated list of shows
+            AtomicReference<HashSet<Integer>> existingShows = new AtomicReference<>();
+            boolean isHexagonEnabled = HexagonSettings.isEnabled(getContext());
+            Stage hexagonStage = scheduler.add("Hexagon", () -> {
+                existingShows.set(ShowTools.getShowTvdbIdsAsSet(getContext()));
+                if (existingShows.get() == null) {
+                    recordResult(resultCode, UpdateResult.INCOMPLETE);
+                    return false;
+                }
                 if (isHexagonEnabled) {
-                    UpdateResult resultHexagonSync = new HexagonSync(getContext(),
+                    @SuppressLint("UseSparseArrays") final HashMap<Integer, SearchResult> newShows
+                            = new HashMap<>();
+                    recordResult(resultCode, new HexagonSync(getContext(),
                             hexagonTools.get(), movieTools.get(), progress)
-                            .sync(existingShows, newShows);
-                    // don't overwrite failure
-                    if (resultCode == UpdateResult.SUCCESS) {
-                        resultCode = resultHexagonSync;
-                    }
+                            .sync(existingShows.get(), newShows));
                     Timber.d("Syncing: Hexagon...DONE");
                 } else {
                     Timber.d("Syncing: Hexagon...SKIP");
                 }
-
-                // sync with trakt (only ratings if hexagon is enabled)
+                return true;
+            }).dependsOn(tvdbStage, tmdbConfigStage, tmdbMoviesStage)
+                    .reads(Tables.SHOWS, Tables.EPISODES, Tables.MOVIES, Tables.LISTS,
+                            Tables.LIST_ITEMS)
+                    .writes(Tables.SHOWS, Tables.EPISODES, Tables.MOVIES, Tables.LISTS,
+                            Tables.LIST_ITEMS);
+
+            // sync with trakt (only ratings if hexagon is enabled)
+            scheduler.add("trakt", () -> {
                 if (TraktCredentials.get(getContext()).hasCredentials()) {
-                    UpdateResult resultTraktSync = new TraktSync(getContext(), movieTools.get(),
-                            traktSync.get(), progress)
-                            .sync(existingShows, currentTime, isHexagonEnabled);
-                    // don't overwrite failure
-                    if (resultCode == UpdateResult.SUCCESS) {
-                        resultCode = resultTraktSync;
-                    }
+                    recordResult(resultCode, new TraktSync(getContext(), movieTools.get(),
+                            traktSync.get(), sgTraktSync.get(), progress)
+                            .sync(existingShows.get(), currentTime, isHexagonEnabled));
                     Timber.d("Syncing: trakt...DONE");
                 } else {
                     Timber.d("Syncing: trakt...SKIP");
                 }
 
                 // make sure other loaders (activity, overview, details) are notified of changes
-                getContext().getContentResolver().notifyChange(Episodes.CONTENT_URI_WITHSHOW, null);
-            }
+                getContext().getContentResolver()
+                        .notifyChange(Episodes.CONTENT_URI_WITHSHOW, null);
+                return true;
+            }).dependsOn(hexagonStage)
+                    .reads(Tables.SHOWS, Tables.EPISODES, Tables.MOVIES)
+                    .writes(Tables.SHOWS, Tables.EPISODES, Tables.MOVIES);
+        }
 
-            // renew search table if shows were updated and it will not be renewed by add task
-            if (tvdbSync.hasUpdatedShows() && newShows.size() == 0) {
-                DBUtils.rebuildFtsTable(getContext());
-            }
+        boolean isCompleted = scheduler.run();
+        if (resultCode.get() == null || Thread.currentThread().isInterrupted()) {
+            progress.publishFinished();
+            return; // invalid show(s) or sync was cancelled, abort
+        }
+        if (!isCompleted) {
+            // a stage aborted and later stages were skipped, do not record a successful sync
+            resultCode.set(UpdateResult.INCOMPLETE);
+        }
 
+        if (tvdbSync.isSyncMultiple()) {
             // update next episodes for all shows
             TaskManager.getInstance().tryNextEpisodeUpdateTask(getContext());
 
-            updateTimeAndFailedCounter(prefs, currentTime, resultCode);
+            updateTimeAndFailedCounter(prefs, currentTime, resultCode.get());
         }
 
         // There could have been new episodes added after an update
         NotificationService.trigger(getContext());
 
-        Timber.i("Syncing: %s", resultCode.toString());
+        Timber.i("Syncing: %s", resultCode.get().toString());
+        Timber.d("Syncing: stage times %s", progress.getStageTimesMs());
+        Timber.d("Syncing: %d notifications suppressed", progress.getSuppressedNotifications());
         progress.publishFinished();
     }
 
+    /**
+     * Sets the result of a sync stage, but does not overwrite a failure.
+     */
+    private static void recordResult(AtomicReference<UpdateResult> resultCode,
+            UpdateResult stageResult) {
+        synchronized (resultCode) {
+            if (resultCode.get() != UpdateResult.INCOMPLETE) {
+                resultCode.set(stageResult);
+            }
+        }
+    }
+
     private void updateTimeAndFailedCounter(SharedPreferences prefs, long currentTime,
             UpdateResult resultCode) {
         // store time of update, set retry counter on failure
@@ -4,11 +4,19 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.battlelancer.seriesguide.R;
-import java.util.LinkedList;
+import com.battlelancer.seriesguide.provider.SeriesGuideProvider;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.greenrobot.eventbus.EventBus;
 import timber.log.Timber;
 
+/**
+ * Publishes the step a sync is at and records steps that failed. Thread-safe, as sync stages may
+ * run at the same time, errors are recorded for the step last published on the calling thread.
+ */
 public class SyncProgress {
 
     public enum Step {
@@ -89,35 +97,73 @@ public class SyncProgress {
         }
     }
 
-    @NonNull private final List<Step> stepsWithError = new LinkedList<>();
-    @Nullable private Step currentStep;
+    @NonNull private final List<Step> stepsWithError = new ArrayList<>();
+    @NonNull private final ThreadLocal<Step> currentStep = new ThreadLocal<>();
+    @NonNull private final Map<String, Long> stageTimesMs = new LinkedHashMap<>();
+    @NonNull private final AtomicInteger suppressedNotifications = new AtomicInteger();
     @Nullable private String importantErrorOrNull;
 
-    void publish(Step step) {
-        currentStep = step;
+    synchronized void publish(Step step) {
+        currentStep.set(step);
         EventBus.getDefault().postSticky(
-                new SyncEvent(step, stepsWithError, importantErrorOrNull));
+                new SyncEvent(step, new ArrayList<>(stepsWithError), importantErrorOrNull));
         Timber.d("Syncing: %s...", step.name());
     }
 
     /**
-     * Record an error for the last published step.
+     * Record an error for the step last published on the calling thread.
      */
-    void recordError() {
-        if (currentStep != null) {
-            stepsWithError.add(currentStep);
-            Timber.d("Syncing: %s...FAILED", currentStep.name());
+    synchronized void recordError() {
+        Step step = currentStep.get();
+        if (step != null) {
+            stepsWithError.add(step);
+            Timber.d("Syncing: %s...FAILED", step.name());
         }
     }
 
-    void setImportantErrorIfNone(@NonNull String message) {
+    synchronized void setImportantErrorIfNone(@NonNull String message) {
         if (importantErrorOrNull == null) {
             importantErrorOrNull = message;
         }
     }
 
-    void publishFinished() {
+    /**
+     * Records how long a stage of the sync took.
+     */
+    synchronized void recordStageTime(String stage, long durationMs) {
+        stageTimesMs.put(stage, durationMs);
+        Timber.d("Syncing: %s took %s ms", stage, durationMs);
+    }
+
+    /**
+     * Returns the time each stage took in milliseconds, in the order they finished.
+     */
+    @NonNull
+    synchronized Map<String, Long> getStageTimesMs() {
+        return new LinkedHashMap<>(stageTimesMs);
+    }
+
+    /**
+     * Until {@link #stopCountingSuppressedNotifications()}, counts change notifications suppressed
+     * by batches applied on the calling thread.
+     */
+    void countSuppressedNotifications() {
+        SeriesGuideProvider.setSuppressedNotificationsCounter(suppressedNotifications);
+    }
+
+    void stopCountingSuppressedNotifications() {
+        SeriesGuideProvider.setSuppressedNotificationsCounter(null);
+    }
+
+    /**
+     * Returns the number of change notifications suppressed by batches applied during this sync.
+     */
+    int getSuppressedNotifications() {
+        return suppressedNotifications.get();
+    }
+
+    synchronized void publishFinished() {
         EventBus.getDefault().postSticky(
-                new SyncEvent(null, stepsWithError, importantErrorOrNull));
+                new SyncEvent(null, new ArrayList<>(stepsWithError), importantErrorOrNull));
     }
 }
@@ -0,0 +1,227 @@
+package com.battlelancer.seriesguide.sync;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import timber.log.Timber;
+
+/**
+ * Runs the stages of a sync. A stage is started once all stages it depends on have finished and
+ * no running stage writes a table it reads or writes, or reads a table it writes. So stages that
+ * do not depend on each other and touch different tables run at the same time.
+ *
+ * <p>If a stage aborts, stages that have not started are skipped, running stages still finish.
+ */
+class SyncStageScheduler {
+
+    /** Stages with disjoint tables are few, so more threads are not useful. */
+    private static final int MAX_PARALLEL_STAGES = 3;
+
+    interface StageAction {
+        /**
+         * Runs on a worker thread.
+         *
+         * @return false to abort the sync, stages that have not started will not run.
+         */
+        boolean run();
+    }
+
+    static class Stage {
+        final String name;
+        final StageAction action;
+        final Set<Stage> dependencies = new HashSet<>();
+        final Set<String> reads = new HashSet<>();
+        final Set<String> writes = new HashSet<>();
+
+        Stage(String name, StageAction action) {
+            this.name = name;
+            this.action = action;
+        }
+
+        /**
+         * This stage only runs after the given stages have finished.
+         */
+        Stage dependsOn(Stage... stages) {
+            Collections.addAll(dependencies, stages);
+            return this;
+        }
+
+        /**
+         * Tables this stage reads, no stage writing them runs at the same time.
+         */
+        Stage reads(String... tables) {
+            Collections.addAll(reads, tables);
+            return this;
+        }
+
+        /**
+         * Tables this stage writes (and may read), no stage reading or writing them runs at the
+         * same time.
+         */
+        Stage writes(String... tables) {
+            Collections.addAll(writes, tables);
+            return this;
+        }
+
+        boolean conflictsWith(Stage other) {
+            return !Collections.disjoint(writes, other.writes)
+                    || !Collections.disjoint(writes, other.reads)
+                    || !Collections.disjoint(reads, other.writes);
+        }
+    }
+
+    private static class Result {
+        final Stage stage;
+        final boolean shouldContinue;
+
+        Result(Stage stage, boolean shouldContinue) {
+            this.stage = stage;
+            this.shouldContinue = shouldContinue;
+        }
+    }
+
+    @NonNull private final SyncProgress progress;
+    private final List<Stage> stages = new ArrayList<>();
+
+    SyncStageScheduler(@NonNull SyncProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Adds a stage, declare its dependencies and tables using the returned {@link Stage}.
+     */
+    Stage add(String name, StageAction action) {
+        Stage stage = new Stage(name, action);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Runs all stages, returns once no stage is running. Records the time each stage took with
+     * {@link SyncProgress#recordStageTime(String, long)} and counts notifications suppressed by
+     * batches a stage applies on its thread.
+     *
+     * <p>If the thread is interrupted, running stages are interrupted and no more stages are
+     * started. If a stage throws, no more stages are started. In both cases this still waits for
+     * running stages to finish before returning or re-throwing.
+     *
+     * @return false if a stage aborted, the thread was interrupted or stages could not run because
+     * they depend on a stage that was not added.
+     */
+    boolean run() {
+        if (stages.isEmpty()) {
+            return true;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(MAX_PARALLEL_STAGES, stages.size()));
+        try {
+            CompletionService<Result> results = new ExecutorCompletionService<>(executor);
+            List<Stage> waiting = new ArrayList<>(stages);
+            List<Stage> running = new ArrayList<>();
+            Set<Stage> finished = new HashSet<>();
+            boolean isAborted = false;
+            while (true) {
+                if (!isAborted) {
+                    for (Iterator<Stage> iterator = waiting.iterator(); iterator.hasNext(); ) {
+                        Stage stage = iterator.next();
+                        if (canStart(stage, finished, running)) {
+                            iterator.remove();
+                            running.add(stage);
+                            results.submit(() -> runStage(stage));
+                        }
+                    }
+                }
+                if (running.isEmpty()) {
+                    break;
+                }
+
+                Result result;
+                try {
+                    result = results.take().get();
+                } catch (InterruptedException e) {
+                    Timber.e("run: interrupted, waiting for %s running stages", running.size());
+                    executor.shutdownNow();
+                    awaitTermination(executor);
+                    Thread.currentThread().interrupt();
+                    return false;
+                } catch (ExecutionException e) {
+                    // stages catch and report errors, so this is unexpected
+                    executor.shutdown();
+                    awaitTermination(executor);
+                    throw new RuntimeException(e.getCause());
+                }
+                running.remove(result.stage);
+                finished.add(result.stage);
+                if (!result.shouldContinue) {
+                    Timber.d("run: %s aborted, skipping %s stages", result.stage.name,
+                            waiting.size());
+                    isAborted = true;
+                }
+            }
+            if (!isAborted && !waiting.isEmpty()) {
+                Timber.e("run: %s stages depend on stages that were not added", waiting.size());
+            }
+            return !isAborted && waiting.isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits until the shut down executor has no stage running, even if the thread is
+     * interrupted. Keeps the interrupted state of the thread.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        boolean isInterrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean canStart(Stage stage, Set<Stage> finished, List<Stage> running) {
+        if (!finished.containsAll(stage.dependencies)) {
+            return false;
+        }
+        for (Stage runningStage : running) {
+            if (stage.conflictsWith(runningStage)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs on a worker thread.
+     */
+    private Result runStage(Stage stage) {
+        long startTime = SystemClock.elapsedRealtime();
+        boolean shouldContinue;
+        progress.countSuppressedNotifications();
+        try {
+            shouldContinue = stage.action.run();
+        } finally {
+            progress.stopCountingSuppressedNotifications();
+        }
+        progress.recordStageTime(stage.name, SystemClock.elapsedRealtime() - startTime);
+        return new Result(stage, shouldContinue);
+    }
+}
@@ -1,15 +1,18 @@
 package com.battlelancer.seriesguide.sync
 
+import android.content.ContentProviderOperation
 import android.content.Context
+import android.content.OperationApplicationException
 import android.content.SharedPreferences
 import android.text.format.DateUtils
 import androidx.core.content.edit
 import com.battlelancer.seriesguide.provider.SgRoomDatabase
 import com.battlelancer.seriesguide.settings.DisplaySettings
 import com.battlelancer.seriesguide.settings.TmdbSettings
+import com.battlelancer.seriesguide.ui.movies.MovieDownloader
 import com.battlelancer.seriesguide.ui.movies.MovieTools
+import com.battlelancer.seriesguide.util.DBUtils
 import com.battlelancer.seriesguide.util.Errors
-import com.uwetrottmann.androidutils.AndroidUtils
 import com.uwetrottmann.tmdb2.services.ConfigurationService
 import timber.log.Timber
 
@@ -61,41 +64,57 @@ class TmdbSync internal constructor(
         val languageCode = DisplaySettings.getMoviesLanguage(context)
         val regionCode = DisplaySettings.getMoviesRegion(context)
 
-        var result = true
-        for (movie in movies) {
-            if (!AndroidUtils.isNetworkConnected(context)) {
-                return false // stop updates: no network connection
-            }
-            if (movie.tmdbId == 0) {
-                continue // skip invalid id
-            }
+        // skip invalid ids
+        val movieTmdbIds = movies.filter { it.tmdbId != 0 }.map { it.tmdbId }.toIntArray()
 
-            // try loading details from tmdb
-            val details = movieTools.getMovieDetails(
-                languageCode, regionCode, movie.tmdbId, false
-            )
+        // download in parallel, write to the database in batches on this thread
+        var result = true
+        val batch = ArrayList<ContentProviderOperation>(WRITE_BATCH_SIZE)
+        val isComplete = MovieDownloader(context, movieTools).download(
+            languageCode, regionCode, movieTmdbIds
+        ) { movieTmdbId, details ->
             if (details.tmdbMovie() != null) {
-                // update local database
-                movieTools.updateMovie(details, movie.tmdbId)
+                MovieTools.buildMovieUpdateOp(details, movieTmdbId)?.let { batch.add(it) }
+                if (batch.size >= WRITE_BATCH_SIZE && !applyBatch(batch)) {
+                    result = false
+                }
             } else {
                 // Treat as failure if updating at least one fails.
                 result = false
 
                 val movieTitle = SgRoomDatabase.getInstance(context)
                     .movieHelper()
-                    .getMovieTitle(movie.tmdbId)
-                val message = "Failed to update movie ('${movieTitle}', TMDB id ${movie.tmdbId})."
+                    .getMovieTitle(movieTmdbId)
+                val message = "Failed to update movie ('${movieTitle}', TMDB id ${movieTmdbId})."
                 progress.setImportantErrorIfNone(message)
                 Timber.e(message)
             }
         }
+        if (!applyBatch(batch)) {
+            result = false
+        }
+
+        // stop updates if no network connection
+        return isComplete && result
+    }
 
-        return result
+    private fun applyBatch(batch: ArrayList<ContentProviderOperation>): Boolean {
+        try {
+            DBUtils.applyInSmallBatches(context, batch)
+        } catch (e: OperationApplicationException) {
+            Errors.logAndReport("update movies", e)
+            return false
+        } finally {
+            batch.clear()
+        }
+        return true
     }
 
     companion object {
         const val RELEASED_AFTER_DAYS = 6 * 30 * DateUtils.DAY_IN_MILLIS
         const val UPDATED_BEFORE_DAYS = 7 * DateUtils.DAY_IN_MILLIS
         const val UPDATED_BEFORE_90_DAYS = 3 * 30 * DateUtils.DAY_IN_MILLIS
+        /** Number of updated movies written to the database in one transaction. */
+        private const val WRITE_BATCH_SIZE = 50
     }
 }
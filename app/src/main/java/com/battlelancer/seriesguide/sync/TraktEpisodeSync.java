@@ -3,26 +3,20 @@ package com.battlelancer.seriesguide.sync;
 import android.content.ContentProviderOperation;
 import android.content.Context;
 import android.content.OperationApplicationException;
-import android.database.Cursor;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.preference.PreferenceManager;
-import com.battlelancer.seriesguide.model.SgEpisodeForTraktSync;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
-import com.battlelancer.seriesguide.provider.SgRoomDatabase;
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
 import com.battlelancer.seriesguide.traktapi.SgTrakt;
+import com.battlelancer.seriesguide.traktapi.SgTraktSync;
+import com.battlelancer.seriesguide.traktapi.TraktEpisodeFlags;
 import com.battlelancer.seriesguide.traktapi.TraktSettings;
 import com.battlelancer.seriesguide.traktapi.TraktTools;
 import com.battlelancer.seriesguide.ui.episodes.EpisodeFlags;
 import com.battlelancer.seriesguide.ui.episodes.EpisodeTools;
-import com.battlelancer.seriesguide.ui.shows.ShowTools;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.Errors;
 import com.battlelancer.seriesguide.util.TimeTools;
-import com.uwetrottmann.trakt5.entities.BaseEpisode;
-import com.uwetrottmann.trakt5.entities.BaseSeason;
-import com.uwetrottmann.trakt5.entities.BaseShow;
 import com.uwetrottmann.trakt5.entities.ShowIds;
 import com.uwetrottmann.trakt5.entities.SyncEpisode;
 import com.uwetrottmann.trakt5.entities.SyncItems;
@@ -31,10 +25,9 @@ import com.uwetrottmann.trakt5.entities.SyncSeason;
 import com.uwetrottmann.trakt5.entities.SyncShow;
 import com.uwetrottmann.trakt5.services.Sync;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import okhttp3.ResponseBody;
 import org.threeten.bp.OffsetDateTime;
 import retrofit2.Response;
 import timber.log.Timber;
@@ -43,26 +36,33 @@ public class TraktEpisodeSync {
 
     private Context context;
     private Sync traktSync;
+    private SgTraktSync sgTraktSync;
 
-    public TraktEpisodeSync(Context context, Sync traktSync) {
+    public TraktEpisodeSync(Context context, Sync traktSync, SgTraktSync sgTraktSync) {
         this.context = context;
         this.traktSync = traktSync;
+        this.sgTraktSync = sgTraktSync;
     }
 
     /**
      * Similar to the sync methods, but only processes a single show and only downloads
      * watched/collected episodes from trakt.
      */
-    public boolean storeEpisodeFlags(@Nullable HashMap<Integer, BaseShow> traktShows,
+    public boolean storeEpisodeFlags(@Nullable TraktEpisodeFlags traktShows,
             int showTvdbId, @NonNull TraktEpisodeSync.Flag flag) {
         if (traktShows == null || traktShows.isEmpty()) {
             return true; // no watched/collected shows on trakt, done.
         }
-        if (!traktShows.containsKey(showTvdbId)) {
+        if (!traktShows.containsShow(showTvdbId)) {
             return true; // show is not watched/collected on trakt, done.
         }
-        BaseShow traktShow = traktShows.get(showTvdbId);
-        return processTraktSeasons(false, showTvdbId, traktShow, flag);
+        LocalEpisodeFlags localEpisodes = LocalEpisodeFlags.load(context, showTvdbId);
+        if (localEpisodes == null) {
+            return false;
+        }
+        EpisodeFlagWriter flagWriter = new EpisodeFlagWriter(context);
+        return processTraktSeasons(false, localEpisodes, showTvdbId, traktShows, flag, flagWriter)
+                && flagWriter.write();
     }
 
     /**
@@ -79,24 +79,8 @@ public class TraktEpisodeSync {
 
         long lastWatchedAt = TraktSettings.getLastEpisodesWatchedAt(context);
         if (isInitialSync || TimeTools.isAfterMillis(watchedAt, lastWatchedAt)) {
-            List<BaseShow> watchedShowsTrakt = null;
-            try {
-                // get watched episodes from trakt
-                Response<List<BaseShow>> response = traktSync
-                        .watchedShows(null)
-                        .execute();
-                if (response.isSuccessful()) {
-                    watchedShowsTrakt = response.body();
-                } else {
-                    if (SgTrakt.isUnauthorized(context, response)) {
-                        return false;
-                    }
-                    Errors.logAndReport("get watched shows", response);
-                }
-            } catch (Exception e) {
-                Errors.logAndReport("get watched shows", e);
-            }
-
+            // get watched episodes from trakt
+            TraktEpisodeFlags watchedShowsTrakt = downloadFlags(Flag.WATCHED);
             if (watchedShowsTrakt == null) {
                 return false;
             }
@@ -133,24 +117,8 @@ public class TraktEpisodeSync {
 
         long lastCollectedAt = TraktSettings.getLastEpisodesCollectedAt(context);
         if (isInitialSync || TimeTools.isAfterMillis(collectedAt, lastCollectedAt)) {
-            List<BaseShow> collectedShowsTrakt = null;
-            try {
-                // get collected episodes from trakt
-                Response<List<BaseShow>> response = traktSync
-                        .collectionShows(null)
-                        .execute();
-                if (response.isSuccessful()) {
-                    collectedShowsTrakt = response.body();
-                } else {
-                    if (SgTrakt.isUnauthorized(context, response)) {
-                        return false;
-                    }
-                    Errors.logAndReport("get collected shows", response);
-                }
-            } catch (Exception e) {
-                Errors.logAndReport("get collected shows", e);
-            }
-
+            // get collected episodes from trakt
+            TraktEpisodeFlags collectedShowsTrakt = downloadFlags(Flag.COLLECTED);
             if (collectedShowsTrakt == null) {
                 return false;
             }
@@ -179,46 +147,78 @@ public class TraktEpisodeSync {
         return true;
     }
 
-    private boolean processTraktShows(@NonNull List<BaseShow> remoteShows,
+    /**
+     * Downloads the watched or collected episodes of all shows from trakt, reading the response
+     * while it downloads.
+     *
+     * @return {@code null} if the request failed.
+     */
+    @Nullable
+    private TraktEpisodeFlags downloadFlags(Flag flag) {
+        String action = "get " + flag.name + " shows";
+        try {
+            Response<ResponseBody> response = flag == Flag.WATCHED
+                    ? sgTraktSync.watchedShows().execute()
+                    : sgTraktSync.collectionShows().execute();
+            if (response.isSuccessful()) {
+                try (ResponseBody body = response.body()) {
+                    if (body != null) {
+                        return TraktEpisodeFlags.parse(body.charStream());
+                    }
+                }
+            } else {
+                if (SgTrakt.isUnauthorized(context, response)) {
+                    return null;
+                }
+                Errors.logAndReport(action, response);
+            }
+        } catch (Exception e) {
+            Errors.logAndReport(action, e);
+        }
+        return null;
+    }
+
+    private boolean processTraktShows(@NonNull TraktEpisodeFlags traktShows,
             @NonNull HashSet<Integer> localShows, Flag flag, boolean isInitialSync) {
-        HashMap<Integer, BaseShow> traktShows = TraktTools.buildTraktShowsMap(remoteShows);
+        // load all local episodes at once instead of querying each show and season
+        LocalEpisodeFlags localEpisodes = LocalEpisodeFlags.load(context, null);
+        if (localEpisodes == null) {
+            return false;
+        }
 
         int uploadedShowsCount = 0;
         final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
+        EpisodeFlagWriter flagWriter = new EpisodeFlagWriter(context);
         for (Integer localShow : localShows) {
-            if (traktShows.containsKey(localShow)) {
+            if (traktShows.containsShow(localShow)) {
                 // show watched/collected on trakt
-                BaseShow traktShow = traktShows.get(localShow);
-                if (!processTraktSeasons(isInitialSync, localShow, traktShow, flag)) {
+                if (!processTraktSeasons(isInitialSync, localEpisodes, localShow, traktShows, flag,
+                        flagWriter)) {
                     return false; // processing seasons failed, give up.
                 }
                 if (flag == Flag.WATCHED) {
-                    updateLastWatchedTime(localShow, traktShow, batch);
+                    updateLastWatchedTime(localEpisodes, localShow, traktShows, batch);
                 }
             } else {
                 // show not watched/collected on trakt
                 // check if this is because the show can not be tracked with trakt (yet)
                 // some shows only exist on TheTVDB, keep state local and maybe upload in the future
-                Integer showTraktId = ShowTools.getShowTraktId(context, localShow);
+                Integer showTraktId = localEpisodes.getShowTraktId(localShow);
                 if (showTraktId != null) {
                     // Show can be tracked with Trakt.
 
                     if (isInitialSync) {
                         // upload all watched/collected episodes of the show
                         // do in between processing to stretch uploads over longer time periods
-                        upload(localShow, showTraktId, flag);
+                        upload(localEpisodes, localShow, showTraktId, flag);
                         uploadedShowsCount++;
                     } else {
                         // Set all watched/collected episodes of show not watched/collected,
                         // clear plays if watched.
-                        ContentProviderOperation.Builder update = ContentProviderOperation
-                                .newUpdate(Episodes.buildEpisodesOfShowUri(localShow))
-                                .withSelection(flag.clearFlagSelection, null)
-                                .withValue(flag.databaseColumn, flag.notFlaggedValue);
-                        if (flag == Flag.WATCHED) {
-                            update.withValue(Episodes.PLAYS, 0);
+                        int showEnd = localEpisodes.getShowEnd(localShow);
+                        for (int i = localEpisodes.getShowStart(localShow); i < showEnd; i++) {
+                            removeFlag(localEpisodes, i, flag, flagWriter);
                         }
-                        batch.add(update.build());
                     }
                 }
             }
@@ -227,7 +227,11 @@ public class TraktEpisodeSync {
         try {
             DBUtils.applyInSmallBatches(context, batch);
         } catch (OperationApplicationException e) {
-            Timber.e(e, "processTraktShows: failed to remove flag for %s.", flag.name);
+            Timber.e(e, "processTraktShows: failed to update last watched times.");
+        }
+        if (!flagWriter.write()) {
+            Timber.e("processTraktShows: failed to update %s flags.", flag.name);
+            return false;
         }
 
         if (uploadedShowsCount > 0) {
@@ -239,76 +243,71 @@ public class TraktEpisodeSync {
 
     /**
      * Sync the watched/collected episodes of the given trakt show with the local episodes. The
-     * given show has to be watched/collected on trakt.
+     * given show has to be watched/collected on trakt. Changes to local episodes are added to the
+     * flag writer.
      *
      * @param isInitialSync If {@code true}, will upload watched/collected episodes that are not
      *                      watched/collected on trakt. If {@code false}, will set them not watched/collected (if not
      *                      skipped) to mirror the trakt episode.
      */
-    public boolean processTraktSeasons(boolean isInitialSync, int localShow,
-            @NonNull BaseShow traktShow, @NonNull Flag flag) {
-        HashMap<Integer, BaseSeason> traktSeasons = TraktTools.buildTraktSeasonsMap(
-                traktShow.seasons);
-
-        Cursor localSeasonsQuery = context.getContentResolver()
-                .query(SeriesGuideContract.Seasons.buildSeasonsOfShowUri(localShow),
-                        new String[]{SeriesGuideContract.Seasons._ID,
-                                SeriesGuideContract.Seasons.COMBINED}, null, null,
-                        null);
-        if (localSeasonsQuery == null) {
-            return false;
-        }
-        final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
+    private boolean processTraktSeasons(boolean isInitialSync,
+            @NonNull LocalEpisodeFlags localEpisodes, int localShow,
+            @NonNull TraktEpisodeFlags traktShows, @NonNull Flag flag,
+            @NonNull EpisodeFlagWriter flagWriter) {
+        int traktShowStart = traktShows.getShowStart(localShow);
+        int traktShowEnd = traktShows.getShowEnd(localShow);
+
         List<SyncSeason> syncSeasons = new ArrayList<>();
-        while (localSeasonsQuery.moveToNext()) {
-            int seasonId = localSeasonsQuery.getInt(0);
-            int seasonNumber = localSeasonsQuery.getInt(1);
-            if (traktSeasons.containsKey(seasonNumber)) {
+        int showEnd = localEpisodes.getShowEnd(localShow);
+        int seasonStart = localEpisodes.getShowStart(localShow);
+        while (seasonStart < showEnd) {
+            int seasonEnd = localEpisodes.getSeasonEnd(seasonStart, showEnd);
+            int seasonNumber = localEpisodes.seasons[seasonStart];
+            int traktSeasonStart = traktShows.findSeasonStart(traktShowStart, traktShowEnd,
+                    seasonNumber);
+            if (traktSeasonStart != TraktEpisodeFlags.NOT_FOUND) {
                 // Season watched/collected on Trakt.
-                if (flag == Flag.WATCHED) {
-                    if (!processWatchedTraktEpisodes(seasonId,
-                            traktSeasons.get(seasonNumber), syncSeasons, isInitialSync)) {
-                        return false;
-                    }
-                } else {
-                    if (!processCollectedTraktEpisodes(seasonId,
-                            traktSeasons.get(seasonNumber), syncSeasons, isInitialSync)) {
-                        return false;
+                int traktSeasonEnd = traktShows.getSeasonEnd(traktSeasonStart, traktShowEnd);
+                List<SyncEpisode> syncEpisodes = new ArrayList<>();
+                for (int i = seasonStart; i < seasonEnd; i++) {
+                    int traktEpisode = traktShows.findEpisode(traktSeasonStart, traktSeasonEnd,
+                            localEpisodes.numbers[i]);
+                    if (flag == Flag.WATCHED) {
+                        processWatchedTraktEpisode(localEpisodes, i, traktShows, traktEpisode,
+                                flagWriter, syncEpisodes, isInitialSync);
+                    } else {
+                        processCollectedTraktEpisode(localEpisodes, i, traktEpisode, flagWriter,
+                                syncEpisodes, isInitialSync);
                     }
                 }
+                if (isInitialSync && syncEpisodes.size() > 0) {
+                    syncSeasons.add(new SyncSeason()
+                            .number(seasonNumber)
+                            .episodes(syncEpisodes));
+                }
             } else {
                 // season not watched/collected on trakt
                 if (isInitialSync) {
                     // schedule all watched/collected episodes of this season for upload
-                    SyncSeason syncSeason = buildSyncSeason(seasonId, seasonNumber, flag);
+                    SyncSeason syncSeason = buildSyncSeason(localEpisodes, seasonStart, seasonEnd,
+                            flag);
                     if (syncSeason != null) {
                         syncSeasons.add(syncSeason);
                     }
                 } else {
                     // Set all watched/collected episodes of season not watched/collected,
                     // clear plays if watched.
-                    ContentProviderOperation.Builder update = ContentProviderOperation
-                            .newUpdate(Episodes.buildEpisodesOfSeasonUri(seasonId))
-                            .withSelection(flag.clearFlagSelection, null)
-                            .withValue(flag.databaseColumn, flag.notFlaggedValue);
-                    if (flag == Flag.WATCHED) {
-                        update.withValue(Episodes.PLAYS, 0);
+                    for (int i = seasonStart; i < seasonEnd; i++) {
+                        removeFlag(localEpisodes, i, flag, flagWriter);
                     }
-                    batch.add(update.build());
                 }
             }
-        }
-        localSeasonsQuery.close();
-
-        try {
-            DBUtils.applyInSmallBatches(context, batch);
-        } catch (OperationApplicationException e) {
-            Timber.e(e, "Setting seasons unwatched failed.");
+            seasonStart = seasonEnd;
         }
 
         if (isInitialSync && syncSeasons.size() > 0) {
             // upload watched/collected episodes for this show
-            Integer showTraktId = ShowTools.getShowTraktId(context, localShow);
+            Integer showTraktId = localEpisodes.getShowTraktId(localShow);
             //noinspection SimplifiableIfStatement
             if (showTraktId == null) {
                 return false; // show should have a trakt id, give up
@@ -319,207 +318,128 @@ public class TraktEpisodeSync {
         }
     }
 
-    private boolean processWatchedTraktEpisodes(
-            int seasonTvdbId,
-            BaseSeason traktSeason,
-            List<SyncSeason> syncSeasons,
+    /**
+     * @param traktEpisode Index of the episode in the trakt shows, or {@link
+     *                     TraktEpisodeFlags#NOT_FOUND}.
+     */
+    private static void processWatchedTraktEpisode(
+            LocalEpisodeFlags localEpisodes,
+            int index,
+            TraktEpisodeFlags traktShows,
+            int traktEpisode,
+            EpisodeFlagWriter flagWriter,
+            List<SyncEpisode> syncEpisodes,
             boolean isInitialSync
     ) {
-        HashMap<Integer, BaseEpisode> traktEpisodes = TraktTools
-                .buildTraktEpisodesMap(traktSeason.episodes);
-
-        List<SgEpisodeForTraktSync> localEpisodes = SgRoomDatabase.getInstance(context)
-                .episodeHelper()
-                .getSeasonForTraktSync(seasonTvdbId);
-
-        ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-        List<SyncEpisode> syncEpisodes = new ArrayList<>();
-        int episodesSetOnePlayCount = 0;
-        int episodesUnsetCount = 0;
-        for (SgEpisodeForTraktSync localEpisode : localEpisodes) {
-            int episodeId = localEpisode.getTvdbId();
-            int episodeNumber = localEpisode.getNumber();
-            boolean isWatchedLocally = EpisodeTools.isWatched(localEpisode.getWatched());
-
-            BaseEpisode traktEpisode = traktEpisodes.get(episodeNumber);
-            if (traktEpisode != null) {
-                // Episode watched on Trakt.
-                if (localEpisode.getWatched() != EpisodeFlags.WATCHED) {
-                    // Local episode is skipped or not watched.
-                    // Set as watched and store plays.
-                    ContentProviderOperation.Builder update = ContentProviderOperation
-                            .newUpdate(Episodes.buildEpisodeUri(episodeId))
-                            .withValue(Episodes.WATCHED, EpisodeFlags.WATCHED);
-                    int plays = traktEpisode.plays != null && traktEpisode.plays > 0
-                            ? traktEpisode.plays : 1;
-                    update.withValue(Episodes.PLAYS, plays);
-                    batch.add(update.build());
-                    if (plays == 1) {
-                        episodesSetOnePlayCount++;
-                    }
-                } else if (localEpisode.getWatched() == EpisodeFlags.WATCHED) {
-                    // Watched locally: update plays if changed.
-                    if (traktEpisode.plays != null && traktEpisode.plays > 0
-                            && !traktEpisode.plays.equals(localEpisode.getPlays())) {
-                        ContentProviderOperation.Builder update = ContentProviderOperation
-                                .newUpdate(Episodes.buildEpisodeUri(episodeId))
-                                .withValue(Episodes.PLAYS, traktEpisode.plays);
-                        batch.add(update.build());
-                    }
-                }
+        int episodeId = localEpisodes.episodeTvdbIds[index];
+        int watched = localEpisodes.watched[index];
+        int localPlays = localEpisodes.plays[index];
+
+        if (traktEpisode != TraktEpisodeFlags.NOT_FOUND) {
+            // Episode watched on Trakt.
+            int traktPlays = traktShows.getPlays(traktEpisode);
+            if (watched != EpisodeFlags.WATCHED) {
+                // Local episode is skipped or not watched.
+                // Set as watched and store plays.
+                int plays = traktPlays > 0 ? traktPlays : 1;
+                flagWriter.addById(episodeId, EpisodeFlags.WATCHED, plays,
+                        EpisodeFlagWriter.KEEP);
             } else {
-                // Episode not watched on Trakt.
-                // Note: episodes skipped locally are not touched.
-                if (isWatchedLocally) {
-                    if (isInitialSync) {
-                        // Upload to Trakt.
-                        int plays = localEpisode.getPlays() != null
-                                ? localEpisode.getPlays()
-                                : 1 /* Safe-guard (plays should never be null). */;
-                        // Add an episode for each play, Trakt will create a separate play for each.
-                        SyncEpisode syncEpisode = new SyncEpisode().number(episodeNumber);
-                        for (int i = 0; i < plays; i++) {
-                            syncEpisodes.add(syncEpisode);
-                        }
-                    } else {
-                        // Set as not watched and remove plays if it is currently watched.
-                        ContentProviderOperation.Builder update = ContentProviderOperation
-                                .newUpdate(Episodes.buildEpisodeUri(episodeId))
-                                .withValue(Episodes.WATCHED, EpisodeFlags.UNWATCHED)
-                                .withValue(Episodes.PLAYS, 0);
-                        batch.add(update.build());
-                        episodesUnsetCount++;
-                    }
+                // Watched locally: update plays if changed.
+                if (traktPlays > 0 && traktPlays != localPlays) {
+                    flagWriter.addById(episodeId, EpisodeFlagWriter.KEEP, traktPlays,
+                            EpisodeFlagWriter.KEEP);
+                }
+            }
+        } else {
+            // Episode not watched on Trakt.
+            // Note: episodes skipped locally are not touched.
+            if (EpisodeTools.isWatched(watched)) {
+                if (isInitialSync) {
+                    // Upload to Trakt.
+                    addSyncEpisodes(syncEpisodes, localEpisodes.numbers[index], localPlays);
+                } else {
+                    // Set as not watched and remove plays if it is currently watched.
+                    flagWriter.addById(episodeId, EpisodeFlags.UNWATCHED, 0,
+                            EpisodeFlagWriter.KEEP);
                 }
             }
         }
-        int localEpisodeCount = localEpisodes.size();
-        boolean setWatchedOnePlayWholeSeason = episodesSetOnePlayCount == localEpisodeCount;
-        boolean notWatchedWholeSeason = episodesUnsetCount == localEpisodeCount;
-
-        // Performance improvement especially on initial syncs:
-        // if setting the whole season as (not) watched with 1 play, replace with single db op.
-        if (setWatchedOnePlayWholeSeason) {
-            batch.clear();
-            batch.add(ContentProviderOperation
-                    .newUpdate(Episodes.buildEpisodesOfSeasonUri(seasonTvdbId))
-                    .withValue(Episodes.WATCHED, EpisodeFlags.WATCHED)
-                    .withValue(Episodes.PLAYS, 1)
-                    .build());
-        } else if (notWatchedWholeSeason) {
-            batch.clear();
-            batch.add(ContentProviderOperation
-                    .newUpdate(Episodes.buildEpisodesOfSeasonUri(seasonTvdbId))
-                    .withValue(Episodes.WATCHED, EpisodeFlags.UNWATCHED)
-                    .withValue(Episodes.PLAYS, 0)
-                    .build());
-        }
-
-        try {
-            DBUtils.applyInSmallBatches(context, batch);
-        } catch (OperationApplicationException e) {
-            Timber.e(e, "Episodes watched/collected values database update failed.");
-        }
-
-        if (isInitialSync && syncEpisodes.size() > 0) {
-            syncSeasons.add(new SyncSeason()
-                    .number(traktSeason.number)
-                    .episodes(syncEpisodes));
-        }
-
-        return true;
     }
 
-    private boolean processCollectedTraktEpisodes(
-            int seasonTvdbId,
-            BaseSeason traktSeason,
-            List<SyncSeason> syncSeasons,
+    private static void processCollectedTraktEpisode(
+            LocalEpisodeFlags localEpisodes,
+            int index,
+            int traktEpisode,
+            EpisodeFlagWriter flagWriter,
+            List<SyncEpisode> syncEpisodes,
             boolean isInitialSync
     ) {
-        HashMap<Integer, BaseEpisode> traktEpisodes = TraktTools
-                .buildTraktEpisodesMap(traktSeason.episodes);
-
-        List<SgEpisodeForTraktSync> localEpisodes = SgRoomDatabase.getInstance(context)
-                .episodeHelper()
-                .getSeasonForTraktSync(seasonTvdbId);
-
-        ArrayList<ContentProviderOperation> batch = new ArrayList<>();
-        List<SyncEpisode> syncEpisodes = new ArrayList<>();
-        int episodesAddCount = 0;
-        int episodesRemoveCount = 0;
-        for (SgEpisodeForTraktSync localEpisode : localEpisodes) {
-            int episodeId = localEpisode.getTvdbId();
-            int episodeNumber = localEpisode.getNumber();
-            boolean isCollectedLocally = localEpisode.getCollected();
-
-            BaseEpisode traktEpisode = traktEpisodes.get(episodeNumber);
-            if (traktEpisode != null) {
-                // Episode collected on Trakt.
-                if (!isCollectedLocally) {
-                    // Set as collected if it is currently not.
-                    ContentProviderOperation.Builder update = ContentProviderOperation
-                            .newUpdate(Episodes.buildEpisodeUri(episodeId))
-                            .withValue(Episodes.COLLECTED, true);
-                    batch.add(update.build());
-                    episodesAddCount++;
-                }
-            } else {
-                // Episode not collected on Trakt.
-                if (isCollectedLocally) {
-                    if (isInitialSync) {
-                        // Upload to Trakt.
-                        syncEpisodes.add(new SyncEpisode().number(episodeNumber));
-                    } else {
-                        // Set as not collected if it is currently.
-                        batch.add(ContentProviderOperation.newUpdate(
-                                Episodes.buildEpisodeUri(episodeId))
-                                .withValue(Episodes.COLLECTED, false)
-                                .build());
-                        episodesRemoveCount++;
-                    }
+        int episodeId = localEpisodes.episodeTvdbIds[index];
+        boolean isCollectedLocally = localEpisodes.collected[index];
+
+        if (traktEpisode != TraktEpisodeFlags.NOT_FOUND) {
+            // Episode collected on Trakt.
+            if (!isCollectedLocally) {
+                // Set as collected if it is currently not.
+                flagWriter.addById(episodeId, EpisodeFlagWriter.KEEP, EpisodeFlagWriter.KEEP, 1);
+            }
+        } else {
+            // Episode not collected on Trakt.
+            if (isCollectedLocally) {
+                if (isInitialSync) {
+                    // Upload to Trakt.
+                    syncEpisodes.add(new SyncEpisode().number(localEpisodes.numbers[index]));
+                } else {
+                    // Set as not collected if it is currently.
+                    flagWriter.addById(episodeId, EpisodeFlagWriter.KEEP,
+                            EpisodeFlagWriter.KEEP, 0);
                 }
             }
         }
-        int localEpisodeCount = localEpisodes.size();
-        boolean addWholeSeason = episodesAddCount == localEpisodeCount;
-        boolean removeWholeSeason = episodesRemoveCount == localEpisodeCount;
-
-        // Performance improvement especially on initial syncs:
-        // if setting the whole season as (not) collected, replace with single db op.
-        if (addWholeSeason || removeWholeSeason) {
-            batch.clear();
-            batch.add(ContentProviderOperation.newUpdate(
-                    Episodes.buildEpisodesOfSeasonUri(seasonTvdbId))
-                    .withValue(Episodes.COLLECTED, addWholeSeason)
-                    .build());
-        }
+    }
 
-        try {
-            DBUtils.applyInSmallBatches(context, batch);
-        } catch (OperationApplicationException e) {
-            Timber.e(e, "Episodes watched/collected values database update failed.");
+    /**
+     * If the episode is watched (not skipped) or collected, sets it not watched and removes plays
+     * or sets it not collected.
+     */
+    private static void removeFlag(LocalEpisodeFlags localEpisodes, int index, Flag flag,
+            EpisodeFlagWriter flagWriter) {
+        if (!isFlagged(localEpisodes, index, flag)) {
+            return;
         }
-
-        if (isInitialSync && syncEpisodes.size() > 0) {
-            syncSeasons.add(new SyncSeason()
-                    .number(traktSeason.number)
-                    .episodes(syncEpisodes));
+        int episodeId = localEpisodes.episodeTvdbIds[index];
+        if (flag == Flag.WATCHED) {
+            flagWriter.addById(episodeId, EpisodeFlags.UNWATCHED, 0, EpisodeFlagWriter.KEEP);
+        } else {
+            flagWriter.addById(episodeId, EpisodeFlagWriter.KEEP, EpisodeFlagWriter.KEEP, 0);
         }
+    }
 
-        return true;
+    private static boolean isFlagged(LocalEpisodeFlags localEpisodes, int index, Flag flag) {
+        if (flag == Flag.WATCHED) {
+            return localEpisodes.watched[index] == EpisodeFlags.WATCHED;
+        } else {
+            return localEpisodes.collected[index];
+        }
     }
 
     /**
      * Adds an update op for the last watched time of the given show if the last watched time on
      * trakt is later.
      */
-    private void updateLastWatchedTime(Integer showTvdbId, BaseShow traktShow,
-            ArrayList<ContentProviderOperation> batch) {
-        if (traktShow.last_watched_at == null) {
+    private static void updateLastWatchedTime(LocalEpisodeFlags localEpisodes, int showTvdbId,
+            TraktEpisodeFlags traktShows, ArrayList<ContentProviderOperation> batch) {
+        Long lastWatchedMsNew = traktShows.getShowLastWatchedMs(showTvdbId);
+        if (lastWatchedMsNew == null) {
             return;
         }
-        ShowTools.addLastWatchedUpdateOpIfNewer(context, batch, showTvdbId,
-                traktShow.last_watched_at.toInstant().toEpochMilli());
+        Long lastWatchedMs = localEpisodes.getShowLastWatchedMs(showTvdbId);
+        if (lastWatchedMs != null && lastWatchedMs < lastWatchedMsNew) {
+            batch.add(ContentProviderOperation.newUpdate(Shows.buildShowUri(showTvdbId))
+                    .withValue(Shows.LASTWATCHED_MS, lastWatchedMsNew)
+                    .build());
+        }
     }
 
     /**
@@ -527,22 +447,20 @@ public class TraktEpisodeSync {
      *
      * @return Any of the {@link TraktTools} result codes.
      */
-    private boolean upload(int showTvdbId, int showTraktId, Flag flag) {
-        // query for watched/collected episodes
-        Cursor localEpisodes = context.getContentResolver().query(
-                Episodes.buildEpisodesOfShowUri(showTvdbId),
-                EpisodesQuery.PROJECTION,
-                flag.flagSelection,
-                null,
-                Episodes.SORT_SEASON_ASC);
-        if (localEpisodes == null) {
-            Timber.e("upload: query failed");
-            return false;
-        }
-
+    private boolean upload(LocalEpisodeFlags localEpisodes, int showTvdbId, int showTraktId,
+            Flag flag) {
         // build a list of watched/collected episodes
-        List<SyncSeason> syncSeasons = buildSyncSeasons(localEpisodes);
-        localEpisodes.close();
+        List<SyncSeason> syncSeasons = new ArrayList<>();
+        int showEnd = localEpisodes.getShowEnd(showTvdbId);
+        int seasonStart = localEpisodes.getShowStart(showTvdbId);
+        while (seasonStart < showEnd) {
+            int seasonEnd = localEpisodes.getSeasonEnd(seasonStart, showEnd);
+            SyncSeason syncSeason = buildSyncSeason(localEpisodes, seasonStart, seasonEnd, flag);
+            if (syncSeason != null) {
+                syncSeasons.add(syncSeason);
+            }
+            seasonStart = seasonEnd;
+        }
 
         //noinspection SimplifiableIfStatement
         if (syncSeasons.size() == 0) {
@@ -591,110 +509,54 @@ public class TraktEpisodeSync {
     /**
      * Returns a list of watched/collected episodes of a season. Packaged ready for upload to
      * trakt.
+     *
+     * @param start Index of the first episode of the season.
+     * @param end Index after the last episode of the season.
      */
-    private SyncSeason buildSyncSeason(int seasonTvdbId, int seasonNumber,
-            Flag flag) {
-        // query for watched/collected episodes of the given season
-        Cursor flaggedEpisodesQuery = context.getContentResolver().query(
-                Episodes.buildEpisodesOfSeasonUri(seasonTvdbId),
-                new String[]{Episodes.NUMBER, Episodes.PLAYS},
-                flag.flagSelection,
-                null,
-                Episodes.SORT_NUMBER_ASC);
-        if (flaggedEpisodesQuery == null) {
-            // query failed
-            return null;
-        }
-
+    @Nullable
+    private static SyncSeason buildSyncSeason(LocalEpisodeFlags localEpisodes, int start,
+            int end, Flag flag) {
         List<SyncEpisode> syncEpisodes = new ArrayList<>();
-        while (flaggedEpisodesQuery.moveToNext()) {
-            int episodeNumber = flaggedEpisodesQuery.getInt(0);
-            int plays = flaggedEpisodesQuery.getInt(1);
-
-            // Add an episode for each play, Trakt will create a separate play for each.
-            SyncEpisode syncEpisode = new SyncEpisode().number(episodeNumber);
-            for (int i = 0; i < plays; i++) {
-                syncEpisodes.add(syncEpisode);
+        for (int i = start; i < end; i++) {
+            if (!isFlagged(localEpisodes, i, flag)) {
+                continue;
+            }
+            int episodeNumber = localEpisodes.numbers[i];
+            if (flag == Flag.WATCHED) {
+                addSyncEpisodes(syncEpisodes, episodeNumber, localEpisodes.plays[i]);
+            } else {
+                syncEpisodes.add(new SyncEpisode().number(episodeNumber));
             }
         }
-        flaggedEpisodesQuery.close();
 
         if (syncEpisodes.size() == 0) {
             return null; // no episodes watched/collected
         }
 
-        return new SyncSeason().number(seasonNumber).episodes(syncEpisodes);
+        return new SyncSeason().number(localEpisodes.seasons[start]).episodes(syncEpisodes);
     }
 
     /**
-     * @param episodesCursor Cursor of episodes sorted by season (ascending).
+     * Adds an episode for each play, Trakt will create a separate play for each.
      */
-    private static List<SyncSeason> buildSyncSeasons(Cursor episodesCursor) {
-        List<SyncSeason> seasons = new LinkedList<>();
-
-        SyncSeason currentSeason = null;
-        while (episodesCursor.moveToNext()) {
-            int season = episodesCursor.getInt(EpisodesQuery.SEASON);
-            int episode = episodesCursor.getInt(EpisodesQuery.EPISODE);
-            int plays = episodesCursor.getInt(EpisodesQuery.PLAYS);
-
-            // create new season if none exists or number has changed
-            if (currentSeason == null || currentSeason.number != season) {
-                currentSeason = new SyncSeason().number(season);
-                currentSeason.episodes = new LinkedList<>();
-                seasons.add(currentSeason);
-            }
-
-            // Add an episode for each play, Trakt will create a separate play for each.
-            SyncEpisode syncEpisode = new SyncEpisode().number(episode);
-            for (int i = 0; i < plays; i++) {
-                currentSeason.episodes.add(syncEpisode);
-            }
+    private static void addSyncEpisodes(List<SyncEpisode> syncEpisodes, int episodeNumber,
+            int plays) {
+        // Safe-guard: watched episodes should always have a play.
+        int playsOrOne = plays > 0 ? plays : 1;
+        SyncEpisode syncEpisode = new SyncEpisode().number(episodeNumber);
+        for (int i = 0; i < playsOrOne; i++) {
+            syncEpisodes.add(syncEpisode);
         }
-
-        return seasons;
-    }
-
-    private interface EpisodesQuery {
-
-        String[] PROJECTION = new String[]{
-                Episodes.SEASON, Episodes.NUMBER, Episodes.PLAYS
-        };
-
-        int SEASON = 0;
-        int EPISODE = 1;
-        int PLAYS = 2;
     }
 
     public enum Flag {
-        COLLECTED("collected",
-                Episodes.COLLECTED,
-                // only remove flags for already collected episodes
-                Episodes.COLLECTED + "=1",
-                Episodes.SELECTION_COLLECTED,
-                1, 0),
-        WATCHED("watched",
-                Episodes.WATCHED,
-                // do not remove flags of skipped episodes, only of watched ones
-                Episodes.WATCHED + "=" + EpisodeFlags.WATCHED,
-                Episodes.SELECTION_WATCHED,
-                EpisodeFlags.WATCHED, EpisodeFlags.UNWATCHED);
+        COLLECTED("collected"),
+        WATCHED("watched");
 
         final String name;
-        final String databaseColumn;
-        final String clearFlagSelection;
-        final String flagSelection;
-        final int flaggedValue;
-        final int notFlaggedValue;
-
-        Flag(String name, String databaseColumn, String clearFlagSelection, String flagSelection,
-                int flaggedValue, int notFlaggedValue) {
+
+        Flag(String name) {
             this.name = name;
-            this.databaseColumn = databaseColumn;
-            this.clearFlagSelection = clearFlagSelection;
-            this.flagSelection = flagSelection;
-            this.flaggedValue = flaggedValue;
-            this.notFlaggedValue = notFlaggedValue;
         }
     }
 }
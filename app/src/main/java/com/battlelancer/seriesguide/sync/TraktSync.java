@@ -6,6 +6,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.preference.PreferenceManager;
 import com.battlelancer.seriesguide.traktapi.SgTrakt;
+import com.battlelancer.seriesguide.traktapi.SgTraktSync;
 import com.battlelancer.seriesguide.traktapi.TraktCredentials;
 import com.battlelancer.seriesguide.traktapi.TraktSettings;
 import com.battlelancer.seriesguide.ui.movies.MovieTools;
@@ -23,12 +24,15 @@ public class TraktSync {
     private Context context;
     private MovieTools movieTools;
     private Sync traktSync;
+    private SgTraktSync sgTraktSync;
     private SyncProgress progress;
 
-    TraktSync(Context context, MovieTools movieTools, Sync traktSync, SyncProgress progress) {
+    TraktSync(Context context, MovieTools movieTools, Sync traktSync, SgTraktSync sgTraktSync,
+            SyncProgress progress) {
         this.context = context;
         this.movieTools = movieTools;
         this.traktSync = traktSync;
+        this.sgTraktSync = sgTraktSync;
         this.progress = progress;
     }
 
@@ -145,7 +149,7 @@ public class TraktSync {
         boolean isInitialSync = !TraktSettings.hasMergedEpisodes(context);
 
         // watched episodes
-        TraktEpisodeSync episodeSync = new TraktEpisodeSync(context, traktSync);
+        TraktEpisodeSync episodeSync = new TraktEpisodeSync(context, traktSync, sgTraktSync);
         if (!episodeSync.syncWatched(localShows, lastActivity.watched_at, isInitialSync)) {
             return false; // failed, give up.
         }
@@ -17,6 +17,11 @@ import dagger.Lazy;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import timber.log.Timber;
 
 public class TvdbSync {
@@ -27,19 +32,46 @@ public class TvdbSync {
     private static final long UPDATE_THRESHOLD_DAILYS_MS = DateUtils.DAY_IN_MILLIS
             + 12 * DateUtils.HOUR_IN_MILLIS;
 
+    /**
+     * Number of shows downloaded in parallel by default. Database writes are always done one show
+     * at a time on the sync thread.
+     */
+    static final int DEFAULT_WORKER_COUNT = 4;
+    /**
+     * Allow some downloaded shows to queue up while the database writer is busy, but not too
+     * many as each holds all ops for its episodes in memory.
+     */
+    private static final int MAX_PENDING_PER_WORKER = 2;
+    /** Give up after multiple consecutive timeouts (around 3 * 15/20 seconds). */
+    private static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+
     private final SyncType syncType;
     private final int singleShowTvdbId;
+    private final int workerCount;
     private boolean hasUpdatedShows;
 
     public TvdbSync(SyncType syncType, int singleShowTvdbId) {
+        this(syncType, singleShowTvdbId, DEFAULT_WORKER_COUNT);
+    }
+
+    /**
+     * @param workerCount The maximum number of shows to download in parallel.
+     */
+    public TvdbSync(SyncType syncType, int singleShowTvdbId, int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be at least 1");
+        }
         this.syncType = syncType;
         this.singleShowTvdbId = singleShowTvdbId;
+        this.workerCount = workerCount;
     }
 
     /**
      * Update shows based on the sync type.
+     *
+     * <p>Show details and episodes are downloaded by a pool of workers, the database is updated
+     * one show at a time on the calling thread as downloads complete.
      */
-    @SuppressLint("TimberExceptionLogging")
     @Nullable
     public SgSyncAdapter.UpdateResult sync(
             Context context,
@@ -55,50 +87,90 @@ public class TvdbSync {
             return null;
         }
         Timber.d("Updating %d show(s)...", showsToUpdate.length);
+        if (showsToUpdate.length == 0) {
+            return SgSyncAdapter.UpdateResult.SUCCESS;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(workerCount, showsToUpdate.length));
+        try {
+            return updateShows(context, resolver, tvdbTools.get(), showsToUpdate, executor,
+                    progress);
+        } finally {
+            // abort downloads still running, e.g. if giving up due to timeouts
+            executor.shutdownNow();
+        }
+    }
+
+    private SgSyncAdapter.UpdateResult updateShows(Context context, ContentResolver resolver,
+            TvdbTools tvdbTools, int[] showsToUpdate, ExecutorService executor,
+            SyncProgress progress) {
+        CompletionService<ShowResult> downloads = new ExecutorCompletionService<>(executor);
+        int maxPending = workerCount * MAX_PENDING_PER_WORKER;
 
         // from here on we need more sophisticated abort handling, so keep track of errors
         SgSyncAdapter.UpdateResult resultCode = SgSyncAdapter.UpdateResult.SUCCESS;
 
-        // loop through shows and download latest data from TVDb
         int consecutiveTimeouts = 0;
-        for (int i = 0; i < showsToUpdate.length; i++) {
-            int showTvdbId = showsToUpdate[i];
-
-            // stop sync if connectivity is lost
-            if (!AndroidUtils.isNetworkConnected(context)) {
-                resultCode = SgSyncAdapter.UpdateResult.INCOMPLETE;
+        int nextToSubmit = 0;
+        int pending = 0;
+        while (nextToSubmit < showsToUpdate.length || pending > 0) {
+            // keep workers busy downloading shows
+            while (nextToSubmit < showsToUpdate.length && pending < maxPending) {
+                // stop sync if connectivity is lost
+                if (!AndroidUtils.isNetworkConnected(context)) {
+                    resultCode = SgSyncAdapter.UpdateResult.INCOMPLETE;
+                    nextToSubmit = showsToUpdate.length; // submit no more shows
+                    break;
+                }
+                int showTvdbId = showsToUpdate[nextToSubmit];
+                downloads.submit(() -> fetchShow(tvdbTools, showTvdbId));
+                nextToSubmit++;
+                pending++;
+            }
+            if (pending == 0) {
                 break;
             }
 
+            ShowResult result;
             try {
-                tvdbTools.get().updateShow(showTvdbId);
-                hasUpdatedShows = true;
+                result = downloads.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Timber.e("Interrupted while updating shows.");
+                return SgSyncAdapter.UpdateResult.INCOMPLETE;
+            } catch (ExecutionException e) {
+                // fetchShow catches TvdbException, so this is unexpected
+                throw new RuntimeException(e.getCause());
+            }
+            pending--;
 
+            // write to database one show at a time
+            TvdbException error = result.error;
+            if (error == null && result.update != null) {
+                try {
+                    tvdbTools.applyShowUpdate(result.update);
+                } catch (TvdbException e) {
+                    error = e;
+                }
+            }
+
+            if (error == null) {
+                hasUpdatedShows = true;
                 // make sure other loaders (activity, overview, details) are notified
                 resolver.notifyChange(SeriesGuideContract.Episodes.CONTENT_URI_WITHSHOW, null);
-            } catch (TvdbException e) {
+            } else {
                 // failed, continue with other shows
                 resultCode = SgSyncAdapter.UpdateResult.INCOMPLETE;
+                reportError(context, progress, result.showTvdbId, error);
 
-                String showTitle = SgRoomDatabase.getInstance(context)
-                        .showHelper()
-                        .getShowTitle(showTvdbId);
-                String message = String
-                        .format("Failed to update show ('%s', TVDB id %s).", showTitle, showTvdbId);
-                if (e.itemDoesNotExist()) {
-                    message += " It no longer exists.";
-                }
-                progress.setImportantErrorIfNone(message);
-                Timber.e(e, message);
-
-                Throwable cause = e.getCause();
-                if (cause != null && cause instanceof SocketTimeoutException) {
+                Throwable cause = error.getCause();
+                if (cause instanceof SocketTimeoutException) {
                     consecutiveTimeouts++;
                 } else if (consecutiveTimeouts > 0) {
                     consecutiveTimeouts--;
                 }
-                // skip after multiple consecutive timeouts (around 3 * 15/20 seconds)
-                if (consecutiveTimeouts == 3) {
+                if (consecutiveTimeouts == MAX_CONSECUTIVE_TIMEOUTS) {
                     Timber.e("Connection unstable, give up.");
                     return resultCode;
                 }
@@ -108,6 +180,46 @@ public class TvdbSync {
         return resultCode;
     }
 
+    /**
+     * Runs on a worker thread. Does not throw, instead returns any error as part of the result
+     * so it can be handled on the sync thread.
+     */
+    private static ShowResult fetchShow(TvdbTools tvdbTools, int showTvdbId) {
+        try {
+            return new ShowResult(showTvdbId, tvdbTools.fetchShowUpdate(showTvdbId), null);
+        } catch (TvdbException e) {
+            return new ShowResult(showTvdbId, null, e);
+        }
+    }
+
+    @SuppressLint("TimberExceptionLogging")
+    private static void reportError(Context context, SyncProgress progress, int showTvdbId,
+            TvdbException e) {
+        String showTitle = SgRoomDatabase.getInstance(context)
+                .showHelper()
+                .getShowTitle(showTvdbId);
+        String message = String
+                .format("Failed to update show ('%s', TVDB id %s).", showTitle, showTvdbId);
+        if (e.itemDoesNotExist()) {
+            message += " It no longer exists.";
+        }
+        progress.setImportantErrorIfNone(message);
+        Timber.e(e, message);
+    }
+
+    private static class ShowResult {
+        final int showTvdbId;
+        @Nullable final TvdbTools.ShowUpdate update;
+        @Nullable final TvdbException error;
+
+        ShowResult(int showTvdbId, @Nullable TvdbTools.ShowUpdate update,
+                @Nullable TvdbException error) {
+            this.showTvdbId = showTvdbId;
+            this.update = update;
+            this.error = error;
+        }
+    }
+
     /**
      * Returns an array of show ids to update.
      */
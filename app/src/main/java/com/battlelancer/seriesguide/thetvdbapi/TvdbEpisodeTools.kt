@@ -9,16 +9,20 @@ import com.battlelancer.seriesguide.provider.SeriesGuideContract
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes
 import com.battlelancer.seriesguide.settings.DisplaySettings
 import com.battlelancer.seriesguide.util.DBUtils
+import com.battlelancer.seriesguide.util.EpisodeReleaseTimeCalculator
 import com.battlelancer.seriesguide.util.Errors
+import com.battlelancer.seriesguide.util.PagePrefetcher
 import com.battlelancer.seriesguide.util.TextTools
 import com.battlelancer.seriesguide.util.TimeTools
 import com.uwetrottmann.thetvdb.entities.Episode
 import com.uwetrottmann.thetvdb.entities.EpisodesResponse
 import com.uwetrottmann.thetvdb.services.TheTvdbSeries
 import dagger.Lazy
+import java.io.IOException
 import java.util.ArrayList
 import java.util.HashSet
 import java.util.TimeZone
+import java.util.concurrent.Executors
 
 class TvdbEpisodeTools constructor(
         private val context: Context,
@@ -31,6 +35,9 @@ class TvdbEpisodeTools constructor(
      *
      * Adds update ops for updated episodes and delete ops for local orphaned episodes to the given
      * [ContentProviderOperation] batch.
+     *
+     * The next page (and its fallback language page if needed) is downloaded on a background
+     * thread while the current page is converted.
      */
     @Throws(TvdbException::class)
     fun fetchEpisodes(batch: ArrayList<ContentProviderOperation>, show: Show,
@@ -47,104 +54,90 @@ class TvdbEpisodeTools constructor(
         val seasonsToAddOrUpdate = HashSet<Int>()
 
         val dateLastMonthEpoch = (System.currentTimeMillis() - DateUtils.DAY_IN_MILLIS * 30) / 1000
-        val showTimeZone = TimeTools.getDateTimeZone(show.release_timezone)
-        val showReleaseTime = TimeTools.getShowReleaseTime(show.release_time)
-        val deviceTimeZone = TimeZone.getDefault().id
+        val releaseTimeCalculator = EpisodeReleaseTimeCalculator(
+            TimeTools.getDateTimeZone(show.release_timezone),
+            TimeTools.getShowReleaseTime(show.release_time),
+            show.country,
+            show.network,
+            TimeZone.getDefault().id
+        )
 
         val fallback = DisplaySettings.getShowsLanguageFallback(context)
         val fallbackLanguage: String? = if (fallback != language) fallback else null
 
-        var page: Int? = 0
-        while (page != null) {
-            val response = getEpisodes(showTvdbId, page, language)
-            val episodes = response.data
-                ?: throw TvdbDataException("fetchEpisodes response is null") // No episode data returned, stop (likely API error).
-
-            // fall back if no translation is available for some episodes
-            // note: just checking errors is not enough as no error if just some are not translated
-            val fallbackResponse = if (fallbackLanguage != null
-                    && (response.errors?.invalidLanguage != null
-                    || episodes.find { it.episodeName.isNullOrEmpty() || it.overview.isNullOrEmpty() } != null)) {
-                // assumes that episode pages match between languages
-                // worst case: no fallback title or overview
-                getEpisodes(showTvdbId, page, fallbackLanguage)
-            } else {
-                null
+        // convert a page while the next one is downloaded
+        PagePrefetcher(PagePrefetcher.PageLoader<Episode> { cursor ->
+            try {
+                loadPage(showTvdbId, cursor?.toInt() ?: 0, language, fallbackLanguage)
+            } catch (e: TvdbException) {
+                throw PageException(e)
             }
+        }, pagePrefetchExecutor).use { pages ->
+            while (pages.hasNext()) {
+                val page = try {
+                    pages.next()
+                } catch (e: PageException) {
+                    throw e.cause
+                } ?: throw TvdbException("fetchEpisodes: interrupted")
+                val episodes = page.items ?: break
+
+                val values = ContentValues()
+                for (episode in episodes) {
+                    val episodeId = episode.id
+                    val seasonNumber = episode.airedSeason
+                    val seasonId = episode.airedSeasonID
+                    if (episodeId == null || episodeId <= 0
+                            || seasonNumber == null || seasonNumber < 0 // season 0 allowed (specials)
+
+                            || seasonId == null || seasonId <= 0) {
+                        continue // invalid ids, skip
+                    }
 
-            val values = ContentValues()
-            for (episode in episodes) {
-                val episodeId = episode.id
-                val seasonNumber = episode.airedSeason
-                val seasonId = episode.airedSeasonID
-                if (episodeId == null || episodeId <= 0
-                        || seasonNumber == null || seasonNumber < 0 // season 0 allowed (specials)
-
-                        || seasonId == null || seasonId <= 0) {
-                    continue // invalid ids, skip
-                }
-
-                // add insert/update op for season, prevents it from getting cleaned
-                if (!seasonsToAddOrUpdate.contains(seasonId)) {
-                    batch.add(DBUtils.buildSeasonOp(showTvdbId, seasonId, seasonNumber,
-                            !localSeasonIds.contains(seasonId)))
-                    seasonsToAddOrUpdate.add(seasonId)
-                }
+                    // add insert/update op for season, prevents it from getting cleaned
+                    if (!seasonsToAddOrUpdate.contains(seasonId)) {
+                        batch.add(DBUtils.buildSeasonOp(showTvdbId, seasonId, seasonNumber,
+                                !localSeasonIds.contains(seasonId)))
+                        seasonsToAddOrUpdate.add(seasonId)
+                    }
 
-                // don't clean up this episode
-                removableEpisodeIds.remove(episodeId)
-
-                var insert = true
-                if (lastUpdatedByEpisodeId.containsKey(episodeId)) {
-                    /*
-                     * Update uses provider ops which take a long time. Only
-                     * update if episode was edited on TVDb or is not older than
-                     * a month (ensures show air time changes get stored).
-                     */
-                    val lastUpdatedEpoch = lastUpdatedByEpisodeId[episodeId]
-                    val lastTvdbEditEpoch = episode.lastUpdated
-                    if (lastUpdatedEpoch != null && lastTvdbEditEpoch != null
-                            && (lastUpdatedEpoch < lastTvdbEditEpoch
-                                    || dateLastMonthEpoch < lastUpdatedEpoch)) {
-                        insert = false // update episode
-                    } else {
-                        continue // not edited or too old to update, skip
+                    // don't clean up this episode
+                    removableEpisodeIds.remove(episodeId)
+
+                    var insert = true
+                    if (lastUpdatedByEpisodeId.containsKey(episodeId)) {
+                        /*
+                         * Update uses provider ops which take a long time. Only
+                         * update if episode was edited on TVDb or is not older than
+                         * a month (ensures show air time changes get stored).
+                         */
+                        val lastUpdatedEpoch = lastUpdatedByEpisodeId[episodeId]
+                        val lastTvdbEditEpoch = episode.lastUpdated
+                        if (lastUpdatedEpoch != null && lastTvdbEditEpoch != null
+                                && (lastUpdatedEpoch < lastTvdbEditEpoch
+                                        || dateLastMonthEpoch < lastUpdatedEpoch)) {
+                            insert = false // update episode
+                        } else {
+                            continue // not edited or too old to update, skip
+                        }
                     }
-                }
 
-                // calculate release time
-                val releaseDateTime = TimeTools.parseEpisodeReleaseDate(context, showTimeZone,
-                        episode.firstAired, showReleaseTime, show.country, show.network,
-                        deviceTimeZone)
-                // if name or overview are empty use fallback
-                val hasName = !episode.episodeName.isNullOrEmpty()
-                val hasOverview = !episode.overview.isNullOrEmpty()
-                val fallbackEpisode = if (!hasName || !hasOverview) {
-                    fallbackResponse?.data?.find { it.id == episodeId }
-                } else {
-                    null
-                }
-                if (!hasName) {
-                    episode.episodeName = fallbackEpisode?.episodeName
-                }
-                if (!hasOverview) {
-                    episode.overview = fallbackEpisode?.overview
-                }
+                    // calculate release time
+                    val releaseDateTime = releaseTimeCalculator.calculate(episode.firstAired)
 
-                episode.toContentValues(values, episodeId, seasonId, showTvdbId,
-                        seasonNumber, releaseDateTime, insert)
+                    episode.toContentValues(values, episodeId, seasonId, showTvdbId,
+                            seasonNumber, releaseDateTime, insert)
 
-                if (insert) {
-                    // episode does not exist, yet: insert
-                    newEpisodesValues.add(ContentValues(values))
-                } else {
-                    // episode exists: update
-                    batch.add(DBUtils.buildEpisodeUpdateOp(values))
-                }
+                    if (insert) {
+                        // episode does not exist, yet: insert
+                        newEpisodesValues.add(ContentValues(values))
+                    } else {
+                        // episode exists: update
+                        batch.add(DBUtils.buildEpisodeUpdateOp(values))
+                    }
 
-                values.clear()
+                    values.clear()
+                }
             }
-            page = response.links?.next
         }
 
         // add delete ops for leftover episodeIds in our db
@@ -171,6 +164,52 @@ class TvdbEpisodeTools constructor(
         return newEpisodesValues
     }
 
+    /**
+     * Carries a [TvdbException] thrown while loading a page through [PagePrefetcher.next].
+     */
+    private class PageException(override val cause: TvdbException) : IOException(cause)
+
+    /**
+     * Loads the given episodes page. If name or overview of some episodes are empty, sets them
+     * from the page in the fallback language, if any.
+     */
+    @Throws(TvdbException::class)
+    private fun loadPage(
+            showTvdbId: Int,
+            page: Int,
+            language: String,
+            fallbackLanguage: String?
+    ): PagePrefetcher.Page<Episode> {
+        val response = getEpisodes(showTvdbId, page, language)
+        val episodes = response.data
+            ?: throw TvdbDataException("fetchEpisodes response is null") // No episode data returned, stop (likely API error).
+
+        // fall back if no translation is available for some episodes
+        // note: just checking errors is not enough as no error if just some are not translated
+        if (fallbackLanguage != null
+                && (response.errors?.invalidLanguage != null
+                || episodes.find { it.episodeName.isNullOrEmpty() || it.overview.isNullOrEmpty() } != null)) {
+            // assumes that episode pages match between languages
+            // worst case: no fallback title or overview
+            val fallbackEpisodes = getEpisodes(showTvdbId, page, fallbackLanguage).data
+            for (episode in episodes) {
+                val hasName = !episode.episodeName.isNullOrEmpty()
+                val hasOverview = !episode.overview.isNullOrEmpty()
+                if (hasName && hasOverview) {
+                    continue
+                }
+                val fallbackEpisode = fallbackEpisodes?.find { it.id == episode.id }
+                if (!hasName) {
+                    episode.episodeName = fallbackEpisode?.episodeName
+                }
+                if (!hasOverview) {
+                    episode.overview = fallbackEpisode?.overview
+                }
+            }
+        }
+        return PagePrefetcher.Page(episodes, response.links?.next?.toString())
+    }
+
     @Throws(TvdbException::class)
     private fun getEpisodes(showTvdbId: Int, page: Int, language: String): EpisodesResponse {
         val response: retrofit2.Response<EpisodesResponse>
@@ -195,6 +234,12 @@ class TvdbEpisodeTools constructor(
 
     companion object {
 
+        /**
+         * Shared by all episode downloads, so prefetching does not start a thread for each show.
+         * Idle threads are stopped after a while.
+         */
+        private val pagePrefetchExecutor = Executors.newCachedThreadPool()
+
         @JvmStatic
         fun Episode.toContentValues(values: ContentValues,
                 episodeTvdbId: Int, seasonTvdbId: Int, showTvdbId: Int,
@@ -21,6 +21,7 @@ import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.sync.HexagonEpisodeSync;
 import com.battlelancer.seriesguide.sync.TraktEpisodeSync;
 import com.battlelancer.seriesguide.traktapi.SgTrakt;
+import com.battlelancer.seriesguide.traktapi.TraktEpisodeFlags;
 import com.battlelancer.seriesguide.ui.search.SearchResult;
 import com.battlelancer.seriesguide.ui.shows.ShowTools;
 import com.battlelancer.seriesguide.util.DBUtils;
@@ -35,14 +36,12 @@ import com.uwetrottmann.thetvdb.entities.SeriesResponse;
 import com.uwetrottmann.thetvdb.entities.SeriesResultsResponse;
 import com.uwetrottmann.thetvdb.services.TheTvdbSearch;
 import com.uwetrottmann.thetvdb.services.TheTvdbSeries;
-import com.uwetrottmann.trakt5.entities.BaseShow;
 import com.uwetrottmann.trakt5.enums.Extended;
 import com.uwetrottmann.trakt5.enums.IdType;
 import com.uwetrottmann.trakt5.enums.Type;
 import dagger.Lazy;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import javax.inject.Inject;
 import timber.log.Timber;
@@ -105,39 +104,68 @@ public class TvdbTools {
     }
 
     /**
-     * Adds a show and its episodes to the database. If the show already exists, does nothing.
+     * Downloads a show and its episodes to add to the database, but does not write to the
+     * database. Only reads from the database, so is safe to call from multiple threads at once.
+     * Pass the result to {@link #applyShowAdd(ShowAdd, TraktEpisodeFlags, TraktEpisodeFlags,
+     * HexagonEpisodeSync)}.
      *
      * <p> If signed in to Hexagon, gets show properties and episode flags.
      *
-     * <p> If connected to trakt, but not signed in to Hexagon, gets episode flags from trakt
-     * instead.
-     *
-     * @return True, if the show and its episodes were added to the database.
+     * @return {@code null} if the show already exists.
      */
-    public boolean addShow(int showTvdbId, @Nullable String language,
-            @Nullable HashMap<Integer, BaseShow> traktCollection,
-            @Nullable HashMap<Integer, BaseShow> traktWatched,
-            HexagonEpisodeSync hexagonEpisodeSync)
-            throws TvdbException {
+    @Nullable
+    public ShowAdd fetchShowAdd(int showTvdbId, @Nullable String language,
+            HexagonEpisodeSync hexagonEpisodeSync) throws TvdbException {
         boolean isShowExists = DBUtils.isShowExists(context, showTvdbId);
         if (isShowExists) {
-            return false;
+            return null;
         }
 
         // get show and determine the language to use
         boolean hexagonEnabled = HexagonSettings.isEnabled(context);
         Show show = getShowDetailsWithHexagon(showTvdbId, language, hexagonEnabled);
-        language = show.language;
 
-        // get episodes and store everything to the database
+        // get episodes
         final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
         batch.add(DBUtils.buildShowOp(context, show, true));
-        getEpisodesAndUpdateDatabase(batch, show, language);
+        ContentValues[] newEpisodesValues = fetchEpisodes(batch, show, show.language);
+
+        // get episode flags from Hexagon, may be null if download failed
+        HexagonEpisodeSync.ShowFlags hexagonFlags = hexagonEnabled
+                ? hexagonEpisodeSync.fetchFlags(showTvdbId) : null;
+
+        return new ShowAdd(showTvdbId, show.language, hexagonEnabled, batch, newEpisodesValues,
+                hexagonFlags);
+    }
+
+    /**
+     * Adds a show and its episodes downloaded by {@link #fetchShowAdd(int, String,
+     * HexagonEpisodeSync)} to the database. If the show was added in the meantime, does nothing.
+     *
+     * <p> If connected to trakt, but not signed in to Hexagon, restores episode flags from trakt.
+     *
+     * <p> Does not calculate the next episode, call {@link DBUtils#updateLatestEpisode(Context,
+     * Integer)} afterwards.
+     *
+     * @return True, if the show and its episodes were added to the database.
+     */
+    public boolean applyShowAdd(@NonNull ShowAdd add,
+            @Nullable TraktEpisodeFlags traktCollection,
+            @Nullable TraktEpisodeFlags traktWatched,
+            HexagonEpisodeSync hexagonEpisodeSync) throws TvdbException {
+        int showTvdbId = add.showTvdbId;
+        // the same show might have been queued twice
+        if (DBUtils.isShowExists(context, showTvdbId)) {
+            return false;
+        }
+
+        updateDatabase(add.batch, add.newEpisodesValues);
 
         // restore episode flags...
-        if (hexagonEnabled) {
+        if (add.isHexagonEnabled) {
             // ...from Hexagon
-            boolean success = hexagonEpisodeSync.downloadFlags(showTvdbId);
+            boolean success = add.hexagonFlags != null
+                    && hexagonEpisodeSync.applyFlags(showTvdbId, add.hexagonFlags);
             if (!success) {
                 // failed to download episode flags
                 // flag show as needing an episode merge
@@ -148,10 +176,10 @@ public class TvdbTools {
             }
 
             // flag show to be auto-added (again), send (new) language to Hexagon
-            showTools.get().sendIsAdded(showTvdbId, language);
+            showTools.get().sendIsAdded(showTvdbId, add.language);
         } else {
             // ...from trakt
-            TraktEpisodeSync traktEpisodeSync = new TraktEpisodeSync(context, null);
+            TraktEpisodeSync traktEpisodeSync = new TraktEpisodeSync(context, null, null);
             if (!traktEpisodeSync.storeEpisodeFlags(traktWatched, showTvdbId,
                     TraktEpisodeSync.Flag.WATCHED)) {
                 throw new TvdbDataException("addShow: storing trakt watched episodes failed.");
@@ -162,20 +190,61 @@ public class TvdbTools {
             }
         }
 
-        // calculate next episode
-        DBUtils.updateLatestEpisode(context, showTvdbId);
-
         return true;
     }
 
+    /**
+     * Show, episodes and Hexagon episode flags of a show to add as downloaded by {@link
+     * #fetchShowAdd(int, String, HexagonEpisodeSync)}.
+     */
+    public static class ShowAdd {
+        public final int showTvdbId;
+        @NonNull
+        final String language;
+        final boolean isHexagonEnabled;
+        @NonNull
+        final ArrayList<ContentProviderOperation> batch;
+        @NonNull
+        final ContentValues[] newEpisodesValues;
+        @Nullable
+        final HexagonEpisodeSync.ShowFlags hexagonFlags;
+
+        ShowAdd(int showTvdbId, @NonNull String language, boolean isHexagonEnabled,
+                @NonNull ArrayList<ContentProviderOperation> batch,
+                @NonNull ContentValues[] newEpisodesValues,
+                @Nullable HexagonEpisodeSync.ShowFlags hexagonFlags) {
+            this.showTvdbId = showTvdbId;
+            this.language = language;
+            this.isHexagonEnabled = isHexagonEnabled;
+            this.batch = batch;
+            this.newEpisodesValues = newEpisodesValues;
+            this.hexagonFlags = hexagonFlags;
+        }
+    }
+
     /**
      * Updates a show. Adds new, updates changed and removes orphaned episodes.
      */
     public void updateShow(int showTvdbId) throws TvdbException {
+        ShowUpdate update = fetchShowUpdate(showTvdbId);
+        if (update != null) {
+            applyShowUpdate(update);
+        }
+    }
+
+    /**
+     * Downloads show details and episodes and builds the database ops required to update the
+     * show, but does not write to the database. Only reads from the database, so is safe to call
+     * from multiple threads at once. Pass the result to {@link #applyShowUpdate(ShowUpdate)}.
+     *
+     * @return {@code null} if the show language could not be determined, should try again later.
+     */
+    @Nullable
+    public ShowUpdate fetchShowUpdate(int showTvdbId) throws TvdbException {
         // determine which translation to get
         String language = getShowLanguage(context, showTvdbId);
         if (language == null) {
-            return;
+            return null;
         }
 
         final ArrayList<ContentProviderOperation> batch = new ArrayList<>();
@@ -185,7 +254,34 @@ public class TvdbTools {
 
         // get episodes in the language as returned in the TVDB show entry
         // the show might not be available in the desired language
-        getEpisodesAndUpdateDatabase(batch, show, show.language);
+        ContentValues[] newEpisodesValues = fetchEpisodes(batch, show, show.language);
+        return new ShowUpdate(showTvdbId, batch, newEpisodesValues);
+    }
+
+    /**
+     * Writes the ops and new episodes of a {@link ShowUpdate} to the database.
+     */
+    public void applyShowUpdate(@NonNull ShowUpdate update) throws TvdbException {
+        updateDatabase(update.batch, update.newEpisodesValues);
+    }
+
+    /**
+     * Database ops and new episode values for a show as downloaded by {@link
+     * #fetchShowUpdate(int)}.
+     */
+    public static class ShowUpdate {
+        public final int showTvdbId;
+        @NonNull
+        final ArrayList<ContentProviderOperation> batch;
+        @NonNull
+        final ContentValues[] newEpisodesValues;
+
+        ShowUpdate(int showTvdbId, @NonNull ArrayList<ContentProviderOperation> batch,
+                @NonNull ContentValues[] newEpisodesValues) {
+            this.showTvdbId = showTvdbId;
+            this.batch = batch;
+            this.newEpisodesValues = newEpisodesValues;
+        }
     }
 
     /**
@@ -252,18 +348,21 @@ public class TvdbTools {
     }
 
     /**
-     * Fetches episodes for the given show from TVDb, adds database ops for them. Then adds all
-     * information to the database.
+     * Fetches episodes for the given show from TVDb, adds database ops for updated and removed
+     * episodes to the batch and returns values of new episodes.
      */
-    private void getEpisodesAndUpdateDatabase(final ArrayList<ContentProviderOperation> batch,
+    private ContentValues[] fetchEpisodes(final ArrayList<ContentProviderOperation> batch,
             Show show, String language) throws TvdbException {
         // get ops for episodes of this show
         TvdbEpisodeTools episodeTools = new TvdbEpisodeTools(context, tvdbSeries);
         ArrayList<ContentValues> importShowEpisodes = episodeTools
                 .fetchEpisodes(batch, show, language);
         ContentValues[] newEpisodesValues = new ContentValues[importShowEpisodes.size()];
-        newEpisodesValues = importShowEpisodes.toArray(newEpisodesValues);
+        return importShowEpisodes.toArray(newEpisodesValues);
+    }
 
+    private void updateDatabase(final ArrayList<ContentProviderOperation> batch,
+            ContentValues[] newEpisodesValues) throws TvdbException {
         try {
             DBUtils.applyInSmallBatches(context, batch);
         } catch (OperationApplicationException e) {
@@ -2,20 +2,35 @@ package com.battlelancer.seriesguide.tmdbapi
 
 import android.content.Context
 import com.battlelancer.seriesguide.SgApp
+import com.battlelancer.seriesguide.model.SgTmdbShowId
+import com.battlelancer.seriesguide.provider.SgRoomDatabase
 import com.battlelancer.seriesguide.ui.search.SearchResult
 import com.battlelancer.seriesguide.util.Errors
 import com.uwetrottmann.tmdb2.entities.BaseTvShow
 import com.uwetrottmann.tmdb2.enumerations.ExternalSource
+import com.uwetrottmann.tmdb2.services.TvService
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import kotlin.math.min
 
 class TmdbTools2 {
 
     /**
      * Tries to find the TMDB id for the given show's TheTVDB id. Returns null on error or failure.
+     * Uses and stores known TMDB show ids, see [SgTmdbShowId].
      */
     fun findShowTmdbId(context: Context, showTvdbId: Int): Int? {
+        val showIdHelper = SgRoomDatabase.getInstance(context).tmdbShowIdHelper()
+        showIdHelper.getTmdbId(showTvdbId)?.let {
+            return it // known
+        }
+
         val tmdb = SgApp.getServicesComponent(context.applicationContext).tmdb()
         try {
             val response = tmdb.findService()
@@ -26,6 +41,7 @@ class TmdbTools2 {
                 if (!tvResults.isNullOrEmpty()) {
                     val showId = tvResults[0].id
                     showId?.let {
+                        showIdHelper.insertShowIds(listOf(SgTmdbShowId(it, showTvdbId)))
                         return it // found it!
                     }
                 }
@@ -41,7 +57,8 @@ class TmdbTools2 {
 
     /**
      * Maps TMDB TV shows to search results.
-     * Resolves the TheTVDB id using a network call on the calling thread!
+     * Uses known TheTVDB ids, see [SgTmdbShowId], resolves others with up to
+     * [MAX_PARALLEL_ID_REQUESTS] network calls at once and stores them.
      * Excludes shows where no TheTVDB id could be resolved (for any reason).
      */
     suspend fun mapTvShowsToSearchResults(
@@ -49,38 +66,69 @@ class TmdbTools2 {
         languageCode: String,
         results: List<BaseTvShow>
     ): List<SearchResult> = withContext(Dispatchers.IO) {
-        val tvService = SgApp.getServicesComponent(context.applicationContext)
-            .tmdb()
-            .tvService()
-        return@withContext results.mapNotNull { tvShow ->
-            if (!isActive) {
-                return@mapNotNull null // do not bother fetching ids for remaining results
-            }
+        val tmdbIds = results.mapNotNull { it.id }.distinct()
+        val showIdHelper = SgRoomDatabase.getInstance(context).tmdbShowIdHelper()
+        val tvdbIds = ConcurrentHashMap<Int, Int>()
+        showIdHelper.getShowIds(tmdbIds).forEach { tvdbIds[it.tmdbId] = it.tvdbId }
+        val knownCount = tvdbIds.size
 
-            // Find TheTVDB id.
-            val idResponse = tvShow.id?.let {
-                try {
-                    tvService.externalIds(it, null).execute()
-                } catch (e: Exception) {
-                    null
+        val missingTmdbIds = ConcurrentLinkedQueue(tmdbIds.filterNot { tvdbIds.containsKey(it) })
+        if (missingTmdbIds.isNotEmpty()) {
+            val tvService = SgApp.getServicesComponent(context.applicationContext)
+                .tmdb()
+                .tvService()
+            val resolvedIds = ConcurrentLinkedQueue<SgTmdbShowId>()
+            coroutineScope {
+                repeat(min(MAX_PARALLEL_ID_REQUESTS, missingTmdbIds.size)) {
+                    launch {
+                        while (isActive) {
+                            val tmdbId = missingTmdbIds.poll() ?: break
+                            val tvdbId = getShowTvdbId(tvService, tmdbId) ?: continue
+                            tvdbIds[tmdbId] = tvdbId
+                            resolvedIds.add(SgTmdbShowId(tmdbId, tvdbId))
+                        }
+                    }
                 }
             }
+            if (resolvedIds.isNotEmpty()) {
+                showIdHelper.insertShowIds(resolvedIds.toList())
+            }
+            Timber.d("mapTvShowsToSearchResults: %d of %d ids known, resolved %d",
+                knownCount, tmdbIds.size, resolvedIds.size)
+        }
 
-            // On TMDB the TheTVDB id might be 0, ignore those shows, too.
-            val externalIds = idResponse?.body()
-            if (idResponse == null || !idResponse.isSuccessful
-                || externalIds == null || externalIds.tvdb_id == null
-                || externalIds.tvdb_id == 0) {
-                null // Ignore this show.
-            } else {
-                SearchResult().apply {
-                    tvdbid = externalIds.tvdb_id!!
-                    title = tvShow.name
-                    overview = tvShow.overview
-                    language = languageCode
-                }
+        return@withContext results.mapNotNull { tvShow ->
+            val tvdbId = tvShow.id?.let { tvdbIds[it] }
+                ?: return@mapNotNull null // Ignore this show.
+            SearchResult().apply {
+                tvdbid = tvdbId
+                title = tvShow.name
+                overview = tvShow.overview
+                language = languageCode
             }
         }
     }
 
+    /**
+     * Returns the TheTVDB id of the show, or null if there is none or the request failed.
+     * Blocks the calling thread.
+     */
+    private fun getShowTvdbId(tvService: TvService, tmdbId: Int): Int? {
+        val idResponse = try {
+            tvService.externalIds(tmdbId, null).execute()
+        } catch (e: Exception) {
+            return null
+        }
+
+        // On TMDB the TheTVDB id might be 0, ignore those shows, too.
+        // Do not store those, the TheTVDB id might be added later.
+        val tvdbId = if (idResponse.isSuccessful) idResponse.body()?.tvdb_id else null
+        return if (tvdbId == null || tvdbId == 0) null else tvdbId
+    }
+
+    companion object {
+        /** A page of TMDB results has 20 items, resolve ids of a page at once. */
+        private const val MAX_PARALLEL_ID_REQUESTS = 20
+    }
+
 }
\ No newline at end of file
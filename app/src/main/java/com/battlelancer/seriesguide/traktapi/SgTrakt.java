@@ -42,6 +42,13 @@ public class SgTrakt extends TraktV2 {
         return okHttpClient;
     }
 
+    /**
+     * Sync endpoints returning the raw response, see {@link SgTraktSync}.
+     */
+    public SgTraktSync sgSync() {
+        return retrofit().create(SgTraktSync.class);
+    }
+
     /**
      * Check if the request was unauthorized.
      *
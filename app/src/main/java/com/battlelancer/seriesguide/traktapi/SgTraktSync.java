@@ -0,0 +1,28 @@
+package com.battlelancer.seriesguide.traktapi;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+/**
+ * Sync endpoints of trakt returning the raw response to read it with {@link TraktEpisodeFlags}
+ * while it downloads, instead of {@link com.uwetrottmann.trakt5.services.Sync} which builds the
+ * whole object graph in memory first.
+ */
+public interface SgTraktSync {
+
+    /**
+     * Like {@link com.uwetrottmann.trakt5.services.Sync#watchedShows}.
+     */
+    @Streaming
+    @GET("sync/watched/shows")
+    Call<ResponseBody> watchedShows();
+
+    /**
+     * Like {@link com.uwetrottmann.trakt5.services.Sync#collectionShows}.
+     */
+    @Streaming
+    @GET("sync/collection/shows")
+    Call<ResponseBody> collectionShows();
+}
@@ -0,0 +1,396 @@
+package com.battlelancer.seriesguide.traktapi;
+
+import android.util.SparseIntArray;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.format.DateTimeParseException;
+import timber.log.Timber;
+
+/**
+ * Watched or collected episodes of all shows on trakt, read directly from the JSON of the
+ * watched or collection shows endpoint instead of building the {@link
+ * com.uwetrottmann.trakt5.entities.BaseShow} object graph. Episodes are stored in arrays ordered
+ * by season and number within each show, so the episodes of a show or season are a range of
+ * indexes. Only keeps what is needed to diff against the local library: the TheTVDB id and last
+ * watched time of a show and the season, number and plays of each episode.
+ */
+public class TraktEpisodeFlags {
+
+    /** Returned if an episode or season was not found. */
+    public static final int NOT_FOUND = -1;
+
+    private static final int NO_INDEX = -1;
+    private static final int INITIAL_SHOW_CAPACITY = 64;
+    private static final int INITIAL_EPISODE_CAPACITY = 1024;
+
+    private final SparseIntArray showIndexes = new SparseIntArray();
+    private int showCount;
+    private int[] showStarts = new int[INITIAL_SHOW_CAPACITY];
+    private int[] showEnds = new int[INITIAL_SHOW_CAPACITY];
+    private long[] showLastWatchedMs = new long[INITIAL_SHOW_CAPACITY];
+
+    private int episodeCount;
+    private int[] seasons = new int[INITIAL_EPISODE_CAPACITY];
+    private int[] numbers = new int[INITIAL_EPISODE_CAPACITY];
+    private int[] plays = new int[INITIAL_EPISODE_CAPACITY];
+
+    private TraktEpisodeFlags() {
+    }
+
+    /**
+     * Reads a list of watched or collected shows as returned by the trakt sync endpoints. Like
+     * before with the object graph, skips shows without TheTVDB id or seasons, seasons without
+     * number and episodes without number.
+     *
+     * @throws IOException if reading failed or the JSON is malformed.
+     * @throws IllegalStateException if the JSON does not have the expected structure.
+     */
+    @NonNull
+    public static TraktEpisodeFlags parse(@NonNull Reader in) throws IOException {
+        TraktEpisodeFlags flags = new TraktEpisodeFlags();
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                flags.readShow(reader);
+            }
+            reader.endArray();
+        }
+        return flags;
+    }
+
+    private void readShow(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return;
+        }
+        int start = episodeCount;
+        int showTvdbId = 0;
+        boolean hasSeasons = false;
+        long lastWatchedMs = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "show":
+                    showTvdbId = readShowTvdbId(reader);
+                    break;
+                case "last_watched_at":
+                    lastWatchedMs = readDateTimeMs(reader);
+                    break;
+                case "seasons":
+                    hasSeasons = readSeasons(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (showTvdbId == 0 || !hasSeasons) {
+            episodeCount = start; // trakt show misses required data, skip.
+            return;
+        }
+        sortEpisodes(start, episodeCount);
+        putShow(showTvdbId, start, episodeCount, lastWatchedMs);
+    }
+
+    private static int readShowTvdbId(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return 0;
+        }
+        int showTvdbId = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("ids".equals(reader.nextName()) && !skipNull(reader)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("tvdb".equals(reader.nextName())) {
+                        showTvdbId = readInt(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return showTvdbId;
+    }
+
+    /**
+     * Appends the episodes of all seasons.
+     *
+     * @return If there was at least one season.
+     */
+    private boolean readSeasons(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return false;
+        }
+        boolean hasSeasons = false;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (skipNull(reader)) {
+                continue;
+            }
+            hasSeasons = true;
+            // number might come after the episodes, so set it once the season is read
+            int start = episodeCount;
+            Integer seasonNumber = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "number":
+                        seasonNumber = skipNull(reader) ? null : reader.nextInt();
+                        break;
+                    case "episodes":
+                        readEpisodes(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (seasonNumber == null) {
+                episodeCount = start; // trakt season misses required data, skip.
+            } else {
+                Arrays.fill(seasons, start, episodeCount, seasonNumber);
+            }
+        }
+        reader.endArray();
+        return hasSeasons;
+    }
+
+    private void readEpisodes(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (skipNull(reader)) {
+                continue;
+            }
+            Integer number = null;
+            int episodePlays = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "number":
+                        number = skipNull(reader) ? null : reader.nextInt();
+                        break;
+                    case "plays":
+                        episodePlays = readInt(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (number != null) {
+                addEpisode(number, episodePlays);
+            }
+        }
+        reader.endArray();
+    }
+
+    private static int readInt(JsonReader reader) throws IOException {
+        return skipNull(reader) ? 0 : reader.nextInt();
+    }
+
+    /**
+     * Returns the date time as epoch milliseconds, or 0 if it is null or invalid.
+     */
+    private static long readDateTimeMs(JsonReader reader) throws IOException {
+        if (skipNull(reader)) {
+            return 0;
+        }
+        String dateTime = reader.nextString();
+        try {
+            return OffsetDateTime.parse(dateTime).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            Timber.e(e, "readDateTimeMs: invalid date time %s", dateTime);
+            return 0;
+        }
+    }
+
+    private static boolean skipNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private void addEpisode(int number, int episodePlays) {
+        if (episodeCount == numbers.length) {
+            int capacity = episodeCount * 2;
+            seasons = Arrays.copyOf(seasons, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            plays = Arrays.copyOf(plays, capacity);
+        }
+        numbers[episodeCount] = number;
+        plays[episodeCount] = episodePlays;
+        episodeCount++;
+    }
+
+    private void putShow(int showTvdbId, int start, int end, long lastWatchedMs) {
+        if (showCount == showStarts.length) {
+            int capacity = showCount * 2;
+            showStarts = Arrays.copyOf(showStarts, capacity);
+            showEnds = Arrays.copyOf(showEnds, capacity);
+            showLastWatchedMs = Arrays.copyOf(showLastWatchedMs, capacity);
+        }
+        showStarts[showCount] = start;
+        showEnds[showCount] = end;
+        showLastWatchedMs[showCount] = lastWatchedMs;
+        // if trakt returns a show twice, the last one wins
+        showIndexes.put(showTvdbId, showCount);
+        showCount++;
+    }
+
+    /**
+     * Sorts the given range by season and number. Uses insertion sort as trakt returns episodes
+     * already sorted, so this is usually a single pass.
+     */
+    private void sortEpisodes(int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            int season = seasons[i];
+            int number = numbers[i];
+            int episodePlays = plays[i];
+            int j = i - 1;
+            while (j >= start && compare(seasons[j], numbers[j], season, number) > 0) {
+                seasons[j + 1] = seasons[j];
+                numbers[j + 1] = numbers[j];
+                plays[j + 1] = plays[j];
+                j--;
+            }
+            seasons[j + 1] = season;
+            numbers[j + 1] = number;
+            plays[j + 1] = episodePlays;
+        }
+    }
+
+    private static int compare(int seasonA, int numberA, int seasonB, int numberB) {
+        if (seasonA != seasonB) {
+            return seasonA < seasonB ? -1 : 1;
+        }
+        return Integer.compare(numberA, numberB);
+    }
+
+    /**
+     * Number of shows with watched or collected episodes.
+     */
+    public int size() {
+        return showCount;
+    }
+
+    public boolean isEmpty() {
+        return showCount == 0;
+    }
+
+    public boolean containsShow(int showTvdbId) {
+        return showIndexes.get(showTvdbId, NO_INDEX) != NO_INDEX;
+    }
+
+    /**
+     * Index of the first episode of the show, or {@link #getShowEnd(int)} if it has none.
+     */
+    public int getShowStart(int showTvdbId) {
+        int index = showIndexes.get(showTvdbId, NO_INDEX);
+        return index == NO_INDEX ? 0 : showStarts[index];
+    }
+
+    /**
+     * Index after the last episode of the show.
+     */
+    public int getShowEnd(int showTvdbId) {
+        int index = showIndexes.get(showTvdbId, NO_INDEX);
+        return index == NO_INDEX ? 0 : showEnds[index];
+    }
+
+    /**
+     * Returns the last watched time of a show, or {@code null} if it is not known.
+     */
+    @Nullable
+    public Long getShowLastWatchedMs(int showTvdbId) {
+        int index = showIndexes.get(showTvdbId, NO_INDEX);
+        if (index == NO_INDEX || showLastWatchedMs[index] == 0) {
+            return null;
+        }
+        return showLastWatchedMs[index];
+    }
+
+    /**
+     * Returns the index of the first episode of the season within the given show range, or
+     * {@link #NOT_FOUND}.
+     */
+    public int findSeasonStart(int showStart, int showEnd, int season) {
+        // lower bound of the first episode with this season
+        int low = showStart;
+        int high = showEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (seasons[mid] < season) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < showEnd && seasons[low] == season ? low : NOT_FOUND;
+    }
+
+    /**
+     * Index after the last episode of the season the episode at the given index belongs to.
+     */
+    public int getSeasonEnd(int index, int showEnd) {
+        int season = seasons[index];
+        int end = index + 1;
+        while (end < showEnd && seasons[end] == season) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the index of the episode with the given number within the given season range, or
+     * {@link #NOT_FOUND}.
+     */
+    public int findEpisode(int seasonStart, int seasonEnd, int number) {
+        int low = seasonStart;
+        int high = seasonEnd - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midNumber = numbers[mid];
+            if (midNumber < number) {
+                low = mid + 1;
+            } else if (midNumber > number) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    public int getSeason(int index) {
+        return seasons[index];
+    }
+
+    public int getNumber(int index) {
+        return numbers[index];
+    }
+
+    /**
+     * Plays of the episode at the given index, 0 if not known, e.g. for collected episodes.
+     */
+    public int getPlays(int index) {
+        return plays[index];
+    }
+}
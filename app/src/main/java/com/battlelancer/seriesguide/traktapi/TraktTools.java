@@ -1,6 +1,5 @@
 package com.battlelancer.seriesguide.traktapi;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -8,12 +7,7 @@ import androidx.annotation.StringRes;
 import com.battlelancer.seriesguide.R;
 import com.uwetrottmann.androidutils.AndroidUtils;
 import com.uwetrottmann.trakt5.TraktLink;
-import com.uwetrottmann.trakt5.entities.BaseEpisode;
-import com.uwetrottmann.trakt5.entities.BaseSeason;
-import com.uwetrottmann.trakt5.entities.BaseShow;
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Locale;
 
 public class TraktTools {
@@ -21,50 +15,6 @@ public class TraktTools {
     private TraktTools() {
     }
 
-    @NonNull
-    public static HashMap<Integer, BaseShow> buildTraktShowsMap(List<BaseShow> traktShows) {
-        @SuppressLint("UseSparseArrays")
-        HashMap<Integer, BaseShow> traktShowsMap = new HashMap<>(traktShows.size());
-        for (BaseShow traktShow : traktShows) {
-            if (traktShow.show == null
-                    || traktShow.show.ids == null
-                    || traktShow.show.ids.tvdb == null
-                    || traktShow.seasons == null
-                    || traktShow.seasons.isEmpty()) {
-                continue; // trakt show misses required data, skip.
-            }
-            traktShowsMap.put(traktShow.show.ids.tvdb, traktShow);
-        }
-        return traktShowsMap;
-    }
-
-    @NonNull
-    public static HashMap<Integer, BaseSeason> buildTraktSeasonsMap(List<BaseSeason> seasons) {
-        @SuppressLint("UseSparseArrays")
-        HashMap<Integer, BaseSeason> traktSeasonsMap = new HashMap<>(seasons.size());
-        for (BaseSeason season : seasons) {
-            if (season.number == null
-                    || season.episodes == null
-                    || season.episodes.isEmpty()) {
-                continue; // trakt season misses required data, skip.
-            }
-            traktSeasonsMap.put(season.number, season);
-        }
-        return traktSeasonsMap;
-    }
-
-    @NonNull
-    public static HashMap<Integer, BaseEpisode> buildTraktEpisodesMap(List<BaseEpisode> episodes) {
-        HashMap<Integer, BaseEpisode> traktEpisodesMap = new HashMap<>(episodes.size());
-        for (BaseEpisode episode : episodes) {
-            if (episode.number == null) {
-                continue; // trakt episode misses required data, skip.
-            }
-            traktEpisodesMap.put(episode.number, episode);
-        }
-        return traktEpisodesMap;
-    }
-
     public static String buildShowUrl(int showTvdbId) {
         return TraktLink.tvdb(showTvdbId) + "?id_type=show";
     }
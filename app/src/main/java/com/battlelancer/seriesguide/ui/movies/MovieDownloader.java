@@ -0,0 +1,139 @@
+package com.battlelancer.seriesguide.ui.movies;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.battlelancer.seriesguide.util.RequestRateLimiter;
+import com.uwetrottmann.androidutils.AndroidUtils;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import timber.log.Timber;
+
+/**
+ * Downloads details of many movies from TMDB with a pool of workers. Downloaded details are passed
+ * to a {@link Callback} on the calling thread as downloads complete, e.g. to write them to the
+ * database.
+ *
+ * <p>Workers of all downloaders share a request budget, so a large library does not exceed the
+ * TMDB rate limit.
+ */
+public class MovieDownloader {
+
+    public interface Callback {
+        /**
+         * Called on the thread that called {@link #download(String, String, int[], Callback)}.
+         *
+         * @param details Its TMDB movie is null if downloading failed.
+         */
+        void onDownloaded(int movieTmdbId, @NonNull MovieDetails details);
+    }
+
+    /** Number of movies downloaded in parallel. */
+    private static final int WORKER_COUNT = 4;
+    /**
+     * Allow some downloaded movies to queue up while the callback is busy, but not too many to
+     * keep memory usage low.
+     */
+    private static final int MAX_PENDING = WORKER_COUNT * 2;
+    /**
+     * TMDB allows around 50 requests per second per IP address, stay well below that. It also
+     * returns 429 with a Retry-After header if exceeded, which the TMDB interceptor handles.
+     */
+    private static final int MAX_REQUESTS_PER_SECOND = 40;
+    /** Downloading details may need a request for the localized and the fallback summary. */
+    private static final int REQUESTS_PER_MOVIE = 2;
+
+    private static final RequestRateLimiter rateLimiter
+            = new RequestRateLimiter(MAX_REQUESTS_PER_SECOND);
+
+    private final Context context;
+    private final MovieTools movieTools;
+
+    public MovieDownloader(Context context, MovieTools movieTools) {
+        this.context = context.getApplicationContext();
+        this.movieTools = movieTools;
+    }
+
+    /**
+     * Downloads details of the given movies, see {@link MovieTools#getMovieDetails(String, String,
+     * int, boolean)}. Does not download trakt ratings.
+     *
+     * @return false if not all movies were downloaded because the network connection was lost or
+     * the thread was interrupted.
+     */
+    public boolean download(@Nullable String languageCode, String regionCode,
+            int[] movieTmdbIds, Callback callback) {
+        if (movieTmdbIds.length == 0) {
+            return true;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(WORKER_COUNT, movieTmdbIds.length));
+        try {
+            CompletionService<Download> downloads = new ExecutorCompletionService<>(executor);
+            boolean isComplete = true;
+            int nextToSubmit = 0;
+            int pending = 0;
+            while (nextToSubmit < movieTmdbIds.length || pending > 0) {
+                // keep workers busy downloading movies
+                while (nextToSubmit < movieTmdbIds.length && pending < MAX_PENDING) {
+                    if (!AndroidUtils.isNetworkConnected(context)) {
+                        Timber.e("download: no network connection");
+                        isComplete = false;
+                        nextToSubmit = movieTmdbIds.length; // submit no more movies
+                        break;
+                    }
+                    int movieTmdbId = movieTmdbIds[nextToSubmit];
+                    downloads.submit(() -> downloadMovie(languageCode, regionCode, movieTmdbId));
+                    nextToSubmit++;
+                    pending++;
+                }
+                if (pending == 0) {
+                    break;
+                }
+
+                Download download;
+                try {
+                    download = downloads.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Timber.e("download: interrupted");
+                    return false;
+                } catch (ExecutionException e) {
+                    // MovieTools catches and reports errors, so this is unexpected
+                    throw new RuntimeException(e.getCause());
+                }
+                pending--;
+
+                callback.onDownloaded(download.movieTmdbId, download.details);
+            }
+            return isComplete;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs on a worker thread.
+     */
+    private Download downloadMovie(@Nullable String languageCode, String regionCode,
+            int movieTmdbId) throws InterruptedException {
+        rateLimiter.acquire(REQUESTS_PER_MOVIE);
+        MovieDetails details = movieTools
+                .getMovieDetails(languageCode, regionCode, movieTmdbId, false);
+        return new Download(movieTmdbId, details);
+    }
+
+    private static class Download {
+        final int movieTmdbId;
+        @NonNull final MovieDetails details;
+
+        Download(int movieTmdbId, @NonNull MovieDetails details) {
+            this.movieTmdbId = movieTmdbId;
+            this.details = details;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.battlelancer.seriesguide.ui.movies
 import android.content.Context
 import com.battlelancer.seriesguide.SgApp.Companion.getServicesComponent
 import com.battlelancer.seriesguide.provider.SgRoomDatabase.Companion.getInstance
+import com.battlelancer.seriesguide.settings.DisplaySettings
+import com.battlelancer.seriesguide.util.PosterPathCache
 import com.uwetrottmann.androidutils.GenericSimpleLoader
 import com.uwetrottmann.tmdb2.entities.Movie
 import com.uwetrottmann.trakt5.entities.Ratings
@@ -29,6 +31,14 @@ internal class MovieLoader(
             .movieHelper()
             .getMovie(tmdbId)
         if (dbMovieOrNull == null) {
+            // save poster path lookup for SgPicassoRequestHandler, e.g. for search results
+            details.tmdbMovie()?.let {
+                PosterPathCache.get(context).put(
+                    PosterPathCache.movieKey(tmdbId, DisplaySettings.getMoviesLanguage(context)),
+                    it.poster_path
+                )
+            }
+
             // ensure list flags and watched flag are false on failure
             // (assumption: movie not in db, it has the truth, so can't be in any lists or watched)
             details.isInCollection = false
@@ -1,5 +1,6 @@
 package com.battlelancer.seriesguide.ui.movies;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
@@ -20,7 +21,6 @@ import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.traktapi.TraktSettings;
 import com.battlelancer.seriesguide.util.Errors;
 import com.battlelancer.seriesguide.util.LanguageTools;
-import com.uwetrottmann.androidutils.AndroidUtils;
 import com.uwetrottmann.tmdb2.entities.AppendToResponse;
 import com.uwetrottmann.tmdb2.entities.Movie;
 import com.uwetrottmann.tmdb2.enumerations.AppendToResponseItem;
@@ -33,10 +33,9 @@ import com.uwetrottmann.trakt5.services.Movies;
 import com.uwetrottmann.trakt5.services.Search;
 import dagger.Lazy;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +45,9 @@ import timber.log.Timber;
 
 public class MovieTools {
 
+    /** Number of new movies to insert at once, small enough that the UI updates early. */
+    private static final int INSERT_BATCH_SIZE = 25;
+
     public static class MovieChangedEvent {
         public int movieTmdbId;
 
@@ -299,17 +301,43 @@ public class MovieTools {
      * Updates existing movie. If movie does not exist in database, will do nothing.
      */
     public void updateMovie(MovieDetails details, int tmdbId) {
-        ContentValues values = details.toContentValuesUpdate();
-        if (values.size() == 0) {
+        ContentValues values = buildMovieUpdateValues(details);
+        if (values == null) {
             return; // nothing to update, downloading probably failed :(
         }
 
-        values.put(SeriesGuideContract.Movies.LAST_UPDATED, System.currentTimeMillis());
-
         context.getContentResolver().update(SeriesGuideContract.Movies.buildMovieUri(tmdbId),
                 values, null, null);
     }
 
+    /**
+     * Like {@link #updateMovie(MovieDetails, int)}, but returns an op to update the movie so
+     * multiple movies can be updated in one batch.
+     *
+     * @return null if there is nothing to update.
+     */
+    @Nullable
+    public static ContentProviderOperation buildMovieUpdateOp(MovieDetails details, int tmdbId) {
+        ContentValues values = buildMovieUpdateValues(details);
+        if (values == null) {
+            return null;
+        }
+        return ContentProviderOperation
+                .newUpdate(SeriesGuideContract.Movies.buildMovieUri(tmdbId))
+                .withValues(values)
+                .build();
+    }
+
+    @Nullable
+    private static ContentValues buildMovieUpdateValues(MovieDetails details) {
+        ContentValues values = details.toContentValuesUpdate();
+        if (values.size() == 0) {
+            return null;
+        }
+        values.put(SeriesGuideContract.Movies.LAST_UPDATED, System.currentTimeMillis());
+        return values;
+    }
+
     /**
      * Returns {@code true} if the movie was deleted.
      */
@@ -377,49 +405,49 @@ public class MovieTools {
 
         String languageCode = DisplaySettings.getMoviesLanguage(context);
         String regionCode = DisplaySettings.getMoviesRegion(context);
-        List<MovieDetails> movies = new LinkedList<>();
-
-        // loop through ids
-        for (Iterator<Integer> iterator = newMovies.iterator(); iterator.hasNext(); ) {
-            int tmdbId = iterator.next();
-            if (!AndroidUtils.isNetworkConnected(context)) {
-                Timber.e("addMovies: no network connection");
-                return false;
-            }
+        List<MovieDetails> movies = new ArrayList<>(INSERT_BATCH_SIZE);
 
-            // download movie data
-            MovieDetails movieDetails = getMovieDetails(languageCode, regionCode, tmdbId, false);
-            if (movieDetails.tmdbMovie() == null) {
-                // skip if minimal values failed to load
-                Timber.d("addMovies: downloaded movie %s incomplete, skipping", tmdbId);
-                continue;
-            }
-
-            // set flags
-            movieDetails.setInCollection(newCollectionMovies.contains(tmdbId));
-            movieDetails.setInWatchlist(newWatchlistMovies.contains(tmdbId));
-            Integer plays = newWatchedMoviesToPlays.get(tmdbId);
-            boolean isWatched = plays != null;
-            movieDetails.setWatched(isWatched);
-            movieDetails.setPlays(isWatched ? plays : 0);
-
-            movies.add(movieDetails);
-
-            // Already add to the database if we have 10 movies so UI can already update.
-            if (movies.size() == 10) {
-                context.getContentResolver().bulkInsert(SeriesGuideContract.Movies.CONTENT_URI,
-                        buildMoviesContentValues(movies));
-                movies.clear(); // Start a new batch.
-            }
+        int[] newMovieIds = new int[newMovies.size()];
+        int index = 0;
+        for (int tmdbId : newMovies) {
+            newMovieIds[index++] = tmdbId;
         }
 
+        // download in parallel, write to the database on this thread
+        boolean isComplete = new MovieDownloader(context, this).download(
+                languageCode, regionCode, newMovieIds, (tmdbId, movieDetails) -> {
+                    if (movieDetails.tmdbMovie() == null) {
+                        // skip if minimal values failed to load
+                        Timber.d("addMovies: downloaded movie %s incomplete, skipping", tmdbId);
+                        return;
+                    }
+
+                    // set flags
+                    movieDetails.setInCollection(newCollectionMovies.contains(tmdbId));
+                    movieDetails.setInWatchlist(newWatchlistMovies.contains(tmdbId));
+                    Integer plays = newWatchedMoviesToPlays.get(tmdbId);
+                    boolean isWatched = plays != null;
+                    movieDetails.setWatched(isWatched);
+                    movieDetails.setPlays(isWatched ? plays : 0);
+
+                    movies.add(movieDetails);
+
+                    // Already add to the database in batches so UI can already update.
+                    if (movies.size() == INSERT_BATCH_SIZE) {
+                        context.getContentResolver().bulkInsert(
+                                SeriesGuideContract.Movies.CONTENT_URI,
+                                buildMoviesContentValues(movies));
+                        movies.clear(); // Start a new batch.
+                    }
+                });
+
         // Insert remaining new movies into the database.
         if (!movies.isEmpty()) {
             context.getContentResolver().bulkInsert(SeriesGuideContract.Movies.CONTENT_URI,
                     buildMoviesContentValues(movies));
         }
 
-        return true;
+        return isComplete;
     }
 
     /**
@@ -509,8 +537,7 @@ public class MovieTools {
     }
 
     @Nullable
-    public Movie getMovieSummary(int movieTmdbId) {
-        String languageCode = DisplaySettings.getMoviesLanguage(context);
+    public Movie getMovieSummary(int movieTmdbId, @Nullable String languageCode) {
         return getMovieSummary("get local movie summary", languageCode, movieTmdbId, false);
     }
 
@@ -33,21 +33,8 @@ object UnwatchedUpdateWorker {
                 // update one season
                 DBUtils.updateUnwatchedCount(context, seasonTvdbId)
             } else {
-                // update all seasons of this show, start with the most recent one
-                val seasons = context.contentResolver.query(
-                    SeriesGuideContract.Seasons.buildSeasonsOfShowUri(showTvdbId),
-                    arrayOf(SeriesGuideContract.Seasons._ID),
-                    null,
-                    null,
-                    SeriesGuideContract.Seasons.COMBINED + " DESC"
-                ) ?: return@withContext
-                while (seasons.moveToNext()) {
-                    val seasonId = seasons.getInt(0)
-                    DBUtils.updateUnwatchedCount(context, seasonId)
-
-                    notifyContentProvider(context, showTvdbId)
-                }
-                seasons.close()
+                // update all seasons of this show with a single query
+                DBUtils.updateUnwatchedCountsOfShow(context, showTvdbId)
             }
 
             notifyContentProvider(context, showTvdbId)
@@ -14,20 +14,25 @@ import com.battlelancer.seriesguide.sync.HexagonEpisodeSync;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbException;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbTools;
 import com.battlelancer.seriesguide.traktapi.SgTrakt;
+import com.battlelancer.seriesguide.traktapi.SgTraktSync;
 import com.battlelancer.seriesguide.traktapi.TraktCredentials;
+import com.battlelancer.seriesguide.traktapi.TraktEpisodeFlags;
 import com.battlelancer.seriesguide.traktapi.TraktSettings;
-import com.battlelancer.seriesguide.traktapi.TraktTools;
 import com.battlelancer.seriesguide.util.DBUtils;
 import com.battlelancer.seriesguide.util.Errors;
 import com.battlelancer.seriesguide.util.TaskManager;
 import com.uwetrottmann.androidutils.AndroidUtils;
-import com.uwetrottmann.trakt5.entities.BaseShow;
-import com.uwetrottmann.trakt5.services.Sync;
 import dagger.Lazy;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.inject.Inject;
+import okhttp3.ResponseBody;
 import org.greenrobot.eventbus.EventBus;
 import retrofit2.Response;
 import timber.log.Timber;
@@ -35,6 +40,9 @@ import timber.log.Timber;
 /**
  * Adds shows to the local database, tries to get watched and collected episodes if a trakt account
  * is connected.
+ *
+ * <p>Shows are downloaded by a pool of workers, the database is updated one show at a time on the
+ * task thread as downloads complete.
  */
 public class AddShowTask extends AsyncTask<Void, String, Void> {
 
@@ -97,12 +105,23 @@ public class AddShowTask extends AsyncTask<Void, String, Void> {
     private static final int RESULT_TRAKT_API_ERROR = 9;
     private static final int RESULT_TRAKT_AUTH_ERROR = 10;
 
+    /**
+     * Number of shows downloaded in parallel. Database writes are always done one show at a time
+     * on the task thread.
+     */
+    private static final int WORKER_COUNT = 4;
+    /**
+     * Allow some downloaded shows to queue up while the database writer is busy, but not too
+     * many as each holds all of its episodes in memory.
+     */
+    private static final int MAX_PENDING = WORKER_COUNT * 2;
+
     @SuppressLint("StaticFieldLeak") private final Context context;
     private final LinkedList<SearchResult> addQueue = new LinkedList<>();
 
     @Inject HexagonTools hexagonTools;
     @Inject TvdbTools tvdbTools;
-    @Inject Lazy<Sync> traktSync;
+    @Inject Lazy<SgTraktSync> traktSync;
     private boolean isFinishedAddingShows = false;
     private boolean isSilentMode;
     private boolean isMergingShows;
@@ -157,12 +176,12 @@ public class AddShowTask extends AsyncTask<Void, String, Void> {
         }
 
         // if not connected to Hexagon, get episodes from trakt
-        HashMap<Integer, BaseShow> traktCollection = null;
-        HashMap<Integer, BaseShow> traktWatched = null;
+        TraktEpisodeFlags traktCollection = null;
+        TraktEpisodeFlags traktWatched = null;
         if (!HexagonSettings.isEnabled(context) && TraktCredentials.get(context).hasCredentials()) {
             Timber.d("Getting watched and collected episodes from trakt.");
             // get collection
-            HashMap<Integer, BaseShow> traktShows = getTraktShows("get collection", true);
+            TraktEpisodeFlags traktShows = getTraktShows("get collection", true);
             if (traktShows == null) {
                 return null; // can not get collected state from trakt, give up.
             }
@@ -177,76 +196,124 @@ public class AddShowTask extends AsyncTask<Void, String, Void> {
 
         HexagonEpisodeSync hexagonEpisodeSync = new HexagonEpisodeSync(context, hexagonTools);
 
-        int result;
-        boolean addedAtLeastOneShow = false;
+        ExecutorService executor = Executors.newFixedThreadPool(WORKER_COUNT);
+        CompletionService<ShowDownload> downloads = new ExecutorCompletionService<>(executor);
+        List<Integer> addedShowTvdbIds = new ArrayList<>();
         boolean failedMergingShows = false;
-        while (!addQueue.isEmpty()) {
-            Timber.d("Starting to add next show...");
-            if (isCancelled()) {
-                Timber.d("Finished. Cancelled.");
-                // only cancelled on config change, so don't rebuild fts
-                // table yet
-                return null;
-            }
+        boolean isAborted = false;
+        try {
+            boolean isOffline = false;
+            int pending = 0;
+            while (pending > 0 || (!isOffline && !addQueue.isEmpty())) {
+                if (isCancelled()) {
+                    Timber.d("Finished. Cancelled.");
+                    isAborted = true;
+                    break;
+                }
 
-            SearchResult nextShow = addQueue.removeFirst();
-            // set values required for progress update
-            String currentShowName = nextShow.getTitle();
-            int currentShowTvdbId = nextShow.getTvdbid();
-
-            if (currentShowTvdbId <= 0) {
-                // Invalid TheTVDB ID, should never have been passed, report.
-                // Background: Hexagon gets requests with ID 0.
-                TvdbException invalidIdException = new TvdbException(
-                        "Show id invalid: " + currentShowTvdbId
-                                + ", silentMode=" + isSilentMode
-                                + ", merging=" + isMergingShows
-                );
-                Errors.logAndReport("Add show", invalidIdException);
-                continue;
-            }
+                // keep workers busy downloading shows
+                while (!isOffline && pending < MAX_PENDING && !addQueue.isEmpty()) {
+                    SearchResult nextShow = addQueue.removeFirst();
+                    int showTvdbId = nextShow.getTvdbid();
+
+                    if (showTvdbId <= 0) {
+                        // Invalid TheTVDB ID, should never have been passed, report.
+                        // Background: Hexagon gets requests with ID 0.
+                        TvdbException invalidIdException = new TvdbException(
+                                "Show id invalid: " + showTvdbId
+                                        + ", silentMode=" + isSilentMode
+                                        + ", merging=" + isMergingShows
+                        );
+                        Errors.logAndReport("Add show", invalidIdException);
+                        continue;
+                    }
 
-            if (!AndroidUtils.isNetworkConnected(context)) {
-                Timber.d("Finished. No connection.");
-                publishProgress(RESULT_OFFLINE, currentShowTvdbId, currentShowName);
-                failedMergingShows = true;
-                break;
-            }
+                    if (!AndroidUtils.isNetworkConnected(context)) {
+                        Timber.d("Finished. No connection.");
+                        publishProgress(RESULT_OFFLINE, showTvdbId, nextShow.getTitle());
+                        failedMergingShows = true;
+                        isOffline = true; // still add already downloaded shows
+                        break;
+                    }
 
-            try {
-                boolean addedShow = tvdbTools
-                        .addShow(nextShow.getTvdbid(), nextShow.getLanguage(), traktCollection,
-                                traktWatched, hexagonEpisodeSync);
-                result = addedShow ? PROGRESS_SUCCESS : PROGRESS_EXISTS;
-                addedAtLeastOneShow = addedShow
-                        || addedAtLeastOneShow; // do not overwrite previous success
-            } catch (TvdbException e) {
-                // prevent a hexagon merge from failing if a show can not be added
-                // because it does not exist (any longer)
-                if (!(isMergingShows && e.itemDoesNotExist())) {
-                    failedMergingShows = true;
+                    Timber.d("Starting to add next show...");
+                    downloads.submit(() -> downloadShow(nextShow, hexagonEpisodeSync));
+                    pending++;
+                }
+                if (pending == 0) {
+                    break;
                 }
-                if (e.service() == TvdbException.Service.TVDB) {
-                    if (e.itemDoesNotExist()) {
-                        result = PROGRESS_ERROR_TVDB_NOT_EXISTS;
+
+                ShowDownload download;
+                try {
+                    download = downloads.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Timber.d("Finished. Interrupted.");
+                    isAborted = true;
+                    break;
+                } catch (ExecutionException e) {
+                    // downloadShow catches TvdbException, so this is unexpected
+                    throw new RuntimeException(e.getCause());
+                }
+                pending--;
+
+                // write to database one show at a time
+                int showTvdbId = download.show.getTvdbid();
+                int result;
+                try {
+                    if (download.error != null) {
+                        throw download.error;
+                    }
+                    boolean addedShow = download.add != null && tvdbTools
+                            .applyShowAdd(download.add, traktCollection, traktWatched,
+                                    hexagonEpisodeSync);
+                    result = addedShow ? PROGRESS_SUCCESS : PROGRESS_EXISTS;
+                    if (addedShow) {
+                        addedShowTvdbIds.add(showTvdbId);
+                    }
+                } catch (TvdbException e) {
+                    // prevent a hexagon merge from failing if a show can not be added
+                    // because it does not exist (any longer)
+                    if (!(isMergingShows && e.itemDoesNotExist())) {
+                        failedMergingShows = true;
+                    }
+                    if (e.service() == TvdbException.Service.TVDB) {
+                        if (e.itemDoesNotExist()) {
+                            result = PROGRESS_ERROR_TVDB_NOT_EXISTS;
+                        } else {
+                            result = PROGRESS_ERROR_TVDB;
+                        }
+                    } else if (e.service() == TvdbException.Service.TRAKT) {
+                        result = PROGRESS_ERROR_TRAKT;
+                    } else if (e.service() == TvdbException.Service.HEXAGON) {
+                        result = PROGRESS_ERROR_HEXAGON;
+                    } else if (e.service() == TvdbException.Service.DATA) {
+                        result = PROGRESS_ERROR_DATA;
                     } else {
-                        result = PROGRESS_ERROR_TVDB;
+                        result = PROGRESS_ERROR;
                     }
-                } else if (e.service() == TvdbException.Service.TRAKT) {
-                    result = PROGRESS_ERROR_TRAKT;
-                } else if (e.service() == TvdbException.Service.HEXAGON) {
-                    result = PROGRESS_ERROR_HEXAGON;
-                } else if (e.service() == TvdbException.Service.DATA) {
-                    result = PROGRESS_ERROR_DATA;
-                } else {
-                    result = PROGRESS_ERROR;
+                    Timber.e(e, "Adding show failed");
                 }
-                Timber.e(e, "Adding show failed");
+
+                publishProgress(result, showTvdbId, download.show.getTitle());
+                Timber.d("Finished adding show. (Result code: %s)", result);
             }
+        } finally {
+            // abort downloads still running, e.g. if cancelled
+            executor.shutdownNow();
+        }
 
-            publishProgress(result, currentShowTvdbId, currentShowName);
-            Timber.d("Finished adding show. (Result code: %s)", result);
+        // calculate next episodes once for all added shows
+        if (addedShowTvdbIds.size() == 1) {
+            DBUtils.updateLatestEpisode(context, addedShowTvdbIds.get(0));
+        } else if (addedShowTvdbIds.size() > 1) {
+            DBUtils.updateLatestEpisode(context, null);
+        }
+        if (isAborted) {
+            return null;
         }
+        boolean addedAtLeastOneShow = !addedShowTvdbIds.isEmpty();
 
         isFinishedAddingShows = true;
 
@@ -261,10 +328,6 @@ public class AddShowTask extends AsyncTask<Void, String, Void> {
                     .putLong(TraktSettings.KEY_LAST_SHOWS_RATED_AT, 0)
                     .putLong(TraktSettings.KEY_LAST_EPISODES_RATED_AT, 0)
                     .apply();
-
-            // renew FTS3 table
-            Timber.d("Renewing search table.");
-            DBUtils.rebuildFtsTable(context);
         }
 
         Timber.d("Finished adding shows.");
@@ -344,6 +407,34 @@ public class AddShowTask extends AsyncTask<Void, String, Void> {
         TaskManager.getInstance().releaseAddTaskRef();
     }
 
+    /**
+     * Runs on a worker thread. Does not throw, instead returns any error as part of the result
+     * so it can be handled when writing to the database.
+     */
+    private ShowDownload downloadShow(SearchResult show, HexagonEpisodeSync hexagonEpisodeSync) {
+        try {
+            return new ShowDownload(show,
+                    tvdbTools.fetchShowAdd(show.getTvdbid(), show.getLanguage(),
+                            hexagonEpisodeSync), null);
+        } catch (TvdbException e) {
+            return new ShowDownload(show, null, e);
+        }
+    }
+
+    private static class ShowDownload {
+        final SearchResult show;
+        /** Is null if the show already exists. */
+        @Nullable final TvdbTools.ShowAdd add;
+        @Nullable final TvdbException error;
+
+        ShowDownload(SearchResult show, @Nullable TvdbTools.ShowAdd add,
+                @Nullable TvdbException error) {
+            this.show = show;
+            this.add = add;
+            this.error = error;
+        }
+    }
+
     private void publishProgress(int result) {
         publishProgress(String.valueOf(result), "0", "");
     }
@@ -353,17 +444,20 @@ public class AddShowTask extends AsyncTask<Void, String, Void> {
     }
 
     @Nullable
-    private HashMap<Integer, BaseShow> getTraktShows(String action,
-            boolean isCollectionNotWatched) {
+    private TraktEpisodeFlags getTraktShows(String action, boolean isCollectionNotWatched) {
         try {
-            Response<List<BaseShow>> response;
+            Response<ResponseBody> response;
             if (isCollectionNotWatched) {
-                response = traktSync.get().collectionShows(null).execute();
+                response = traktSync.get().collectionShows().execute();
             } else {
-                response = traktSync.get().watchedShows(null).execute();
+                response = traktSync.get().watchedShows().execute();
             }
             if (response.isSuccessful()) {
-                return TraktTools.buildTraktShowsMap(response.body());
+                try (ResponseBody body = response.body()) {
+                    if (body != null) {
+                        return TraktEpisodeFlags.parse(body.charStream());
+                    }
+                }
             } else {
                 if (SgTrakt.isUnauthorized(context, response)) {
                     publishProgress(RESULT_TRAKT_AUTH_ERROR);
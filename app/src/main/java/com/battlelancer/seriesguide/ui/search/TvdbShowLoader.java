@@ -7,6 +7,7 @@ import com.battlelancer.seriesguide.dataliberation.model.Show;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbException;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbTools;
 import com.battlelancer.seriesguide.util.DBUtils;
+import com.battlelancer.seriesguide.util.PosterPathCache;
 import com.uwetrottmann.androidutils.GenericSimpleLoader;
 import timber.log.Timber;
 
@@ -38,6 +39,11 @@ class TvdbShowLoader extends GenericSimpleLoader<TvdbShowLoader.Result> {
         try {
             TvdbTools tvdbTools = SgApp.getServicesComponent(getContext()).tvdbTools();
             result.show = tvdbTools.getShowDetails(showTvdbId, language);
+            if (!result.isAdded && result.show.poster_small != null) {
+                // save poster path lookup for SgPicassoRequestHandler, e.g. for search results
+                PosterPathCache.get(getContext()).put(
+                        PosterPathCache.showKey(showTvdbId, language), result.show.poster_small);
+            }
         } catch (TvdbException e) {
             Timber.e(e, "Downloading TVDb show failed");
             result.show = null;
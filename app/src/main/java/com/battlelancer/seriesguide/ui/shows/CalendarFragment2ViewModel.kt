@@ -1,7 +1,6 @@
 package com.battlelancer.seriesguide.ui.shows
 
 import android.app.Application
-import android.content.Context
 import android.text.format.DateUtils
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
@@ -38,13 +37,17 @@ class CalendarFragment2ViewModel(application: Application) : AndroidViewModel(ap
                 .getEpisodesWithShow(SimpleSQLiteQuery(queryString, null))
                 .mapByPage { episodes ->
                     val calendar = Calendar.getInstance()
+                    val offsetHours = DisplaySettings.getShowsTimeOffset(getApplication())
+                    // episodes are ordered by release time, many release at the same time
+                    var lastReleaseTime: Long? = null
+                    var lastHeaderTime = 0L
                     episodes.map { episode ->
-                        val headerTime = calculateHeaderTime(
-                            getApplication(),
-                            calendar,
-                            episode.episode_firstairedms
-                        )
-                        CalendarItem(headerTime, episode)
+                        val releaseTime = episode.episode_firstairedms
+                        if (releaseTime != lastReleaseTime) {
+                            lastReleaseTime = releaseTime
+                            lastHeaderTime = calculateHeaderTime(calendar, offsetHours, releaseTime)
+                        }
+                        CalendarItem(lastHeaderTime, episode)
                     }
                 }.toLiveData(config = calendarItemPagingConfig)
         }
@@ -120,16 +123,17 @@ class CalendarFragment2ViewModel(application: Application) : AndroidViewModel(ap
             // However, could not narrow down why that is an issue (it should not be?).
             queryLiveData.postValue(
                 "${EpisodeWithShow.select} " +
-                        "LEFT OUTER JOIN series ON episodes.series_id=series._id " +
+                        "CROSS JOIN series ON episodes.series_id=series._id " +
                         "WHERE $query " +
                         "ORDER BY $sortOrder "
             )
         }
 
-    private fun calculateHeaderTime(context: Context, calendar: Calendar, releaseTime: Long): Long {
-        val actualRelease = TimeTools.applyUserOffset(context, releaseTime)
-
-        calendar.time = actualRelease
+    private fun calculateHeaderTime(calendar: Calendar, offsetHours: Int, releaseTime: Long): Long {
+        calendar.timeInMillis = releaseTime
+        if (offsetHours != 0) {
+            calendar.add(Calendar.HOUR_OF_DAY, offsetHours)
+        }
         // not midnight because upcoming->recent is delayed 1 hour
         // so header would display wrong relative time close to midnight
         calendar.set(Calendar.HOUR_OF_DAY, 1)
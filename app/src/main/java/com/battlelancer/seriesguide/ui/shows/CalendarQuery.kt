@@ -21,6 +21,17 @@ interface CalendarQuery {
             Shows.POSTER_SMALL
         )
 
+        /**
+         * Like a LEFT JOIN of shows, but makes SQLite always loop over episodes first. So it walks
+         * the release time index in order and only sorts episodes releasing at the same time,
+         * instead of sorting all matching episodes before returning the first page.
+         * Drops episodes without show, which the hidden selection excludes anyway.
+         */
+        const val TABLES = "${SeriesGuideDatabase.Tables.EPISODES} CROSS JOIN " +
+                "${SeriesGuideDatabase.Tables.SHOWS} ON " +
+                "${SeriesGuideDatabase.Tables.EPISODES}.${Shows.REF_SHOW_ID}=" +
+                "${SeriesGuideDatabase.Tables.SHOWS}.${Shows._ID}"
+
         const val QUERY_UPCOMING = "${Episodes.FIRSTAIREDMS}>=? AND ${Episodes.FIRSTAIREDMS}<? " +
                 "AND ${Shows.SELECTION_NO_HIDDEN}"
 
@@ -0,0 +1,119 @@
+package com.battlelancer.seriesguide.ui.shows
+
+import android.content.Context
+import android.text.format.DateUtils
+import com.battlelancer.seriesguide.model.SgShow
+import com.battlelancer.seriesguide.ui.shows.ShowsAdapter.ShowItem
+import timber.log.Timber
+import kotlin.math.abs
+
+/**
+ * Keeps the last mapped [ShowItem] of each show, so when shows change only those with changed
+ * displayed columns are mapped again. If settings change all shows are mapped again.
+ *
+ * As mapped items contain relative times, they are only re-used for a minute if the next episode
+ * is released within a day, otherwise for an hour.
+ *
+ * Not thread-safe.
+ */
+class ShowItemCache {
+
+    /**
+     * The columns of [SgShow] that [ShowItem.map] uses.
+     */
+    private data class Source(
+        val tvdbId: Int,
+        val title: String,
+        val posterSmall: String?,
+        val favorite: Boolean,
+        val hidden: Boolean,
+        val releaseTime: Int?,
+        val releaseWeekDay: Int?,
+        val releaseTimeZone: String?,
+        val releaseCountry: String?,
+        val network: String?,
+        val status: String?,
+        val nextEpisode: String?,
+        val nextText: String?,
+        val nextAirdateMs: Long?,
+        val unwatchedCount: Int
+    ) {
+        companion object {
+            fun of(sgShow: SgShow): Source {
+                return Source(
+                    sgShow.tvdbId,
+                    sgShow.title,
+                    sgShow.posterSmall,
+                    sgShow.favorite,
+                    sgShow.hidden,
+                    sgShow.releaseTime,
+                    sgShow.releaseWeekDay,
+                    sgShow.releaseTimeZone,
+                    sgShow.releaseCountry,
+                    sgShow.network,
+                    sgShow.status,
+                    sgShow.nextEpisode,
+                    sgShow.nextText,
+                    sgShow.nextAirdateMs,
+                    sgShow.unwatchedCount
+                )
+            }
+        }
+    }
+
+    private class Entry(
+        val source: Source,
+        val item: ShowItem,
+        val mappedAtMs: Long
+    ) {
+        fun isValidAt(currentTimeMs: Long): Boolean {
+            val nextAirdateMs = source.nextAirdateMs
+            val maxAgeMs = if (!source.nextText.isNullOrEmpty()
+                && nextAirdateMs != null
+                && abs(nextAirdateMs - currentTimeMs) < DateUtils.DAY_IN_MILLIS) {
+                DateUtils.MINUTE_IN_MILLIS
+            } else {
+                DateUtils.HOUR_IN_MILLIS
+            }
+            return currentTimeMs - mappedAtMs in 0 until maxAgeMs
+        }
+    }
+
+    private var settings: ShowItem.MapSettings? = null
+    private var entries = HashMap<Int, Entry>()
+
+    /**
+     * Maps all shows, re-using items of shows that did not change since the last call.
+     */
+    fun map(sgShows: List<SgShow>, context: Context): List<ShowItem> {
+        val settings = ShowItem.MapSettings.load(context)
+        if (settings != this.settings) {
+            this.settings = settings
+            entries.clear()
+        }
+
+        val currentTimeMs = System.currentTimeMillis()
+        // only keep shows of this list, drops shows that were removed or filtered
+        val newEntries = HashMap<Int, Entry>(sgShows.size)
+        var mappedCount = 0
+        val items = sgShows.map { sgShow ->
+            val source = Source.of(sgShow)
+            val cached = entries[sgShow.tvdbId]
+            val entry = if (cached != null
+                && cached.source == source
+                && cached.isValidAt(currentTimeMs)) {
+                cached
+            } else {
+                mappedCount++
+                Entry(source, ShowItem.map(sgShow, context, settings), currentTimeMs)
+            }
+            newEntries[sgShow.tvdbId] = entry
+            entry.item
+        }
+        entries = newEntries
+
+        Timber.d("Mapped %d of %d shows", mappedCount, sgShows.size)
+        return items
+    }
+
+}
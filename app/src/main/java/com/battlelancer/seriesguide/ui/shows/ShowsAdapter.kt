@@ -12,6 +12,8 @@ import com.battlelancer.seriesguide.model.SgShow
 import com.battlelancer.seriesguide.settings.DisplaySettings
 import com.battlelancer.seriesguide.util.TextTools
 import com.battlelancer.seriesguide.util.TimeTools
+import java.util.Locale
+import java.util.TimeZone
 
 class ShowsAdapter(
     private val context: Context,
@@ -115,6 +117,10 @@ class ShowsAdapter(
             }
 
             fun map(sgShow: SgShow, context: Context): ShowItem {
+                return map(sgShow, context, MapSettings.load(context))
+            }
+
+            fun map(sgShow: SgShow, context: Context, settings: MapSettings): ShowItem {
                 val episodeTvdbId = sgShow.nextEpisode?.toIntOrNull() ?: 0
 
                 val remainingCount = if (sgShow.unwatchedCount > 0) {
@@ -134,12 +140,12 @@ class ShowsAdapter(
                 val network = sgShow.network
                 val releaseTimeShow = if (time != -1) {
                     TimeTools.getShowReleaseDateTime(
-                        context,
                         time,
                         weekDay,
                         timeZone,
                         country,
-                        network
+                        network,
+                        settings.userOffsetHours
                     )
                 } else {
                     null
@@ -158,9 +164,8 @@ class ShowsAdapter(
                     episode = fieldValue
 
                     val releaseTimeEpisode =
-                        TimeTools.applyUserOffset(context, sgShow.nextAirdateMs)
-                    val displayExactDate = DisplaySettings.isDisplayExactDate(context)
-                    val dateTime = if (displayExactDate) {
+                        TimeTools.applyUserOffset(sgShow.nextAirdateMs, settings.userOffsetHours)
+                    val dateTime = if (settings.isDisplayExactDate) {
                         TimeTools.formatToLocalDateShort(context, releaseTimeEpisode)
                     } else {
                         TimeTools.formatToLocalRelativeTime(context, releaseTimeEpisode)
@@ -200,5 +205,26 @@ class ShowsAdapter(
                 )
             }
         }
+
+        /**
+         * Settings and device configuration [map] depends on, read once for mapping many shows.
+         */
+        data class MapSettings(
+            val isDisplayExactDate: Boolean,
+            val userOffsetHours: Int,
+            val timeZoneId: String,
+            val locale: Locale
+        ) {
+            companion object {
+                fun load(context: Context): MapSettings {
+                    return MapSettings(
+                        DisplaySettings.isDisplayExactDate(context),
+                        DisplaySettings.getShowsTimeOffset(context),
+                        TimeZone.getDefault().id,
+                        Locale.getDefault()
+                    )
+                }
+            }
+        }
     }
 }
\ No newline at end of file
@@ -26,6 +26,8 @@ class ShowsViewModel(application: Application) : AndroidViewModel(application) {
     private val sgShowsLiveData: LiveData<List<SgShow>>
     val showItemsLiveData = MediatorLiveData<List<ShowsAdapter.ShowItem>>()
     private val showItemsLiveDataSemaphore = Semaphore(1)
+    /** Only accessed with [showItemsLiveDataSemaphore] permit. */
+    private val showItemCache = ShowItemCache()
 
     init {
         sgShowsLiveData = Transformations.switchMap(queryString) { queryString ->
@@ -39,8 +41,8 @@ class ShowsViewModel(application: Application) : AndroidViewModel(application) {
                 // Use Semaphore with 1 permit to ensure results are delivered in order and never
                 // processed in parallel.
                 showItemsLiveDataSemaphore.withPermit {
-                    val mapped = sgShows?.map {
-                        ShowsAdapter.ShowItem.map(it, getApplication())
+                    val mapped = sgShows?.let {
+                        showItemCache.map(it, getApplication())
                     }
                     showItemsLiveData.postValue(mapped)
                 }
@@ -1,26 +1,30 @@
 package com.battlelancer.seriesguide.ui.stats;
 
 import android.annotation.SuppressLint;
-import android.content.ContentResolver;
 import android.content.Context;
-import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
 import android.os.AsyncTask;
 import android.text.format.DateUtils;
-import android.util.SparseIntArray;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
-import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.model.SgEpisodeStats;
+import com.battlelancer.seriesguide.model.SgMovieStats;
+import com.battlelancer.seriesguide.model.SgShowStats;
+import com.battlelancer.seriesguide.provider.SgRoomDatabase;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
-import com.battlelancer.seriesguide.ui.shows.ShowTools;
-import com.battlelancer.seriesguide.util.DBUtils;
+import timber.log.Timber;
 
 class StatsLiveData extends LiveData<StatsLiveData.StatsUpdateEvent> {
 
+    /**
+     * Stats of the last successful calculation, shown right away while re-calculating.
+     */
+    @Nullable private static Stats lastStats;
+    private static boolean lastStatsIncludeSpecials;
+
     private final Context context;
-    private AsyncTask<Void, StatsUpdateEvent, StatsUpdateEvent> task;
+    private AsyncTask<Boolean, Void, StatsUpdateEvent> task;
 
     StatsLiveData(Context context) {
         this.context = context;
@@ -28,84 +32,81 @@ class StatsLiveData extends LiveData<StatsLiveData.StatsUpdateEvent> {
 
     void loadStats() {
         if (task == null || task.getStatus() == AsyncTask.Status.FINISHED) {
-            task = new StatsTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            boolean includeSpecials = !DisplaySettings.isHidingSpecials(context);
+            Stats cachedStats = lastStats;
+            if (cachedStats != null && lastStatsIncludeSpecials == includeSpecials) {
+                setValue(new StatsUpdateEvent(cachedStats, false, true));
+            }
+            task = new StatsTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR,
+                    includeSpecials);
         }
     }
 
+    /**
+     * Calculates all stats with one aggregate query each for movies, shows and episodes.
+     */
     @SuppressLint("StaticFieldLeak")
-    private class StatsTask extends AsyncTask<Void, StatsUpdateEvent, StatsUpdateEvent> {
+    private class StatsTask extends AsyncTask<Boolean, Void, StatsUpdateEvent> {
 
-        private static final long PREVIEW_UPDATE_INTERVAL_MS = DateUtils.SECOND_IN_MILLIS;
+        private boolean includeSpecials;
 
-        @Nullable
         @Override
-        protected StatsUpdateEvent doInBackground(Void... params) {
+        protected StatsUpdateEvent doInBackground(Boolean... params) {
+            includeSpecials = params[0];
             Stats stats = new Stats();
-            ContentResolver resolver = context.getContentResolver();
+            SgRoomDatabase database = SgRoomDatabase.getInstance(context);
 
             // movies
-            if (!processMovies(resolver, stats)) {
-                return buildFailure(stats); // failed to process movies
+            SgMovieStats movieStats;
+            try {
+                movieStats = database.movieHelper().getStats();
+            } catch (SQLiteException e) {
+                Timber.e(e, "Failed to get movie stats");
+                return buildFailure(stats);
             }
+            stats.movies = movieStats.getCount();
+            stats.moviesWatchlist = movieStats.getInWatchlist();
+            stats.moviesWatchlistRuntime = movieStats.getInWatchlistRuntimeMin()
+                    * DateUtils.MINUTE_IN_MILLIS;
+            stats.moviesWatched = movieStats.getWatched();
+            stats.moviesWatchedRuntime = movieStats.getWatchedRuntimeMin()
+                    * DateUtils.MINUTE_IN_MILLIS;
+            stats.moviesCollection = movieStats.getInCollection();
+            stats.moviesCollectionRuntime = movieStats.getInCollectionRuntimeMin()
+                    * DateUtils.MINUTE_IN_MILLIS;
 
             if (isCancelled()) {
                 return buildFailure(stats);
             }
 
             // shows
-            SparseIntArray showRuntimes = processShows(resolver, stats);
-            if (showRuntimes == null) {
-                return buildFailure(stats); // failed to process shows
-            }
-
-            if (isCancelled()) {
+            SgShowStats showStats;
+            try {
+                showStats = database.showHelper().getStats();
+            } catch (SQLiteException e) {
+                Timber.e(e, "Failed to get show stats");
                 return buildFailure(stats);
             }
-
-            // episodes
-            boolean includeSpecials = !DisplaySettings.isHidingSpecials(context);
-            if (!processEpisodes(resolver, stats, includeSpecials)) {
-                return buildFailure(stats); // failed to process episodes
-            }
+            stats.shows = showStats.getCount();
+            stats.showsContinuing = showStats.getContinuing();
+            stats.showsWithNextEpisodes = showStats.getWithNextEpisode();
 
             if (isCancelled()) {
                 return buildFailure(stats);
             }
 
-            // report intermediate results before longest op
-            publishProgress(buildUpdate(stats));
-
-            // calculate runtime of watched episodes per show
-            long totalRuntimeMin = 0;
-            long previewTime = System.currentTimeMillis() + PREVIEW_UPDATE_INTERVAL_MS;
-            for (int i = 0, size = showRuntimes.size(); i < size; i++) {
-                int showTvdbId = showRuntimes.keyAt(i);
-                long runtimeOfShowMin = showRuntimes.valueAt(i);
-
-                int watchedEpisodesOfShowCount = DBUtils.getCountOf(resolver,
-                        Episodes.buildEpisodesOfShowUri(showTvdbId),
-                        Episodes.SELECTION_WATCHED
-                                + (includeSpecials ? "" : " AND " + Episodes.SELECTION_NO_SPECIALS),
-                        null, -1);
-                if (watchedEpisodesOfShowCount == -1) {
-                    // episode query failed, return what we have so far
-                    stats.episodesWatchedRuntime = totalRuntimeMin * DateUtils.MINUTE_IN_MILLIS;
-                    return buildFailure(stats);
-                }
-                // make sure we calculate with long here (first arg is long) to avoid overflows
-                long runtimeOfEpisodesMin = runtimeOfShowMin * watchedEpisodesOfShowCount;
-
-                totalRuntimeMin += runtimeOfEpisodesMin;
-
-                // post regular update of minimum
-                long currentTime = System.currentTimeMillis();
-                if (currentTime > previewTime) {
-                    previewTime = currentTime + PREVIEW_UPDATE_INTERVAL_MS;
-                    stats.episodesWatchedRuntime = totalRuntimeMin * DateUtils.MINUTE_IN_MILLIS;
-                    publishProgress(buildUpdate(stats));
-                }
+            // episodes, including runtime of watched episodes
+            SgEpisodeStats episodeStats;
+            try {
+                episodeStats = database.episodeHelper().getStats(includeSpecials);
+            } catch (SQLiteException e) {
+                Timber.e(e, "Failed to get episode stats");
+                return buildFailure(stats);
             }
-            stats.episodesWatchedRuntime = totalRuntimeMin * DateUtils.MINUTE_IN_MILLIS;
+            stats.episodes = episodeStats.getCount();
+            stats.episodesWatched = episodeStats.getWatched();
+            stats.episodesWatchedRuntime = episodeStats.getWatchedRuntimeMin()
+                    * DateUtils.MINUTE_IN_MILLIS;
 
             // return final values
             return new StatsUpdateEvent(stats, true, true);
@@ -115,127 +116,13 @@ class StatsLiveData extends LiveData<StatsLiveData.StatsUpdateEvent> {
             return new StatsUpdateEvent(stats, false, false);
         }
 
-        private StatsUpdateEvent buildUpdate(Stats stats) {
-            return new StatsUpdateEvent(stats, false, true);
-        }
-
-        @Override
-        protected void onProgressUpdate(StatsUpdateEvent... values) {
-            setValue(values[0]);
-        }
-
         @Override
         protected void onPostExecute(StatsUpdateEvent event) {
-            setValue(event);
-        }
-
-        private boolean processMovies(ContentResolver resolver, Stats stats) {
-            // movies (count, in watchlist, runtime of watchlist)
-            final Cursor movies = resolver.query(SeriesGuideContract.Movies.CONTENT_URI,
-                    new String[]{SeriesGuideContract.Movies._ID,
-                            SeriesGuideContract.Movies.IN_WATCHLIST, // 1
-                            SeriesGuideContract.Movies.WATCHED, // 2
-                            SeriesGuideContract.Movies.RUNTIME_MIN, // 3
-                            SeriesGuideContract.Movies.IN_COLLECTION // 4
-                    }, null, null, null
-            );
-            if (movies == null) {
-                return false;
-            }
-            stats.movies = movies.getCount();
-
-            int inWatchlist = 0;
-            long watchlistRuntime = 0;
-            int watched = 0;
-            long watchedRuntime = 0;
-            int inCollection = 0;
-            long collectionRuntime = 0;
-            while (movies.moveToNext()) {
-                long runtime = movies.getInt(3 /* RUNTIME_MIN */) * DateUtils.MINUTE_IN_MILLIS;
-                if (movies.getInt(1 /* IN_WATCHLIST */) == 1) {
-                    inWatchlist++;
-                    watchlistRuntime += runtime;
-                }
-                if (movies.getInt(2 /* WATCHED */) == 1) {
-                    watched++;
-                    watchedRuntime += runtime;
-                }
-                if (movies.getInt(4 /* IN_COLLECTION */) == 1) {
-                    inCollection++;
-                    collectionRuntime += runtime;
-                }
+            if (event.successful) {
+                lastStats = event.stats;
+                lastStatsIncludeSpecials = includeSpecials;
             }
-            movies.close();
-
-            stats.moviesWatchlist = inWatchlist;
-            stats.moviesWatchlistRuntime = watchlistRuntime;
-            stats.moviesWatched = watched;
-            stats.moviesWatchedRuntime = watchedRuntime;
-            stats.moviesCollection = inCollection;
-            stats.moviesCollectionRuntime = collectionRuntime;
-            return true;
-        }
-
-        @Nullable
-        private SparseIntArray processShows(ContentResolver resolver, Stats stats) {
-            Cursor shows = resolver.query(Shows.CONTENT_URI,
-                    new String[]{
-                            Shows._ID, // 0
-                            Shows.STATUS,
-                            Shows.NEXTEPISODE,
-                            Shows.RUNTIME // 3
-                    }, null, null, null
-            );
-            if (shows == null) {
-                return null;
-            }
-
-            int continuing = 0;
-            int withnext = 0;
-            // count all shows
-            int showsCount = shows.getCount();
-            SparseIntArray showRuntimes = new SparseIntArray(showsCount);
-            while (shows.moveToNext()) {
-                // count continuing shows
-                if (shows.getInt(1) == ShowTools.Status.CONTINUING) {
-                    continuing++;
-                }
-                // count shows with next episodes
-                if (shows.getInt(2) != ShowTools.Status.ENDED) {
-                    withnext++;
-                }
-                // map show to its runtime
-                showRuntimes.put(shows.getInt(0), shows.getInt(3));
-            }
-            shows.close();
-
-            stats.shows = showsCount;
-            stats.showsContinuing = continuing;
-            stats.showsWithNextEpisodes = withnext;
-            return showRuntimes;
-        }
-
-        private boolean processEpisodes(ContentResolver resolver, Stats stats,
-                boolean includeSpecials) {
-            // all episodes
-            int allEpisodesCount = DBUtils.getCountOf(resolver, Episodes.CONTENT_URI,
-                    includeSpecials ? null : Episodes.SELECTION_NO_SPECIALS, null, -1);
-            if (allEpisodesCount == -1) {
-                return false;
-            }
-            stats.episodes = allEpisodesCount;
-
-            // watched episodes
-            int watchedEpisodesCount = DBUtils.getCountOf(resolver, Episodes.CONTENT_URI,
-                    Episodes.SELECTION_WATCHED
-                            + (includeSpecials ? "" : " AND " + Episodes.SELECTION_NO_SPECIALS),
-                    null, -1);
-            if (watchedEpisodesCount == -1) {
-                return false;
-            }
-            stats.episodesWatched = watchedEpisodesCount;
-
-            return true;
+            setValue(event);
         }
     }
 
@@ -2,20 +2,24 @@ package com.battlelancer.seriesguide.util
 
 import android.content.Context
 import android.database.Cursor
+import android.database.sqlite.SQLiteException
+import android.database.sqlite.SQLiteQueryBuilder
 import android.text.format.DateUtils
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows
+import com.battlelancer.seriesguide.provider.SgRoomDatabase
 import com.battlelancer.seriesguide.settings.DisplaySettings
 import com.battlelancer.seriesguide.ui.shows.CalendarFragment2.CalendarType
 import com.battlelancer.seriesguide.ui.shows.CalendarQuery
+import timber.log.Timber
 
 object CalendarUtils {
 
     private const val ACTIVITY_DAY_LIMIT = 30
 
     /**
-     * Returns an array of size 3. The built query is stored in `[0][0]`, the built selection
-     * args in `[1]` and the sort order in `[2][0]`.
+     * Queries episodes for the calendar. The cursor is notified of changes to
+     * [Episodes.CONTENT_URI_WITHSHOW].
      *
      * @param type A [CalendarType], defaults to UPCOMING.
      * @param isInfinite If false, limits the release time range of returned episodes to
@@ -89,17 +93,22 @@ object CalendarUtils {
             query.append(" AND ").append(Episodes.SELECTION_ONLY_PREMIERES)
         }
 
-        // build result array
-        val args = arrayOf(
-            arrayOf(query.toString()),
-            selectionArgs,
-            arrayOf(sortOrder)
-        )
-
-        return context.contentResolver.query(
-            Episodes.CONTENT_URI_WITHSHOW,
-            CalendarQuery.PROJECTION, args[0][0], args[1], args[2][0]
+        // Query database directly to join tables in index friendly order, see CalendarQuery.TABLES.
+        val sql = SQLiteQueryBuilder.buildQueryString(
+            false, CalendarQuery.TABLES, CalendarQuery.PROJECTION,
+            query.toString(), null, null, sortOrder, null
         )
+        return try {
+            SgRoomDatabase.getInstance(context).openHelper.readableDatabase
+                .query(sql, selectionArgs)
+                .apply {
+                    // like the provider does, so observers learn about changed episodes
+                    setNotificationUri(context.contentResolver, Episodes.CONTENT_URI_WITHSHOW)
+                }
+        } catch (e: SQLiteException) {
+            Timber.e(e, "Failed to query calendar")
+            null
+        }
     }
 
 }
\ No newline at end of file
@@ -18,14 +18,19 @@ import android.text.TextUtils;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
 import com.battlelancer.seriesguide.R;
 import com.battlelancer.seriesguide.SgApp;
 import com.battlelancer.seriesguide.dataliberation.model.Show;
 import com.battlelancer.seriesguide.enums.SeasonTags;
+import com.battlelancer.seriesguide.model.SgSeasonCounts;
+import com.battlelancer.seriesguide.model.SgShowNextEpisode;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons;
 import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows;
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables;
+import com.battlelancer.seriesguide.provider.SgRoomDatabase;
 import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.ui.episodes.EpisodeFlags;
 import com.battlelancer.seriesguide.ui.episodes.EpisodeTools;
@@ -52,7 +57,11 @@ public class DBUtils {
     public static final int UNKNOWN_UNWATCHED_COUNT = -1;
     public static final int UNKNOWN_COLLECTED_COUNT = -1;
 
-    private static final int SMALL_BATCH_SIZE = 50;
+    /**
+     * Each batch is applied in a single database transaction, so limit how long it can block
+     * other database access.
+     */
+    private static final int SMALL_BATCH_MAX_OPS = 500;
 
     private static final String[] PROJECTION_COUNT = new String[]{
             BaseColumns._COUNT
@@ -136,51 +145,74 @@ public class DBUtils {
      * ones in the seasons watch counters.
      */
     public static void updateUnwatchedCount(Context context, int seasonTvdbId) {
-        final ContentResolver resolver = context.getContentResolver();
-        final Uri uri = Episodes.buildEpisodesOfSeasonUri(seasonTvdbId);
-
-        // all a seasons episodes
-        final int totalCount = getCountOf(resolver, uri, null, null, -1);
-        if (totalCount == -1) {
+        long currentTime = TimeTools.getCurrentTime(context);
+        List<SgSeasonCounts> counts;
+        try {
+            counts = SgRoomDatabase.getInstance(context).seasonHelper()
+                    .getCountsOfSeason(seasonTvdbId, currentTime);
+        } catch (SQLiteException e) {
+            Timber.e(e, "updateUnwatchedCount: query failed.");
             return;
         }
+        applySeasonCounts(context, counts);
+    }
 
-        // unwatched, aired episodes
-        String[] customCurrentTimeArgs = {String.valueOf(TimeTools.getCurrentTime(context))};
-        final int count = getCountOf(resolver, uri, UnwatchedQuery.AIRED_SELECTION,
-                customCurrentTimeArgs, -1);
-        if (count == -1) {
+    /**
+     * Like {@link #updateUnwatchedCount(Context, int)}, but counts the episodes of all seasons of
+     * the given show with a single query and updates them in one transaction.
+     */
+    public static void updateUnwatchedCountsOfShow(Context context, int showTvdbId) {
+        long currentTime = TimeTools.getCurrentTime(context);
+        List<SgSeasonCounts> counts;
+        try {
+            counts = SgRoomDatabase.getInstance(context).seasonHelper()
+                    .getCountsOfShow(String.valueOf(showTvdbId), currentTime);
+        } catch (SQLiteException e) {
+            Timber.e(e, "updateUnwatchedCountsOfShow: query failed.");
             return;
         }
+        applySeasonCounts(context, counts);
+    }
 
-        // unwatched, aired in the future episodes
-        final int unairedCount = getCountOf(resolver, uri, UnwatchedQuery.FUTURE_SELECTION,
-                customCurrentTimeArgs, -1);
-        if (unairedCount == -1) {
+    /**
+     * Like {@link #updateUnwatchedCount(Context, int)}, but counts the episodes of all seasons in
+     * the database with a single query and updates them in one transaction.
+     */
+    public static void updateUnwatchedCountsOfAllShows(Context context) {
+        long currentTime = TimeTools.getCurrentTime(context);
+        List<SgSeasonCounts> counts;
+        try {
+            counts = SgRoomDatabase.getInstance(context).seasonHelper()
+                    .getCountsOfAllSeasons(currentTime);
+        } catch (SQLiteException e) {
+            Timber.e(e, "updateUnwatchedCountsOfAllShows: query failed.");
             return;
         }
+        applySeasonCounts(context, counts);
+    }
 
-        // unwatched, no airdate
-        final int noAirDateCount = getCountOf(resolver, uri,
-                UnwatchedQuery.NOAIRDATE_SELECTION, null, -1);
-        if (noAirDateCount == -1) {
+    private static void applySeasonCounts(Context context, List<SgSeasonCounts> counts) {
+        if (counts.isEmpty()) {
             return;
         }
-
-        // any skipped episodes
-        int skippedCount = getCountOf(resolver, uri, UnwatchedQuery.SKIPPED_SELECTION, null,
-                -1);
-        if (skippedCount == -1) {
-            return;
+        final ArrayList<ContentProviderOperation> batch = new ArrayList<>(counts.size());
+        for (SgSeasonCounts season : counts) {
+            batch.add(ContentProviderOperation
+                    .newUpdate(Seasons.buildSeasonUri(season.getTvdbId()))
+                    .withValue(Seasons.WATCHCOUNT, season.getWatchCount())
+                    .withValue(Seasons.UNAIREDCOUNT, season.getNotReleasedCount())
+                    .withValue(Seasons.NOAIRDATECOUNT, season.getNoReleaseDateCount())
+                    .withValue(Seasons.TAGS, season.getSkippedCount() > 0
+                            ? SeasonTags.SKIPPED : SeasonTags.NONE)
+                    .withValue(Seasons.TOTALCOUNT, season.getTotalCount())
+                    .build());
+        }
+        // only updates a few columns per season, so apply in a single transaction
+        try {
+            applyBatch(context, batch);
+        } catch (OperationApplicationException e) {
+            Timber.e(e, "Failed to update season counts");
         }
-
-        final ContentValues update = new ContentValues();
-        update.put(Seasons.WATCHCOUNT, count);
-        update.put(Seasons.UNAIREDCOUNT, unairedCount);
-        update.put(Seasons.NOAIRDATECOUNT, noAirDateCount);
-        update.put(Seasons.TAGS, skippedCount > 0 ? SeasonTags.SKIPPED : SeasonTags.NONE);
-        update.put(Seasons.TOTALCOUNT, totalCount);
-        resolver.update(Seasons.buildSeasonUri(seasonTvdbId), update, null, null);
     }
 
     /**
@@ -463,13 +495,125 @@ public class DBUtils {
         int TITLE = 4;
     }
 
+    /**
+     * Selects the next episode and unwatched count of all shows, see {@link
+     * #buildAllShowsNextEpisodeQuery(boolean, boolean, long)}. Column names match {@link
+     * SgShowNextEpisode}.
+     */
+    private interface AllShowsNextEpisodeQuery {
+        String SHOWS = "shows";
+        String NEXT = "next_episodes";
+        String NEXT_EPISODE = "next_episode";
+
+        String LAST_RELEASE = "last_release";
+        String LAST_SEASON = "last_season";
+        String LAST_NUMBER = "last_number";
+
+        String SHOW_ID = SHOWS + "." + Shows.REF_SHOW_ID;
+
+        /**
+         * Shows with release time, season and number of their last watched episode. Uses the same
+         * defaults as the per show query if there is none.
+         */
+        String SHOWS_WITH_LAST_EPISODE = "SELECT "
+                + Qualified.SHOWS_ID + " AS " + Shows.REF_SHOW_ID + ","
+                + "IFNULL(" + Tables.EPISODES + "." + Episodes.FIRSTAIREDMS + ",?) AS "
+                + LAST_RELEASE + ","
+                + "IFNULL(" + Tables.EPISODES + "." + Episodes.SEASON + ",-1) AS "
+                + LAST_SEASON + ","
+                + "IFNULL(" + Tables.EPISODES + "." + Episodes.NUMBER + ",-1) AS "
+                + LAST_NUMBER
+                + " FROM " + Tables.SHOWS_JOIN_EPISODES_ON_LAST_EPISODE;
+
+        /**
+         * Like {@link NextEpisodesQuery#SELECT_NEXT}, but relative to the last episode columns.
+         */
+        String SELECT_NEXT = Shows.REF_SHOW_ID + "=" + SHOW_ID
+                + " AND " + Episodes.WATCHED + "=0 AND ("
+                + "(" + Episodes.FIRSTAIREDMS + "=" + LAST_RELEASE + " AND "
+                + "(" + Episodes.NUMBER + "!=" + LAST_NUMBER
+                + " OR " + Episodes.SEASON + "!=" + LAST_SEASON + ")) "
+                + "OR " + Episodes.FIRSTAIREDMS + ">" + LAST_RELEASE + ")";
+
+        String SELECT_UNWATCHED = Shows.REF_SHOW_ID + "=" + SHOW_ID
+                + " AND " + UnwatchedQuery.AIRED_SELECTION_NO_SPECIALS;
+    }
+
+    /**
+     * Builds a query that selects the next episode and the unwatched count of all shows at once
+     * using correlated sub-queries. Must return the same results as the per show queries of
+     * {@link #updateLatestEpisode(Context, Integer)}.
+     */
+    private static SimpleSQLiteQuery buildAllShowsNextEpisodeQuery(boolean isHidingSpecials,
+            boolean isNoReleasedEpisodes, long currentTime) {
+        StringBuilder nextSelection = new StringBuilder(AllShowsNextEpisodeQuery.SELECT_NEXT);
+        if (isHidingSpecials) {
+            // do not take specials into account
+            nextSelection.append(" AND ").append(Episodes.SELECTION_NO_SPECIALS);
+        }
+        if (isNoReleasedEpisodes) {
+            // restrict to episodes with future release date
+            nextSelection.append(NextEpisodesQuery.SELECT_ONLYFUTURE);
+        } else {
+            // restrict to episodes with any valid air date
+            nextSelection.append(NextEpisodesQuery.SELECT_WITHAIRDATE);
+        }
+
+        String next = AllShowsNextEpisodeQuery.NEXT + ".";
+        String episode = Tables.EPISODES + ".";
+        String query = "SELECT "
+                + next + Shows.REF_SHOW_ID + " AS " + Shows.REF_SHOW_ID + ","
+                + next + AllShowsNextEpisodeQuery.NEXT_EPISODE + " AS " + Shows.NEXTEPISODE + ","
+                + episode + Episodes.SEASON + " AS " + Episodes.SEASON + ","
+                + episode + Episodes.NUMBER + " AS " + Episodes.NUMBER + ","
+                + episode + Episodes.FIRSTAIREDMS + " AS " + Episodes.FIRSTAIREDMS + ","
+                + episode + Episodes.TITLE + " AS " + Episodes.TITLE + ","
+                + next + Shows.UNWATCHED_COUNT + " AS " + Shows.UNWATCHED_COUNT
+                + " FROM ("
+                + "SELECT " + AllShowsNextEpisodeQuery.SHOW_ID + " AS " + Shows.REF_SHOW_ID + ","
+                // next episode
+                + "(SELECT " + Episodes._ID + " FROM " + Tables.EPISODES
+                + " WHERE " + nextSelection
+                + " ORDER BY " + NextEpisodesQuery.SORTORDER + " LIMIT 1) AS "
+                + AllShowsNextEpisodeQuery.NEXT_EPISODE + ","
+                // remaining episodes count
+                + "(SELECT COUNT(*) FROM " + Tables.EPISODES
+                + " WHERE " + AllShowsNextEpisodeQuery.SELECT_UNWATCHED
+                + ") AS " + Shows.UNWATCHED_COUNT
+                + " FROM (" + AllShowsNextEpisodeQuery.SHOWS_WITH_LAST_EPISODE + ") AS "
+                + AllShowsNextEpisodeQuery.SHOWS
+                + ") AS " + AllShowsNextEpisodeQuery.NEXT
+                + " LEFT OUTER JOIN " + Tables.EPISODES
+                + " ON " + next + AllShowsNextEpisodeQuery.NEXT_EPISODE + "="
+                + Qualified.EPISODES_ID;
+
+        // in order of appearance in query
+        List<Object> args = new ArrayList<>();
+        if (isNoReleasedEpisodes) {
+            // next episode
+            args.add(currentTime);
+        }
+        // unwatched count
+        args.add(currentTime);
+        // default release time if there is no last watched episode
+        args.add(Long.MIN_VALUE);
+
+        return new SimpleSQLiteQuery(query, args.toArray());
+    }
+
     /**
      * Update next episode field and unwatched episode count for the given show. If no show id is
-     * passed, will update next episodes for all shows.
+     * passed, will update next episodes for all shows using a single query, see {@link
+     * #updateLatestEpisodeOfAllShows(Context)}.
      *
      * @return If only one show was passed, the TVDb id of the new next episode. Otherwise -1.
      */
     public static long updateLatestEpisode(Context context, Integer showTvdbIdToUpdate) {
+        if (showTvdbIdToUpdate == null) {
+            updateLatestEpisodeOfAllShows(context);
+            return -1;
+        }
+
         // get a list of shows and their last watched episodes
         Cursor shows;
         try {
@@ -612,6 +756,63 @@ public class DBUtils {
         return nextEpisodeTvdbId;
     }
 
+    /**
+     * Like {@link #updateLatestEpisode(Context, Integer)}, but looks up next episodes and
+     * unwatched counts of all shows with a single query and applies all changes in one
+     * transaction.
+     */
+    private static void updateLatestEpisodeOfAllShows(Context context) {
+        SimpleSQLiteQuery query = buildAllShowsNextEpisodeQuery(
+                DisplaySettings.isHidingSpecials(context),
+                DisplaySettings.isNoReleasedEpisodes(context),
+                TimeTools.getCurrentTime(context));
+        List<SgShowNextEpisode> nextEpisodes;
+        try {
+            nextEpisodes = SgRoomDatabase.getInstance(context).showHelper()
+                    .getNextEpisodes(query);
+        } catch (SQLiteException e) {
+            Timber.e(e, "updateLatestEpisodeOfAllShows: query failed.");
+            postDatabaseError(e);
+            return;
+        }
+
+        final boolean preventSpoilers = DisplaySettings.preventSpoilers(context);
+        final ArrayList<ContentProviderOperation> batch = new ArrayList<>(nextEpisodes.size());
+        final ContentValues newShowValues = new ContentValues();
+        for (SgShowNextEpisode show : nextEpisodes) {
+            Integer nextEpisodeTvdbId = show.getNextEpisodeTvdbId();
+            Integer season = show.getSeason();
+            Integer number = show.getNumber();
+            Long releaseTime = show.getReleaseTimeMs();
+            if (nextEpisodeTvdbId != null && season != null && number != null
+                    && releaseTime != null) {
+                String nextEpisodeString = TextTools.getNextEpisodeString(context,
+                        season, number, preventSpoilers ? null : show.getTitle());
+                newShowValues.put(Shows.NEXTEPISODE, nextEpisodeTvdbId);
+                newShowValues.put(Shows.NEXTAIRDATEMS, releaseTime);
+                newShowValues.put(Shows.NEXTTEXT, nextEpisodeString);
+            } else {
+                // no next episode, set empty values
+                newShowValues.put(Shows.NEXTEPISODE, "");
+                newShowValues.put(Shows.NEXTAIRDATEMS, UNKNOWN_NEXT_RELEASE_DATE);
+                newShowValues.put(Shows.NEXTTEXT, "");
+            }
+            newShowValues.put(Shows.UNWATCHED_COUNT, show.getUnwatchedCount());
+
+            batch.add(ContentProviderOperation.newUpdate(Shows.buildShowUri(show.getShowTvdbId()))
+                    .withValues(newShowValues)
+                    .build());
+            newShowValues.clear();
+        }
+
+        // only updates a few columns per show, so apply in a single transaction
+        try {
+            applyBatch(context, batch);
+        } catch (OperationApplicationException e) {
+            Timber.e(e, "Failed to update next episode values");
+        }
+    }
+
     private static String buildNextEpisodeSelection(boolean isHidingSpecials,
             boolean isNoReleasedEpisodes) {
         StringBuilder nextEpisodeSelectionBuilder = new StringBuilder(
@@ -631,35 +832,32 @@ public class DBUtils {
     }
 
     /**
-     * Applies a large {@link ContentProviderOperation} batch in smaller batches as not to overload
-     * the transaction cache.
+     * Applies a large {@link ContentProviderOperation} batch in smaller batches of up to {@link
+     * #SMALL_BATCH_MAX_OPS} ops as not to block the database for too long.
+     *
+     * <p>The provider runs in this process, so ops are never parceled and there is no transaction
+     * size limit to measure against.
+     *
+     * <p>Ops must not use back references as they might end up in different batches.
      */
     public static void applyInSmallBatches(Context context,
             ArrayList<ContentProviderOperation> batch) throws OperationApplicationException {
-        // split into smaller batches to not overload transaction cache
-        // see http://developer.android.com/reference/android/os/TransactionTooLargeException.html
-
-        ArrayList<ContentProviderOperation> smallBatch = new ArrayList<>();
-
-        while (!batch.isEmpty()) {
-            if (batch.size() <= SMALL_BATCH_SIZE) {
-                // small enough already? apply right away
-                applyBatch(context, batch);
-                return;
-            }
-
-            // take up to 50 elements out of batch
-            for (int count = 0; count < SMALL_BATCH_SIZE; count++) {
-                if (batch.isEmpty()) {
-                    break;
-                }
-                smallBatch.add(batch.remove(0));
-            }
+        final int size = batch.size();
+        if (size == 0) {
+            return;
+        }
+        if (size <= SMALL_BATCH_MAX_OPS) {
+            // small enough already? apply right away
+            applyBatch(context, batch);
+            return;
+        }
 
-            // apply small batch
+        // copy windows of the batch into a re-used list
+        ArrayList<ContentProviderOperation> smallBatch = new ArrayList<>(SMALL_BATCH_MAX_OPS);
+        for (int start = 0; start < size; start += SMALL_BATCH_MAX_OPS) {
+            int end = Math.min(size, start + SMALL_BATCH_MAX_OPS);
+            smallBatch.addAll(batch.subList(start, end));
             applyBatch(context, smallBatch);
-
-            // prepare for next small batch
             smallBatch.clear();
         }
     }
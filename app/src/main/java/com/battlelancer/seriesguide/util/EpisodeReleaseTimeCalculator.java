@@ -0,0 +1,143 @@
+package com.battlelancer.seriesguide.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.battlelancer.seriesguide.Constants;
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.LocalTime;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.zone.ZoneOffsetTransition;
+import org.threeten.bp.zone.ZoneRules;
+import timber.log.Timber;
+
+/**
+ * Calculates episode release times of a single show like {@link
+ * TimeTools#parseEpisodeReleaseDate}, but determines show time zone rules, the hour past midnight
+ * correction and United States time zone corrections only once.
+ *
+ * <p>Use when calculating release times of many episodes of a show, e.g. when updating it.
+ */
+public class EpisodeReleaseTimeCalculator {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+
+    private final ZoneRules showZoneRules;
+    private final LocalTime showReleaseTime;
+    private final int releaseDayOffset;
+    /** Hours to add to the release time, see {@link TimeTools#applyUnitedStatesCorrections}. */
+    private final int usOffsetHours;
+    /** If not null, adds an hour to {@link #usOffsetHours} during DST in US Eastern. */
+    @Nullable private final ZoneRules usEasternZoneRules;
+
+    /**
+     * @param showTimeZone See {@link TimeTools#getDateTimeZone(String)}.
+     * @param showReleaseTime See {@link TimeTools#getShowReleaseTime(int)}.
+     */
+    public EpisodeReleaseTimeCalculator(@NonNull ZoneId showTimeZone,
+            @NonNull LocalTime showReleaseTime, @Nullable String showCountry,
+            @Nullable String showNetwork, @NonNull String deviceTimeZone) {
+        this.showZoneRules = showTimeZone.getRules();
+        this.showReleaseTime = showReleaseTime;
+        this.releaseDayOffset = TimeTools
+                .isReleasedDayAfter(showCountry, showNetwork, showReleaseTime) ? 1 : 0;
+
+        // same checks as TimeTools.applyUnitedStatesCorrections
+        int usOffsetHours = 0;
+        ZoneRules usEasternZoneRules = null;
+        if (deviceTimeZone.startsWith(TimeTools.TIMEZONE_ID_PREFIX_AMERICA)
+                && TimeTools.ISO3166_1_UNITED_STATES.equals(showCountry)) {
+            switch (deviceTimeZone) {
+                case TimeTools.TIMEZONE_ID_US_MOUNTAIN:
+                    usOffsetHours = 1;
+                    break;
+                case TimeTools.TIMEZONE_ID_US_ARIZONA:
+                    usOffsetHours = 1;
+                    usEasternZoneRules = ZoneId.of(TimeTools.TIMEZONE_ID_US_EASTERN).getRules();
+                    break;
+                case TimeTools.TIMEZONE_ID_US_PACIFIC:
+                    usOffsetHours = 3;
+                    break;
+            }
+        }
+        this.usOffsetHours = usOffsetHours;
+        this.usEasternZoneRules = usEasternZoneRules;
+    }
+
+    /**
+     * Calculates the episode release date time as a millisecond instant.
+     *
+     * @param releaseDate An ISO 8601 date, like "2013-05-31".
+     * @return -1 if no conversion was possible. Otherwise, any other long value (may be negative!).
+     */
+    public long calculate(@Nullable String releaseDate) {
+        if (releaseDate == null || releaseDate.length() == 0) {
+            return Constants.EPISODE_UNKNOWN_RELEASE;
+        }
+
+        LocalDate localDate;
+        try {
+            localDate = parseDate(releaseDate);
+        } catch (DateTimeException e) {
+            // date string could not be parsed
+            Timber.e(e, "TheTVDB date could not be parsed: %s", releaseDate);
+            return Constants.EPISODE_UNKNOWN_RELEASE;
+        }
+
+        LocalDateTime localDateTime = LocalDateTime.of(localDate, showReleaseTime);
+        if (releaseDayOffset != 0) {
+            localDateTime = localDateTime.plusDays(releaseDayOffset);
+        }
+
+        // like LocalDateTime.atZone: if inside a DST gap move forward by the length of the gap
+        long releaseMs;
+        ZoneOffsetTransition transition = showZoneRules.getTransition(localDateTime);
+        if (transition != null && transition.isGap()) {
+            releaseMs = localDateTime
+                    .plusSeconds(transition.getDuration().getSeconds())
+                    .toEpochSecond(transition.getOffsetAfter()) * 1000;
+        } else {
+            // if inside an overlap uses the earlier offset, like LocalDateTime.atZone
+            releaseMs = localDateTime.toEpochSecond(showZoneRules.getOffset(localDateTime)) * 1000;
+        }
+
+        if (usEasternZoneRules != null
+                && usEasternZoneRules.isDaylightSavings(Instant.ofEpochMilli(releaseMs))) {
+            return releaseMs + (usOffsetHours + 1) * HOUR_MS;
+        }
+        return releaseMs + usOffsetHours * HOUR_MS;
+    }
+
+    /**
+     * Parses dates in the common "yyyy-MM-dd" format without a formatter, falls back to {@link
+     * LocalDate#parse(CharSequence)} for anything else.
+     */
+    private static LocalDate parseDate(String date) throws DateTimeException {
+        if (date.length() == 10 && date.charAt(4) == '-' && date.charAt(7) == '-') {
+            int year = parseDigits(date, 0, 4);
+            int month = parseDigits(date, 5, 7);
+            int day = parseDigits(date, 8, 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(date);
+    }
+
+    /**
+     * Returns the number of the given range, or -1 if it contains a character that is not a digit.
+     */
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
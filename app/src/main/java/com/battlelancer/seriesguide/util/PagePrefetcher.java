@@ -0,0 +1,158 @@
+package com.battlelancer.seriesguide.util;
+
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import timber.log.Timber;
+
+/**
+ * Pages through a query, loading the next page on a background thread while the caller
+ * processes the current one, e.g. writes it to the database. At most one page is loaded ahead, so
+ * a slow caller holds back loading.
+ *
+ * <pre>{@code
+ * try (PagePrefetcher<Show> pages = new PagePrefetcher<>(cursor -> ...)) {
+ *     while (pages.hasNext()) {
+ *         Page<Show> page = pages.next();
+ *         ...
+ *     }
+ * }
+ * }</pre>
+ */
+public class PagePrefetcher<T> implements Closeable {
+
+    public interface PageLoader<T> {
+        /**
+         * Loads the page at the given cursor, or the first page if it is {@code null}. Runs on a
+         * background thread.
+         *
+         * @return {@code null} if the page could not be requested, e.g. because there is no
+         * network connection or the user signed out.
+         */
+        @Nullable
+        Page<T> load(@Nullable String cursor) throws IOException;
+    }
+
+    public static class Page<T> {
+        /** If {@code null} or empty there are no more items. */
+        @Nullable public final List<T> items;
+        /** If {@code null} or empty there are no more pages. */
+        @Nullable public final String nextCursor;
+
+        public Page(@Nullable List<T> items, @Nullable String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        /**
+         * A page indicating there are no more items.
+         */
+        public static <E> Page<E> end() {
+            return new Page<>(null, null);
+        }
+    }
+
+    @NonNull private final PageLoader<T> loader;
+    @NonNull private final ExecutorService executor;
+    private final boolean isOwnExecutor;
+    @Nullable private Future<Page<T>> pendingPage;
+    private boolean hasNext = true;
+
+    /**
+     * Loads pages on a thread of its own, which is stopped on {@link #close()}.
+     */
+    public PagePrefetcher(@NonNull PageLoader<T> loader) {
+        this(loader, Executors.newSingleThreadExecutor(), true);
+    }
+
+    /**
+     * Loads pages using the given executor, e.g. to share threads if many queries are paged
+     * through one after another. It is not shut down on {@link #close()}.
+     */
+    public PagePrefetcher(@NonNull PageLoader<T> loader, @NonNull ExecutorService executor) {
+        this(loader, executor, false);
+    }
+
+    private PagePrefetcher(@NonNull PageLoader<T> loader, @NonNull ExecutorService executor,
+            boolean isOwnExecutor) {
+        this.loader = loader;
+        this.executor = executor;
+        this.isOwnExecutor = isOwnExecutor;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * Returns the next page and starts loading the one after it.
+     *
+     * @return {@code null} if the page could not be loaded, see {@link PageLoader#load(String)},
+     * or the thread was interrupted.
+     * @throws IOException if loading the page failed.
+     * @throws IllegalArgumentException if parsing the page failed.
+     */
+    @Nullable
+    public Page<T> next() throws IOException {
+        if (!hasNext) {
+            throw new IllegalStateException("No more pages");
+        }
+        if (pendingPage == null) {
+            pendingPage = executor.submit(() -> loader.load(null));
+        }
+
+        Page<T> page;
+        try {
+            page = pendingPage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Timber.e("next: interrupted");
+            hasNext = false;
+            return null;
+        } catch (ExecutionException e) {
+            hasNext = false;
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pendingPage = null;
+        }
+
+        if (page == null || page.items == null || page.items.isEmpty()
+                || TextUtils.isEmpty(page.nextCursor)) {
+            hasNext = false;
+        } else {
+            String cursor = page.nextCursor;
+            pendingPage = executor.submit(() -> loader.load(cursor));
+        }
+        return page;
+    }
+
+    /**
+     * Stops loading pages, cancels the page currently loading.
+     */
+    @Override
+    public void close() {
+        hasNext = false;
+        if (pendingPage != null) {
+            pendingPage.cancel(true);
+            pendingPage = null;
+        }
+        if (isOwnExecutor) {
+            executor.shutdownNow();
+        }
+    }
+}
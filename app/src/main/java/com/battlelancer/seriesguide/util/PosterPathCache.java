@@ -0,0 +1,186 @@
+package com.battlelancer.seriesguide.util;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.format.DateUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import timber.log.Timber;
+
+/**
+ * Remembers poster paths of shows and movies that are not in the database, e.g. to display search
+ * results or trakt history, so {@link SgPicassoRequestHandler} does not have to look them up with
+ * an API call on every image cache miss. Backed by {@link SharedPreferences} in its own file.
+ *
+ * <p>Paths are valid for {@link #MAX_AGE_MS}, if no poster exists this is remembered for {@link
+ * #MAX_AGE_NONE_MS}. Concurrent lookups of the same poster are only done once.
+ */
+public class PosterPathCache {
+
+    @VisibleForTesting
+    static final long MAX_AGE_MS = 7 * DateUtils.DAY_IN_MILLIS;
+    @VisibleForTesting
+    static final long MAX_AGE_NONE_MS = DateUtils.DAY_IN_MILLIS;
+
+    private static final String PREF_FILE = "poster-paths";
+    private static final String KEY_PREFIX_SHOW = "show-";
+    private static final String KEY_PREFIX_MOVIE = "movie-";
+    /** Marks that there is no poster, so its absence can be cached as well. */
+    private static final String NONE = "";
+
+    /**
+     * Looks up a poster path, for example with an API call.
+     */
+    public interface Resolver {
+        /**
+         * @return The poster path, an empty string if there is none or null if the lookup failed.
+         */
+        @Nullable
+        String resolve();
+    }
+
+    @SuppressLint("StaticFieldLeak") private static PosterPathCache instance;
+
+    private final SharedPreferences prefs;
+    private final Map<String, FutureTask<String>> inFlight = new ConcurrentHashMap<>();
+
+    public static synchronized PosterPathCache get(Context context) {
+        if (instance == null) {
+            instance = new PosterPathCache(
+                    context.getApplicationContext().getSharedPreferences(PREF_FILE, 0));
+            instance.removeExpired(System.currentTimeMillis());
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    PosterPathCache(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    @NonNull
+    public static String showKey(int showTvdbId, @Nullable String language) {
+        return KEY_PREFIX_SHOW + showTvdbId + (language != null ? "-" + language : "");
+    }
+
+    @NonNull
+    public static String movieKey(int movieTmdbId, @Nullable String language) {
+        return KEY_PREFIX_MOVIE + movieTmdbId + (language != null ? "-" + language : "");
+    }
+
+    /**
+     * Returns the cached poster path. If there is none or it has expired, looks it up with the
+     * resolver and caches it. If the same poster is looked up by another thread, waits for it to
+     * finish instead.
+     *
+     * @return The poster path, or null if there is no poster or the lookup failed.
+     */
+    @Nullable
+    public String getOrResolve(@NonNull String key, @NonNull Resolver resolver) {
+        long currentTimeMs = System.currentTimeMillis();
+        String cached = getIfValid(key, currentTimeMs);
+        if (cached != null) {
+            return cached.equals(NONE) ? null : cached;
+        }
+
+        FutureTask<String> task = new FutureTask<>(() -> {
+            String path = resolver.resolve();
+            if (path != null) {
+                put(key, path, System.currentTimeMillis());
+            }
+            return path;
+        });
+        FutureTask<String> existing = inFlight.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            existing = task;
+        }
+
+        String path;
+        try {
+            path = existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Timber.e(e.getCause(), "Failed to resolve poster path for %s", key);
+            return null;
+        }
+        return path == null || path.equals(NONE) ? null : path;
+    }
+
+    /**
+     * Caches a poster path that is already known, e.g. because details of a show or movie that is
+     * not in the database were downloaded to display them.
+     *
+     * @param path The poster path, if null or empty caches that there is no poster.
+     */
+    public void put(@NonNull String key, @Nullable String path) {
+        put(key, path != null ? path : NONE, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    @Nullable
+    String getIfValid(String key, long currentTimeMs) {
+        String value = prefs.getString(key, null);
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf('|');
+        if (separator <= 0) {
+            return null; // invalid value
+        }
+        String path = value.substring(separator + 1);
+        long savedAtMs;
+        try {
+            savedAtMs = Long.parseLong(value.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return null; // invalid value
+        }
+        if (isExpired(savedAtMs, path, currentTimeMs)) {
+            return null;
+        }
+        return path;
+    }
+
+    @VisibleForTesting
+    void put(String key, String path, long currentTimeMs) {
+        prefs.edit().putString(key, currentTimeMs + "|" + path).apply();
+    }
+
+    /**
+     * Removes expired entries so the file does not grow forever.
+     */
+    @VisibleForTesting
+    void removeExpired(long currentTimeMs) {
+        SharedPreferences.Editor editor = null;
+        for (String key : prefs.getAll().keySet()) {
+            if (getIfValid(key, currentTimeMs) == null) {
+                if (editor == null) {
+                    editor = prefs.edit();
+                }
+                editor.remove(key);
+            }
+        }
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+
+    private static boolean isExpired(long savedAtMs, String path, long currentTimeMs) {
+        long maxAgeMs = path.equals(NONE) ? MAX_AGE_NONE_MS : MAX_AGE_MS;
+        long ageMs = currentTimeMs - savedAtMs;
+        return ageMs < 0 || ageMs >= maxAgeMs;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.battlelancer.seriesguide.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out requests to an API so no more than a given number are made per second. Thread-safe,
+ * requests are granted in the order they were asked for.
+ */
+public class RequestRateLimiter {
+
+    private final long intervalNanos;
+    private long nextFreeNanos;
+
+    public RequestRateLimiter(int requestsPerSecond) {
+        if (requestsPerSecond < 1) {
+            throw new IllegalArgumentException("requestsPerSecond must be at least 1");
+        }
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until the given number of requests may be made.
+     */
+    public void acquire(int requests) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long nowNanos = System.nanoTime();
+            long startNanos = Math.max(nowNanos, nextFreeNanos);
+            nextFreeNanos = startNanos + requests * intervalNanos;
+            waitNanos = startNanos - nowNanos;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -131,18 +131,26 @@ public class SelectionBuilder {
      */
     public Cursor query(SupportSQLiteDatabase db, String[] columns, String groupBy, String having,
             String orderBy, String limit) {
-        assertTable();
-        if (columns != null)
-            mapColumns(columns);
+        String query = buildQuery(columns, groupBy, having, orderBy, limit);
         if (SeriesGuideProvider.LOGV)
             Timber.v("query(columns=" + Arrays.toString(columns) + ") " + this);
 
-        String query = SQLiteQueryBuilder.buildQueryString(
-                false, table, columns, getSelection(), groupBy, having, orderBy, limit);
-
         return db.query(query, getSelectionArgs());
     }
 
+    /**
+     * Builds the SQL statement {@link #query(SupportSQLiteDatabase, String[], String, String,
+     * String, String)} would execute, bind it with {@link #getSelectionArgs()}.
+     */
+    public String buildQuery(String[] columns, String groupBy, String having, String orderBy,
+            String limit) {
+        assertTable();
+        if (columns != null)
+            mapColumns(columns);
+        return SQLiteQueryBuilder.buildQueryString(
+                false, table, columns, getSelection(), groupBy, having, orderBy, limit);
+    }
+
     /**
      * Execute update using the current internal state as {@code WHERE} clause.
      */
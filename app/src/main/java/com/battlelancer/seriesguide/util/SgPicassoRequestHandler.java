@@ -6,7 +6,9 @@ import static com.squareup.picasso.Picasso.LoadedFrom.NETWORK;
 import android.content.Context;
 import android.net.Uri;
 import android.text.TextUtils;
+import androidx.annotation.Nullable;
 import com.battlelancer.seriesguide.SgApp;
+import com.battlelancer.seriesguide.settings.DisplaySettings;
 import com.battlelancer.seriesguide.settings.TmdbSettings;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbException;
 import com.battlelancer.seriesguide.thetvdbapi.TvdbImageTools;
@@ -28,7 +30,8 @@ import okhttp3.ResponseBody;
 
 /**
  * This is mostly a copy of {@code com.squareup.picasso.NetworkRequestHandler} that is not visible.
- * Extended to fetch the image url from a given show TVDB id or movie TMDB id.
+ * Extended to fetch the image url from a given show TVDB id or movie TMDB id. Poster paths are
+ * cached with {@link PosterPathCache}.
  */
 public class SgPicassoRequestHandler extends RequestHandler {
 
@@ -62,37 +65,25 @@ public class SgPicassoRequestHandler extends RequestHandler {
                 language = null;
             }
 
-            TvdbTools tvdbTools = SgApp.getServicesComponent(context).tvdbTools();
-            try {
-                retrofit2.Response<SeriesImageQueryResultResponse> posterResponse
-                        = tvdbTools.getSeriesPosters(showTvdbId, language);
-                if (language != null && posterResponse.code() == 404) {
-                    // no posters for this language, fall back to default
-                    posterResponse = tvdbTools.getSeriesPosters(showTvdbId, null);
-                }
-                if (posterResponse.isSuccessful() && posterResponse.body() != null) {
-                    List<SeriesImageQueryResult> data = posterResponse.body().data;
-                    if (data != null && !data.isEmpty()) {
-
-                        String imagePath = TvdbTools.getHighestRatedPoster(data).smallSize;
-                        String imageUrl = TvdbImageTools.artworkUrl(imagePath);
-                        if (imageUrl != null) {
-                            return loadFromNetwork(Uri.parse(imageUrl), networkPolicy);
-                        }
-                    }
-                }
-            } catch (TvdbException ignored) {
+            String imagePath = PosterPathCache.get(context).getOrResolve(
+                    PosterPathCache.showKey(showTvdbId, language),
+                    () -> resolveShowPosterPath(showTvdbId, language));
+            String imageUrl = TvdbImageTools.artworkUrl(imagePath);
+            if (imageUrl != null) {
+                return loadFromNetwork(Uri.parse(imageUrl), networkPolicy);
             }
         }
 
         if (SCHEME_MOVIE_TMDB.equals(scheme)) {
             int movieTmdbId = Integer.valueOf(request.uri.getHost());
 
-            MovieTools movieTools = SgApp.getServicesComponent(context).movieTools();
-            Movie movieSummary = movieTools.getMovieSummary(movieTmdbId);
-            if (movieSummary != null && movieSummary.poster_path != null) {
+            String language = DisplaySettings.getMoviesLanguage(context);
+            String posterPath = PosterPathCache.get(context).getOrResolve(
+                    PosterPathCache.movieKey(movieTmdbId, language),
+                    () -> resolveMoviePosterPath(movieTmdbId, language));
+            if (posterPath != null) {
                 final String imageUrl = TmdbSettings.getImageBaseUrl(context)
-                        + TmdbSettings.POSTER_SIZE_SPEC_W342 + movieSummary.poster_path;
+                        + TmdbSettings.POSTER_SIZE_SPEC_W342 + posterPath;
                 return loadFromNetwork(Uri.parse(imageUrl), networkPolicy);
             }
         }
@@ -100,6 +91,49 @@ public class SgPicassoRequestHandler extends RequestHandler {
         return null;
     }
 
+    /**
+     * Returns the path of the highest rated poster, an empty string if there is none or null if
+     * the lookup failed.
+     */
+    @Nullable
+    private String resolveShowPosterPath(int showTvdbId, @Nullable String language) {
+        TvdbTools tvdbTools = SgApp.getServicesComponent(context).tvdbTools();
+        try {
+            retrofit2.Response<SeriesImageQueryResultResponse> posterResponse
+                    = tvdbTools.getSeriesPosters(showTvdbId, language);
+            if (language != null && posterResponse.code() == 404) {
+                // no posters for this language, fall back to default
+                posterResponse = tvdbTools.getSeriesPosters(showTvdbId, null);
+            }
+            if (posterResponse.code() == 404) {
+                return ""; // no posters at all
+            }
+            if (posterResponse.isSuccessful() && posterResponse.body() != null) {
+                List<SeriesImageQueryResult> data = posterResponse.body().data;
+                if (data != null && !data.isEmpty()) {
+                    String imagePath = TvdbTools.getHighestRatedPoster(data).smallSize;
+                    return imagePath != null ? imagePath : "";
+                }
+                return "";
+            }
+        } catch (TvdbException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Returns the poster path, an empty string if there is none or null if the lookup failed.
+     */
+    @Nullable
+    private String resolveMoviePosterPath(int movieTmdbId, @Nullable String language) {
+        MovieTools movieTools = SgApp.getServicesComponent(context).movieTools();
+        Movie movieSummary = movieTools.getMovieSummary(movieTmdbId, language);
+        if (movieSummary == null) {
+            return null;
+        }
+        return movieSummary.poster_path != null ? movieSummary.poster_path : "";
+    }
+
     private Result loadFromNetwork(Uri uri, int networkPolicy) throws IOException {
         // because retry-count is fixed to 0 for custom request handlers
         // BitmapHunter forces the network policy to OFFLINE
@@ -39,7 +39,7 @@ public class TimeTools {
     public static final int RELEASE_WEEKDAY_UNKNOWN = -1;
     public static final int RELEASE_WEEKDAY_DAILY = 0;
 
-    private static final String TIMEZONE_ID_PREFIX_AMERICA = "America/";
+    static final String TIMEZONE_ID_PREFIX_AMERICA = "America/";
 
     public static final String ISO3166_1_UNITED_STATES = "us";
     public static final String TIMEZONE_ID_US_EASTERN = "America/New_York";
@@ -173,6 +173,9 @@ public class TimeTools {
      * Calculates the episode release date time as a millisecond instant. Adjusts for time zone
      * effects on release time, e.g. delays between time zones (e.g. in the United States) and DST.
      *
+     * <p>To calculate release times of many episodes of a show use {@link
+     * EpisodeReleaseTimeCalculator}.
+     *
      * @param showTimeZone See {@link #getDateTimeZone(String)}.
      * @param showReleaseTime See {@link #getShowReleaseTime(int)}.
      * @return -1 if no conversion was possible. Otherwise, any other long value (may be negative!).
@@ -242,6 +245,17 @@ public class TimeTools {
     public static Date getShowReleaseDateTime(@NonNull Context context, int releaseTime,
             int weekDay, @Nullable String timeZone, @Nullable String country,
             @Nullable String network) {
+        return getShowReleaseDateTime(releaseTime, weekDay, timeZone, country, network,
+                DisplaySettings.getShowsTimeOffset(context));
+    }
+
+    /**
+     * Like {@link #getShowReleaseDateTime(Context, int, int, String, String, String)}, but with the
+     * user-defined offset already read from settings.
+     */
+    public static Date getShowReleaseDateTime(int releaseTime, int weekDay,
+            @Nullable String timeZone, @Nullable String country, @Nullable String network,
+            int userOffsetHours) {
         // determine show time zone (falls back to America/New_York)
         ZoneId showTimeZone = getDateTimeZone(timeZone);
 
@@ -249,7 +263,9 @@ public class TimeTools {
         ZonedDateTime dateTime = getShowReleaseDateTime(time, weekDay,
                 showTimeZone, country, network, Clock.system(showTimeZone));
 
-        dateTime = applyUserOffset(context, dateTime);
+        if (userOffsetHours != 0) {
+            dateTime = dateTime.plusHours(userOffsetHours);
+        }
 
         return new Date(dateTime.toInstant().toEpochMilli());
     }
@@ -300,16 +316,25 @@ public class TimeTools {
      */
     private static LocalDateTime handleHourPastMidnight(@Nullable String country,
             @Nullable String network, LocalDateTime localDateTime) {
-        if (ISO3166_1_UNITED_STATES.equals(country)
-                && !NETWORK_AMAZON.equals(network)
-                && !NETWORK_HULU.equals(network)
-                && !NETWORK_NETFLIX.equals(network)
-                && localDateTime.getHour() == 0) {
+        if (isReleasedDayAfter(country, network, localDateTime.toLocalTime())) {
             return localDateTime.plusDays(1);
         }
         return localDateTime;
     }
 
+    /**
+     * Whether the release date needs to be moved one day into the future, see {@link
+     * #handleHourPastMidnight(String, String, LocalDateTime)}.
+     */
+    static boolean isReleasedDayAfter(@Nullable String country, @Nullable String network,
+            LocalTime releaseTime) {
+        return ISO3166_1_UNITED_STATES.equals(country)
+                && !NETWORK_AMAZON.equals(network)
+                && !NETWORK_HULU.equals(network)
+                && !NETWORK_NETFLIX.equals(network)
+                && releaseTime.getHour() == 0;
+    }
+
     /**
      * Parses the ISO-8601, such as '2013-08-20T15:16:26.355Z', or TVDB date format representation
      * of a show first release date and outputs the year string in the user's default
@@ -578,17 +603,6 @@ public class TimeTools {
         return context.getString(R.string.format_date_and_day, date.toString(), day);
     }
 
-    /**
-     * Returns a date time equal to the given date time plus the user-defined offset.
-     */
-    private static ZonedDateTime applyUserOffset(Context context, ZonedDateTime dateTime) {
-        int offset = DisplaySettings.getShowsTimeOffset(context);
-        if (offset != 0) {
-            dateTime = dateTime.plusHours(offset);
-        }
-        return dateTime;
-    }
-
     /**
      * Takes a millisecond date time instant and adds the user-defined offset.
      *
@@ -596,13 +610,20 @@ public class TimeTools {
      * for display.
      */
     public static Date applyUserOffset(Context context, long releaseInstant) {
+        return applyUserOffset(releaseInstant, DisplaySettings.getShowsTimeOffset(context));
+    }
+
+    /**
+     * Like {@link #applyUserOffset(Context, long)}, but with the user-defined offset already read
+     * from settings.
+     */
+    public static Date applyUserOffset(long releaseInstant, int userOffsetHours) {
         // using Android calendar to avoid joda-time lock-up with time zone access
         Calendar dateTime = Calendar.getInstance();
         dateTime.setTimeInMillis(releaseInstant);
 
-        int offset = DisplaySettings.getShowsTimeOffset(context);
-        if (offset != 0) {
-            dateTime.add(Calendar.HOUR_OF_DAY, offset);
+        if (userOffsetHours != 0) {
+            dateTime.add(Calendar.HOUR_OF_DAY, userOffsetHours);
         }
         return dateTime.getTime();
     }
@@ -0,0 +1,93 @@
+package com.battlelancer.seriesguide.extensions
+
+import android.content.ComponentName
+import android.content.Intent
+import android.os.Bundle
+import com.battlelancer.seriesguide.EmptyTestApplication
+import com.battlelancer.seriesguide.api.Action
+import com.battlelancer.seriesguide.api.Episode
+import com.battlelancer.seriesguide.api.constants.IncomingConstants
+import com.battlelancer.seriesguide.api.constants.OutgoingConstants
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = EmptyTestApplication::class)
+class ExtensionBatchingTest {
+
+    private val extension = ComponentName("com.example.extension", "ExampleExtension")
+
+    private fun buildEpisode(tvdbId: Int): Episode {
+        return Episode.Builder()
+            .tvdbId(tvdbId)
+            .season(1)
+            .number(tvdbId)
+            .showTvdbId(42)
+            .build()
+    }
+
+    @Test
+    fun buildBatchedRequests() {
+        val episodes = (1..120).map { buildEpisode(it) }
+
+        val requests = ExtensionManager.buildBatchedRequests(extension, episodes)
+
+        // at most 50 episodes per intent
+        val episodeBundles = requests.map {
+            it.getParcelableArrayExtra(IncomingConstants.EXTRA_EPISODES)!!
+        }
+        assertThat(episodeBundles.map { it.size }).containsExactly(50, 50, 20).inOrder()
+        assertThat(episodeBundles.flatMap { bundles ->
+            bundles.map { Episode.fromBundle(it as Bundle).tvdbId }
+        }).containsExactlyElementsIn(1..120).inOrder()
+        for (request in requests) {
+            assertThat(request.action).isEqualTo(IncomingConstants.ACTION_UPDATE)
+            assertThat(request.component).isEqualTo(extension)
+            assertThat(request.getIntExtra(IncomingConstants.EXTRA_VERSION, 0))
+                .isEqualTo(IncomingConstants.VERSION_BATCH)
+            assertThat(request.hasExtra(IncomingConstants.EXTRA_EPISODE)).isFalse()
+        }
+    }
+
+    @Test
+    fun buildBatchedRequests_empty() {
+        assertThat(ExtensionManager.buildBatchedRequests(extension, emptyList())).isEmpty()
+    }
+
+    @Test
+    fun parseActions_batchedReply() {
+        // like SeriesGuideExtension replies to a batched request
+        val actionBundles = arrayOf(
+            Action.Builder("Action 1", 1).build().toBundle(),
+            Bundle(), // invalid, is skipped
+            Action.Builder("Action 2", 2)
+                .viewIntent(Intent(Intent.ACTION_VIEW))
+                .build().toBundle()
+        )
+        val reply = Intent(OutgoingConstants.ACTION_PUBLISH_ACTION)
+            .putExtra(OutgoingConstants.EXTRA_ACTIONS, actionBundles)
+            .putExtra(OutgoingConstants.EXTRA_ACTION_TYPE, OutgoingConstants.ACTION_TYPE_EPISODE)
+            .putExtra(IncomingConstants.EXTRA_VERSION, IncomingConstants.VERSION_BATCH)
+
+        val actions = ExtensionActionReceiver.parseActions(reply)
+
+        assertThat(actions.map { it.entityIdentifier }).containsExactly(1, 2).inOrder()
+        assertThat(actions.map { it.title }).containsExactly("Action 1", "Action 2").inOrder()
+        assertThat(actions[1].viewIntent?.action).isEqualTo(Intent.ACTION_VIEW)
+    }
+
+    @Test
+    fun parseActions_singleAction() {
+        val action = Action.Builder("Action", 3).build()
+        val reply = Intent(OutgoingConstants.ACTION_PUBLISH_ACTION)
+            .putExtra(OutgoingConstants.EXTRA_ACTION, action.toBundle())
+
+        val actions = ExtensionActionReceiver.parseActions(reply)
+
+        assertThat(actions.map { it.entityIdentifier }).containsExactly(3)
+    }
+
+}
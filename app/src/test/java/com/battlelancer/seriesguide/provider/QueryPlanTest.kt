@@ -0,0 +1,203 @@
+package com.battlelancer.seriesguide.provider
+
+import android.database.sqlite.SQLiteQueryBuilder
+import android.net.Uri
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.battlelancer.seriesguide.EmptyTestApplication
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Jobs
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.ListItems
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Lists
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Movies
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows
+import com.battlelancer.seriesguide.provider.SeriesGuideDatabase.Tables
+import com.battlelancer.seriesguide.service.NotificationService
+import com.battlelancer.seriesguide.ui.shows.CalendarQuery
+import com.google.common.truth.Truth.assertWithMessage
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/**
+ * Runs EXPLAIN QUERY PLAN on queries of frequently used content provider URIs and selections and
+ * fails if one of them scans a table instead of using an index.
+ *
+ * URIs that list all rows of a table without selection are expected to scan and not checked.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = EmptyTestApplication::class)
+class QueryPlanTest {
+
+    private lateinit var db: SgRoomDatabase
+
+    @Before
+    fun createDb() {
+        db = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            SgRoomDatabase::class.java
+        ).allowMainThreadQueries().build()
+    }
+
+    @After
+    fun closeDb() {
+        db.close()
+    }
+
+    private fun explain(sql: String, args: Array<out Any?>?): List<String> {
+        val plan = ArrayList<String>()
+        val cursor = db.query("EXPLAIN QUERY PLAN $sql", args)
+        try {
+            val detail = cursor.getColumnIndexOrThrow("detail")
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail))
+            }
+        } finally {
+            cursor.close()
+        }
+        return plan
+    }
+
+    /**
+     * Asserts none of the tables is scanned, including full scans of an index. Depending on the
+     * SQLite version the detail is like "SCAN TABLE episodes" or "SCAN episodes".
+     */
+    private fun assertNoScan(name: String, plan: List<String>, vararg tables: String) {
+        println("$name: $plan")
+        for (table in tables) {
+            val scan = Regex("^SCAN (TABLE )?$table( .*)?$")
+            assertWithMessage("$name scans $table: $plan")
+                .that(plan.filter { scan.matches(it) })
+                .isEmpty()
+        }
+    }
+
+    private fun assertUriNoScan(
+        uri: Uri,
+        vararg tables: String,
+        selection: String? = null,
+        selectionArgs: Array<String>? = null,
+        sortOrder: String? = null
+    ) {
+        val builder = SeriesGuideProvider.buildSelection(uri)
+            .where(selection, *selectionArgs.orEmpty())
+        val sql = builder.buildQuery(null, null, null, sortOrder, null)
+        assertNoScan(uri.toString(), explain(sql, builder.selectionArgs), *tables)
+    }
+
+    @Test
+    fun itemUris_useIndex() {
+        assertUriNoScan(Shows.buildShowUri(42), Tables.SHOWS)
+        assertUriNoScan(Seasons.buildSeasonUri(42), Tables.SEASONS)
+        assertUriNoScan(Episodes.buildEpisodeUri(42), Tables.EPISODES)
+        assertUriNoScan(Episodes.buildEpisodeWithShowUri(42), Tables.EPISODES, Tables.SHOWS)
+        assertUriNoScan(Lists.buildListUri("list"), Tables.LISTS)
+        assertUriNoScan(ListItems.buildListItemUri("item"), Tables.LIST_ITEMS)
+        assertUriNoScan(Movies.buildMovieUri(42), Tables.MOVIES)
+        assertUriNoScan(Jobs.buildJobUri(42), Tables.JOBS)
+    }
+
+    @Test
+    fun childUris_useIndex() {
+        assertUriNoScan(Seasons.buildSeasonsOfShowUri(42), Tables.SEASONS)
+        assertUriNoScan(Episodes.buildEpisodesOfShowUri(42), Tables.EPISODES)
+        assertUriNoScan(Episodes.buildEpisodesOfSeasonUri(42), Tables.EPISODES)
+        assertUriNoScan(
+            Episodes.buildEpisodesOfSeasonWithShowUri("42"),
+            Tables.EPISODES, Tables.SHOWS
+        )
+    }
+
+    @Test
+    fun showsWithEpisodeUris_doNotScanEpisodes() {
+        // Lists all shows, so only check episodes are looked up.
+        assertUriNoScan(Shows.CONTENT_URI_WITH_LAST_EPISODE, Tables.EPISODES)
+        assertUriNoScan(Shows.CONTENT_URI_WITH_NEXT_EPISODE, Tables.EPISODES)
+    }
+
+    @Test
+    fun episodeOfShowBySeasonAndNumber_usesIndex() {
+        // Like HexagonEpisodeSync and TraktEpisodeSync updating flags.
+        val selection = (Shows.REF_SHOW_ID + "=? AND "
+                + Episodes.SEASON + "=? AND "
+                + Episodes.NUMBER + "=?")
+        val args = arrayOf("42", "1", "2")
+        assertNoScan(
+            "update by season and number",
+            explain("UPDATE ${Tables.EPISODES} SET ${Episodes.WATCHED}=1 WHERE $selection", args),
+            Tables.EPISODES
+        )
+        assertUriNoScan(
+            Episodes.buildEpisodesOfShowUri(42), Tables.EPISODES,
+            selection = "${Episodes.SEASON}=? AND ${Episodes.NUMBER}=?",
+            selectionArgs = arrayOf("1", "2")
+        )
+    }
+
+    @Test
+    fun nextEpisodeOfShow_usesIndex() {
+        // Like DBUtils.updateLatestEpisode.
+        assertUriNoScan(
+            Episodes.buildEpisodesOfShowUri(42), Tables.EPISODES,
+            selection = Episodes.SELECTION_UNWATCHED + " AND "
+                    + Episodes.FIRSTAIREDMS + ">?",
+            selectionArgs = arrayOf("1000"),
+            sortOrder = Episodes.FIRSTAIREDMS + " ASC," + Episodes.SEASON + " ASC,"
+                    + Episodes.NUMBER + " ASC"
+        )
+    }
+
+    @Test
+    fun calendar_usesIndex() {
+        // Shows may be scanned instead, as long as episodes are then looked up by show and
+        // release time.
+        assertUriNoScan(
+            Episodes.CONTENT_URI_WITHSHOW, Tables.EPISODES,
+            selection = CalendarQuery.QUERY_UPCOMING,
+            selectionArgs = arrayOf("1000", Long.MAX_VALUE.toString()),
+            sortOrder = CalendarQuery.SORTING_UPCOMING
+        )
+        assertUriNoScan(
+            Episodes.CONTENT_URI_WITHSHOW, Tables.EPISODES,
+            selection = CalendarQuery.QUERY_RECENT,
+            selectionArgs = arrayOf("1000", Long.MIN_VALUE.toString()),
+            sortOrder = CalendarQuery.SORTING_RECENT
+        )
+    }
+
+    @Test
+    fun calendarTables_walkReleaseTimeIndex() {
+        // Like CalendarUtils and CalendarFragment2ViewModel, pages should not require sorting all
+        // matching episodes. Only sorting episodes releasing at the same time is fine.
+        val fullSort = Regex("^USE TEMP B-TREE FOR (DISTINCT|ORDER BY)$")
+        for ((selection, sortOrder) in listOf(
+            CalendarQuery.QUERY_UPCOMING to CalendarQuery.SORTING_UPCOMING,
+            CalendarQuery.QUERY_RECENT to CalendarQuery.SORTING_RECENT
+        )) {
+            val sql = SQLiteQueryBuilder.buildQueryString(
+                false, CalendarQuery.TABLES, CalendarQuery.PROJECTION, selection,
+                null, null, sortOrder, "50"
+            )
+            val plan = explain(sql, arrayOf("1000", "2000"))
+            assertNoScan("calendar", plan, Tables.EPISODES)
+            assertWithMessage("calendar sorts all episodes: $plan")
+                .that(plan.filter { fullSort.matches(it) })
+                .isEmpty()
+        }
+    }
+
+    @Test
+    fun notifications_useIndex() {
+        assertUriNoScan(
+            Episodes.CONTENT_URI_WITHSHOW, Tables.EPISODES,
+            selection = NotificationService.SELECTION,
+            selectionArgs = arrayOf("1000"),
+            sortOrder = NotificationService.SORTING
+        )
+    }
+
+}
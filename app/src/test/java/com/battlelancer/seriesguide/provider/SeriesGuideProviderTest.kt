@@ -0,0 +1,89 @@
+package com.battlelancer.seriesguide.provider
+
+import android.content.ContentProviderOperation
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.battlelancer.seriesguide.EmptyTestApplication
+import com.battlelancer.seriesguide.SgApp
+import com.battlelancer.seriesguide.dataliberation.model.Show
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Seasons
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Shows
+import com.battlelancer.seriesguide.util.DBUtils
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import java.util.concurrent.atomic.AtomicInteger
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = EmptyTestApplication::class)
+class SeriesGuideProviderTest {
+
+    private lateinit var context: Context
+
+    @Before
+    fun setup() {
+        context = ApplicationProvider.getApplicationContext()
+        SgRoomDatabase.switchToInMemory(context)
+        Robolectric.setupContentProvider(SeriesGuideProvider::class.java, SgApp.CONTENT_AUTHORITY)
+    }
+
+    @After
+    fun closeDb() {
+        SgRoomDatabase.getInstance(context).close()
+    }
+
+    @Test
+    fun contentRoot() {
+        assertThat(SeriesGuideProvider.getContentRoot(Shows.buildShowUri(42)))
+            .isEqualTo(Shows.CONTENT_URI)
+        assertThat(SeriesGuideProvider.getContentRoot(Episodes.buildEpisodesOfSeasonUri(42)))
+            .isEqualTo(Episodes.CONTENT_URI)
+        assertThat(SeriesGuideProvider.getContentRoot(Seasons.CONTENT_URI))
+            .isEqualTo(Seasons.CONTENT_URI)
+    }
+
+    @Test
+    fun applyBatch_notifiesContentRootsOnce() {
+        val batch = ArrayList<ContentProviderOperation>()
+        for (showTvdbId in 1..3) {
+            val show = Show()
+            show.tvdb_id = showTvdbId
+            batch.add(
+                ContentProviderOperation.newInsert(Shows.CONTENT_URI)
+                    .withValues(show.toContentValues(context, true))
+                    .build()
+            )
+        }
+        for (showTvdbId in 1..3) {
+            batch.add(
+                ContentProviderOperation.newUpdate(Shows.buildShowUri(showTvdbId))
+                    .withValue(Shows.FAVORITE, 1)
+                    .build()
+            )
+        }
+        batch.add(DBUtils.buildSeasonOp(1, 10, 1, true))
+
+        val resolver = context.contentResolver
+        val suppressedNotifications = AtomicInteger()
+        SeriesGuideProvider.setSuppressedNotificationsCounter(suppressedNotifications)
+        try {
+            resolver.applyBatch(SgApp.CONTENT_AUTHORITY, batch)
+        } finally {
+            SeriesGuideProvider.setSuppressedNotificationsCounter(null)
+        }
+
+        assertThat(shadowOf(resolver).notifiedUris.map { it.uri })
+            .containsExactly(Shows.CONTENT_URI, Seasons.CONTENT_URI)
+            .inOrder()
+        // 6 show and 1 season notifications, of which only one per content root is sent
+        assertThat(suppressedNotifications.get()).isEqualTo(5)
+    }
+
+}
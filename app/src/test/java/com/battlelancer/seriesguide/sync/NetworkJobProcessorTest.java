@@ -0,0 +1,88 @@
+package com.battlelancer.seriesguide.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.battlelancer.seriesguide.jobs.EpisodeInfo;
+import com.battlelancer.seriesguide.jobs.SgJobInfo;
+import com.battlelancer.seriesguide.jobs.episodes.JobAction;
+import com.battlelancer.seriesguide.sync.NetworkJobProcessor.QueuedJob;
+import com.battlelancer.seriesguide.ui.episodes.EpisodeFlags;
+import com.google.flatbuffers.FlatBufferBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class NetworkJobProcessorTest {
+
+    private static QueuedJob episodeJob(long id, JobAction action, int showTvdbId, int flag) {
+        FlatBufferBuilder builder = new FlatBufferBuilder(0);
+        int[] episodeInfos = new int[]{EpisodeInfo.createEpisodeInfo(builder, 1, (int) id, 1)};
+        int episodes = SgJobInfo.createEpisodesVector(builder, episodeInfos);
+        int jobInfo = SgJobInfo.createSgJobInfo(builder, showTvdbId, flag, episodes, 0, 0);
+        builder.finish(jobInfo);
+        return new QueuedJob(id, action, id * 1000, builder.sizedByteArray());
+    }
+
+    private static QueuedJob movieJob(long id) {
+        FlatBufferBuilder builder = new FlatBufferBuilder(0);
+        int jobInfo = SgJobInfo.createSgJobInfo(builder, 0, 0, 0, 42, 1);
+        builder.finish(jobInfo);
+        return new QueuedJob(id, JobAction.MOVIE_WATCHED_SET, id * 1000, builder.sizedByteArray());
+    }
+
+    @Test
+    public void coalescesSameActionAndFlag_anyShow() {
+        List<QueuedJob> jobs = new ArrayList<>();
+        jobs.add(episodeJob(1, JobAction.EPISODE_WATCHED_FLAG, 10, EpisodeFlags.WATCHED));
+        jobs.add(episodeJob(2, JobAction.EPISODE_WATCHED_FLAG, 10, EpisodeFlags.WATCHED));
+        jobs.add(episodeJob(3, JobAction.EPISODE_WATCHED_FLAG, 20, EpisodeFlags.WATCHED));
+
+        List<QueuedJob> group = NetworkJobProcessor.getNextCoalescedJobs(jobs, 0);
+        assertThat(group).containsExactlyElementsIn(jobs).inOrder();
+    }
+
+    @Test
+    public void doesNotCoalesceConflictingFlags() {
+        List<QueuedJob> jobs = new ArrayList<>();
+        jobs.add(episodeJob(1, JobAction.EPISODE_WATCHED_FLAG, 10, EpisodeFlags.WATCHED));
+        jobs.add(episodeJob(2, JobAction.EPISODE_WATCHED_FLAG, 10, EpisodeFlags.UNWATCHED));
+        jobs.add(episodeJob(3, JobAction.EPISODE_WATCHED_FLAG, 10, EpisodeFlags.WATCHED));
+        jobs.add(episodeJob(4, JobAction.EPISODE_COLLECTION, 10, 1));
+
+        assertThat(NetworkJobProcessor.getNextCoalescedJobs(jobs, 0))
+                .containsExactly(jobs.get(0));
+        assertThat(NetworkJobProcessor.getNextCoalescedJobs(jobs, 1))
+                .containsExactly(jobs.get(1));
+        assertThat(NetworkJobProcessor.getNextCoalescedJobs(jobs, 2))
+                .containsExactly(jobs.get(2));
+        assertThat(NetworkJobProcessor.getNextCoalescedJobs(jobs, 3))
+                .containsExactly(jobs.get(3));
+    }
+
+    @Test
+    public void doesNotCoalesceMovieJobs() {
+        List<QueuedJob> jobs = new ArrayList<>();
+        jobs.add(movieJob(1));
+        jobs.add(movieJob(2));
+
+        assertThat(NetworkJobProcessor.getNextCoalescedJobs(jobs, 0))
+                .containsExactly(jobs.get(0));
+    }
+
+    @Test
+    public void limitsCoalescedJobs() {
+        List<QueuedJob> jobs = new ArrayList<>();
+        for (int i = 1; i <= 120; i++) {
+            jobs.add(episodeJob(i, JobAction.EPISODE_COLLECTION, 10, 1));
+        }
+
+        int index = 0;
+        int uploads = 0;
+        while (index < jobs.size()) {
+            index += NetworkJobProcessor.getNextCoalescedJobs(jobs, index).size();
+            uploads++;
+        }
+        assertThat(uploads).isEqualTo(3);
+    }
+
+}
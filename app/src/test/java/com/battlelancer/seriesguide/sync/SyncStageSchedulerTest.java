@@ -0,0 +1,169 @@
+package com.battlelancer.seriesguide.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.battlelancer.seriesguide.EmptyTestApplication;
+import com.battlelancer.seriesguide.sync.SyncStageScheduler.Stage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = EmptyTestApplication.class)
+public class SyncStageSchedulerTest {
+
+    private final SyncProgress progress = new SyncProgress();
+    private final SyncStageScheduler scheduler = new SyncStageScheduler(progress);
+
+    private static boolean awaitOther(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static void awaitIgnoringInterrupts(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void independentStages_runConcurrently() {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        AtomicBoolean isConcurrent = new AtomicBoolean(true);
+        scheduler.add("shows", () -> {
+            isConcurrent.compareAndSet(true, awaitOther(bothRunning));
+            return true;
+        }).writes("shows");
+        scheduler.add("movies", () -> {
+            isConcurrent.compareAndSet(true, awaitOther(bothRunning));
+            return true;
+        }).writes("movies");
+
+        assertThat(scheduler.run()).isTrue();
+        assertThat(isConcurrent.get()).isTrue();
+        assertThat(progress.getStageTimesMs().keySet()).containsExactly("shows", "movies");
+    }
+
+    @Test
+    public void dependentStages_runInDependencyOrder() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Stage[] stages = new Stage[3];
+        // add in reverse order, so without dependencies the last would start first
+        stages[2] = scheduler.add("third", () -> {
+            order.add("third");
+            return true;
+        });
+        stages[1] = scheduler.add("second", () -> {
+            order.add("second");
+            return true;
+        });
+        stages[0] = scheduler.add("first", () -> {
+            order.add("first");
+            return true;
+        });
+        stages[2].dependsOn(stages[1]);
+        stages[1].dependsOn(stages[0]);
+
+        assertThat(scheduler.run()).isTrue();
+        assertThat(order).containsExactly("first", "second", "third").inOrder();
+    }
+
+    @Test
+    public void conflictingStages_doNotOverlap() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        scheduler.add("writer", () -> {
+            events.add("writer start");
+            events.add("writer end");
+            return true;
+        }).writes("shows");
+        scheduler.add("reader", () -> {
+            events.add("reader start");
+            events.add("reader end");
+            return true;
+        }).reads("shows");
+
+        assertThat(scheduler.run()).isTrue();
+        assertThat(events)
+                .containsExactly("writer start", "writer end", "reader start", "reader end")
+                .inOrder();
+    }
+
+    @Test
+    public void abortedStage_skipsStagesNotStarted() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Stage aborting = scheduler.add("aborting", () -> {
+            order.add("aborting");
+            return false;
+        });
+        scheduler.add("dependent", () -> {
+            order.add("dependent");
+            return true;
+        }).dependsOn(aborting);
+
+        assertThat(scheduler.run()).isFalse();
+        assertThat(order).containsExactly("aborting");
+    }
+
+    @Test
+    public void missingDependency_doesNotRun() {
+        Stage notAdded = new Stage("not added", () -> true);
+        AtomicBoolean hasRun = new AtomicBoolean();
+        scheduler.add("dependent", () -> {
+            hasRun.set(true);
+            return true;
+        }).dependsOn(notAdded);
+
+        assertThat(scheduler.run()).isFalse();
+        assertThat(hasRun.get()).isFalse();
+    }
+
+    @Test
+    public void interrupted_returnsAfterRunningStageFinished() throws InterruptedException {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch stageRunning = new CountDownLatch(1);
+        CountDownLatch finishStage = new CountDownLatch(1);
+        Stage blocking = scheduler.add("blocking", () -> {
+            stageRunning.countDown();
+            awaitIgnoringInterrupts(finishStage);
+            events.add("stage finished");
+            return true;
+        });
+        scheduler.add("dependent", () -> {
+            events.add("dependent");
+            return true;
+        }).dependsOn(blocking);
+
+        AtomicBoolean isCompleted = new AtomicBoolean(true);
+        Thread caller = new Thread(() -> {
+            isCompleted.set(scheduler.run());
+            events.add("run returned");
+        });
+        caller.start();
+        assertThat(stageRunning.await(5, TimeUnit.SECONDS)).isTrue();
+        caller.interrupt();
+
+        // must not return while the stage is still running
+        caller.join(200);
+        assertThat(caller.isAlive()).isTrue();
+
+        finishStage.countDown();
+        caller.join(5000);
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(isCompleted.get()).isFalse();
+        assertThat(events).containsExactly("stage finished", "run returned").inOrder();
+    }
+}
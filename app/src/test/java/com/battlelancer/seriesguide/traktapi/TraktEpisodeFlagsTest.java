@@ -0,0 +1,256 @@
+package com.battlelancer.seriesguide.traktapi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.battlelancer.seriesguide.EmptyTestApplication;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.uwetrottmann.trakt5.TraktV2Helper;
+import com.uwetrottmann.trakt5.entities.BaseEpisode;
+import com.uwetrottmann.trakt5.entities.BaseSeason;
+import com.uwetrottmann.trakt5.entities.BaseShow;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = EmptyTestApplication.class)
+public class TraktEpisodeFlagsTest {
+
+    private static final String WATCHED_SHOWS = "["
+            // show with unsorted seasons and episodes, unknown and null values
+            + "{\"plays\":4,\"last_watched_at\":\"2020-01-02T03:04:05.000Z\","
+            + "\"seasons\":["
+            + "{\"number\":2,\"episodes\":[{\"number\":1,\"plays\":1,\"extra\":{\"a\":[1]}}]},"
+            + "{\"episodes\":[{\"number\":5,\"plays\":2},{\"number\":1,\"plays\":null}],"
+            + "\"number\":1},"
+            + "{\"number\":null,\"episodes\":[{\"number\":1,\"plays\":1}]},"
+            + "{\"number\":3,\"episodes\":[{\"number\":null,\"plays\":1}]}"
+            + "],"
+            + "\"show\":{\"title\":\"Show\",\"year\":2010,"
+            + "\"ids\":{\"trakt\":1,\"slug\":\"show\",\"tvdb\":12,\"imdb\":null}}},"
+            // missing TheTVDB id
+            + "{\"seasons\":[{\"number\":1,\"episodes\":[{\"number\":1,\"plays\":1}]}],"
+            + "\"show\":{\"ids\":{\"trakt\":2,\"tvdb\":null}}},"
+            // no seasons
+            + "{\"seasons\":[],\"show\":{\"ids\":{\"trakt\":3,\"tvdb\":14}}},"
+            // no last watched time
+            + "{\"seasons\":[{\"number\":1,\"episodes\":[{\"number\":1,\"plays\":1}]}],"
+            + "\"show\":{\"ids\":{\"trakt\":4,\"tvdb\":15}}}"
+            + "]";
+
+    @Test
+    public void parse() throws IOException {
+        TraktEpisodeFlags flags = TraktEpisodeFlags.parse(new StringReader(WATCHED_SHOWS));
+
+        assertThat(flags.size()).isEqualTo(2);
+        assertThat(flags.containsShow(12)).isTrue();
+        assertThat(flags.containsShow(14)).isFalse();
+        assertThat(flags.containsShow(15)).isTrue();
+        assertThat(flags.getShowLastWatchedMs(12)).isEqualTo(1577934245000L);
+        assertThat(flags.getShowLastWatchedMs(15)).isNull();
+
+        // seasons and episodes are sorted, those without number skipped
+        int start = flags.getShowStart(12);
+        int end = flags.getShowEnd(12);
+        assertThat(end - start).isEqualTo(3);
+        assertThat(flags.getSeason(start)).isEqualTo(1);
+        assertThat(flags.getNumber(start)).isEqualTo(1);
+        assertThat(flags.getPlays(start)).isEqualTo(0);
+        assertThat(flags.getSeason(start + 1)).isEqualTo(1);
+        assertThat(flags.getNumber(start + 1)).isEqualTo(5);
+        assertThat(flags.getPlays(start + 1)).isEqualTo(2);
+        assertThat(flags.getSeason(start + 2)).isEqualTo(2);
+
+        // lookups
+        int season1 = flags.findSeasonStart(start, end, 1);
+        assertThat(season1).isEqualTo(start);
+        int season1End = flags.getSeasonEnd(season1, end);
+        assertThat(season1End).isEqualTo(start + 2);
+        assertThat(flags.findEpisode(season1, season1End, 5)).isEqualTo(start + 1);
+        assertThat(flags.findEpisode(season1, season1End, 2))
+                .isEqualTo(TraktEpisodeFlags.NOT_FOUND);
+        assertThat(flags.findSeasonStart(start, end, 2)).isEqualTo(start + 2);
+        assertThat(flags.findSeasonStart(start, end, 3)).isEqualTo(TraktEpisodeFlags.NOT_FOUND);
+    }
+
+    @Test
+    public void parse_empty() throws IOException {
+        TraktEpisodeFlags flags = TraktEpisodeFlags.parse(new StringReader("[]"));
+        assertThat(flags.isEmpty()).isTrue();
+        assertThat(flags.containsShow(12)).isFalse();
+        assertThat(flags.getShowEnd(12) - flags.getShowStart(12)).isEqualTo(0);
+    }
+
+    private static String buildWatchedShows(int shows, int seasons, int episodes) {
+        StringBuilder json = new StringBuilder("[");
+        for (int show = 1; show <= shows; show++) {
+            if (show > 1) {
+                json.append(',');
+            }
+            json.append("{\"plays\":").append(seasons * episodes)
+                    .append(",\"last_watched_at\":\"2020-01-02T03:04:05.000Z\"")
+                    .append(",\"last_updated_at\":\"2020-01-02T03:04:05.000Z\"")
+                    .append(",\"reset_at\":null")
+                    .append(",\"show\":{\"title\":\"Show ").append(show)
+                    .append("\",\"year\":2010,\"ids\":{\"trakt\":").append(show)
+                    .append(",\"slug\":\"show-").append(show)
+                    .append("\",\"tvdb\":").append(show)
+                    .append(",\"imdb\":\"tt").append(show)
+                    .append("\",\"tmdb\":").append(show)
+                    .append(",\"tvrage\":null}},\"seasons\":[");
+            for (int season = 1; season <= seasons; season++) {
+                if (season > 1) {
+                    json.append(',');
+                }
+                json.append("{\"number\":").append(season).append(",\"episodes\":[");
+                for (int episode = 1; episode <= episodes; episode++) {
+                    if (episode > 1) {
+                        json.append(',');
+                    }
+                    json.append("{\"number\":").append(episode)
+                            .append(",\"plays\":").append(episode % 3 + 1)
+                            .append(",\"last_watched_at\":\"2020-01-02T03:04:05.000Z\"}");
+                }
+                json.append("]}");
+            }
+            json.append("]}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static List<BaseShow> parseObjectGraph(Gson gson, Reader json) {
+        return gson.fromJson(json, new TypeToken<List<BaseShow>>() {
+        }.getType());
+    }
+
+    /**
+     * Asserts that the flags contain the same shows and episodes as the object graph.
+     */
+    private static void assertSameEpisodes(TraktEpisodeFlags flags, List<BaseShow> graph) {
+        assertThat(flags.size()).isEqualTo(graph.size());
+        for (BaseShow show : graph) {
+            int showTvdbId = show.show.ids.tvdb;
+            int showStart = flags.getShowStart(showTvdbId);
+            int showEnd = flags.getShowEnd(showTvdbId);
+            for (BaseSeason season : show.seasons) {
+                int seasonStart = flags.findSeasonStart(showStart, showEnd, season.number);
+                int seasonEnd = flags.getSeasonEnd(seasonStart, showEnd);
+                assertThat(seasonEnd - seasonStart).isEqualTo(season.episodes.size());
+                for (BaseEpisode episode : season.episodes) {
+                    int index = flags.findEpisode(seasonStart, seasonEnd, episode.number);
+                    assertThat(flags.getPlays(index)).isEqualTo(episode.plays);
+                }
+            }
+            assertThat(flags.getShowLastWatchedMs(showTvdbId))
+                    .isEqualTo(show.last_watched_at.toInstant().toEpochMilli());
+        }
+    }
+
+    @Test
+    public void parse_matchesObjectGraph() throws IOException {
+        String json = buildWatchedShows(3, 2, 4);
+        Gson gson = TraktV2Helper.getGsonBuilder().create();
+
+        TraktEpisodeFlags flags = TraktEpisodeFlags.parse(new StringReader(json));
+
+        assertSameEpisodes(flags, parseObjectGraph(gson, new StringReader(json)));
+    }
+
+    private static Reader readerOf(byte[] json) {
+        return new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8);
+    }
+
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                heapPools.add(pool);
+            }
+        }
+        return heapPools;
+    }
+
+    /**
+     * Collects garbage, then resets the peak usage of the heap pools.
+     *
+     * @return the heap used after collecting garbage.
+     */
+    private static long resetPeakHeapUsed(List<MemoryPoolMXBean> heapPools) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    /**
+     * Sums the peak usage of the heap pools since the last reset. Pools may peak at different
+     * times, so this is an upper bound.
+     */
+    private static long getPeakHeapUsed(List<MemoryPoolMXBean> heapPools) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Compares against building the object graph with Gson, like the trakt-java services do. Both
+     * read the same bytes through a Reader, like a response body, so garbage created while
+     * parsing counts towards the peak heap. Downloading is not compared. Only prints results, so
+     * run it manually.
+     */
+    @Ignore("Benchmark, run manually")
+    @Test
+    public void parse_benchmarkAgainstObjectGraph() throws IOException {
+        byte[] json = buildWatchedShows(500, 8, 24).getBytes(StandardCharsets.UTF_8);
+        Gson gson = TraktV2Helper.getGsonBuilder().create();
+        List<MemoryPoolMXBean> heapPools = getHeapPools();
+
+        // warm up
+        for (int i = 0; i < 3; i++) {
+            parseObjectGraph(gson, readerOf(json));
+            TraktEpisodeFlags.parse(readerOf(json));
+        }
+
+        long heapBefore = resetPeakHeapUsed(heapPools);
+        long start = System.nanoTime();
+        List<BaseShow> graph = parseObjectGraph(gson, readerOf(json));
+        long graphTimeUs = (System.nanoTime() - start) / 1000;
+        long graphPeakBytes = getPeakHeapUsed(heapPools) - heapBefore;
+        long graphRetainedBytes = resetPeakHeapUsed(heapPools) - heapBefore;
+
+        heapBefore = resetPeakHeapUsed(heapPools);
+        start = System.nanoTime();
+        TraktEpisodeFlags flags = TraktEpisodeFlags.parse(readerOf(json));
+        long flagsTimeUs = (System.nanoTime() - start) / 1000;
+        long flagsPeakBytes = getPeakHeapUsed(heapPools) - heapBefore;
+        long flagsRetainedBytes = resetPeakHeapUsed(heapPools) - heapBefore;
+
+        System.out.println("Object graph: " + graphTimeUs + " us, peak heap ~"
+                + graphPeakBytes / 1024 + " KB, retains ~" + graphRetainedBytes / 1024 + " KB");
+        System.out.println("Episode flags: " + flagsTimeUs + " us, peak heap ~"
+                + flagsPeakBytes / 1024 + " KB, retains ~" + flagsRetainedBytes / 1024 + " KB");
+
+        assertSameEpisodes(flags, graph);
+    }
+}
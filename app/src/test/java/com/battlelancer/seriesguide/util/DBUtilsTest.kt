@@ -0,0 +1,109 @@
+package com.battlelancer.seriesguide.util
+
+import android.content.ContentProvider
+import android.content.ContentProviderOperation
+import android.content.ContentProviderResult
+import android.content.ContentValues
+import android.database.Cursor
+import android.net.Uri
+import androidx.test.core.app.ApplicationProvider
+import com.battlelancer.seriesguide.EmptyTestApplication
+import com.battlelancer.seriesguide.SgApp
+import com.battlelancer.seriesguide.provider.SeriesGuideContract.Episodes
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = EmptyTestApplication::class)
+class DBUtilsTest {
+
+    /**
+     * Records the ops of each applied batch instead of applying them.
+     */
+    class RecordingProvider : ContentProvider() {
+
+        val batches = ArrayList<List<ContentProviderOperation>>()
+
+        override fun applyBatch(
+            operations: ArrayList<ContentProviderOperation>
+        ): Array<ContentProviderResult> {
+            // the caller re-uses the list, so copy it
+            batches.add(ArrayList(operations))
+            return emptyArray()
+        }
+
+        override fun onCreate(): Boolean = true
+
+        override fun query(
+            uri: Uri, projection: Array<out String>?, selection: String?,
+            selectionArgs: Array<out String>?, sortOrder: String?
+        ): Cursor? = null
+
+        override fun getType(uri: Uri): String? = null
+
+        override fun insert(uri: Uri, values: ContentValues?): Uri? = null
+
+        override fun delete(uri: Uri, selection: String?, selectionArgs: Array<out String>?): Int =
+            0
+
+        override fun update(
+            uri: Uri, values: ContentValues?, selection: String?,
+            selectionArgs: Array<out String>?
+        ): Int = 0
+    }
+
+    private lateinit var provider: RecordingProvider
+
+    @Before
+    fun setUpProvider() {
+        provider = Robolectric.setupContentProvider(
+            RecordingProvider::class.java,
+            SgApp.CONTENT_AUTHORITY
+        )
+    }
+
+    private fun buildBatch(size: Int): ArrayList<ContentProviderOperation> {
+        val batch = ArrayList<ContentProviderOperation>(size)
+        for (i in 0 until size) {
+            batch.add(
+                ContentProviderOperation.newUpdate(Episodes.buildEpisodeUri(i))
+                    .withValue(Episodes.WATCHED, 1)
+                    .build()
+            )
+        }
+        return batch
+    }
+
+    @Test
+    fun applyInSmallBatches_empty() {
+        DBUtils.applyInSmallBatches(ApplicationProvider.getApplicationContext(), buildBatch(0))
+
+        assertThat(provider.batches).isEmpty()
+    }
+
+    @Test
+    fun applyInSmallBatches_small() {
+        val batch = buildBatch(500)
+
+        DBUtils.applyInSmallBatches(ApplicationProvider.getApplicationContext(), batch)
+
+        assertThat(provider.batches).hasSize(1)
+        assertThat(provider.batches[0]).containsExactlyElementsIn(batch).inOrder()
+    }
+
+    @Test
+    fun applyInSmallBatches_splitsByOps() {
+        val batch = buildBatch(1201)
+
+        DBUtils.applyInSmallBatches(ApplicationProvider.getApplicationContext(), batch)
+
+        assertThat(provider.batches.map { it.size }).containsExactly(500, 500, 201).inOrder()
+        assertThat(provider.batches.flatten()).containsExactlyElementsIn(batch).inOrder()
+    }
+
+}
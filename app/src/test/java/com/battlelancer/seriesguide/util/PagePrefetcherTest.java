@@ -0,0 +1,116 @@
+package com.battlelancer.seriesguide.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.battlelancer.seriesguide.EmptyTestApplication;
+import com.battlelancer.seriesguide.util.PagePrefetcher.Page;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = EmptyTestApplication.class)
+public class PagePrefetcherTest {
+
+    private static final int PAGE_COUNT = 3;
+
+    private static Page<Integer> page(int number) {
+        String nextCursor = number < PAGE_COUNT ? String.valueOf(number + 1) : null;
+        return new Page<>(Collections.singletonList(number), nextCursor);
+    }
+
+    @Test
+    public void loadsNextPageWhileProcessing() throws Exception {
+        List<String> loadedCursors = new CopyOnWriteArrayList<>();
+        CountDownLatch secondPageLoading = new CountDownLatch(1);
+        try (PagePrefetcher<Integer> pages = new PagePrefetcher<>(cursor -> {
+            loadedCursors.add(String.valueOf(cursor));
+            if ("2".equals(cursor)) {
+                secondPageLoading.countDown();
+            }
+            return page(cursor == null ? 1 : Integer.parseInt(cursor));
+        })) {
+            List<Integer> items = new ArrayList<>();
+            while (pages.hasNext()) {
+                Page<Integer> page = pages.next();
+                assertThat(page).isNotNull();
+                assertThat(page.items).isNotNull();
+                if (page.items.get(0) == 1) {
+                    // next page is loaded before it is requested
+                    assertThat(secondPageLoading.await(5, TimeUnit.SECONDS)).isTrue();
+                    // but not the one after it
+                    assertThat(loadedCursors).containsExactly("null", "2").inOrder();
+                }
+                items.addAll(page.items);
+            }
+            assertThat(items).containsExactly(1, 2, 3).inOrder();
+            assertThat(loadedCursors).containsExactly("null", "2", "3").inOrder();
+        }
+    }
+
+    @Test
+    public void stopsAtEmptyPage() throws Exception {
+        try (PagePrefetcher<Integer> pages = new PagePrefetcher<>(
+                cursor -> new Page<>(Collections.emptyList(), "more"))) {
+            assertThat(pages.next()).isNotNull();
+            assertThat(pages.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void failedPage_returnsNull() throws Exception {
+        try (PagePrefetcher<Integer> pages = new PagePrefetcher<>(
+                cursor -> cursor == null ? page(1) : null)) {
+            assertThat(pages.next()).isNotNull();
+            assertThat(pages.next()).isNull();
+            assertThat(pages.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void loadException_isThrown() {
+        try (PagePrefetcher<Integer> pages = new PagePrefetcher<>(cursor -> {
+            throw new IOException("offline");
+        })) {
+            pages.next();
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertThat(e).hasMessageThat().isEqualTo("offline");
+        }
+    }
+
+    @Test
+    public void sharedExecutor_notShutDownOnClose() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 2; i++) {
+                List<Integer> items = new ArrayList<>();
+                try (PagePrefetcher<Integer> pages = new PagePrefetcher<>(
+                        cursor -> page(cursor == null ? 1 : Integer.parseInt(cursor)),
+                        executor)) {
+                    while (pages.hasNext()) {
+                        Page<Integer> page = pages.next();
+                        assertThat(page).isNotNull();
+                        assertThat(page.items).isNotNull();
+                        items.addAll(page.items);
+                    }
+                }
+                assertThat(items).containsExactly(1, 2, 3).inOrder();
+            }
+            assertThat(executor.isShutdown()).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.battlelancer.seriesguide.util
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.battlelancer.seriesguide.EmptyTestApplication
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = EmptyTestApplication::class)
+class PosterPathCacheTest {
+
+    private lateinit var cache: PosterPathCache
+
+    @Before
+    fun createCache() {
+        cache = PosterPathCache(
+            ApplicationProvider.getApplicationContext<Context>()
+                .getSharedPreferences("poster-paths-test", 0)
+        )
+    }
+
+    @Test
+    fun expiresPaths() {
+        val key = PosterPathCache.showKey(42, "de")
+        cache.put(key, "/poster.jpg", 1000)
+        assertThat(cache.getIfValid(key, 1000)).isEqualTo("/poster.jpg")
+        assertThat(cache.getIfValid(key, 1000 + PosterPathCache.MAX_AGE_MS - 1))
+            .isEqualTo("/poster.jpg")
+        assertThat(cache.getIfValid(key, 1000 + PosterPathCache.MAX_AGE_MS)).isNull()
+
+        // no poster is remembered for a shorter time
+        cache.put(key, "", 1000)
+        assertThat(cache.getIfValid(key, 1000)).isEmpty()
+        assertThat(cache.getIfValid(key, 1000 + PosterPathCache.MAX_AGE_NONE_MS)).isNull()
+
+        cache.removeExpired(1000 + PosterPathCache.MAX_AGE_NONE_MS)
+        cache.put(key, "/poster.jpg", 2000)
+        assertThat(cache.getIfValid(key, 2000)).isEqualTo("/poster.jpg")
+    }
+
+    @Test
+    fun resolvesOnceAndCaches() {
+        val key = PosterPathCache.movieKey(42, null)
+        val lookups = AtomicInteger()
+        val resolver = PosterPathCache.Resolver {
+            lookups.incrementAndGet()
+            "/poster.jpg"
+        }
+        assertThat(cache.getOrResolve(key, resolver)).isEqualTo("/poster.jpg")
+        assertThat(cache.getOrResolve(key, resolver)).isEqualTo("/poster.jpg")
+        assertThat(lookups.get()).isEqualTo(1)
+    }
+
+    @Test
+    fun cachesMissingPoster_notFailedLookup() {
+        val failedKey = PosterPathCache.movieKey(42, null)
+        assertThat(cache.getOrResolve(failedKey) { null }).isNull()
+        assertThat(cache.getOrResolve(failedKey) { "/poster.jpg" }).isEqualTo("/poster.jpg")
+
+        val missingKey = PosterPathCache.movieKey(43, null)
+        assertThat(cache.getOrResolve(missingKey) { "" }).isNull()
+        assertThat(cache.getOrResolve(missingKey) { "/poster.jpg" }).isNull()
+    }
+
+    @Test
+    fun deduplicatesConcurrentLookups() {
+        val key = PosterPathCache.showKey(42, null)
+        val lookups = AtomicInteger()
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val resolver = PosterPathCache.Resolver {
+            lookups.incrementAndGet()
+            started.countDown()
+            release.await(5, TimeUnit.SECONDS)
+            "/poster.jpg"
+        }
+
+        val executor = Executors.newSingleThreadExecutor()
+        try {
+            val first = executor.submit<String> { cache.getOrResolve(key, resolver) }
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue()
+
+            var second: String? = null
+            val secondThread = Thread { second = cache.getOrResolve(key, resolver) }
+            secondThread.start()
+            // only release the first lookup once the second one waits for it
+            val timeoutAt = System.currentTimeMillis() + 5000
+            while (secondThread.state != Thread.State.WAITING) {
+                assertThat(System.currentTimeMillis()).isLessThan(timeoutAt)
+                Thread.yield()
+            }
+            release.countDown()
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("/poster.jpg")
+            secondThread.join(5000)
+            assertThat(second).isEqualTo("/poster.jpg")
+        } finally {
+            executor.shutdownNow()
+        }
+        assertThat(lookups.get()).isEqualTo(1)
+    }
+
+}